@@ -0,0 +1,113 @@
+package com.example.account.benchmark;
+
+import com.example.account.AccountApplication;
+import com.example.account.dto.AccountDto;
+import com.example.account.exception.AccountException;
+import com.example.account.service.AccountService;
+import com.example.account.service.LockService;
+import com.example.account.service.TransactionService;
+import com.example.account.type.ErrorCode;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 한 계좌에 요청이 몰릴 때 락 범위에 따른 처리량 비교
+ * - METHOD : 예전처럼 컨트롤러 메소드 전체(사용자 조회, 실패건 저장 포함)를 락으로 감쌈
+ * - MUTATION : 지금 구조, AccountBalanceService 에서 잔액 변경 + 성공 거래 저장 동안만 락을 잡음
+ * 요청의 20% 는 소유주가 다른 사용자로 보내서 실패건 저장 경로도 같이 측정함
+ * 처리량(ops/s)은 모든 결과를 합친 것 => 결과별 처리량은 Outcome 의 succeeded, failed, lockRejected 로 따로 봄
+ * 결과는 docs/benchmarks/lock-scope.md
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class LockScopeBenchmark {
+    @Param({"METHOD", "MUTATION"})
+    public String scope;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private LockService lockService;
+    private String accountNumber;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = SpringApplication.run(AccountApplication.class,
+                "--spring.main.web-application-type=none",
+                "--spring.jpa.properties.hibernate.show_sql=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--account.rate-limit.enabled=false",
+                "--account.admission.enabled=false", // 락 범위만 비교하도록 제한/거절은 끔
+                "--logging.level.root=WARN");
+        transactionService = context.getBean(TransactionService.class);
+        lockService = context.getBean(LockService.class);
+
+        // data.sql 의 1번 사용자에게 충분한 잔액의 계좌 하나를 만들어서 모든 스레드가 같은 계좌를 사용
+        AccountDto account = context.getBean(AccountService.class)
+                .createAccount(1L, 1_000_000_000_000L);
+        accountNumber = account.getAccountNumber();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // 스레드별 결과 수, JMH 가 초당 값으로 합쳐서 보여줌
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcome {
+        public long succeeded;
+        public long failed; // 소유주가 아닌 사용자 => 실패건 저장
+        public long lockRejected; // 락 대기 시간 초과
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            succeeded = 0;
+            failed = 0;
+            lockRejected = 0;
+        }
+    }
+
+    @Benchmark
+    public Object useBalance(Outcome outcome) {
+        // 2번 사용자는 계좌 주인이 아니므로 USER_ACCOUNT_UN_MATCH 로 실패함
+        long userId = ThreadLocalRandom.current().nextInt(10) < 2 ? 2L : 1L;
+        if ("METHOD".equals(scope)) {
+            try {
+                lockService.lock(accountNumber);
+            } catch (AccountException e) {
+                outcome.lockRejected++; // 예전에는 컨트롤러 진입 전에 거절됨
+                return e;
+            }
+            try {
+                return useOrSaveFailed(userId, outcome);
+            } finally {
+                lockService.unlock(accountNumber);
+            }
+        }
+        return useOrSaveFailed(userId, outcome);
+    }
+
+    // TransactionController.useBalance 와 같은 흐름
+    private Object useOrSaveFailed(long userId, Outcome outcome) {
+        try {
+            Object result = transactionService.useBalance(userId, accountNumber, 100L);
+            outcome.succeeded++;
+            return result;
+        } catch (AccountException e) {
+            transactionService.saveFailedUseTransaction(accountNumber, 100L, e.getErrorCode());
+            if (e.getErrorCode() == ErrorCode.ACCOUNT_TRANSACTION_LOCK) {
+                outcome.lockRejected++;
+            } else {
+                outcome.failed++;
+            }
+            return e;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.account.benchmark;
+
+import com.example.account.dto.ErrorResponse;
+import com.example.account.exception.AccountException;
+import com.example.account.exception.GlobalExceptionHandler;
+import com.example.account.type.ErrorCode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 거절되는 요청 하나당 예외 + 에러 응답 비용 비교
+ * - STACK_TRACE : 예전 방식, 요청마다 스택 트레이스가 있는 예외와 ErrorResponse 를 새로 만듦
+ * - PREALLOCATED : 지금 방식, AccountException.of 로 미리 만든 예외를 던지고 GlobalExceptionHandler 가 캐시된 응답을 돌려줌
+ * 실제 요청처럼 depth 만큼 쌓인 호출 스택 안에서 던짐 (스택 트레이스 비용은 깊이에 비례)
+ * 예전 방식은 요청마다 ERROR 로그를 두 번 남겼는데 콘솔 출력이 결과를 덮어버려서 여기서는 빼고 측정함
+ * => 실제 차이는 이 결과보다 큼
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RejectionPathBenchmark {
+    @Param({"STACK_TRACE", "PREALLOCATED"})
+    public String path;
+
+    @Param({"20", "80"})
+    public int depth;
+
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+    @Benchmark
+    public ErrorResponse reject() {
+        try {
+            return throwAt(depth);
+        } catch (StackTraceAccountException e) {
+            return new ErrorResponse(e.errorCode, e.errorCode.getDescription());
+        } catch (AccountException e) {
+            return handler.handleAccountException(e);
+        }
+    }
+
+    private ErrorResponse throwAt(int remaining) {
+        if (remaining > 0) {
+            return throwAt(remaining - 1);
+        }
+        if ("STACK_TRACE".equals(path)) {
+            throw new StackTraceAccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        }
+        throw AccountException.of(ErrorCode.AMOUNT_EXCEED_BALANCE);
+    }
+
+    // 예전 AccountException 과 같은 모양 (RuntimeException 기본 생성자 => 스택 트레이스 생성)
+    static class StackTraceAccountException extends RuntimeException {
+        private final ErrorCode errorCode;
+
+        StackTraceAccountException(ErrorCode errorCode) {
+            this.errorCode = errorCode;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.account.benchmark;
+
+import com.example.account.AccountApplication;
+import com.example.account.dto.TransactionSearch;
+import com.example.account.service.AccountService;
+import com.example.account.service.DatasetGenerator;
+import com.example.account.service.TransactionPeriodService;
+import com.example.account.service.TransactionSearchService;
+import com.example.account.service.TransactionService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 거래 테이블이 커질 때 insert 처리 시간과 기간 조회 시간이 어떻게 변하는지
+ * - useBalance : 성공 거래 저장 전체 경로 (락, 잔액 변경, transaction insert + 인덱스, outbox, 합계)
+ * - searchLastWeek : 최근 7일 거래 검색 첫 페이지
+ * - searchSealedWeek : 석 달 전 7일 거래 검색 첫 페이지 (sealed 면 그 달 테이블만 읽음)
+ * - sumLastMonth : 지난 달 전체 거래 합계 (지난 달은 봉인하지 않으므로 항상 원장, 쓰기가 없으면 H2 가 결과를 재사용함)
+ * sealed=false 는 한 테이블에 모두 있는 기준선, true 는 데이터를 만든 뒤 지난 달 이전을 달 테이블로 봉인
+ * 결과는 docs/benchmarks/transaction-growth.md
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class TransactionGrowthBenchmark {
+    private static final int ACCOUNTS = 4;
+
+    @Param({"250000", "1000000", "4000000"})
+    public long tableRows;
+
+    @Param({"false", "true"})
+    public boolean sealed;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private TransactionSearchService transactionSearchService;
+    private JdbcTemplate jdbcTemplate;
+    private String[] accountNumbers;
+    private Timestamp lastMonthStart;
+    private Timestamp lastMonthEnd;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = SpringApplication.run(AccountApplication.class,
+                "--spring.main.web-application-type=none",
+                "--spring.jpa.properties.hibernate.show_sql=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--account.rate-limit.enabled=false",
+                "--account.admission.enabled=false",
+                "--account.outbox.relay-enabled=false",
+                "--account.reconciliation.interval-minutes=0",
+                "--logging.level.root=WARN");
+        context.getBean(DatasetGenerator.class).generate(DatasetGenerator.DatasetSpec.builder()
+                .users(tableRows >= 1_000_000 ? 20_000 : 5_000)
+                .accounts(tableRows >= 1_000_000 ? 100_000 : 25_000)
+                .transactions(tableRows)
+                .years(3)
+                .zipfExponent(1.1)
+                .seed(42)
+                .batchSize(1000)
+                .build());
+        if (sealed) {
+            context.getBean(TransactionPeriodService.class).seal();
+        }
+        transactionService = context.getBean(TransactionService.class);
+        transactionSearchService = context.getBean(TransactionSearchService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        // data.sql 의 1번 사용자에게 잔액이 넉넉한 계좌 몇 개를 만들어서 스레드들이 나눠 씀
+        AccountService accountService = context.getBean(AccountService.class);
+        accountNumbers = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountNumbers[i] = accountService.createAccount(1L, 1_000_000_000_000L).getAccountNumber();
+        }
+
+        LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+        lastMonthStart = Timestamp.valueOf(thisMonth.minusMonths(1).atStartOfDay());
+        lastMonthEnd = Timestamp.valueOf(thisMonth.atStartOfDay());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object useBalance() {
+        String accountNumber = accountNumbers[ThreadLocalRandom.current().nextInt(ACCOUNTS)];
+        return transactionService.useBalance(1L, accountNumber, 100L);
+    }
+
+    @Benchmark
+    public Object searchLastWeek() {
+        LocalDateTime now = LocalDateTime.now();
+        return transactionSearchService.search(TransactionSearch.Condition.builder()
+                .from(now.minusDays(7))
+                .to(now)
+                .size(20)
+                .build());
+    }
+
+    @Benchmark
+    public Object searchSealedWeek() {
+        LocalDateTime from = LocalDateTime.now().minusMonths(3);
+        return transactionSearchService.search(TransactionSearch.Condition.builder()
+                .from(from)
+                .to(from.plusDays(7))
+                .size(20)
+                .build());
+    }
+
+    @Benchmark
+    public Map<String, Object> sumLastMonth() {
+        return jdbcTemplate.queryForMap("select count(*) cnt, sum(amount) total from transaction"
+                + " where transacted_at >= ? and transacted_at < ?", lastMonthStart, lastMonthEnd);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.account.benchmark;
+
+import com.example.account.AccountApplication;
+import com.example.account.dto.TransactionSearch;
+import com.example.account.service.DatasetGenerator;
+import com.example.account.service.TransactionSearchService;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 거래 검색 조건 조합(shape)별 첫 페이지 / 깊은 페이지 조회 시간
+ * DatasetGenerator 로 200만 건을 넣고, 가장 거래가 많은(hot) 계좌로 검색함
+ * 측정 전에 조합마다 같은 모양의 SQL 을 EXPLAIN 해서 테이블 풀스캔(tableScan)이면 바로 실패시킴
+ * => 인덱스 설계(Transaction @Table(indexes))가 조건 조합을 다 덮는지 확인하는 용도
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionSearchBenchmark {
+    @Param({"ACCOUNT", "ACCOUNT_PERIOD", "ACCOUNT_TYPE_RESULT", "ACCOUNT_AMOUNT", "RESULT_PERIOD", "PERIOD"})
+    public String shape;
+
+    @Param({"1", "50"})
+    public int page; // 50 이면 keyset 으로 49 페이지를 넘긴 뒤의 페이지
+
+    private ConfigurableApplicationContext context;
+    private TransactionSearchService transactionSearchService;
+    private TransactionSearch.Condition condition;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = SpringApplication.run(AccountApplication.class,
+                "--spring.main.web-application-type=none",
+                "--spring.jpa.properties.hibernate.show_sql=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--account.outbox.relay-enabled=false",
+                "--logging.level.root=WARN");
+        context.getBean(DatasetGenerator.class).generate(DatasetGenerator.DatasetSpec.builder()
+                .users(20_000)
+                .accounts(100_000)
+                .transactions(2_000_000)
+                .years(3)
+                .zipfExponent(1.1)
+                .seed(42)
+                .batchSize(1000)
+                .build());
+        transactionSearchService = context.getBean(TransactionSearchService.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        Map<String, Object> hot = jdbcTemplate.queryForMap("select a.id, a.account_number from account a"
+                + " join (select account_id, count(*) cnt from transaction group by account_id"
+                + " order by cnt desc limit 1) t on a.id = t.account_id");
+        assertIndexed(jdbcTemplate, ((Number) hot.get("id")).longValue());
+
+        condition = condition((String) hot.get("account_number"));
+        // page 번째 페이지까지 커서를 넘김
+        for (int i = 1; i < page; i++) {
+            String cursor = transactionSearchService.search(condition).getNextCursor();
+            if (cursor == null) {
+                break;
+            }
+            condition.setCursor(cursor);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object search() {
+        return transactionSearchService.search(condition);
+    }
+
+    private TransactionSearch.Condition condition(String accountNumber) {
+        LocalDateTime now = LocalDateTime.now();
+        TransactionSearch.Condition.ConditionBuilder builder = TransactionSearch.Condition.builder().size(20);
+        switch (shape) {
+            case "ACCOUNT":
+                return builder.accountNumber(accountNumber).build();
+            case "ACCOUNT_PERIOD":
+                return builder.accountNumber(accountNumber).from(now.minusYears(2)).to(now.minusYears(1)).build();
+            case "ACCOUNT_TYPE_RESULT":
+                return builder.accountNumber(accountNumber)
+                        .transactionType(TransactionType.USE)
+                        .transactionResultType(TransactionResultType.F).build();
+            case "ACCOUNT_AMOUNT":
+                return builder.accountNumber(accountNumber).minAmount(100_000L).maxAmount(500_000L).build();
+            case "RESULT_PERIOD":
+                return builder.transactionResultType(TransactionResultType.F)
+                        .from(now.minusMonths(6)).to(now.minusMonths(5)).build();
+            default:
+                return builder.from(now.minusMonths(6)).to(now.minusMonths(5)).build();
+        }
+    }
+
+    // TransactionRepositoryImpl.search 가 만드는 것과 같은 모양 (조건 + transacted_at desc, id desc + limit)
+    private void assertIndexed(JdbcTemplate jdbcTemplate, long accountId) {
+        String where;
+        switch (shape) {
+            case "ACCOUNT":
+            case "ACCOUNT_AMOUNT": // 금액은 계좌 인덱스 범위 안에서 걸러냄
+                where = "account_id = " + accountId;
+                break;
+            case "ACCOUNT_PERIOD":
+                where = "account_id = " + accountId + " and transacted_at >= dateadd('YEAR', -2, now())"
+                        + " and transacted_at < dateadd('YEAR', -1, now())";
+                break;
+            case "ACCOUNT_TYPE_RESULT":
+                where = "account_id = " + accountId
+                        + " and transaction_type = 'USE' and transaction_result_type = 'F'";
+                break;
+            case "RESULT_PERIOD":
+                where = "transaction_result_type = 'F' and transacted_at >= dateadd('MONTH', -6, now())"
+                        + " and transacted_at < dateadd('MONTH', -5, now())";
+                break;
+            default:
+                where = "transacted_at >= dateadd('MONTH', -6, now())"
+                        + " and transacted_at < dateadd('MONTH', -5, now())";
+        }
+        String plan = jdbcTemplate.queryForObject("explain select * from transaction where " + where
+                + " order by transacted_at desc, id desc limit 21", String.class);
+        if (plan == null || plan.contains("tableScan")) {
+            throw new IllegalStateException(shape + " is not served by an index :\n" + plan);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.account.aop;
 
+import com.example.account.type.LockMode;
+
 import java.lang.annotation.*;
 
 // 기본적인 어노테이션
@@ -9,5 +11,9 @@ import java.lang.annotation.*;
 @Inherited
 // 락을 생성한 것임
 public @interface AccountLock {
-    long tryLockTime() default 5000L; // 어노테이션에서 지정해준 값으로 해당 시간동안 기다려보겠다
+    long tryLockTime() default 1000L; // 어노테이션에서 지정해준 값으로 해당 시간동안 기다려보겠다 (ms)
+
+    long leaseTime() default 15000L; // 이 시간이 지나면 락이 자동으로 풀림 (ms), -1 이면 watchdog 이 작업이 끝날 때까지 연장해줌
+
+    LockMode mode() default LockMode.WRITE; // 잔액 조회처럼 읽기만 하는 경우 READ => 읽기끼리는 서로 기다리지 않음
 }
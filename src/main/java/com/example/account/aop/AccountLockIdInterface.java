@@ -2,4 +2,9 @@ package com.example.account.aop;
 
 public interface AccountLockIdInterface {
     String getAccountNumber();
+
+    // 사용자별 처리율 제한에 사용, userId 가 없는 요청(CancelBalance)은 null
+    default Long getUserId() {
+        return null;
+    }
 }
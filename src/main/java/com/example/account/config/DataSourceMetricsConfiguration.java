@@ -0,0 +1,39 @@
+package com.example.account.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+// hikaricp.connections.* 는 boot 가 자동으로 올려줌
+// 여기서는 대시보드에서 바로 보기 좋게 풀 포화도((사용중 + 대기) / 최대)만 하나 더 만들어줌
+@Configuration
+public class DataSourceMetricsConfiguration {
+
+    @Bean
+    public MeterBinder hikariSaturationMetrics(DataSource dataSource) {
+        return registry -> {
+            if (!(dataSource instanceof HikariDataSource)) {
+                return;
+            }
+            HikariDataSource hikari = (HikariDataSource) dataSource;
+            Gauge.builder("hikaricp.connections.saturation", hikari, DataSourceMetricsConfiguration::saturation)
+                    .tag("pool", String.valueOf(hikari.getPoolName()))
+                    .description("(active + pending) / maximum pool size")
+                    .register(registry);
+        };
+    }
+
+    private static double saturation(HikariDataSource hikari) {
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        int max = hikari.getMaximumPoolSize();
+        if (pool == null || max <= 0) {
+            return 0; // 풀이 아직 초기화 전
+        }
+        return (double) (pool.getActiveConnections() + pool.getThreadsAwaitingConnection()) / max;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.account.config;
+
+import com.example.account.service.DatasetGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// dataset.enabled=true 로 띄우면 어플리케이션이 뜬 직후 application.yml 의 dataset 설정만큼 데이터를 넣어줌
+@Configuration
+@ConditionalOnProperty(prefix = "dataset", name = "enabled", havingValue = "true")
+public class DatasetConfig {
+    @Value("${dataset.users}")
+    private int users;
+
+    @Value("${dataset.accounts}")
+    private int accounts;
+
+    @Value("${dataset.transactions}")
+    private long transactions;
+
+    @Value("${dataset.years}")
+    private int years;
+
+    @Value("${dataset.zipf-exponent}")
+    private double zipfExponent;
+
+    @Value("${dataset.seed}")
+    private long seed;
+
+    @Value("${dataset.batch-size}")
+    private int batchSize;
+
+    @Bean
+    public ApplicationRunner datasetRunner(DatasetGenerator datasetGenerator) {
+        // data.sql 이 실행된 뒤에 돌아가므로 기존 사용자 뒤로 이어서 생성됨
+        return args -> datasetGenerator.generate(DatasetGenerator.DatasetSpec.builder()
+                .users(users)
+                .accounts(accounts)
+                .transactions(transactions)
+                .years(years)
+                .zipfExponent(zipfExponent)
+                .seed(seed)
+                .batchSize(batchSize)
+                .build());
+    }
+}
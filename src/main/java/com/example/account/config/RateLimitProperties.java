@@ -0,0 +1,54 @@
+package com.example.account.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * application.yml 의 account.rate-limit 설정
+ * endpoints 의 key 는 @AccountLock 이 붙은 메소드 이름 (useBalance, cancelBalance)
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "account.rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+    private String type = "local"; // local : 노드별 메모리, redis : 클러스터 전체 공유
+    private int maxKeys = 65536; // local 에서 엔드포인트마다 사용자, 계좌 버킷 최대 수 (넘으면 오래 안 쓴 것부터 지움)
+    private Map<String, EndpointLimit> endpoints = new HashMap<>();
+
+    // 처리율 제한 구현이 생성될 때 확인 => 값이 잘못되면 시작할 때 실패
+    // refill 이 0 이면 버킷이 다시 채워지지 않고 redis 스크립트는 0 으로 나눔
+    public void validate() {
+        endpoints.forEach((endpoint, limit) -> {
+            validate(endpoint + ".user", limit.getUser());
+            validate(endpoint + ".account", limit.getAccount());
+        });
+    }
+
+    private static void validate(String name, Limit limit) {
+        if (limit != null && (limit.getCapacity() <= 0 || !(limit.getRefillPerSecond() > 0))) {
+            throw new IllegalArgumentException("account.rate-limit.endpoints." + name
+                    + ".capacity and refill-per-second must be positive");
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class EndpointLimit {
+        private Limit user; // userId 별 제한, 없으면 제한 안함
+        private Limit account; // accountNumber 별 제한, 없으면 제한 안함
+    }
+
+    @Getter
+    @Setter
+    public static class Limit {
+        private int capacity; // 한번에 몰아서 쓸 수 있는 최대 요청 수
+        private double refillPerSecond; // 초당 채워지는 요청 수
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.account.config;
+
+import com.example.account.service.RequestTiming;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// 요청마다 RequestTiming 을 켜고 끔, 헤더는 응답 바디를 쓰기 전에 ServerTimingResponseAdvice 가 넣어줌
+// 꺼져 있으면 RequestTiming 이 비활성이라 구간 측정도 하지 않음
+@Slf4j
+@Component
+public class ServerTimingFilter extends OncePerRequestFilter {
+    private final boolean enabled;
+    private final long slowLogNanos;
+
+    public ServerTimingFilter(
+            @Value("${account.server-timing.enabled}") boolean enabled,
+            @Value("${account.server-timing.slow-log-millis}") long slowLogMillis
+    ) {
+        this.enabled = enabled;
+        this.slowLogNanos = slowLogMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(slowLogMillis) : Long.MAX_VALUE;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!enabled) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RequestTiming timing = RequestTiming.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (timing.totalNanos() >= slowLogNanos) {
+                log.warn("Slow request. {} {} : {}", request.getMethod(), request.getRequestURI(),
+                        timing.toHeader());
+            }
+            timing.end();
+        }
+    }
+}
@@ -1,14 +1,34 @@
 package com.example.account.controller;
 
 import com.example.account.domain.Account;
+import com.example.account.dto.AccountBalance;
+import com.example.account.dto.AccountBalanceBatch;
 import com.example.account.dto.AccountDto;
 import com.example.account.dto.AccountInfo;
 import com.example.account.dto.CreateAccount;
 import com.example.account.dto.DeleteAccount;
+import com.example.account.dto.SpendingSummary;
+import com.example.account.service.AccountBalanceService;
 import com.example.account.service.AccountService;
+import com.example.account.service.AccountVersionService;
+import com.example.account.service.BalanceStreamService;
+import com.example.account.service.SpendingRollupService;
+import com.example.account.type.RollupPeriod;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.validation.Valid;
@@ -20,7 +40,14 @@ import javax.validation.Valid;
 @RestController // 이 컨트롤러가 bean으로 등록되게 해주세요
 @RequiredArgsConstructor // final의 생성자 생성해주기 위해
 public class AccountController {
+    // 거래 시간(transactedAt)은 락 안에서 정해지고 락 lease(15초) 안에 커밋됨 => 넉넉하게 1분
+    private static final Duration BALANCE_SETTLED_AFTER = Duration.ofMinutes(1);
+
     private final AccountService accountService; // 의존성 주입받음
+    private final AccountBalanceService accountBalanceService;
+    private final BalanceStreamService balanceStreamService;
+    private final SpendingRollupService spendingRollupService;
+    private final AccountVersionService accountVersionService;
 
     // createAccount API 생성됨
     @PostMapping("/account")
@@ -50,11 +77,18 @@ public class AccountController {
     }
 
     // 계좌 학인 API 생성
+    // If-None-Match 가 사용자 계좌 버전(AccountVersionService)과 같으면 계좌를 읽지 않고 304
+    // ETag 는 계좌를 읽은 뒤에 붙임 => 에러 응답(USER_NOT_FOUND 등)에는 ETag 가 없어서 304 로 캐시되지 않음
     @GetMapping("/account")
-    public List<AccountInfo> getAccountsByUserId(
-            @RequestParam("user_id") Long userId // RequestParam으로 아이디를 받고
+    public ResponseEntity<List<AccountInfo>> getAccountsByUserId(
+            @RequestParam("user_id") Long userId, // RequestParam으로 아이디를 받고
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
     ){
-        return accountService.getAccountsByUserId(userId) // alter + enter로 메서드 생성
+        String eTag = accountVersionService.userETag(userId); // 계좌보다 먼저 읽음
+        if (ETags.matches(ifNoneMatch, eTag)) {
+            return ETags.notModified(eTag, CacheControl.noCache());
+        }
+        List<AccountInfo> accounts = accountService.getAccountsByUserId(userId) // alter + enter로 메서드 생성
                 // 아래는 List<AccountDto>로 응답이 넘어온 걸 List<AccountInfo>로 변환해주기
                 .stream().map(accountDto ->
                         AccountInfo.builder()
@@ -62,6 +96,71 @@ public class AccountController {
                         .balance(accountDto.getBalance())
                         .build())
                 .collect(Collectors.toList());
+        return ETags.ok(eTag, CacheControl.noCache()).body(accounts);
+    }
+
+    // 잔액 조회 API, 진행중인 잔액 변경이 커밋된 뒤의 값을 읽음
+    // at 을 주면 그 시점의 잔액 (예 : ?at=2022-10-01T00:00:00)
+    // 현재 잔액은 If-None-Match 가 계좌 버전과 같으면 잔액을 읽지 않고 304, ETag 는 잔액을 읽은 뒤에 붙임
+    @GetMapping("/account/{accountNumber}/balance")
+    public ResponseEntity<AccountBalance.Response> getBalance(
+            @PathVariable String accountNumber,
+            @RequestParam(value = "at", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        if (at == null) {
+            String eTag = accountVersionService.accountETag(accountNumber); // 잔액보다 먼저 읽음
+            if (ETags.matches(ifNoneMatch, eTag)) {
+                return ETags.notModified(eTag, CacheControl.noCache());
+            }
+            // ACCOUNT_NOT_FOUND, ACCOUNT_TRANSACTION_LOCK 이면 예외 => ETag 없는 에러 응답
+            AccountBalance.Response balance = AccountBalance.Response.from(
+                    accountBalanceService.getBalance(new AccountBalance.Request(accountNumber)));
+            return ETags.ok(eTag, CacheControl.noCache()).body(balance);
+        }
+
+        AccountBalance.Response response = AccountBalance.Response.from(
+                accountBalanceService.getBalanceAt(accountNumber, at));
+        // 락 대기 + 커밋 시간이 지나 더 이상 그 시점 이전 거래가 생길 수 없으면 결과가 바뀌지 않음
+        if (at.isBefore(LocalDateTime.now().minus(BALANCE_SETTLED_AFTER))) {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate())
+                    .body(response);
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(response);
+    }
+
+    // 여러 계좌 잔액을 한 번에, 요청 순서대로 응답하고 없는 계좌는 errorCode 로 표시
+    @PostMapping("/account/balance/batch")
+    public List<AccountBalanceBatch.Response> getBalances(
+            @RequestBody @Valid AccountBalanceBatch.Request request
+    ) {
+        Map<String, AccountDto> found = accountBalanceService.getBalances(request.getAccountNumbers());
+        return request.getAccountNumbers().stream()
+                .map(accountNumber -> AccountBalanceBatch.Response.of(accountNumber, found.get(accountNumber)))
+                .collect(Collectors.toList());
+    }
+
+    // 사용자의 계좌 잔액 변경을 SSE 로 받음 (처음에 현재 잔액, 이후 거래가 커밋될 때마다)
+    @GetMapping(value = "/account/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBalances(@RequestParam("user_id") Long userId) {
+        return balanceStreamService.subscribe(userId);
+    }
+
+    // 일/월 사용, 취소 합계 (account_number 가 없으면 사용자의 모든 계좌 합계)
+    // ex) /account/spending?user_id=1&period=DAY&from=2022-10-01&to=2022-10-31
+    @GetMapping("/account/spending")
+    public List<SpendingSummary> getSpending(
+            @RequestParam("user_id") Long userId,
+            @RequestParam(value = "account_number", required = false) String accountNumber,
+            @RequestParam(value = "period", defaultValue = "DAY") RollupPeriod period,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return spendingRollupService.summary(userId, accountNumber, period, from, to);
     }
 
     @GetMapping("/account/{id}")
@@ -0,0 +1,162 @@
+package com.example.account.controller;
+
+import com.example.account.dto.AccountCountMismatch;
+import com.example.account.dto.HotAccount;
+import com.example.account.dto.ReconciliationReport;
+import com.example.account.dto.TransactionSearch;
+import com.example.account.service.AccountCountBackfillService;
+import com.example.account.service.HotAccountTracker;
+import com.example.account.service.JfrRecordingService;
+import com.example.account.service.ReconciliationService;
+import com.example.account.service.SpendingRollupRebuildService;
+import com.example.account.service.TransactionArchiveService;
+import com.example.account.service.TransactionPeriodService;
+import com.example.account.service.TransactionSearchService;
+import com.example.account.type.HotAccountMetric;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 운영용 관리 API
+ * 1. 사용자별 사용중 계좌 수(activeAccountCount) backfill / 검증
+ * 2. 최근 1분간 경합이 심한 계좌(hot account) 조회
+ * 3. JFR 기록 (시작하면 id 를 돌려주고, 끝난 뒤 .jfr 파일을 스트리밍으로 다운로드)
+ * 4. 거래 검색 (CS 용)
+ * 5. 일/월 사용 합계(spending_rollup)를 거래 원장에서 다시 계산
+ * 6. 잔액 대사 (거래 원장과 계좌 잔액이 맞는지)
+ * 7. 오래된 거래를 보관소(압축 세그먼트 파일)로 옮김
+ * 8. 지난 달 거래를 원장에서 달 테이블로 옮김 (봉인)
+ */
+@RestController
+@RequiredArgsConstructor
+public class AdminController {
+    private final AccountCountBackfillService accountCountBackfillService;
+    private final HotAccountTracker hotAccountTracker;
+    private final JfrRecordingService jfrRecordingService;
+    private final TransactionSearchService transactionSearchService;
+    private final SpendingRollupRebuildService spendingRollupRebuildService;
+    private final ReconciliationService reconciliationService;
+    private final TransactionArchiveService transactionArchiveService;
+    private final TransactionPeriodService transactionPeriodService;
+
+    @PostMapping("/admin/account-count/backfill")
+    public int backfillAccountCount() {
+        return accountCountBackfillService.backfill(); // 업데이트된 사용자 수
+    }
+
+    @GetMapping("/admin/account-count/verify")
+    public List<AccountCountMismatch> verifyAccountCount() {
+        return accountCountBackfillService.verify(); // 비어있으면 모두 일치
+    }
+
+    @PostMapping("/admin/spending-rollup/rebuild")
+    public int rebuildSpendingRollup() throws Exception {
+        return spendingRollupRebuildService.rebuild(); // 다시 넣은 행 수
+    }
+
+    // full=false 면 마지막으로 끝난 대사 이후 거래가 있었던 계좌만, 실행 id 를 바로 리턴
+    @PostMapping("/admin/reconciliation")
+    public Long startReconciliation(
+            @RequestParam(value = "full", defaultValue = "false") boolean full
+    ) {
+        return reconciliationService.start(full);
+    }
+
+    // run_id 가 없으면 가장 최근 실행
+    @GetMapping("/admin/reconciliation")
+    public ReconciliationReport getReconciliation(
+            @RequestParam(value = "run_id", required = false) Long runId
+    ) {
+        return reconciliationService.report(runId);
+    }
+
+    @PostMapping("/admin/archive")
+    public int archiveTransactions() throws Exception {
+        return transactionArchiveService.archive(); // 옮긴 거래 수
+    }
+
+    // 보관(/admin/archive)도 먼저 봉인함
+    @PostMapping("/admin/transaction-periods/seal")
+    public int sealTransactionPeriods() {
+        return transactionPeriodService.seal(); // 옮긴 거래 수
+    }
+
+    @GetMapping("/admin/hot-accounts")
+    public List<HotAccount> getHotAccounts(
+            @RequestParam(value = "metric", defaultValue = "REQUESTS") HotAccountMetric metric,
+            @RequestParam(value = "limit", defaultValue = "10") int limit
+    ) {
+        return hotAccountTracker.top(metric, limit);
+    }
+
+    // ex) curl -X POST "localhost:8080/admin/jfr?seconds=30" => 기록 id 를 바로 돌려줌
+    @PostMapping("/admin/jfr")
+    public long startJfr(
+            @RequestParam(value = "seconds", defaultValue = "30") long seconds
+    ) throws Exception {
+        return jfrRecordingService.start(seconds);
+    }
+
+    // ex) seconds 가 지난 뒤 curl "localhost:8080/admin/jfr/1" -o account.jfr => JDK Mission Control 로 열기
+    // 파일을 메모리에 올리지 않고 스트리밍, 보내고 나면 지움 (한 번만 받을 수 있음)
+    @GetMapping("/admin/jfr/{id}")
+    public ResponseEntity<StreamingResponseBody> downloadJfr(@PathVariable long id) {
+        Path file = jfrRecordingService.take(id);
+        StreamingResponseBody body = out -> {
+            try {
+                Files.copy(file, out);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"account.jfr\"")
+                .body(body);
+    }
+
+    // ex) /admin/transactions?account_number=1000000000&transaction_result=F&from=2022-10-01T00:00:00
+    // 다음 페이지는 응답의 nextCursor 를 cursor 로 넘김
+    @GetMapping("/admin/transactions")
+    public TransactionSearch.Response searchTransactions(
+            @RequestParam(value = "account_number", required = false) String accountNumber,
+            @RequestParam(value = "transaction_type", required = false) TransactionType transactionType,
+            @RequestParam(value = "transaction_result", required = false) TransactionResultType transactionResult,
+            @RequestParam(value = "min_amount", required = false) Long minAmount,
+            @RequestParam(value = "max_amount", required = false) Long maxAmount,
+            @RequestParam(value = "from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size
+    ) {
+        return transactionSearchService.search(TransactionSearch.Condition.builder()
+                .accountNumber(accountNumber)
+                .transactionType(transactionType)
+                .transactionResultType(transactionResult)
+                .minAmount(minAmount)
+                .maxAmount(maxAmount)
+                .from(from)
+                .to(to)
+                .cursor(cursor)
+                .size(size)
+                .build());
+    }
+}
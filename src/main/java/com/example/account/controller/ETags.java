@@ -0,0 +1,45 @@
+package com.example.account.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * 조회 전에 If-None-Match 를 비교해서 304 로 바로 응답할 때 사용
+ * WebRequest.checkNotModified 는 비교만 해도 응답에 ETag 를 붙임 => 조회가 실패한 에러 응답(200)에도 ETag 가 나감
+ * 그래서 비교는 여기서 하고 ETag 는 304 이거나 조회에 성공한 응답에만 붙임
+ */
+final class ETags {
+    private ETags() {
+    }
+
+    // If-None-Match 의 값 중 하나가 eTag 와 같으면 true (W/ 는 떼고 비교, * 는 자원이 있는지 모르므로 같다고 보지 않음)
+    static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || eTag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static <T> ResponseEntity<T> notModified(String eTag, CacheControl cacheControl) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .build();
+    }
+
+    // eTag 가 없으면(버전을 못 읽음) ETag 없이 200
+    static ResponseEntity.BodyBuilder ok(String eTag, CacheControl cacheControl) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().cacheControl(cacheControl);
+        return eTag == null ? builder : builder.eTag(eTag);
+    }
+}
@@ -1,50 +1,58 @@
 package com.example.account.controller;
 
 
-import com.example.account.aop.AccountLock;
 import com.example.account.dto.CancelBalance;
+import com.example.account.dto.QueryTransactionBatch;
 import com.example.account.dto.QueryTransactionResponse;
 import com.example.account.dto.TransactionDto;
 import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
 import com.example.account.service.TransactionService;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * 잔액 관련 컨트롤러
  * 1. 잔액 사용
  * 2. 잔액 사용 취소
  * 3. 거래 확인
+ * 4. 여러 거래 한 번에 확인
  */
 
-@Slf4j
 @RestController // spring 빈으로 자동 등록됨
 @RequiredArgsConstructor
 public class TransactionController {
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate();
+
     private final TransactionService transacionService;
 
+    // 락은 AccountBalanceService 에서 잔액 변경하는 동안만 잡음 => 실패건 저장, 응답 변환은 락 밖에서 실행됨
     @PostMapping("/transaction/use")
-    @AccountLock
     public UseBalance.Response useBalance(
             @Valid @RequestBody UseBalance.Request request
-    ) throws InterruptedException {
+    ) {
         // transactionService.useBalance의 validateUseBalanace exception이 발생했을 때
         // 저장해주는 부분이 없으므로 => 예외처리 해주는 부분이 없으므로 => try ~ catch로 예외처리 해주겠음
         try {
-            Thread.sleep(3000L); // 3초후 응답을 보여줌
             return UseBalance.Response.from(
                     transacionService.useBalance(request.getUserId(),
                             request.getAccountNumber(), request.getAmount())
             );
         } catch (AccountException e) {
-            log.error("Failed to use balance. ");
+            // 로그는 GlobalExceptionHandler 에서 ErrorCode 별로 샘플링해서 남김
             transacionService.saveFailedUseTransaction( // 실패건 저장 해야함
                     request.getAccountNumber(),
-                    request.getAmount()
+                    request.getAmount(),
+                    e.getErrorCode() // 같은 실패를 모아서 저장할 때 사용
             );
 
             throw e;
@@ -52,7 +60,6 @@ public class TransactionController {
     }
 
     @PostMapping("/transaction/cancel")
-    @AccountLock
     public CancelBalance.Response cancelBalance(
             @Valid @RequestBody CancelBalance.Request request
     ) {
@@ -65,21 +72,41 @@ public class TransactionController {
                             request.getAccountNumber(), request.getAmount())
             );
         } catch (AccountException e) {
-            log.error("Failed to use balance. ");
-
+            // 로그는 GlobalExceptionHandler 에서 ErrorCode 별로 샘플링해서 남김
             transacionService.saveFailedCancelTransaction( // 실패건 저장 해야함
                     request.getAccountNumber(),
-                    request.getAmount()
+                    request.getAmount(),
+                    e.getErrorCode()
             );
 
             throw e;
         }
     }
 
+    // 저장된 거래는 바뀌지 않음(취소도 새 거래) => ETag 는 transactionId 로 충분
+    // 거래를 찾은 뒤에만 ETag 를 붙임 => 없는 거래(TRANSACTION_NOT_FOUND)의 에러 응답이 캐시되거나 304 가 되지 않음
+    // 그래서 If-None-Match 가 같으면 이미 찾은 적이 있는 거래 => 거래를 읽지 않고 304
     @GetMapping("/transaction/{transactionId}")
-    public QueryTransactionResponse queryTransaction(
-            @PathVariable String transactionId) {
-        return QueryTransactionResponse.from(
-                transacionService.queryTransaction(transactionId));
+    public ResponseEntity<QueryTransactionResponse> queryTransaction(
+            @PathVariable String transactionId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String eTag = "\"" + transactionId + "\"";
+        if (ETags.matches(ifNoneMatch, eTag)) {
+            return ETags.notModified(eTag, IMMUTABLE);
+        }
+        TransactionDto transaction = transacionService.queryTransaction(transactionId);
+        return ETags.ok(eTag, IMMUTABLE)
+                .body(QueryTransactionResponse.from(transaction));
+    }
+
+    // 여러 거래를 한 번에 확인, 요청 순서대로 응답하고 없는 거래는 errorCode 로 표시
+    @PostMapping("/transaction/query/batch")
+    public List<QueryTransactionBatch.Response> queryTransactions(
+            @Valid @RequestBody QueryTransactionBatch.Request request
+    ) {
+        Map<String, TransactionDto> found = transacionService.queryTransactions(request.getTransactionIds());
+        return request.getTransactionIds().stream()
+                .map(transactionId -> QueryTransactionBatch.Response.of(transactionId, found.get(transactionId)))
+                .collect(Collectors.toList());
     }
 }
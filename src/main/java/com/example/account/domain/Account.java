@@ -20,6 +20,8 @@ import java.time.LocalDateTime;
 @Entity
 // AuditingEntityListener -> config패키지 JpaAuditing에 저장해야 작동됨
 @EntityListeners(AuditingEntityListener.class)
+// 계좌번호로 찾는 조회(잔액, 거래, 여러 계좌 잔액)용
+@Table(indexes = @Index(name = "idx_account_account_number", columnList = "accountNumber"))
 public class Account extends BaseEntity{
 
 
@@ -30,6 +32,11 @@ public class Account extends BaseEntity{
     @Enumerated(EnumType.STRING) // 0123으로 저장 안되고 AccountStatus 문자 그대로 저장시키기 위해
     private AccountStatus accountStatus;
     private Long balance;
+    // DB(원장, 달 테이블)에 남은 첫 거래 직전 잔액 => 대사(ReconciliationService)의 시작점, 이 컬럼 전에 만든 계좌는 null
+    // 계좌 만들 때 잔액, 오래된 거래를 보관소로 옮기면(TransactionArchiveService) 옮긴 마지막 거래 후 잔액
+    // JPA 로 잔액을 바꿀 때 덮어쓰지 않도록 update 에서는 빠짐
+    @Column(updatable = false)
+    private Long initialBalance;
 
     private LocalDateTime registeredAt;
     private LocalDateTime unRegisteredAt;
@@ -37,7 +44,7 @@ public class Account extends BaseEntity{
 
     public void useBalance(Long amount) {
         if (amount > balance) {
-            throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+            throw AccountException.of(ErrorCode.AMOUNT_EXCEED_BALANCE);
         }
 
         balance -= amount;
@@ -46,7 +53,7 @@ public class Account extends BaseEntity{
     // 금액 사용 취소 요청
     public void cancelBalance(Long amount) {
         if (amount < 0) { // 0보다 작은 수를 입력하면 안된다
-            throw new AccountException(ErrorCode.INVALID_REQUEST);
+            throw AccountException.of(ErrorCode.INVALID_REQUEST);
         }
 
         balance += amount;
@@ -23,4 +23,7 @@ public class AccountUser extends BaseEntity{
 
     private String name;
 
+    // 사용중(IN_USE)인 계좌 수, 계좌 생성/해지 때 AccountUserRepository 의 조건부 update 로만 변경함
+    private int activeAccountCount;
+
 }
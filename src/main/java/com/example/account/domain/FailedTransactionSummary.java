@@ -0,0 +1,33 @@
+package com.example.account.domain;
+
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionType;
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// 같은 실패(계좌, 거래종류, 금액, 에러)가 한 집계 구간 안에서 반복되면 한 줄로 모아서 저장 (FailedTransactionWriter 가 JDBC 로 넣음)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+public class FailedTransactionSummary extends BaseEntity {
+
+    @ManyToOne
+    private Account account;
+
+    @Enumerated(EnumType.STRING)
+    private TransactionType transactionType;
+
+    private Long amount;
+
+    @Enumerated(EnumType.STRING)
+    private ErrorCode errorCode;
+
+    private Long attemptCount; // 구간 안에서 몇 번 실패했는지
+    private LocalDateTime firstAttemptedAt;
+    private LocalDateTime lastAttemptedAt;
+}
@@ -0,0 +1,45 @@
+package com.example.account.domain;
+
+import com.example.account.type.TransactionType;
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// 잔액이 바뀐 거래(USE, CANCEL 성공)를 다른 시스템에 알리기 위한 outbox
+// 거래 저장과 같은 DB 트랜잭션에서 저장되고 OutboxRelay 가 모아서 발행한 뒤 publishedAt 을 채움
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(indexes = {
+        // 발행 안 된 것을 id 순으로 가져오는 쿼리(published_at is null order by id)를 인덱스만으로 처리
+        @Index(name = "idx_outbox_event_published_at_id", columnList = "publishedAt, id")
+})
+public class OutboxEvent extends BaseEntity {
+
+    private String accountNumber; // 계좌별 순서를 지키는 기준 (redis stream 메시지의 key)
+
+    @Enumerated(EnumType.STRING)
+    private TransactionType transactionType;
+
+    private String transactionId;
+    private Long amount;
+    private Long balanceSnapshot;
+    private LocalDateTime transactedAt;
+
+    private LocalDateTime publishedAt; // null 이면 아직 발행 전
+
+    public static OutboxEvent from(Transaction transaction) {
+        return OutboxEvent.builder()
+                .accountNumber(transaction.getAccount().getAccountNumber())
+                .transactionType(transaction.getTransactionType())
+                .transactionId(transaction.getTransactionId())
+                .amount(transaction.getAmount())
+                .balanceSnapshot(transaction.getBalanceSnapshot())
+                .transactedAt(transaction.getTransactedAt())
+                .build();
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.account.domain;
+
+import com.example.account.type.MismatchType;
+import lombok.*;
+
+import javax.persistence.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_reconciliation_mismatch_run", columnList = "runId")
+})
+public class ReconciliationMismatch extends BaseEntity {
+    private Long runId;
+    private String accountNumber;
+
+    @Enumerated(EnumType.STRING)
+    private MismatchType mismatchType;
+
+    private String transactionId; // CHAIN 일 때 어긋난 거래
+    private Long expected;
+    private Long actual;
+}
@@ -0,0 +1,30 @@
+package com.example.account.domain;
+
+import com.example.account.type.ReconciliationStatus;
+import lombok.*;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import java.time.LocalDateTime;
+
+// 대사 실행 한 번, 마지막으로 COMPLETED 된 실행의 startedAt 이 다음 실행의 checkpoint
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+public class ReconciliationRun extends BaseEntity {
+    private boolean fullScan;
+    private LocalDateTime since; // fullScan 이 아니면 이 시간 이후 거래가 있었던 계좌만 확인
+
+    @Enumerated(EnumType.STRING)
+    private ReconciliationStatus status;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private Long checkedAccounts;
+    private Long checkedTransactions;
+    private Long mismatchCount;
+}
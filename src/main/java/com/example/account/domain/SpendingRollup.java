@@ -0,0 +1,32 @@
+package com.example.account.domain;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// 계좌별 일/월 사용, 취소 합계 (성공 거래만)
+// 거래를 저장하는 트랜잭션에서 SpendingRollupService 가 JDBC 로 더해줌, 원장에서 다시 만드는 건 SpendingRollupRebuildService
+// pk (account_id, period_type, period_start) 로 계좌별 조회, 사용자별 조회는 인덱스로
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_spending_rollup_user_period", columnList = "accountUserId, periodType, periodStart")
+})
+public class SpendingRollup {
+    @EmbeddedId
+    private SpendingRollupId id;
+
+    private Long accountUserId; // 계좌의 소유주는 바뀌지 않으므로 같이 저장해서 사용자별 합계를 조인 없이
+
+    private Long usedAmount;
+    private Long usedCount;
+    private Long cancelledAmount;
+    private Long cancelledCount;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,25 @@
+package com.example.account.domain;
+
+import com.example.account.type.RollupPeriod;
+import lombok.*;
+
+import javax.persistence.Embeddable;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+@Embeddable
+public class SpendingRollupId implements Serializable {
+    private Long accountId;
+
+    @Enumerated(EnumType.STRING)
+    private RollupPeriod periodType;
+
+    private LocalDate periodStart; // DAY 면 그 날짜, MONTH 면 그 달의 1일
+}
@@ -19,6 +19,21 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Builder
 @Entity
+// 거래 검색(TransactionSearchService)은 항상 transactedAt desc, id desc 순서 => 검색용 인덱스는 모두 transactedAt 으로 끝남
+// 금액 조건은 범위라서 인덱스 뒤쪽에 두면 정렬을 못 쓰므로 인덱스로 찾은 범위 안에서 걸러냄
+@Table(indexes = {
+        // 계좌 (+ 기간) : 시점 잔액 조회, 계좌별 거래 내역
+        @Index(name = "idx_transaction_account_transacted_at", columnList = "account_id, transactedAt"),
+        // 계좌 + 거래종류 + 결과 (+ 기간) : 특정 계좌의 실패 거래, 취소 거래
+        @Index(name = "idx_transaction_account_type_result_transacted_at",
+                columnList = "account_id, transactionType, transactionResultType, transactedAt"),
+        // 결과 (+ 기간) : 전체 계좌의 실패 거래
+        @Index(name = "idx_transaction_result_transacted_at", columnList = "transactionResultType, transactedAt"),
+        // 기간만 : 전체 최신 거래
+        @Index(name = "idx_transaction_transacted_at", columnList = "transactedAt"),
+        // 거래 조회, 취소의 원거래 조회
+        @Index(name = "idx_transaction_transaction_id", columnList = "transactionId")
+})
 public class Transaction extends BaseEntity{ // Transaction 에 들어가는 모든 컬럼 다 써줘야 함 = transaction entity
 
     // 실제 비즈니스에 쓰일 부분 ///////여기부터
@@ -0,0 +1,29 @@
+package com.example.account.domain;
+
+import lombok.*;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// 보관소(TransactionArchiveService) 세그먼트 목록, 세그먼트 파일을 다 쓴 뒤에 저장
+// 모든 노드가 이 목록을 보고 공유 디렉토리(account.archive.directory)에서 세그먼트를 열어서 씀
+// 쓰기는 JDBC 로 하고 테이블만 JPA 로 만듦
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+public class TransactionArchiveSegment {
+    @Id
+    private String fileName; // 디렉토리 안의 세그먼트 파일 이름
+
+    private LocalDate cutoff; // 이 날짜 이전 거래를 옮김
+    private Long minAccountId;
+    private Long maxAccountId;
+    private Long transactionCount;
+
+    private LocalDateTime createdAt;
+}
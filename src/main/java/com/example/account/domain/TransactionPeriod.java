@@ -0,0 +1,25 @@
+package com.example.account.domain;
+
+import lombok.*;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// 봉인된 달 테이블(TransactionPeriodService) 목록, 달의 거래를 원장에서 옮기는 트랜잭션에서 같이 저장
+// 보관소로 옮기면(TransactionArchiveService) 목록에서 빼고 테이블을 지움
+// 쓰기는 JDBC 로 하고 테이블만 JPA 로 만듦
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+public class TransactionPeriod {
+    @Id
+    private LocalDate periodStart; // 달의 첫날
+
+    private String tableName; // transaction_pYYYYMM
+    private LocalDateTime sealedAt; // 마지막으로 거래를 옮긴 시간
+}
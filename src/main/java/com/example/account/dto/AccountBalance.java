@@ -0,0 +1,35 @@
+package com.example.account.dto;
+
+import com.example.account.aop.AccountLockIdInterface;
+import lombok.*;
+
+public class AccountBalance {
+
+    // 잔액 조회는 path 로 계좌번호만 받지만 @AccountLock 이 계좌번호를 꺼낼 수 있도록 Request 로 감쌈
+    @Getter
+    @AllArgsConstructor
+    public static class Request implements AccountLockIdInterface {
+        private String accountNumber;
+    }
+
+    /** 응답
+     * "accountNumber" : "1000000000",
+     * "balance" : 10000
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Response {
+        private String accountNumber;
+        private Long balance;
+
+        public static Response from(AccountDto accountDto) {
+            return Response.builder()
+                    .accountNumber(accountDto.getAccountNumber())
+                    .balance(accountDto.getBalance())
+                    .build();
+        }
+    }
+}
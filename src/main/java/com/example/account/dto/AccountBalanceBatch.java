@@ -0,0 +1,47 @@
+package com.example.account.dto;
+
+import com.example.account.type.ErrorCode;
+import lombok.*;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+public class AccountBalanceBatch {
+
+    /** 요청
+     * "accountNumbers" : ["1000000000", "1000000001", ...] => 최대 1000개
+     */
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    public static class Request {
+        @NotEmpty
+        @Size(max = 1000)
+        private List<@Size(min = 10, max = 10) String> accountNumbers;
+
+        public Request(){}
+    }
+
+    /** 응답 (요청 순서대로)
+     * "accountNumber" : "1000000000",
+     * "errorCode" : null, => 없는 계좌면 ACCOUNT_NOT_FOUND
+     * "balance" : 10000 => 없는 계좌면 null
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Response {
+        private String accountNumber;
+        private ErrorCode errorCode;
+        private Long balance;
+
+        public static Response of(String accountNumber, AccountDto accountDto) {
+            return accountDto == null
+                    ? new Response(accountNumber, ErrorCode.ACCOUNT_NOT_FOUND, null)
+                    : new Response(accountNumber, null, accountDto.getBalance());
+        }
+    }
+}
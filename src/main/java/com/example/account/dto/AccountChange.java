@@ -0,0 +1,12 @@
+package com.example.account.dto;
+
+import lombok.*;
+
+// 계좌의 잔액이나 상태가 바뀌었음 (계좌 생성, 해지, 거래) => 커밋된 뒤에 AccountVersionService 가 버전을 올림
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountChange {
+    private Long userId;
+    private String accountNumber;
+}
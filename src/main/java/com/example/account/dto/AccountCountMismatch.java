@@ -0,0 +1,15 @@
+package com.example.account.dto;
+
+import lombok.*;
+
+// activeAccountCount 검증시 실제 사용중인 계좌 수와 다른 사용자
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountCountMismatch {
+    private Long userId;
+    private int storedCount; // account_user 에 저장된 값
+    private int actualCount; // account 테이블에서 센 IN_USE 계좌 수
+}
@@ -0,0 +1,17 @@
+package com.example.account.dto;
+
+import com.example.account.type.TransactionType;
+import lombok.*;
+
+// 잔액이 바뀌었을 때 SSE 로 내보내는 이벤트 (구독 시작할 때 보내는 현재 잔액은 transactionId, transactionType 이 null)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceChange {
+    private String accountNumber;
+    private Long balance; // 거래의 balanceSnapshot
+    private String transactionId;
+    private TransactionType transactionType;
+}
@@ -3,13 +3,35 @@ package com.example.account.dto;
 import com.example.account.type.ErrorCode;
 import lombok.*;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 // 아래 5개의 어노테이션 넣어주면 웬만해서는 문제없이 사용할 수 있음
+// 기본 메시지 응답은 ErrorCode 별로 하나만 만들어서 재사용하므로 setter 는 두지 않음
 @Getter
-@Setter
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class ErrorResponse {
+    private static final Map<ErrorCode, ErrorResponse> CACHED = new EnumMap<>(ErrorCode.class);
+
+    static {
+        for (ErrorCode errorCode : ErrorCode.values()) {
+            CACHED.put(errorCode, new ErrorResponse(errorCode, errorCode.getDescription()));
+        }
+    }
+
     private ErrorCode errorCode;
     private String errorMessage;
+
+    public static ErrorResponse of(ErrorCode errorCode) {
+        return CACHED.get(errorCode);
+    }
+
+    // 메시지가 기본 메시지와 같으면 캐시된 응답을 씀
+    public static ErrorResponse of(ErrorCode errorCode, String errorMessage) {
+        return errorCode.getDescription().equals(errorMessage)
+                ? CACHED.get(errorCode)
+                : new ErrorResponse(errorCode, errorMessage);
+    }
 }
@@ -0,0 +1,16 @@
+package com.example.account.dto;
+
+import com.example.account.type.HotAccountMetric;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HotAccount {
+    private String accountNumber;
+    private HotAccountMetric metric;
+    private Long count; // 최근 windowSeconds 동안의 추정치
+    private Long windowSeconds;
+}
@@ -0,0 +1,48 @@
+package com.example.account.dto;
+
+import com.example.account.type.ErrorCode;
+import lombok.*;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+public class QueryTransactionBatch {
+
+    /** 요청
+     * "transactionIds" : ["c2033bb6d82a4250aecf8e27c49b63", ...] => 최대 1000개
+     */
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    public static class Request {
+        @NotEmpty
+        @Size(max = 1000)
+        private List<@NotBlank String> transactionIds;
+
+        public Request(){}
+    }
+
+    /** 응답 (요청 순서대로, 같은 id 를 여러 번 보내면 같은 결과가 여러 번)
+     * "transactionId" : "c2033bb6d82a4250aecf8e27c49b63",
+     * "errorCode" : null, => 없는 거래면 TRANSACTION_NOT_FOUND
+     * "transaction" : { ... } => 없는 거래면 null
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Response {
+        private String transactionId;
+        private ErrorCode errorCode;
+        private QueryTransactionResponse transaction;
+
+        public static Response of(String transactionId, TransactionDto transactionDto) {
+            return transactionDto == null
+                    ? new Response(transactionId, ErrorCode.TRANSACTION_NOT_FOUND, null)
+                    : new Response(transactionId, null, QueryTransactionResponse.from(transactionDto));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.account.dto;
+
+import com.example.account.domain.ReconciliationMismatch;
+import com.example.account.domain.ReconciliationRun;
+import com.example.account.type.MismatchType;
+import com.example.account.type.ReconciliationStatus;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// 대사 실행 결과 + 불일치 목록(최대 1000건)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationReport {
+    private Long runId;
+    private ReconciliationStatus status;
+    private boolean fullScan;
+    private LocalDateTime since;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private Long checkedAccounts;
+    private Long checkedTransactions;
+    private Long mismatchCount;
+    private List<Mismatch> mismatches;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Mismatch {
+        private String accountNumber;
+        private MismatchType mismatchType;
+        private String transactionId;
+        private Long expected;
+        private Long actual;
+    }
+
+    public static ReconciliationReport from(ReconciliationRun run, List<ReconciliationMismatch> mismatches) {
+        return ReconciliationReport.builder()
+                .runId(run.getId())
+                .status(run.getStatus())
+                .fullScan(run.isFullScan())
+                .since(run.getSince())
+                .startedAt(run.getStartedAt())
+                .finishedAt(run.getFinishedAt())
+                .checkedAccounts(run.getCheckedAccounts())
+                .checkedTransactions(run.getCheckedTransactions())
+                .mismatchCount(run.getMismatchCount())
+                .mismatches(mismatches.stream()
+                        .map(mismatch -> Mismatch.builder()
+                                .accountNumber(mismatch.getAccountNumber())
+                                .mismatchType(mismatch.getMismatchType())
+                                .transactionId(mismatch.getTransactionId())
+                                .expected(mismatch.getExpected())
+                                .actual(mismatch.getActual())
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.account.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+
+/** 응답 (구간마다 한 줄, 거래가 없는 구간은 빠짐)
+ * "periodStart" : "2022-10-01",
+ * "usedAmount" : 15000,
+ * "usedCount" : 3,
+ * "cancelledAmount" : 1000,
+ * "cancelledCount" : 1
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SpendingSummary {
+    private LocalDate periodStart;
+    private Long usedAmount;
+    private Long usedCount;
+    private Long cancelledAmount;
+    private Long cancelledCount;
+}
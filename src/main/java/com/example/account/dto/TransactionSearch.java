@@ -0,0 +1,45 @@
+package com.example.account.dto;
+
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class TransactionSearch {
+
+    /** 검색 조건, 모두 선택 (null 이면 조건 없음)
+     * cursor 는 이전 응답의 nextCursor => 그 다음(더 오래된) 거래부터
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Condition {
+        private String accountNumber;
+        private TransactionType transactionType;
+        private TransactionResultType transactionResultType;
+        private Long minAmount;
+        private Long maxAmount;
+        private LocalDateTime from; // 이상
+        private LocalDateTime to; // 미만
+        private String cursor;
+        private Integer size;
+    }
+
+    /** 응답
+     * "transactions" : [ 최신 거래부터 ],
+     * "nextCursor" : "MjAyMi0xMC0wMVQwMDowMF8xMjM" => 없으면 마지막 페이지
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Response {
+        private List<QueryTransactionResponse> transactions;
+        private String nextCursor;
+    }
+}
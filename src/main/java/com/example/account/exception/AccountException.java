@@ -3,18 +3,37 @@ package com.example.account.exception;
 import com.example.account.type.ErrorCode;
 import lombok.*;
 
+import java.util.EnumMap;
+import java.util.Map;
+
+// 잔액 부족, 소유주 불일치 같은 비즈니스 실패는 요청의 상당 부분을 차지하므로 가볍게 만든다
+// 1. 스택 트레이스를 만들지 않음 (어디서 났는지는 ErrorCode 로 충분함)
+// 2. ErrorCode 별로 미리 만들어둔 예외를 of() 로 재사용 => 여러 스레드가 같이 던지므로 내용이 바뀌면 안 됨 (setter 없음)
 @Getter
-@Setter
-@AllArgsConstructor
-@NoArgsConstructor
-@Builder
 public class AccountException extends RuntimeException{ // RuntimeException 기반으로 작성하는게 가장 편리
-    private ErrorCode errorCode; // ErrorCode 클래스를 type 패키지에 생성
-    private  String errorMessage;
+    private static final Map<ErrorCode, AccountException> PREALLOCATED = new EnumMap<>(ErrorCode.class);
+
+    static {
+        for (ErrorCode errorCode : ErrorCode.values()) {
+            PREALLOCATED.put(errorCode, new AccountException(errorCode));
+        }
+    }
+
+    private final ErrorCode errorCode; // ErrorCode 클래스를 type 패키지에 생성
+    private final String errorMessage;
 
     public AccountException(ErrorCode errorCode) {
+        this(errorCode, errorCode.getDescription());
+    }
+
+    public AccountException(ErrorCode errorCode, String errorMessage) {
+        // suppression, 스택 트레이스 둘 다 끔 => 공유해서 던져도 상태가 바뀌지 않음
+        super(errorMessage, null, false, false);
         this.errorCode = errorCode;
-        this.errorMessage = errorCode.getDescription();
+        this.errorMessage = errorMessage;
     }
-}
 
+    public static AccountException of(ErrorCode errorCode) {
+        return PREALLOCATED.get(errorCode);
+    }
+}
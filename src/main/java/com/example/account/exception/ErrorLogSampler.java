@@ -0,0 +1,34 @@
+package com.example.account.exception;
+
+import com.example.account.type.ErrorCode;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// ErrorCode 별로 interval 에 한 번만 로그를 남기고 그 사이의 나머지는 개수만 세어둠
+// 잔액 부족 같은 실패가 몰려도 로그 때문에 느려지지 않도록
+public class ErrorLogSampler {
+    private final long intervalNanos;
+    private final AtomicLongArray nextLogAt;
+    private final AtomicLongArray suppressed;
+
+    public ErrorLogSampler(long interval, TimeUnit unit) {
+        this.intervalNanos = unit.toNanos(interval);
+        int size = ErrorCode.values().length;
+        this.nextLogAt = new AtomicLongArray(size);
+        this.suppressed = new AtomicLongArray(size);
+    }
+
+    // 이번에 로그를 남겨야 하면 지난 로그 이후 생략된 개수(0 이상), 생략해야 하면 -1
+    public long sample(ErrorCode errorCode) {
+        int index = errorCode.ordinal();
+        long now = System.nanoTime();
+        long next = nextLogAt.get(index);
+        if ((next == 0 || now - next >= 0)
+                && nextLogAt.compareAndSet(index, next, now + intervalNanos)) {
+            return suppressed.getAndSet(index, 0);
+        }
+        suppressed.incrementAndGet(index);
+        return -1;
+    }
+}
@@ -4,24 +4,48 @@ import com.example.account.dto.ErrorResponse;
 import com.example.account.type.ErrorCode;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.util.concurrent.TimeUnit;
+
 import static com.example.account.type.ErrorCode.INTERNAL_SERVER_ERROR;
 import static com.example.account.type.ErrorCode.INVALID_REQUEST;
 
 @Slf4j
 @RestControllerAdvice // 모든컨트롤러에서 발생하는 exception 을 처리해주겠다
 public class GlobalExceptionHandler {
+    // 비즈니스 실패 로그는 ErrorCode 별로 1초에 한 번만 남김
+    private final ErrorLogSampler errorLogSampler = new ErrorLogSampler(1, TimeUnit.SECONDS);
 
     // userId가 잘못들어오면
     @ExceptionHandler(AccountException.class) // AccountException 이 발생하면
     public ErrorResponse handleAccountException(AccountException e) {
-        log.error("{} is ocurred.", e.getErrorCode());
+        long suppressed = errorLogSampler.sample(e.getErrorCode());
+        if (suppressed >= 0) {
+            log.error("{} is ocurred. ({} more since last log)", e.getErrorCode(), suppressed);
+        }
+
+        // 기본 메시지면 ErrorCode 별로 만들어둔 응답을 그대로 씀
+        return ErrorResponse.of(e.getErrorCode(), e.getErrorMessage());
+    }
+
+    // 처리율 제한 등 잠시 후 재시도하면 되는 경우 => 응답은 다른 AccountException 과 같고 Retry-After(초) 헤더만 추가
+    @ExceptionHandler(RetryableAccountException.class)
+    public ResponseEntity<ErrorResponse> handleRetryableAccountException(RetryableAccountException e) {
+        long suppressed = errorLogSampler.sample(e.getErrorCode());
+        if (suppressed >= 0) {
+            log.error("{} is ocurred. retry after {}ms ({} more since last log)",
+                    e.getErrorCode(), e.getRetryAfterMillis(), suppressed);
+        }
 
-        // **두개만 써주면 되므로 build로 작성 안해주고 바로 new 로 해주겠음
-        return new ErrorResponse(e.getErrorCode(), e.getErrorMessage());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.RETRY_AFTER,
+                        String.valueOf(Math.max(1, (e.getRetryAfterMillis() + 999) / 1000)))
+                .body(ErrorResponse.of(e.getErrorCode(), e.getErrorMessage()));
     }
 
     // amount를 잘못 입력했다든가 잘못된 요청이 들어왔을 때
@@ -29,8 +53,7 @@ public class GlobalExceptionHandler {
     public ErrorResponse handelMethodArgumentNotValidException(MethodArgumentNotValidException e) {
         log.error("MethodArgumentNotValidException is ocurred.", e);
 
-        // **두개만 써주면 되므로 build로 작성 안해주고 바로 new 로 해주겠음
-        return new ErrorResponse(INVALID_REQUEST, INVALID_REQUEST.getDescription());
+        return ErrorResponse.of(INVALID_REQUEST);
     }
 
     // db의 유니크 키가 중복될 때 주는 에러 -> 종종 발생함
@@ -38,15 +61,13 @@ public class GlobalExceptionHandler {
     public ErrorResponse handleDataIntegrityViolationException(DataIntegrityViolationException e) {
         log.error("DataIntegrityViolationException is ocurred.", e);
 
-        // **두개만 써주면 되므로 build로 작성 안해주고 바로 new 로 해주겠음
-        return new ErrorResponse(INVALID_REQUEST, INVALID_REQUEST.getDescription());
+        return ErrorResponse.of(INVALID_REQUEST);
     }
 
     @ExceptionHandler(Exception.class)
     public ErrorResponse handleException(Exception e) {
         log.error("Exception is ocurred.", e);
 
-        // **두개만 써주면 되므로 build로 작성 안해주고 바로 new 로 해주겠음
-        return new ErrorResponse(INTERNAL_SERVER_ERROR, INTERNAL_SERVER_ERROR.getDescription());
+        return ErrorResponse.of(INTERNAL_SERVER_ERROR);
     }
 }
@@ -0,0 +1,15 @@
+package com.example.account.exception;
+
+import com.example.account.type.ErrorCode;
+import lombok.Getter;
+
+// 잠시 후 다시 시도하면 성공할 수 있는 실패 => GlobalExceptionHandler 가 Retry-After 헤더로 알려줌
+@Getter
+public class RetryableAccountException extends AccountException {
+    private final long retryAfterMillis;
+
+    public RetryableAccountException(ErrorCode errorCode, long retryAfterMillis) {
+        super(errorCode);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+}
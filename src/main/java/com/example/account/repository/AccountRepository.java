@@ -2,9 +2,11 @@ package com.example.account.repository;
 
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 @Repository // bean 으로 등록하기 위해 붙임
@@ -19,6 +21,10 @@ public interface AccountRepository extends JpaRepository<Account, Long> { // <En
 
     Optional<Account> findByAccountNumber(String accountNumber);
 
+    // 여러 계좌 잔액 조회용, 사용자를 join 으로 같이 읽음
+    @EntityGraph(attributePaths = "accountUser")
+    List<Account> findByAccountNumberIn(Collection<String> accountNumbers);
+
     // JPA에서 지원하는 기능 :  Account에 AccountUser가 포함되어 있기 때문에
     // 아래의 메서드가 인터페이스 내에서 자동으로 생성됨!!!
     List<Account> findByAccountUser(AccountUser accountUser);
@@ -2,12 +2,27 @@ package com.example.account.repository;
 
 import com.example.account.domain.AccountUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository // repository 로 등록해줌
 public interface AccountUserRepository extends JpaRepository<AccountUser, Long> {
     // extends JpaRepository<여기서 연결할 테이블, pk 타입>
     // 인터페이스이므로 여기에 구현하지 않음
+
+    // 최대 계좌 수 미만일 때만 1 증가 => 조건 확인과 증가가 쿼리 하나로 끝나서 동시에 생성해도 max 를 넘지 않음
+    // 업데이트된 row 수를 리턴하므로 0 이면 이미 최대 계좌 수임
+    @Modifying
+    @Query("update AccountUser u set u.activeAccountCount = u.activeAccountCount + 1"
+            + " where u.id = :id and u.activeAccountCount < :max")
+    int increaseActiveAccountCount(@Param("id") Long id, @Param("max") int max);
+
+    @Modifying
+    @Query("update AccountUser u set u.activeAccountCount = u.activeAccountCount - 1"
+            + " where u.id = :id and u.activeAccountCount > 0")
+    int decreaseActiveAccountCount(@Param("id") Long id);
 }
 
 
@@ -0,0 +1,10 @@
+package com.example.account.repository;
+
+import com.example.account.domain.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+// 쓰기(거래와 같은 트랜잭션)만 JPA 로, 발행 쪽 조회/갱신은 OutboxRelay 가 JDBC 로 함
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+}
@@ -3,9 +3,13 @@ package com.example.account.repository;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.domain.Transaction;
+import com.example.account.type.TransactionResultType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,7 +17,18 @@ import java.util.Optional;
 // extends 기능 확장 : 스프링에서 jpa 를 훨씬 쓰기 쉽게 만들어주는 기능임
 // JpaRepository interface 를 상속받음
 public interface TransactionRepository
-        extends JpaRepository<Transaction, Long> { // <Entity, Entity의 pk 타입>
+        extends JpaRepository<Transaction, Long>, TransactionRepositoryCustom { // <Entity, Entity의 pk 타입>
 
     Optional<Transaction> findByTransactionId(String transactionId);
+
+    // 여러 거래 조회용, 계좌를 join 으로 같이 읽음 (거래마다 계좌 조회가 따로 나가지 않게)
+    @EntityGraph(attributePaths = "account")
+    List<Transaction> findByTransactionIdIn(Collection<String> transactionIds);
+
+    // 시점 잔액 조회용, (account_id, transacted_at) 인덱스에서 한 건만 읽음
+    Optional<Transaction> findFirstByAccountAndTransactionResultTypeAndTransactedAtLessThanEqualOrderByTransactedAtDescIdDesc(
+            Account account, TransactionResultType transactionResultType, LocalDateTime transactedAt);
+
+    Optional<Transaction> findFirstByAccountAndTransactionResultTypeAndTransactedAtAfterOrderByTransactedAtAscIdAsc(
+            Account account, TransactionResultType transactionResultType, LocalDateTime transactedAt);
 }
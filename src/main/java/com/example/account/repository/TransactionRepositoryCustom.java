@@ -0,0 +1,14 @@
+package com.example.account.repository;
+
+import com.example.account.domain.Transaction;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface TransactionRepositoryCustom {
+    /**
+     * 최신 거래부터(transactedAt desc, id desc) limit 건만 조회
+     * JpaSpecificationExecutor.findAll(spec, pageable) 은 count 쿼리까지 날리므로 따로 만듦
+     */
+    List<Transaction> search(Specification<Transaction> specification, int limit);
+}
@@ -0,0 +1,61 @@
+package com.example.account.repository;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * 거래 검색 조건, 값이 null 이면 조건을 넣지 않음 (Specification.where 가 null 을 무시)
+ * 조건 조합별로 타는 인덱스는 Transaction 의 @Table(indexes) 참고
+ */
+public final class TransactionSpecifications {
+    private TransactionSpecifications() {
+    }
+
+    public static Specification<Transaction> accountIs(Account account) {
+        return account == null ? null : (root, query, cb) -> cb.equal(root.get("account"), account);
+    }
+
+    public static Specification<Transaction> typeIs(TransactionType transactionType) {
+        return transactionType == null ? null
+                : (root, query, cb) -> cb.equal(root.get("transactionType"), transactionType);
+    }
+
+    public static Specification<Transaction> resultIs(TransactionResultType resultType) {
+        return resultType == null ? null
+                : (root, query, cb) -> cb.equal(root.get("transactionResultType"), resultType);
+    }
+
+    public static Specification<Transaction> amountFrom(Long minAmount) {
+        return minAmount == null ? null
+                : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("amount"), minAmount);
+    }
+
+    public static Specification<Transaction> amountTo(Long maxAmount) {
+        return maxAmount == null ? null
+                : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("amount"), maxAmount);
+    }
+
+    public static Specification<Transaction> transactedFrom(LocalDateTime from) {
+        return from == null ? null
+                : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("transactedAt"), from);
+    }
+
+    public static Specification<Transaction> transactedBefore(LocalDateTime to) {
+        return to == null ? null
+                : (root, query, cb) -> cb.lessThan(root.get("transactedAt"), to);
+    }
+
+    // keyset : (transactedAt, id) 가 커서보다 오래된 것 => offset 없이 인덱스에서 이어서 읽음
+    public static Specification<Transaction> olderThan(LocalDateTime transactedAt, Long id) {
+        return transactedAt == null ? null
+                : (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("transactedAt"), transactedAt),
+                cb.and(cb.equal(root.get("transactedAt"), transactedAt),
+                        cb.lessThan(root.get("id"), id)));
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.account.service;
+
+import com.example.account.exception.RetryableAccountException;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @AccountLock 메소드 앞단의 입장 제어(admission control)
+ * 락을 어차피 1초 안에 못 잡을 요청은 기다리지 않고 바로 ACCOUNT_TRANSACTION_LOCK + Retry-After 로 돌려보냄
+ * 1. 전체 동시 처리 수 제한 (max-in-flight)
+ * 2. 계좌별 대기자 수 * 평균 락 점유 시간 = 예상 대기 시간이 wait budget 을 넘으면 거절
+ * 3. CoDel 방식 : 락 대기 시간이 target 을 interval 이상 계속 넘으면 그 계좌는 대기자가 있는 동안 새 요청을 거절
+ */
+@Service
+public class AccountAdmissionService {
+    private static final double EWMA_WEIGHT = 0.2;
+
+    private final boolean enabled;
+    private final long waitBudgetNanos;
+    private final long targetNanos;
+    private final long intervalNanos;
+    private final Semaphore inFlight;
+    private final ConcurrentHashMap<String, AccountQueue> queues = new ConcurrentHashMap<>();
+    private volatile double globalHoldNanos; // 계좌 대기열이 새로 생길 때 쓰는 전체 평균 락 점유 시간
+
+    private final Counter admitted;
+    private final Counter rejectedInFlight;
+    private final Counter rejectedExpectedWait;
+    private final Counter rejectedCodel;
+    private final Timer lockWait;
+
+    public AccountAdmissionService(
+            MeterRegistry meterRegistry,
+            @Value("${account.admission.enabled}") boolean enabled,
+            @Value("${account.admission.max-in-flight}") int maxInFlight,
+            @Value("${account.admission.wait-budget-millis}") long waitBudgetMillis,
+            @Value("${account.admission.codel-target-millis}") long targetMillis,
+            @Value("${account.admission.codel-interval-millis}") long intervalMillis
+    ) {
+        this.enabled = enabled;
+        this.waitBudgetNanos = TimeUnit.MILLISECONDS.toNanos(waitBudgetMillis);
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.inFlight = new Semaphore(maxInFlight);
+
+        this.admitted = meterRegistry.counter("account.admission.admitted");
+        this.rejectedInFlight = meterRegistry.counter("account.admission.rejected", "reason", "in_flight");
+        this.rejectedExpectedWait = meterRegistry.counter("account.admission.rejected", "reason", "expected_wait");
+        this.rejectedCodel = meterRegistry.counter("account.admission.rejected", "reason", "codel");
+        this.lockWait = meterRegistry.timer("account.lock.wait");
+        meterRegistry.gauge("account.admission.in_flight", inFlight,
+                semaphore -> maxInFlight - semaphore.availablePermits());
+        meterRegistry.gauge("account.admission.queued_accounts", queues, ConcurrentHashMap::size);
+    }
+
+    // 통과하면 반드시 release 를 호출해야 함
+    public void admit(String accountNumber) {
+        admit(accountNumber, Long.MAX_VALUE);
+    }
+
+    // lockWaitMillis : 메소드별 락 대기 시간 (@AccountLock.tryLockTime), 설정한 wait budget 보다 짧으면 이걸 기준으로 거절
+    public void admit(String accountNumber, long lockWaitMillis) {
+        if (!enabled) {
+            return;
+        }
+        if (!inFlight.tryAcquire()) {
+            rejectedInFlight.increment();
+            throw reject((long) globalHoldNanos);
+        }
+
+        AccountQueue queue = queues.compute(accountNumber, (key, current) -> {
+            AccountQueue q = current == null ? new AccountQueue(globalHoldNanos) : current;
+            q.waiters.incrementAndGet();
+            return q;
+        });
+
+        long budgetNanos = Math.min(waitBudgetNanos, TimeUnit.MILLISECONDS.toNanos(lockWaitMillis));
+        long rejectedWait = queue.rejectWait(budgetNanos);
+        if (rejectedWait >= 0) {
+            leave(accountNumber);
+            inFlight.release();
+            throw reject(rejectedWait);
+        }
+        admitted.increment();
+    }
+
+    // 락을 잡은 시점에 락 대기 시간(sojourn time) 기록
+    public void onLockAcquired(String accountNumber, long waitNanos) {
+        if (!enabled) {
+            return;
+        }
+        lockWait.record(waitNanos, TimeUnit.NANOSECONDS);
+        AccountQueue queue = queues.get(accountNumber);
+        if (queue != null) {
+            queue.onDequeue(waitNanos, System.nanoTime());
+        }
+    }
+
+    // 락을 못 잡고 대기 시간이 끝남 => 대기 시간이 target 보다 짧게 설정되어 있어도 target 을 넘은 것으로 기록
+    public void onLockTimeout(String accountNumber, long waitNanos) {
+        if (!enabled) {
+            return;
+        }
+        lockWait.record(waitNanos, TimeUnit.NANOSECONDS);
+        AccountQueue queue = queues.get(accountNumber);
+        if (queue != null) {
+            queue.onDequeue(Math.max(waitNanos, targetNanos), System.nanoTime());
+        }
+    }
+
+    // holdNanos : 락을 잡고 있던 시간, 락을 못 잡았으면 -1
+    public void release(String accountNumber, long holdNanos) {
+        if (!enabled) {
+            return;
+        }
+        if (holdNanos >= 0) {
+            globalHoldNanos = ewma(globalHoldNanos, holdNanos);
+            AccountQueue queue = queues.get(accountNumber);
+            if (queue != null) {
+                queue.onRelease(holdNanos);
+            }
+        }
+        leave(accountNumber);
+        inFlight.release();
+    }
+
+    private void leave(String accountNumber) {
+        // 대기자가 없으면 지워서 계좌 수와 상관없이 진행중인 계좌만큼만 메모리 사용
+        queues.computeIfPresent(accountNumber, (key, queue) -> queue.waiters.decrementAndGet() == 0 ? null : queue);
+    }
+
+    private RetryableAccountException reject(long retryAfterNanos) {
+        return new RetryableAccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK,
+                Math.max(1, TimeUnit.NANOSECONDS.toMillis(retryAfterNanos)));
+    }
+
+    private static double ewma(double average, long sample) {
+        return average == 0 ? sample : average + EWMA_WEIGHT * (sample - average);
+    }
+
+    private class AccountQueue {
+        // queues.compute 안에서 변경되고(0 이 되면 지움) rejectWait 에서는 compute 밖에서 읽음
+        private final AtomicInteger waiters = new AtomicInteger();
+        private double holdNanos;
+        private long firstAboveTarget;
+        private boolean dropping;
+
+        AccountQueue(double holdNanos) {
+            this.holdNanos = holdNanos;
+        }
+
+        // 거절이면 예상 대기 시간(ns), 통과면 -1
+        synchronized long rejectWait(long budgetNanos) {
+            int ahead = waiters.get() - 1;
+            long expectedWait = (long) (ahead * holdNanos);
+            if (expectedWait > budgetNanos) {
+                rejectedExpectedWait.increment();
+                return expectedWait;
+            }
+            if (dropping && ahead > 0) {
+                rejectedCodel.increment();
+                return Math.max(expectedWait, targetNanos);
+            }
+            return -1;
+        }
+
+        synchronized void onDequeue(long sojournNanos, long now) {
+            if (sojournNanos < targetNanos) {
+                firstAboveTarget = 0;
+                dropping = false;
+            } else if (firstAboveTarget == 0) {
+                firstAboveTarget = now + intervalNanos;
+            } else if (now >= firstAboveTarget) {
+                dropping = true; // interval 동안 계속 target 을 넘음 => 큐가 줄지 않는 상태
+            }
+        }
+
+        synchronized void onRelease(long holdNanos) {
+            this.holdNanos = ewma(this.holdNanos, holdNanos);
+        }
+    }
+}
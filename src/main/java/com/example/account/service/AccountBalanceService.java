@@ -0,0 +1,225 @@
+package com.example.account.service;
+
+import com.example.account.aop.AccountLock;
+import com.example.account.domain.Account;
+import com.example.account.domain.OutboxEvent;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.ArchivedTransaction;
+import com.example.account.dto.AccountBalance;
+import com.example.account.dto.AccountChange;
+import com.example.account.dto.AccountDto;
+import com.example.account.dto.BalanceChange;
+import com.example.account.dto.CancelBalance;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.OutboxEventRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.LockMode;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.USE;
+
+/**
+ * 계좌 잔액을 실제로 변경하는 부분만 모아둔 서비스
+ * 락은 여기서만 잡는다 => 계좌 조회, 검증, 잔액 변경, 성공 거래 저장 (+ 커밋) 까지만 락 안에서 실행
+ * 사용자 조회, 실패 거래 저장, 응답 변환은 TransactionService / 컨트롤러에서 락 밖에서 처리함
+ */
+@Service
+@RequiredArgsConstructor
+public class AccountBalanceService {
+    private static final int MAX_IN_LIST = 500;
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SpendingRollupService spendingRollupService;
+    private final TransactionPeriodService transactionPeriodService;
+    private final TransactionArchiveService transactionArchiveService;
+
+    @AccountLock // LockAopAspect 가 @Transactional 보다 바깥에서 돌기 때문에 커밋까지 락 안에서 끝남
+    @Transactional
+    public Transaction useBalance(UseBalance.Request request) {
+        Account account = accountRepository.findByAccountNumber(request.getAccountNumber())
+                .orElseThrow(() -> AccountException.of(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        validateUseBalance(request.getUserId(), account, request.getAmount());
+
+        account.useBalance(request.getAmount());
+
+        return saveAndGetTransaction(USE, S, account, request.getAmount());
+    }
+
+    /** 정책(실패 응답이 나오는 예외 케이스)
+     * 계좌 없는 경우, 사용자 아이디와 계좌 소유주 다른 경우,
+     * 계좌가 이미 해지된 경우, 거래금액이 잔액보다 큰 경우
+     * 사용자 없는 경우는 락 잡기 전에 TransactionService 에서 확인함
+     */
+    private void validateUseBalance(Long userId, Account account, Long amount) {
+        if (!Objects.equals(userId, account.getAccountUser().getId())) {
+            throw AccountException.of(ErrorCode.USER_ACCOUNT_UN_MATCH);
+        }
+        if (account.getAccountStatus() != AccountStatus.IN_USE) {
+            throw AccountException.of(ErrorCode.ACCOUNT_ALREADY_UNREGISTERED);
+        }
+        if (account.getBalance() < amount) {
+            throw AccountException.of(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        }
+    }
+
+    // 원거래(transaction)는 변하지 않는 데이터이므로 락 밖에서 미리 조회해서 넘겨받음
+    @AccountLock
+    @Transactional
+    public Transaction cancelBalance(CancelBalance.Request request, Transaction transaction) {
+        Account account = accountRepository.findByAccountNumber(request.getAccountNumber())
+                .orElseThrow(() -> AccountException.of(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        validateCancelBalance(transaction, account, request.getAmount());
+
+        account.cancelBalance(request.getAmount());
+
+        return saveAndGetTransaction(CANCEL, S, account, request.getAmount());
+    }
+
+    private void validateCancelBalance(Transaction transaction, Account account, Long amount) {
+        // 거래에서 쓸 계좌 id 와 계좌 id가 다를 때
+        if (!Objects.equals(transaction.getAccount().getId(), account.getId())) {
+            throw AccountException.of(ErrorCode.TRANSACTION_ACCOUNT_UN_MATCH);
+        }
+        // 거래 금액이 거래 취소 금액과 다를 때
+        if (!Objects.equals(transaction.getAmount(), amount)) {
+            throw AccountException.of(ErrorCode.CANCEL_MUST_FULLY);
+        }
+        // 1년이 넘은 거래는 사용 취소 불가능
+        if (transaction.getTransactedAt().isBefore(LocalDateTime.now().minusYears(1))) {
+            throw AccountException.of(ErrorCode.TOO_OLD_ORDER_TO_CANCEL);
+        }
+    }
+
+    // 읽기 락 => 조회끼리는 같이 진행되고 잔액 변경 중에는 커밋이 끝날 때까지 기다림
+    // 조회는 오래 기다릴 필요가 없으므로 대기 시간을 짧게
+    @AccountLock(mode = LockMode.READ, tryLockTime = 300L)
+    public AccountDto getBalance(AccountBalance.Request request) {
+        return accountRepository.findByAccountNumber(request.getAccountNumber())
+                .map(AccountDto::fromEntity)
+                .orElseThrow(() -> AccountException.of(ErrorCode.ACCOUNT_NOT_FOUND));
+    }
+
+    /**
+     * 여러 계좌의 잔액을 한 번에 => 계좌번호 별 결과, 없는 계좌는 map 에 없음
+     * 같은 계좌번호는 한 번만, 500개씩 IN 조회
+     * 계좌마다 읽기 락을 잡지 않음 => 진행중인 잔액 변경을 기다리지 않고 마지막으로 커밋된 잔액을 읽음
+     */
+    @Transactional
+    public Map<String, AccountDto> getBalances(List<String> accountNumbers) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(accountNumbers));
+        Map<String, AccountDto> found = new HashMap<>();
+        for (int i = 0; i < distinct.size(); i += MAX_IN_LIST) {
+            accountRepository.findByAccountNumberIn(distinct.subList(i, Math.min(i + MAX_IN_LIST, distinct.size())))
+                    .forEach(account -> found.put(account.getAccountNumber(), AccountDto.fromEntity(account)));
+        }
+        return found;
+    }
+
+    /**
+     * 과거 시점(at)의 잔액 => at 이전 마지막 성공 거래의 balanceSnapshot
+     * at 이전 거래가 없으면 at 이후 첫 성공 거래에서 거꾸로 계산, 거래가 하나도 없으면 현재 잔액
+     * 인덱스로 거래 한두 건만 읽고 지난 내역을 다시 계산하지 않음, 이미 끝난 거래만 보므로 락도 잡지 않음
+     */
+    @Transactional
+    public AccountDto getBalanceAt(String accountNumber, LocalDateTime at) {
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> AccountException.of(ErrorCode.ACCOUNT_NOT_FOUND));
+        if (account.getRegisteredAt() != null && account.getRegisteredAt().isAfter(at)) {
+            throw AccountException.of(ErrorCode.ACCOUNT_NOT_FOUND); // 그 시점에는 없던 계좌
+        }
+
+        Long balance = transactionRepository
+                .findFirstByAccountAndTransactionResultTypeAndTransactedAtLessThanEqualOrderByTransactedAtDescIdDesc(
+                        account, S, at)
+                .map(Transaction::getBalanceSnapshot)
+                .orElseGet(() -> sealedBalanceAt(account, at));
+
+        AccountDto accountDto = AccountDto.fromEntity(account);
+        accountDto.setBalance(balance);
+        return accountDto;
+    }
+
+    // 원장에 그 시점 이전 거래가 없으면 달 테이블 => 보관소 순으로 (보관소 < 달 테이블 < 원장 순으로 오래된 거래)
+    // 그 시점 이후 첫 거래는 반대로 보관소 => 달 테이블 => 원장 순
+    private Long sealedBalanceAt(Account account, LocalDateTime at) {
+        List<ArchivedTransaction> before = transactionPeriodService.history(
+                account.getId(), null, at.plusNanos(1), true, S, 1);
+        if (before.isEmpty()) {
+            before = transactionArchiveService.history(account.getId(), null, at.plusNanos(1), true,
+                    archived -> archived.getTransactionResultType() == S, 1);
+        }
+        if (!before.isEmpty()) {
+            return before.get(0).getBalanceSnapshot();
+        }
+        List<ArchivedTransaction> after = transactionArchiveService.history(
+                account.getId(), at.plusNanos(1), null, false, archived -> archived.getTransactionResultType() == S, 1);
+        if (after.isEmpty()) {
+            after = transactionPeriodService.history(account.getId(), at.plusNanos(1), null, false, S, 1);
+        }
+        if (!after.isEmpty()) {
+            ArchivedTransaction next = after.get(0);
+            return balanceBefore(next.getTransactionType(), next.getBalanceSnapshot(), next.getAmount());
+        }
+        return balanceBeforeFirstTransaction(account, at);
+    }
+
+    private Long balanceBeforeFirstTransaction(Account account, LocalDateTime at) {
+        return transactionRepository
+                .findFirstByAccountAndTransactionResultTypeAndTransactedAtAfterOrderByTransactedAtAscIdAsc(
+                        account, S, at)
+                .map(next -> balanceBefore(next.getTransactionType(), next.getBalanceSnapshot(), next.getAmount()))
+                .orElse(account.getBalance());
+    }
+
+    private static Long balanceBefore(TransactionType type, Long balanceSnapshot, Long amount) {
+        return type == USE
+                ? balanceSnapshot + amount // 사용 전 잔액
+                : balanceSnapshot - amount; // 취소 전 잔액
+    }
+
+    private Transaction saveAndGetTransaction(
+            TransactionType transactionType,
+            TransactionResultType transactionResultType,
+            Account account,
+            Long amount) {
+        Transaction transaction = transactionRepository.save(
+                Transaction.builder()
+                        .transactionType(transactionType)
+                        .transactionResultType(transactionResultType)
+                        .account(account)
+                        .amount(amount)
+                        .balanceSnapshot(account.getBalance())
+                        .transactionId(UUID.randomUUID().toString().replace("-", ""))
+                        .transactedAt(LocalDateTime.now())
+                        .build()
+        );
+        // 거래와 같은 트랜잭션으로 저장 => 커밋된 거래만, 빠짐없이 발행됨 (OutboxRelay)
+        outboxEventRepository.save(OutboxEvent.from(transaction));
+        spendingRollupService.apply(transaction); // 일/월 합계도 같은 트랜잭션에서
+        // 커밋된 뒤에 BalanceStreamService 가 SSE 구독자에게 보냄 (롤백되면 안 나감)
+        eventPublisher.publishEvent(new BalanceChange(account.getAccountNumber(),
+                transaction.getBalanceSnapshot(), transaction.getTransactionId(),
+                transaction.getTransactionType()));
+        eventPublisher.publishEvent(new AccountChange(account.getAccountUser().getId(), account.getAccountNumber()));
+        return transaction;
+    }
+}
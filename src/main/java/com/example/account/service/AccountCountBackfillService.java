@@ -0,0 +1,68 @@
+package com.example.account.service;
+
+import com.example.account.dto.AccountCountMismatch;
+import com.example.account.type.AccountStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AccountUser.activeAccountCount 를 기존 데이터로 채워주고(backfill) 맞는지 검증하는 작업
+ * 사용자 id 범위로 나눠서 실행하므로 한 번에 전체 테이블을 잡고 있지 않는다
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AccountCountBackfillService {
+    private static final int CHUNK_SIZE = 10_000;
+    private static final int MAX_MISMATCHES = 100;
+
+    private static final String ACTUAL_COUNT =
+            "(select count(*) from account a where a.account_user_id = u.id and a.account_status = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // 생성/해지가 몰리는 시간대를 피해서 실행하고 끝난 뒤에는 verify 로 확인
+    public int backfill() {
+        int updated = 0;
+        long maxId = maxUserId();
+        for (long from = 0; from <= maxId; from += CHUNK_SIZE) {
+            updated += jdbcTemplate.update(
+                    "update account_user u set active_account_count = " + ACTUAL_COUNT
+                            + " where u.id between ? and ?",
+                    AccountStatus.IN_USE.name(), from, from + CHUNK_SIZE - 1);
+        }
+        log.info("activeAccountCount backfill finished. updated users : {}", updated);
+        return updated;
+    }
+
+    public List<AccountCountMismatch> verify() {
+        List<AccountCountMismatch> mismatches = new ArrayList<>();
+        long maxId = maxUserId();
+        for (long from = 0; from <= maxId && mismatches.size() < MAX_MISMATCHES; from += CHUNK_SIZE) {
+            mismatches.addAll(jdbcTemplate.query(
+                    "select u.id, u.active_account_count, " + ACTUAL_COUNT + " as actual_count"
+                            + " from account_user u where u.id between ? and ?"
+                            + " and u.active_account_count <> " + ACTUAL_COUNT,
+                    (rs, rowNum) -> AccountCountMismatch.builder()
+                            .userId(rs.getLong(1))
+                            .storedCount(rs.getInt(2))
+                            .actualCount(rs.getInt(3))
+                            .build(),
+                    AccountStatus.IN_USE.name(), from, from + CHUNK_SIZE - 1,
+                    AccountStatus.IN_USE.name()));
+        }
+        return mismatches.size() > MAX_MISMATCHES
+                ? mismatches.subList(0, MAX_MISMATCHES) : mismatches;
+    }
+
+    private long maxUserId() {
+        Long maxId = jdbcTemplate.queryForObject(
+                "select coalesce(max(id), 0) from account_user", Long.class);
+        return maxId == null ? 0 : maxId;
+    }
+}
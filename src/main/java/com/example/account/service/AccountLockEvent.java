@@ -0,0 +1,22 @@
+package com.example.account.service;
+
+import jdk.jfr.*;
+
+// 계좌 락 획득/해제 JFR 이벤트, 이벤트 duration = 락 대기(해제는 unlock 호출) 시간
+@Name("com.example.account.AccountLock")
+@Label("Account Lock")
+@Category({"Account", "Lock"})
+@StackTrace(false)
+public class AccountLockEvent extends Event {
+    @Label("Account Number")
+    String accountNumber;
+
+    @Label("Action")
+    String action; // ACQUIRE, RELEASE
+
+    @Label("Mode")
+    String mode; // READ, WRITE
+
+    @Label("Outcome")
+    String outcome; // ACQUIRED, TIMEOUT, ERROR, RELEASED
+}
@@ -0,0 +1,19 @@
+package com.example.account.service;
+
+import jdk.jfr.*;
+
+// useBalance, cancelBalance, createAccount 한 번 실행 JFR 이벤트
+@Name("com.example.account.AccountOperation")
+@Label("Account Operation")
+@Category({"Account", "Operation"})
+@StackTrace(false)
+public class AccountOperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Account Number")
+    String accountNumber;
+
+    @Label("Error Code")
+    String errorCode; // 성공이면 비어있음
+}
@@ -0,0 +1,120 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.ExecutionMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 계좌번호 해시로 파티션을 나눠서 파티션마다 스레드 하나에서만 실행시키는 executor
+ * 한 계좌는 항상 같은 스레드에서만 변경되므로 ACLK 락 없이도 동시에 변경되지 않는다 (단일 노드 전용)
+ * 파티션 큐가 가득 차거나 대기 시간이 지나면 락 획득 실패와 같은 ACCOUNT_TRANSACTION_LOCK 으로 바로 실패시킴
+ */
+@Slf4j
+@Component
+public class AccountPartitionExecutor {
+    private final ExecutionMode mode;
+    private final long awaitMillis;
+    private final ThreadPoolExecutor[] partitions;
+    private final ThreadLocal<Integer> currentPartition = new ThreadLocal<>();
+
+    public AccountPartitionExecutor(
+            @Value("${account.execution.mode}") ExecutionMode mode,
+            @Value("${account.execution.partitions}") int partitionCount,
+            @Value("${account.execution.queue-capacity}") int queueCapacity,
+            @Value("${account.execution.await-millis}") long awaitMillis
+    ) {
+        this.mode = mode;
+        this.awaitMillis = awaitMillis;
+        // LOCK 모드일 때는 스레드를 만들 필요가 없음
+        this.partitions = new ThreadPoolExecutor[mode == ExecutionMode.PARTITION ? partitionCount : 0];
+        for (int i = 0; i < partitions.length; i++) {
+            int index = i;
+            partitions[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), // 큐 크기 제한, 가득 차면 AbortPolicy 로 거절
+                    runnable -> {
+                        Thread thread = new Thread(() -> {
+                            currentPartition.set(index);
+                            runnable.run();
+                        }, "account-partition-" + index);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    public boolean isEnabled() {
+        return mode == ExecutionMode.PARTITION;
+    }
+
+    public <T> T execute(String accountNumber, PartitionTask<T> task) throws Throwable {
+        int index = partitionOf(accountNumber);
+        Integer current = currentPartition.get();
+        if (current != null && current == index) {
+            return task.call(); // 이미 해당 파티션 스레드라면 바로 실행 (다시 submit 하면 자기 자신을 기다리게 됨)
+        }
+
+        AtomicBoolean claimed = new AtomicBoolean(false);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            partitions[index].execute(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return; // 기다리던 요청이 이미 포기한 작업
+                }
+                try {
+                    result.complete(task.call());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 거절은 GlobalExceptionHandler 가 샘플링해서 로그를 남김 => 큐가 가득 찰 때마다 error 로그를 쓰지 않음
+            log.debug("Partition queue is full. partition : {}", index);
+            throw AccountException.of(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+
+        try {
+            return await(result, claimed);
+        } catch (ExecutionException e) {
+            throw e.getCause(); // AccountException 등 원래 예외 그대로 던져줌
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> result, AtomicBoolean claimed)
+            throws ExecutionException, InterruptedException {
+        try {
+            return result.get(awaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (claimed.compareAndSet(false, true)) {
+                // 아직 시작 안한 작업이면 취소하고 락 획득 실패와 동일하게 응답
+                throw AccountException.of(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+            }
+            // 이미 실행중이면 결과가 api 응답과 달라지지 않도록 끝날 때까지 기다림
+            return result.get();
+        }
+    }
+
+    int partitionOf(String accountNumber) {
+        int hash = accountNumber.hashCode();
+        hash ^= (hash >>> 16); // HashMap 과 같은 방식으로 하위 비트를 섞어줌
+        return (hash & 0x7fffffff) % partitions.length;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor partition : partitions) {
+            partition.shutdown();
+        }
+    }
+
+    @FunctionalInterface
+    public interface PartitionTask<T> {
+        T call() throws Throwable;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.account.service;
+
+/**
+ * 사용자(userId), 계좌(accountNumber) 별 토큰 버킷 처리율 제한
+ * 락을 잡기 전에 LockAopAspect 에서 확인해서 한 클라이언트가 락 대기로 스레드를 다 잡아먹지 못하게 함
+ */
+public interface AccountRateLimiter {
+    /**
+     * @return 허용이면 0, 거절이면 다시 시도할 수 있을 때까지 남은 시간(ms)
+     */
+    long tryAcquire(String endpoint, Long userId, String accountNumber);
+}
@@ -2,6 +2,7 @@ package com.example.account.service;
 
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
+import com.example.account.dto.AccountChange;
 import com.example.account.dto.AccountDto;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
@@ -9,7 +10,11 @@ import com.example.account.repository.AccountUserRepository;
 import com.example.account.type.AccountStatus;
 import com.example.account.type.ErrorCode;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import javax.transaction.Transactional;
 
@@ -26,8 +31,13 @@ import java.util.stream.Collectors;
 @Service // service 타입 bean으로 스프링에 저장해주기 위해 붙임
 @RequiredArgsConstructor // final 타입의 생성자를 만들어줌
 public class AccountService { // final 로 해주면 생성자가 아니면 값을 못담게 함 = 값 변경 못함
+    private static final int MAX_ACCOUNT_PER_USER = 10;
+    private static final String ACCOUNTS_FLIGHT = "accounts_by_user";
+
     private final AccountRepository accountRepository; // accountRepository를 활용해 데이터를 저장하도록 함
     private final AccountUserRepository accountUserRepository; // 사용자 조회를 위해 accountRepository 의존
+    private final ApplicationEventPublisher eventPublisher; // 커밋된 뒤에 계좌 목록 ETag 버전을 올림
+    private final SingleFlight singleFlight;
 
     @Transactional
     public AccountDto createAccount(Long userId, Long initialBalance) {
@@ -44,6 +54,7 @@ public class AccountService { // final 로 해주면 생성자가 아니면 값
         String newAccountNumber = accountRepository.findFirstByOrderByIdDesc()
                 .map(account -> (Integer.parseInt(account.getAccountNumber())) + 1 + "") // 다시 문자열로
                 .orElse("1000000000"); // 계좌가 하나도 없었을 경우 , desc 못했을 경우
+        eventPublisher.publishEvent(new AccountChange(accountUser.getId(), newAccountNumber));
 
         // 계좌 저장시킴
         // Account.builder()로 생성한 것을 accountRepository에 저장하고
@@ -54,17 +65,21 @@ public class AccountService { // final 로 해주면 생성자가 아니면 값
                         .accountStatus(IN_USE)
                         .accountNumber(newAccountNumber) // 위에서 생성한 계좌번호 넣어줌
                         .balance(initialBalance) // 계좌만들때 파라미터로 받아온 잔액
+                        .initialBalance(initialBalance)
                         .registeredAt(LocalDateTime.now())
                         .build())
         );
     }
 
     // 계좌가 10개 이상인 경우 => 이러한 VALIDATION 코드들은 빼놓는것이 코드 전체 이해에 좋다
+    // count(*) 대신 사용자에 저장된 activeAccountCount 를 조건부로 1 증가시킴 => 증가 못하면 이미 10개
+    // 계좌 저장이 실패해서 롤백되면 증가한 값도 같이 롤백됨
     private void validateCreateAccount(AccountUser accountUser) {
-        if(accountRepository.countByAccountUser(accountUser) >= 10) {
-        throw new AccountException(MAX_ACCOUNT_PER_USER_10); // ErrorCode 추가
+        if (accountUserRepository.increaseActiveAccountCount(
+                accountUser.getId(), MAX_ACCOUNT_PER_USER) == 0) {
+            throw AccountException.of(MAX_ACCOUNT_PER_USER_10); // ErrorCode 추가
+        }
     }
-}
 
     @Transactional
     public Account getAccount(Long id) { // 값을 받아오기 때문에 return 필요함
@@ -84,7 +99,7 @@ public class AccountService { // final 로 해주면 생성자가 아니면 값
         AccountUser accountUser = getAccountUser(userId);
         // 2. 계좌 번호 없으면 에러 띄우기 => accountNumber 없으면 에러
         Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+                .orElseThrow(() -> AccountException.of(ACCOUNT_NOT_FOUND));
 
         // 아래 먼저 써주고 alt + enter로 메서드 생성
         validateDeleteAccount(accountUser, account);
@@ -92,10 +107,12 @@ public class AccountService { // final 로 해주면 생성자가 아니면 값
         // 여기까지 통과하면 계좌를 해지해도 되는 상태이다 => 계좌해지할 떄 상태 업데이트, 해지 시간 부여
         account.setAccountStatus(AccountStatus.UNREGISTERED);
         account.setUnRegisteredAt(LocalDateTime.now());
+        accountUserRepository.decreaseActiveAccountCount(accountUser.getId());
 
         // 테스트를 위해 필요한 부분
         // 불필요한 부분이지만 account를 일부러 넣어서 account에 UNREGISTERED 상태값 들어갔는지 test 위해 작성
         accountRepository.save(account);
+        eventPublisher.publishEvent(new AccountChange(accountUser.getId(), accountNumber));
 
         return AccountDto.fromEntity(account);
     }
@@ -103,19 +120,32 @@ public class AccountService { // final 로 해주면 생성자가 아니면 값
     private void validateDeleteAccount(AccountUser accountUser, Account account) {
         // userId와 account에서 get한 userId가 다르다면 => id로 비교, !=로 했는데 더 안전한거 추천해준거 적용
         if (!Objects.equals(accountUser.getId(), account.getAccountUser().getId())) {
-            throw new AccountException(USER_ACCOUNT_UN_MATCH);
+            throw AccountException.of(USER_ACCOUNT_UN_MATCH);
         }
         // 계좌가 이미 해지된 경우
         if (account.getAccountStatus() == AccountStatus.UNREGISTERED) {
-            throw new AccountException(ACCOUNT_ALREADY_UNREGISTERED);
+            throw AccountException.of(ACCOUNT_ALREADY_UNREGISTERED);
         }
         if (account.getBalance() > 0) { // http 계좌 생성시 balance 10000 넣어줘서 해지가 안됨 -> 0을 넣어줌
-            throw  new AccountException(BALANCE_NOT_EMPTY);
+            throw  AccountException.of(BALANCE_NOT_EMPTY);
         }
     }
 
-    @Transactional // transactional이 없으면 정상적인 조회가 안됨
+    // 같은 사용자의 동시 조회는 하나만 DB 를 읽음 (SingleFlight)
+    // 기다리는 요청이 DB 커넥션을 잡고 있지 않도록 트랜잭션 없이 조회 (읽기만 하고 계좌의 사용자는 바로 로딩됨)
     public List<AccountDto> getAccountsByUserId(Long userId) {
+        return singleFlight.execute(ACCOUNTS_FLIGHT, userId, () -> loadAccountsByUserId(userId));
+    }
+
+    // 계좌 목록이 바뀐 트랜잭션이 커밋되면 진행중인 조회를 떼어냄 => 커밋 뒤의 요청은 새로 읽음
+    // ETag 버전(AccountVersionService)을 올리기 전에 실행 => 새 버전을 읽은 요청이 예전 조회 결과를 받지 않음
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountChange(AccountChange change) {
+        singleFlight.forget(ACCOUNTS_FLIGHT, change.getUserId());
+    }
+
+    private List<AccountDto> loadAccountsByUserId(Long userId) {
         AccountUser accountUser = getAccountUser(userId);
         // ctrl + alt + v 하면 변수 추천
         // findByAccountUser의 데이터 타입은 List<Account>임 => 계좌가 여러개일 수 있으므로
@@ -131,7 +161,7 @@ public class AccountService { // final 로 해주면 생성자가 아니면 값
     private AccountUser getAccountUser(Long userId) {
         AccountUser accountUser = accountUserRepository.findById(userId) // userId를 말함
                 // ErrorCode 에서 alt + enter 눌르면 에러 코드 간결하게 쓸 수 있음
-                .orElseThrow(() -> new AccountException(USER_NOT_FOUND));
+                .orElseThrow(() -> AccountException.of(USER_NOT_FOUND));
         return accountUser;
     }
 }
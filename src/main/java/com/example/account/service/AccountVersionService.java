@@ -0,0 +1,95 @@
+package com.example.account.service;
+
+import com.example.account.dto.AccountChange;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RBatch;
+import org.redisson.api.RedissonClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 조회 API 의 ETag 로 쓰는 버전 번호 (Redis 카운터)
+ * - 사용자별(계좌 목록), 계좌별(잔액) 카운터를 잔액, 상태가 바뀐 트랜잭션이 커밋된 뒤에 올림
+ * - 조회할 때는 데이터보다 버전을 먼저 읽음 => 버전이 같으면 304 로 바로 응답 (DB 를 읽지 않음)
+ *   (먼저 읽은 버전과 더 새로운 데이터가 같이 나가도 다음 조회에서 버전이 달라서 다시 받음)
+ * - Redis 가 비워졌을 때 예전 버전과 겹치지 않도록 카운터가 없으면 현재 시간(ms) * 1000 부터 시작
+ * - Redis 를 못 쓰면 ETag 없이 응답 (304 를 주지 않음)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AccountVersionService {
+    private static final String USER_KEY = "ACVER:user:";
+    private static final String ACCOUNT_KEY = "ACVER:account:";
+
+    private final RedissonClient redissonClient;
+
+    // GET /account?user_id= 의 ETag
+    public String userETag(Long userId) {
+        return eTag(redissonClient.getAtomicLong(USER_KEY + userId));
+    }
+
+    // GET /account/{accountNumber}/balance 의 ETag
+    public String accountETag(String accountNumber) {
+        return eTag(redissonClient.getAtomicLong(ACCOUNT_KEY + accountNumber));
+    }
+
+    // 롤백되면 호출되지 않음, 트랜잭션 밖에서 발행하면 바로 호출
+    // 커밋 뒤 리스너는 아직 계좌 락 안에서 실행됨 => 결과를 기다리지 않고 보냄 (BalanceStreamService 의 publishAsync 와 같음)
+    // 그래서 커밋 직후 잠깐은 예전 ETag 로 304 가 나갈 수 있음 (Redis 왕복 한 번 정도)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountChange(AccountChange change) {
+        String userKey = USER_KEY + change.getUserId();
+        String accountKey = ACCOUNT_KEY + change.getAccountNumber();
+        try {
+            long seed = seed();
+            RBatch batch = redissonClient.createBatch();
+            batch.getAtomicLong(userKey).compareAndSetAsync(0, seed);
+            batch.getAtomicLong(userKey).incrementAndGetAsync();
+            batch.getAtomicLong(accountKey).compareAndSetAsync(0, seed);
+            batch.getAtomicLong(accountKey).incrementAndGetAsync();
+            batch.executeAsync().whenComplete((result, e) -> {
+                if (e != null) {
+                    reset(change, userKey, accountKey, e);
+                }
+            });
+        } catch (RuntimeException e) {
+            reset(change, userKey, accountKey, e);
+        }
+    }
+
+    // 버전을 못 올리면 예전 ETag 로 304 가 나갈 수 있음 => 지워서 다음 조회에서 새로 시작하게 함
+    private void reset(AccountChange change, String userKey, String accountKey, Throwable cause) {
+        log.error("Failed to increase account version. user : {}, account : {}",
+                change.getUserId(), change.getAccountNumber(), cause);
+        try {
+            redissonClient.getKeys().deleteAsync(userKey, accountKey).whenComplete((deleted, e) -> {
+                if (e != null) {
+                    log.error("Failed to reset account version", e);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to reset account version", e);
+        }
+    }
+
+    private String eTag(RAtomicLong counter) {
+        try {
+            long version = counter.get();
+            if (version == 0) {
+                counter.compareAndSet(0, seed());
+                version = counter.get();
+            }
+            return "\"" + version + "\"";
+        } catch (RuntimeException e) {
+            log.warn("Failed to read account version", e);
+            return null;
+        }
+    }
+
+    private static long seed() {
+        return System.currentTimeMillis() * 1000;
+    }
+}
@@ -0,0 +1,484 @@
+package com.example.account.service;
+
+import com.example.account.dto.ArchivedTransaction;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 오래된 거래를 모아둔 세그먼트 파일, 한 번 쓰고 나면 바뀌지 않음
+ * [header][block]...[block][footer][footer 위치][MAGIC]
+ * - block : 거래 blockRows 건을 (계좌 id, 거래 시간, id) 순서로 직렬화해서 deflate 압축
+ * - footer : 블록마다 위치, 계좌 id 범위, 거래 시간 범위, transactionId bloom filter
+ *   + 세그먼트 전체의 transactionId bloom filter (VERSION 2 부터)
+ *   => 열 때 footer 만 메모리에 올려두고(sparse index) 조회할 때는 걸리는 블록만 읽어서 풂
+ * transactionId 는 랜덤이라 정렬해도 범위로 찾을 수 없으므로 bloom filter 로 거름
+ * 세그먼트 bloom filter 에 안 걸리면 블록은 보지 않음 => 세그먼트 하나에 한 번만 확인
+ */
+class ArchiveSegment {
+    private static final int MAGIC = 0x54584131; // TXA1
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_SEGMENT_BLOOM = 1;
+    private static final int BLOOM_BITS_PER_ROW = 10;
+    private static final int BLOOM_HASHES = 7;
+
+    private final Path path;
+    private final LocalDate cutoff;
+    private final List<Block> blocks;
+    private final long[] bloom; // 세그먼트 전체, VERSION 1 파일이면 null => 블록마다 확인
+    private final long minAccountId;
+    private final long maxAccountId;
+    private final long minTransactedAt;
+    private final long maxTransactedAt;
+
+    private ArchiveSegment(Path path, LocalDate cutoff, List<Block> blocks, long[] bloom) {
+        this.path = path;
+        this.cutoff = cutoff;
+        this.blocks = blocks;
+        this.bloom = bloom;
+        this.minAccountId = blocks.stream().mapToLong(block -> block.minAccountId).min().orElse(Long.MAX_VALUE);
+        this.maxAccountId = blocks.stream().mapToLong(block -> block.maxAccountId).max().orElse(Long.MIN_VALUE);
+        this.minTransactedAt = blocks.stream().mapToLong(block -> block.minTransactedAt).min().orElse(Long.MAX_VALUE);
+        this.maxTransactedAt = blocks.stream().mapToLong(block -> block.maxTransactedAt).max().orElse(Long.MIN_VALUE);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    // 이 날짜 이전 거래를 옮긴 세그먼트
+    LocalDate getCutoff() {
+        return cutoff;
+    }
+
+    long getMinAccountId() {
+        return minAccountId;
+    }
+
+    long getMaxAccountId() {
+        return maxAccountId;
+    }
+
+    // 계좌의 [from, to) 거래가 있을 수 있는 세그먼트인지 (null 이면 제한 없음)
+    boolean overlaps(long accountId, LocalDateTime from, LocalDateTime to) {
+        return minAccountId <= accountId && accountId <= maxAccountId
+                && (from == null || maxTransactedAt >= toNanos(from))
+                && (to == null || minTransactedAt < toNanos(to));
+    }
+
+    boolean mightContain(String transactionId) {
+        return bloom == null || mightContain(bloom, hash1(transactionId), hash2(transactionId));
+    }
+
+    static ArchiveSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer tail = read(channel, channel.size() - 12, 12);
+            long footerOffset = tail.getLong();
+            if (tail.getInt() != MAGIC) {
+                throw new IOException("Not an archive segment : " + path);
+            }
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(read(channel, 0, 16).array()));
+            int version = header.readInt() == MAGIC ? header.readInt() : -1;
+            if (version != VERSION && version != VERSION_WITHOUT_SEGMENT_BLOOM) {
+                throw new IOException("Unsupported archive segment : " + path);
+            }
+            LocalDate cutoff = LocalDate.ofEpochDay(header.readLong());
+
+            DataInputStream footer = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(channel.position(footerOffset))));
+            int count = footer.readInt();
+            List<Block> blocks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                blocks.add(Block.read(footer));
+            }
+            long[] bloom = version == VERSION ? readBloom(footer) : null;
+            return new ArchiveSegment(path, cutoff, Collections.unmodifiableList(blocks), bloom);
+        }
+    }
+
+    static Writer writer(Path path, LocalDate cutoff, int blockRows) throws IOException {
+        return new Writer(path, cutoff, blockRows);
+    }
+
+    Optional<ArchivedTransaction> find(String transactionId) throws IOException {
+        long h1 = hash1(transactionId);
+        long h2 = hash2(transactionId);
+        if (bloom != null && !mightContain(bloom, h1, h2)) {
+            return Optional.empty();
+        }
+        for (Block block : blocks) {
+            if (!mightContain(block.bloom, h1, h2)) {
+                continue;
+            }
+            for (ArchivedTransaction transaction : readBlock(block)) {
+                if (transaction.getTransactionId().equals(transactionId)) {
+                    return Optional.of(transaction);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * transactionIds 중 out 에 아직 없는 것을 찾아서 out 에 채움
+     * 블록마다 bloom filter 에 걸리는 id 가 하나라도 있으면 한 번만 풀고 그 블록에 있는 id 를 모두 꺼냄
+     */
+    void findAll(Collection<String> transactionIds, Map<String, ArchivedTransaction> out) throws IOException {
+        Map<String, long[]> remaining = new HashMap<>();
+        for (String transactionId : transactionIds) {
+            long[] hash = {hash1(transactionId), hash2(transactionId)};
+            if (!out.containsKey(transactionId) && (bloom == null || mightContain(bloom, hash[0], hash[1]))) {
+                remaining.put(transactionId, hash);
+            }
+        }
+        for (int i = 0; i < blocks.size() && !remaining.isEmpty(); i++) {
+            Block block = blocks.get(i);
+            if (remaining.values().stream().noneMatch(hash -> mightContain(block.bloom, hash[0], hash[1]))) {
+                continue;
+            }
+            for (ArchivedTransaction transaction : readBlock(block)) {
+                if (remaining.remove(transaction.getTransactionId()) != null) {
+                    out.put(transaction.getTransactionId(), transaction);
+                }
+            }
+        }
+    }
+
+    /**
+     * 계좌의 거래 중 [from, to) 에 있고 filter 를 통과하는 것을 out 에 limit 건까지 채움 (null 이면 제한 없음)
+     * descending 이면 최신순, 아니면 오래된순
+     */
+    void scan(long accountId, LocalDateTime from, LocalDateTime to, boolean descending,
+              Predicate<ArchivedTransaction> filter, List<ArchivedTransaction> out, int limit) throws IOException {
+        long fromNanos = from == null ? Long.MIN_VALUE : toNanos(from);
+        long toNanos = to == null ? Long.MAX_VALUE : toNanos(to);
+        for (int i = 0; i < blocks.size() && out.size() < limit; i++) {
+            Block block = blocks.get(descending ? blocks.size() - 1 - i : i);
+            if (!block.overlaps(accountId, fromNanos, toNanos)) {
+                continue;
+            }
+            List<ArchivedTransaction> rows = readBlock(block);
+            for (int j = 0; j < rows.size() && out.size() < limit; j++) {
+                ArchivedTransaction row = rows.get(descending ? rows.size() - 1 - j : j);
+                long nanos = toNanos(row.getTransactedAt());
+                if (row.getAccountId() == accountId && nanos >= fromNanos && nanos < toNanos && filter.test(row)) {
+                    out.add(row);
+                }
+            }
+        }
+    }
+
+    private List<ArchivedTransaction> readBlock(Block block) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readBlock(channel, block);
+        }
+    }
+
+    private static List<ArchivedTransaction> readBlock(FileChannel channel, Block block) throws IOException {
+        ByteBuffer compressed = read(channel, block.offset, block.length);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(new ByteArrayInputStream(compressed.array()))));
+        List<ArchivedTransaction> rows = new ArrayList<>(block.rows);
+        for (int i = 0; i < block.rows; i++) {
+            rows.add(ArchivedTransaction.builder()
+                    .id(in.readLong())
+                    .accountId(in.readLong())
+                    .accountNumber(in.readUTF())
+                    .transactionType(TransactionType.valueOf(in.readUTF()))
+                    .transactionResultType(TransactionResultType.valueOf(in.readUTF()))
+                    .amount(in.readLong())
+                    .balanceSnapshot(in.readLong())
+                    .transactionId(in.readUTF())
+                    .transactedAt(fromNanos(in.readLong()))
+                    .build());
+        }
+        return rows;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Truncated archive segment");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // 시간대와 상관없이 비교할 수 있도록 UTC 기준 나노초
+    static long toNanos(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano();
+    }
+
+    static LocalDateTime fromNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    // rows 건을 담는 bloom filter (한 건에 BLOOM_BITS_PER_ROW 비트)
+    private static long[] newBloom(int rows) {
+        return new long[Math.max(1, (int) (((long) rows * BLOOM_BITS_PER_ROW + 63) / 64))];
+    }
+
+    private static void addToBloom(long[] bloom, String key) {
+        long h1 = hash1(key);
+        long h2 = hash2(key);
+        long bits = (long) bloom.length * 64;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            bloom[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private static boolean mightContain(long[] bloom, long h1, long h2) {
+        long bits = (long) bloom.length * 64;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeBloom(DataOutputStream out, long[] bloom) throws IOException {
+        out.writeInt(bloom.length);
+        for (long word : bloom) {
+            out.writeLong(word);
+        }
+    }
+
+    private static long[] readBloom(DataInputStream in) throws IOException {
+        long[] bloom = new long[in.readInt()];
+        for (int i = 0; i < bloom.length; i++) {
+            bloom[i] = in.readLong();
+        }
+        return bloom;
+    }
+
+    private static long hash1(String key) {
+        long h = key.hashCode() * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    // FNV-1a : hashCode 와 따로 움직이는 두 번째 해시 (h1 + i * h2 로 BLOOM_HASHES 개를 만듦)
+    private static long hash2(String key) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        return h | 1;
+    }
+
+    // footer 에 들어가는 블록 하나의 요약
+    private static class Block {
+        private final long offset;
+        private final int length;
+        private final int rows;
+        private final long minAccountId;
+        private final long maxAccountId;
+        private final long minTransactedAt;
+        private final long maxTransactedAt;
+        private final long[] bloom;
+
+        private Block(long offset, int length, int rows, long minAccountId, long maxAccountId,
+                      long minTransactedAt, long maxTransactedAt, long[] bloom) {
+            this.offset = offset;
+            this.length = length;
+            this.rows = rows;
+            this.minAccountId = minAccountId;
+            this.maxAccountId = maxAccountId;
+            this.minTransactedAt = minTransactedAt;
+            this.maxTransactedAt = maxTransactedAt;
+            this.bloom = bloom;
+        }
+
+        boolean overlaps(long accountId, long fromNanos, long toNanos) {
+            return minAccountId <= accountId && accountId <= maxAccountId
+                    && maxTransactedAt >= fromNanos && minTransactedAt < toNanos;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(offset);
+            out.writeInt(length);
+            out.writeInt(rows);
+            out.writeLong(minAccountId);
+            out.writeLong(maxAccountId);
+            out.writeLong(minTransactedAt);
+            out.writeLong(maxTransactedAt);
+            writeBloom(out, bloom);
+        }
+
+        static Block read(DataInputStream in) throws IOException {
+            long offset = in.readLong();
+            int length = in.readInt();
+            int rows = in.readInt();
+            long minAccountId = in.readLong();
+            long maxAccountId = in.readLong();
+            long minTransactedAt = in.readLong();
+            long maxTransactedAt = in.readLong();
+            return new Block(offset, length, rows, minAccountId, maxAccountId, minTransactedAt, maxTransactedAt,
+                    readBloom(in));
+        }
+    }
+
+    /**
+     * (계좌 id, 거래 시간, id) 순서로 add => finish 하면 footer 를 쓰고 fsync 한 뒤 .tmp 를 세그먼트 이름으로 바꿈
+     * finish 전에 close 되면 .tmp 를 지움 => 디렉토리에는 다 쓴 세그먼트만 남음
+     */
+    static class Writer implements Closeable {
+        private final Path path;
+        private final Path tmpPath;
+        private final LocalDate cutoff;
+        private final int blockRows;
+        private final FileOutputStream file;
+        private final DataOutputStream out;
+        private final List<Block> blocks = new ArrayList<>();
+        private long position;
+        private long rowCount;
+        private boolean finished;
+
+        private final ByteArrayOutputStream blockBytes = new ByteArrayOutputStream();
+        private final DataOutputStream blockOut = new DataOutputStream(blockBytes);
+        private final List<String> blockIds = new ArrayList<>();
+        private long minAccountId;
+        private long maxAccountId;
+        private long minTransactedAt;
+        private long maxTransactedAt;
+
+        private Writer(Path path, LocalDate cutoff, int blockRows) throws IOException {
+            this.path = path;
+            this.tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+            this.cutoff = cutoff;
+            this.blockRows = blockRows;
+            this.file = new FileOutputStream(tmpPath.toFile());
+            this.out = new DataOutputStream(new BufferedOutputStream(file));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(cutoff.toEpochDay());
+            position = 16;
+        }
+
+        void add(ArchivedTransaction transaction) throws IOException {
+            long nanos = toNanos(transaction.getTransactedAt());
+            if (blockIds.isEmpty()) {
+                minAccountId = transaction.getAccountId();
+                minTransactedAt = nanos;
+                maxTransactedAt = nanos;
+            }
+            maxAccountId = transaction.getAccountId();
+            minTransactedAt = Math.min(minTransactedAt, nanos);
+            maxTransactedAt = Math.max(maxTransactedAt, nanos);
+
+            blockOut.writeLong(transaction.getId());
+            blockOut.writeLong(transaction.getAccountId());
+            blockOut.writeUTF(transaction.getAccountNumber());
+            blockOut.writeUTF(transaction.getTransactionType().name());
+            blockOut.writeUTF(transaction.getTransactionResultType().name());
+            blockOut.writeLong(transaction.getAmount());
+            blockOut.writeLong(transaction.getBalanceSnapshot());
+            blockOut.writeUTF(transaction.getTransactionId());
+            blockOut.writeLong(nanos);
+            blockIds.add(transaction.getTransactionId());
+            if (blockIds.size() == blockRows) {
+                flushBlock();
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (blockIds.isEmpty()) {
+                return;
+            }
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(blockBytes.size() / 4);
+            try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+                blockBytes.writeTo(deflater);
+            }
+            compressed.writeTo(out);
+
+            long[] bloom = newBloom(blockIds.size());
+            for (String transactionId : blockIds) {
+                addToBloom(bloom, transactionId);
+            }
+            rowCount += blockIds.size();
+            blocks.add(new Block(position, compressed.size(), blockIds.size(), minAccountId, maxAccountId,
+                    minTransactedAt, maxTransactedAt, bloom));
+            position += compressed.size();
+            blockBytes.reset();
+            blockIds.clear();
+        }
+
+        ArchiveSegment finish() throws IOException {
+            flushBlock();
+            long footerOffset = position;
+            out.writeInt(blocks.size());
+            for (Block block : blocks) {
+                block.write(out);
+            }
+            long[] bloom = segmentBloom();
+            writeBloom(out, bloom);
+            out.writeLong(footerOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+            file.getChannel().force(true);
+            out.close();
+            Files.move(tmpPath, path, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+            forceDirectory(path.toAbsolutePath().getParent()); // 이름 바꾼 것(디렉토리 항목)까지 디스크에 남긴 뒤에 원장에서 지움
+            return new ArchiveSegment(path, cutoff, Collections.unmodifiableList(blocks), bloom);
+        }
+
+        // 전체 건수를 다 쓴 뒤에야 알 수 있으므로 쓴 블록을 다시 읽어서 만듦 (거래 id 를 메모리에 모아두지 않음)
+        private long[] segmentBloom() throws IOException {
+            out.flush();
+            long[] bloom = newBloom((int) Math.min(rowCount, Integer.MAX_VALUE / BLOOM_BITS_PER_ROW));
+            try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.READ)) {
+                for (Block block : blocks) {
+                    for (ArchivedTransaction transaction : readBlock(channel, block)) {
+                        addToBloom(bloom, transaction.getTransactionId());
+                    }
+                }
+            }
+            return bloom;
+        }
+
+        // 디렉토리를 열어서 fsync 할 수 없는 windows 는 건너뜀 (NTFS 는 메타데이터를 저널에 남김)
+        private static void forceDirectory(Path directory) throws IOException {
+            if (System.getProperty("os.name").toLowerCase().startsWith("windows")) {
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                channel.force(true);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                out.close();
+                Files.deleteIfExists(tmpPath);
+            }
+        }
+    }
+}
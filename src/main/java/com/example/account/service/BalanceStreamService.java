@@ -0,0 +1,301 @@
+package com.example.account.service;
+
+import com.example.account.dto.AccountDto;
+import com.example.account.dto.BalanceChange;
+import com.example.account.exception.RetryableAccountException;
+import com.example.account.type.ErrorCode;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 계좌 잔액 변경을 SSE 로 밀어줌 => GET /account?user_id= 폴링 대신
+ * - 커밋된 잔액 변경을 redis topic 으로 발행하고 모든 노드가 받아서 자기 노드의 구독자에게만 보냄
+ * - 구독자는 요청 스레드를 잡지 않음 (servlet async), 이벤트가 있을 때만 dispatch 스레드가 보냄
+ * - 구독자마다 buffer-size 만큼만 쌓음, 넘치면 연결을 끊음 => 클라이언트가 다시 연결하면서 현재 잔액부터 다시 받음
+ * - 구독자를 먼저 등록하고 현재 잔액을 읽음 => 그 사이 커밋된 변경도 이벤트로 받으므로 빠지는 변경이 없음 (중복은 있을 수 있음)
+ * 알림용이라 유실될 수 있음 (빠짐없이 받아야 하는 시스템은 outbox 를 사용)
+ */
+@Slf4j
+@Service
+public class BalanceStreamService {
+    private static final String TOPIC = "account-balance-changes";
+    private static final String HEARTBEAT = ""; // 버퍼 안에서 heartbeat 표시, 이벤트는 json 이라 비어있을 수 없음
+
+    private final AccountService accountService;
+    private final AccountBalanceService accountBalanceService;
+    private final RedissonClient redissonClient;
+    private final ObjectMapper objectMapper;
+    private final int maxSubscribers;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final long heartbeatSeconds;
+    private final int dispatchThreads;
+
+    // 계좌번호 => 그 계좌를 구독중인 연결들
+    private final ConcurrentHashMap<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Counter overflows;
+
+    private RTopic topic;
+    private ExecutorService dispatcher;
+    private ScheduledExecutorService heartbeat;
+
+    // 한 연결, 버퍼는 dispatch 스레드 하나만 비움 (scheduled)
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final List<String> accountNumbers;
+        private final BlockingQueue<String> buffer;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, List<String> accountNumbers, int bufferSize) {
+            this.emitter = emitter;
+            this.accountNumbers = accountNumbers;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    public BalanceStreamService(
+            AccountService accountService,
+            AccountBalanceService accountBalanceService,
+            RedissonClient redissonClient,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${account.balance-stream.max-subscribers}") int maxSubscribers,
+            @Value("${account.balance-stream.buffer-size}") int bufferSize,
+            @Value("${account.balance-stream.timeout-millis}") long timeoutMillis,
+            @Value("${account.balance-stream.heartbeat-seconds}") long heartbeatSeconds,
+            @Value("${account.balance-stream.dispatch-threads}") int dispatchThreads
+    ) {
+        this.accountService = accountService;
+        this.accountBalanceService = accountBalanceService;
+        this.redissonClient = redissonClient;
+        this.objectMapper = objectMapper;
+        this.maxSubscribers = maxSubscribers;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.heartbeatSeconds = heartbeatSeconds;
+        this.dispatchThreads = dispatchThreads;
+
+        this.overflows = meterRegistry.counter("account.balance_stream.overflow");
+        meterRegistry.gauge("account.balance_stream.subscribers", subscriberCount);
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher = Executors.newFixedThreadPool(dispatchThreads, daemon("balance-stream-dispatch"));
+        heartbeat = Executors.newSingleThreadScheduledExecutor(daemon("balance-stream-heartbeat"));
+        heartbeat.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatSeconds, heartbeatSeconds,
+                TimeUnit.SECONDS);
+
+        topic = redissonClient.getTopic(TOPIC, StringCodec.INSTANCE);
+        topic.addListener(String.class, (channel, message) -> dispatch(message));
+    }
+
+    public SseEmitter subscribe(Long userId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new RetryableAccountException(ErrorCode.TOO_MANY_REQUESTS, 1000L);
+        }
+
+        SseEmitter emitter = newEmitter();
+        Subscriber subscriber;
+        try {
+            List<AccountDto> accounts = accountService.getAccountsByUserId(userId);
+            List<String> accountNumbers = new ArrayList<>(accounts.size());
+            for (AccountDto account : accounts) {
+                accountNumbers.add(account.getAccountNumber());
+            }
+            subscriber = new Subscriber(emitter, accountNumbers, bufferSize);
+        } catch (RuntimeException e) {
+            subscriberCount.decrementAndGet();
+            throw e;
+        }
+
+        // 현재 잔액을 보낼 때까지 버퍼를 비우지 않음 => 그 사이 온 이벤트는 쌓였다가 현재 잔액 다음에 나감
+        subscriber.scheduled.set(true);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        register(subscriber);
+
+        try {
+            // 등록한 뒤에 읽음 => 등록 전에 커밋된 변경은 여기에, 등록 뒤의 변경은 이벤트로 받음
+            // 계좌 목록 조회(SingleFlight)의 잔액은 등록 전에 시작된 조회일 수 있어서 쓰지 않음
+            Map<String, AccountDto> balances = accountBalanceService.getBalances(subscriber.accountNumbers);
+            for (String accountNumber : subscriber.accountNumbers) {
+                AccountDto account = balances.get(accountNumber);
+                if (account != null) {
+                    emitter.send(SseEmitter.event().name("balance")
+                            .data(toJson(new BalanceChange(accountNumber, account.getBalance(), null, null)),
+                                    MediaType.APPLICATION_JSON));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            unsubscribe(subscriber); // 그 사이 버퍼가 넘쳐서 끊겼거나 끊어진 연결
+            return emitter;
+        } catch (RuntimeException e) {
+            unsubscribe(subscriber);
+            throw e;
+        }
+
+        subscriber.scheduled.set(false);
+        if (!subscriber.buffer.isEmpty() && subscriber.scheduled.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+        return emitter;
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    // AccountBalanceService 에서 발행한 잔액 변경, 커밋된 뒤에만 받음
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBalanceChange(BalanceChange change) {
+        topic.publishAsync(toJson(change)); // 요청 스레드는 기다리지 않음
+    }
+
+    // redis topic 에서 받은 이벤트를 이 노드의 구독자에게
+    void dispatch(String message) {
+        String accountNumber;
+        try {
+            accountNumber = objectMapper.readValue(message, BalanceChange.class).getAccountNumber();
+        } catch (JsonProcessingException e) {
+            log.warn("Invalid balance change message : {}", message);
+            return;
+        }
+        Set<Subscriber> targets = subscribers.get(accountNumber);
+        if (targets == null) {
+            return;
+        }
+        for (Subscriber subscriber : targets) {
+            deliver(subscriber, message); // 직렬화는 발행할 때 한 번만
+        }
+    }
+
+    private void deliver(Subscriber subscriber, String data) {
+        if (!subscriber.buffer.offer(data)) {
+            overflows.increment();
+            subscriber.emitter.complete(); // 못 따라오는 클라이언트는 끊고 다시 연결하게 함
+            unsubscribe(subscriber);
+            return;
+        }
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            String data;
+            while ((data = subscriber.buffer.poll()) != null) {
+                if (data.isEmpty()) {
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    subscriber.emitter.send(SseEmitter.event().name("balance")
+                            .data(data, MediaType.APPLICATION_JSON));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            unsubscribe(subscriber); // 끊어진 연결
+            return;
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+        // 비우는 사이 새로 들어온 게 있으면 이어서
+        if (!subscriber.buffer.isEmpty() && subscriber.scheduled.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+
+    // 프록시가 놀고 있는 연결을 끊지 않도록, 쌓인 게 없는 연결에만
+    void sendHeartbeats() {
+        subscribers.values().stream()
+                .flatMap(Set::stream)
+                .distinct()
+                .filter(subscriber -> subscriber.buffer.isEmpty())
+                .forEach(subscriber -> deliver(subscriber, HEARTBEAT));
+    }
+
+    private void register(Subscriber subscriber) {
+        for (String accountNumber : subscriber.accountNumbers) {
+            subscribers.computeIfAbsent(accountNumber, k -> ConcurrentHashMap.newKeySet())
+                    .add(subscriber);
+        }
+        // 등록하는 사이 끊겼으면 (unsubscribe 가 먼저 돌았으면) 방금 넣은 것도 뺌
+        if (subscriber.closed.get()) {
+            remove(subscriber);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return; // onCompletion, onError 등에서 여러 번 불려도 한 번만
+        }
+        remove(subscriber);
+        subscriberCount.decrementAndGet();
+    }
+
+    private void remove(Subscriber subscriber) {
+        for (String accountNumber : subscriber.accountNumbers) {
+            subscribers.computeIfPresent(accountNumber, (k, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    private String toJson(BalanceChange change) {
+        try {
+            return objectMapper.writeValueAsString(change);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (topic != null) {
+            topic.removeAllListeners();
+        }
+        heartbeat.shutdownNow();
+        dispatcher.shutdownNow();
+        subscribers.values().stream()
+                .flatMap(Set::stream)
+                .distinct()
+                .forEach(subscriber -> subscriber.emitter.complete());
+    }
+}
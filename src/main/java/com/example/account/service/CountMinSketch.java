@@ -0,0 +1,70 @@
+package com.example.account.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// 키 개수와 상관없이 depth * width 개의 카운터만으로 키별 합계를 추정 (실제보다 작게 나오지는 않음)
+// 락 없이 여러 스레드에서 더할 수 있음
+// 행마다 독립된 해시가 필요함 => String.hashCode() 하나로 나누면 hashCode 가 같은 키는 모든 행에서 겹쳐서 depth 가 의미 없음
+// 문자열에서 64비트 해시 두 개를 직접 구하고 행마다 h1 + row * h2 를 섞어서 씀 (Kirsch-Mitzenmacher)
+class CountMinSketch {
+    private final int depth;
+    private final int mask;
+    private final AtomicLongArray counts;
+
+    CountMinSketch(int depth, int width) {
+        if (depth <= 0 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("depth must be positive and width must be a power of two");
+        }
+        this.depth = depth;
+        this.mask = width - 1;
+        this.counts = new AtomicLongArray(depth * width);
+    }
+
+    void add(String key, long amount) {
+        long h1 = hash(key, 0x9E3779B97F4A7C15L);
+        long h2 = hash(key, 0xC2B2AE3D27D4EB4FL) | 1; // 0 이면 모든 행이 같은 칸
+        for (int row = 0; row < depth; row++) {
+            counts.addAndGet(index(row, h1, h2), amount);
+        }
+    }
+
+    long estimate(String key) {
+        long h1 = hash(key, 0x9E3779B97F4A7C15L);
+        long h2 = hash(key, 0xC2B2AE3D27D4EB4FL) | 1;
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counts.get(index(row, h1, h2)));
+        }
+        return min;
+    }
+
+    void clear() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    private int index(int row, long h1, long h2) {
+        return row * (mask + 1) + (int) (mix(h1 + row * h2) & mask);
+    }
+
+    // seed 로 시작하는 64비트 FNV-1a 를 섞어줌
+    private static long hash(String key, long seed) {
+        long h = seed;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    // murmur3 fmix64
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.account.service;
+
+import com.example.account.type.AccountStatus;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 성능 테스트용 대용량 데이터 생성기
+ * AccountUser, Account, Transaction 을 JPA 가 아닌 JDBC batch insert 로 넣어서 수백만 건도 금방 넣을 수 있다
+ * - 거래는 Zipf 분포로 일부 계좌(hot account)에 몰리도록 생성
+ * - transactedAt 은 spec 의 years 만큼 과거부터 현재까지 퍼지도록 생성
+ * - 계좌 잔액과 balanceSnapshot 은 생성한 거래 내역과 맞아떨어지도록 계산해서 넣어줌
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DatasetGenerator {
+    private static final long FIRST_ACCOUNT_NUMBER = 1000000000L;
+    private static final int MAX_ACCOUNT_PER_USER = 10;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HibernateSequence hibernateSequence;
+
+    @Getter
+    @Builder
+    @AllArgsConstructor
+    public static class DatasetSpec {
+        private int users;
+        private int accounts;
+        private long transactions;
+        private int years;
+        private double zipfExponent;
+        private long seed;
+        private int batchSize;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class DatasetSummary {
+        private int users;
+        private int accounts;
+        private long transactions;
+        private long elapsedMillis;
+    }
+
+    public DatasetSummary generate(DatasetSpec spec) {
+        long started = System.currentTimeMillis();
+        Random random = new Random(spec.getSeed());
+
+        // 사용자당 최대 10개 정책을 넘지 않도록 계좌 수를 맞춰줌
+        int users = spec.getUsers();
+        int accounts = Math.min(spec.getAccounts(), users * MAX_ACCOUNT_PER_USER);
+        int batchSize = Math.max(1, spec.getBatchSize());
+
+        // JPA 가 쓰는 hibernate_sequence 와 겹치지 않도록 id 를 시퀀스 다음 값부터 직접 할당
+        long nextId = nextAvailableId();
+        long firstUserId = nextId;
+        long firstAccountId = firstUserId + users;
+        long firstTransactionId = firstAccountId + accounts;
+        long firstAccountNumber = nextAccountNumber();
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime start = now.minusYears(spec.getYears());
+
+        insertUsers(users, firstUserId, accounts, start, batchSize);
+
+        long[] balances = new long[accounts];
+        long[] lastUseAmounts = new long[accounts];
+        insertAccounts(accounts, users, firstUserId, firstAccountId, firstAccountNumber,
+                start, balances, random, batchSize);
+
+        insertTransactions(spec, accounts, firstAccountId, firstTransactionId,
+                start, now, balances, lastUseAmounts, random, batchSize);
+
+        updateBalances(accounts, firstAccountId, balances, batchSize);
+
+        // 이후 JPA 로 저장되는 엔티티가 생성한 id 와 겹치지 않도록 시퀀스를 뒤로 밀어줌
+        hibernateSequence.restartWith(firstTransactionId + spec.getTransactions());
+
+        DatasetSummary summary = new DatasetSummary(users, accounts, spec.getTransactions(),
+                System.currentTimeMillis() - started);
+        log.info("Dataset generated. users : {}, accounts : {}, transactions : {}, elapsed : {}ms",
+                summary.getUsers(), summary.getAccounts(), summary.getTransactions(),
+                summary.getElapsedMillis());
+        return summary;
+    }
+
+    private long nextAvailableId() {
+        long sequence = hibernateSequence.next();
+        long maxId = 0;
+        for (String table : new String[]{"account_user", "account", "transaction"}) {
+            Long max = jdbcTemplate.queryForObject(
+                    "select coalesce(max(id), 0) from " + table, Long.class);
+            maxId = Math.max(maxId, max == null ? 0 : max);
+        }
+        return Math.max(sequence, maxId + 1);
+    }
+
+    // AccountService.createAccount 와 같은 규칙(마지막 계좌번호 + 1)으로 이어지도록
+    private long nextAccountNumber() {
+        List<String> last = jdbcTemplate.queryForList(
+                "select account_number from account order by id desc limit 1", String.class);
+        return last.isEmpty() ? FIRST_ACCOUNT_NUMBER : Long.parseLong(last.get(0)) + 1;
+    }
+
+    private void insertUsers(int users, long firstUserId, int accounts, LocalDateTime start,
+                             int batchSize) {
+        String sql = "insert into account_user(id, name, active_account_count, created_at, updated_at)"
+                + " values (?, ?, ?, ?, ?)";
+        Timestamp createdAt = Timestamp.valueOf(start);
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < users; i++) {
+            // insertAccounts 에서 계좌를 사용자 순서대로 돌아가며 나눠주는 것과 같은 개수
+            int activeAccountCount = accounts / users + (i < accounts % users ? 1 : 0);
+            batch.add(new Object[]{firstUserId + i, "user" + (firstUserId + i), activeAccountCount,
+                    createdAt, createdAt});
+            if (batch.size() == batchSize) {
+                flush(sql, batch);
+            }
+        }
+        flush(sql, batch);
+    }
+
+    private void insertAccounts(int accounts, int users, long firstUserId, long firstAccountId,
+                                long firstAccountNumber, LocalDateTime start, long[] balances,
+                                Random random, int batchSize) {
+        String sql = "insert into account(id, account_user_id, account_number, account_status,"
+                + " balance, initial_balance, registered_at, created_at, updated_at)"
+                + " values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        Timestamp registeredAt = Timestamp.valueOf(start);
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < accounts; i++) {
+            balances[i] = 100_000L + (long) (random.nextDouble() * 10_000_000L);
+            batch.add(new Object[]{
+                    firstAccountId + i,
+                    firstUserId + (i % users), // 사용자들에게 골고루 나눠줌
+                    String.valueOf(firstAccountNumber + i),
+                    AccountStatus.IN_USE.name(),
+                    balances[i],
+                    balances[i], // 거래 전 잔액 = 시작 잔액
+                    registeredAt, registeredAt, registeredAt
+            });
+            if (batch.size() == batchSize) {
+                flush(sql, batch);
+            }
+        }
+        flush(sql, batch);
+    }
+
+    private void insertTransactions(DatasetSpec spec, int accounts, long firstAccountId,
+                                    long firstTransactionId, LocalDateTime start, LocalDateTime now,
+                                    long[] balances, long[] lastUseAmounts, Random random,
+                                    int batchSize) {
+        String sql = "insert into transaction(id, account_id, transaction_type,"
+                + " transaction_result_type, amount, balance_snapshot, transaction_id,"
+                + " transacted_at, created_at, updated_at) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        ZipfSampler sampler = new ZipfSampler(accounts, spec.getZipfExponent());
+        int[] hotOrder = shuffledIndexes(accounts, random); // 앞 번호 계좌만 hot 해지지 않도록 섞어줌
+
+        long total = spec.getTransactions();
+        long spanMillis = Duration.between(start, now).toMillis();
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        for (long k = 0; k < total; k++) {
+            int index = hotOrder[sampler.sample(random)];
+            // 시간순으로 증가하도록 배치해서 balanceSnapshot 이 시간 흐름과 맞게 쌓이도록
+            Timestamp transactedAt = Timestamp.valueOf(
+                    start.plusNanos((long) ((double) spanMillis * k / total) * 1_000_000L));
+
+            TransactionType type;
+            TransactionResultType result;
+            long amount;
+            if (lastUseAmounts[index] > 0 && random.nextInt(100) < 15) {
+                // 마지막 사용 건을 전액 취소
+                type = TransactionType.CANCEL;
+                result = TransactionResultType.S;
+                amount = lastUseAmounts[index];
+                balances[index] += amount;
+                lastUseAmounts[index] = 0;
+            } else {
+                type = TransactionType.USE;
+                amount = 10L + (long) Math.pow(10, random.nextDouble() * 6); // 10 ~ 1,000,010 원
+                if (amount <= balances[index]) {
+                    result = TransactionResultType.S;
+                    balances[index] -= amount;
+                    lastUseAmounts[index] = amount;
+                } else {
+                    result = TransactionResultType.F; // 잔액 부족 실패건
+                }
+            }
+
+            batch.add(new Object[]{
+                    firstTransactionId + k,
+                    firstAccountId + index,
+                    type.name(),
+                    result.name(),
+                    amount,
+                    balances[index],
+                    randomTransactionId(random),
+                    transactedAt, transactedAt, transactedAt
+            });
+            if (batch.size() == batchSize) {
+                flush(sql, batch);
+            }
+        }
+        flush(sql, batch);
+    }
+
+    private void updateBalances(int accounts, long firstAccountId, long[] balances, int batchSize) {
+        String sql = "update account set balance = ? where id = ?";
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < accounts; i++) {
+            batch.add(new Object[]{balances[i], firstAccountId + i});
+            if (batch.size() == batchSize) {
+                flush(sql, batch);
+            }
+        }
+        flush(sql, batch);
+    }
+
+    private void flush(String sql, List<Object[]> batch) {
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, batch);
+            batch.clear();
+        }
+    }
+
+    private static int[] shuffledIndexes(int n, Random random) {
+        int[] indexes = new int[n];
+        for (int i = 0; i < n; i++) {
+            indexes[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = tmp;
+        }
+        return indexes;
+    }
+
+    // TransactionService 와 같은 32자리 hex 형태, UUID.randomUUID() 는 SecureRandom 이라 대량 생성시 느려서 seed 기반으로 만듦
+    private static String randomTransactionId(Random random) {
+        return hex(random.nextLong()) + hex(random.nextLong());
+    }
+
+    private static String hex(long value) {
+        String hex = Long.toHexString(value);
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+}
@@ -0,0 +1,511 @@
+package com.example.account.service;
+
+import com.example.account.type.ErrorCode;
+import com.example.account.type.OverflowPolicy;
+import com.example.account.type.TransactionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 실패 거래(F) 기록을 요청 스레드에서 떼어내서 백그라운드에서 모아서 저장
+ * - 요청 스레드는 큐에 넣기만 하고 바로 실패 응답을 돌려줌
+ * - writer 스레드가 batch-size 만큼 모아서 계좌를 한 번에 조회하고 JDBC batch insert
+ * - 큐가 가득 차면 overflow 정책(BLOCK, DROP, SPILL)대로 처리, 저장에 실패한 batch 도 (BLOCK 은 DROP 처럼)
+ * balanceSnapshot 은 저장하는 시점의 잔액 (실패 거래는 잔액을 바꾸지 않으므로 그 사이 다른 거래가 없으면 같은 값)
+ */
+@Slf4j
+@Component
+public class FailedTransactionWriter {
+    private final JdbcTemplate jdbcTemplate;
+    // id 는 JPA 와 같은 hibernate_sequence 에서, 다음 값 문법은 DB 마다 다름 (HibernateSequence)
+    private final String insertSummarySql;
+    private final String insertSql;
+    private final BlockingQueue<FailedRecord> queue;
+    private final int batchSize;
+    private final long flushMillis;
+    private final OverflowPolicy overflowPolicy;
+    private final Path spillFile;
+    private final boolean aggregate;
+    private final long aggregateWindowNanos;
+    private final double sampleRate;
+    private final int maxAggregateKeys;
+    private final ConcurrentHashMap<FailureKey, FailureCount> failures = new ConcurrentHashMap<>();
+    private volatile long nextAggregateFlush; // 요청 스레드가 앞당길 수 있음 (집계 종류가 max-keys 를 넘을 때)
+
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter spilled;
+    private final Counter unknownAccount;
+    private final Counter sampledOut;
+    private final Counter spillBad;
+    private final Counter aggregateOverflow;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    @Getter
+    @AllArgsConstructor
+    static class FailedRecord {
+        private TransactionType transactionType;
+        private String accountNumber;
+        private Long amount;
+        private String transactionId;
+        private LocalDateTime transactedAt;
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    static class FailureKey {
+        private TransactionType transactionType;
+        private String accountNumber;
+        private Long amount;
+        private ErrorCode errorCode;
+    }
+
+    // compute, merge 안에서만 변경됨
+    @Getter
+    static class FailureCount {
+        private long attemptCount;
+        private LocalDateTime firstAttemptedAt;
+        private LocalDateTime lastAttemptedAt;
+    }
+
+    public FailedTransactionWriter(
+            JdbcTemplate jdbcTemplate,
+            HibernateSequence hibernateSequence,
+            MeterRegistry meterRegistry,
+            @Value("${account.failed-writer.queue-capacity}") int queueCapacity,
+            @Value("${account.failed-writer.batch-size}") int batchSize,
+            @Value("${account.failed-writer.flush-millis}") long flushMillis,
+            @Value("${account.failed-writer.overflow}") OverflowPolicy overflowPolicy,
+            @Value("${account.failed-writer.spill-file}") String spillFile,
+            @Value("${account.failed-writer.aggregate.enabled}") boolean aggregate,
+            @Value("${account.failed-writer.aggregate.window-millis}") long aggregateWindowMillis,
+            @Value("${account.failed-writer.aggregate.sample-rate}") double sampleRate,
+            @Value("${account.failed-writer.aggregate.max-keys}") int maxAggregateKeys
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertSummarySql = "insert into failed_transaction_summary(id,"
+                + " account_id, transaction_type, amount, error_code, attempt_count, first_attempted_at,"
+                + " last_attempted_at, created_at, updated_at)"
+                + " values (" + hibernateSequence.nextValue() + ", ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        this.insertSql = "insert into transaction(id, account_id, transaction_type,"
+                + " transaction_result_type, amount, balance_snapshot, transaction_id,"
+                + " transacted_at, created_at, updated_at)"
+                + " values (" + hibernateSequence.nextValue() + ", ?, ?, 'F', ?, ?, ?, ?, ?, ?)";
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushMillis = flushMillis;
+        this.overflowPolicy = overflowPolicy;
+        this.spillFile = Paths.get(spillFile);
+        this.aggregate = aggregate;
+        this.aggregateWindowNanos = TimeUnit.MILLISECONDS.toNanos(aggregateWindowMillis);
+        this.sampleRate = sampleRate;
+        this.maxAggregateKeys = maxAggregateKeys;
+        this.nextAggregateFlush = System.nanoTime() + aggregateWindowNanos;
+
+        this.written = meterRegistry.counter("account.failed_writer.written");
+        this.dropped = meterRegistry.counter("account.failed_writer.dropped");
+        this.spilled = meterRegistry.counter("account.failed_writer.spilled");
+        this.unknownAccount = meterRegistry.counter("account.failed_writer.unknown_account");
+        this.sampledOut = meterRegistry.counter("account.failed_writer.sampled_out");
+        this.spillBad = meterRegistry.counter("account.failed_writer.spill_bad");
+        this.aggregateOverflow = meterRegistry.counter("account.failed_writer.aggregate_overflow");
+        meterRegistry.gauge("account.failed_writer.aggregated_keys", failures, ConcurrentHashMap::size);
+        meterRegistry.gauge("account.failed_writer.queue", queue, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::run, "failed-transaction-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // 요청 스레드에서 호출 => 큐에 넣거나 집계만 함
+    public void record(TransactionType transactionType, String accountNumber, Long amount,
+                       ErrorCode errorCode) {
+        LocalDateTime now = LocalDateTime.now();
+        if (aggregate && !countFailure(new FailureKey(transactionType, accountNumber, amount, errorCode), now)
+                && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            sampledOut.increment(); // 집계에는 포함되고 개별 F 거래는 남기지 않음
+            return;
+        }
+        enqueue(new FailedRecord(transactionType, accountNumber, amount,
+                UUID.randomUUID().toString().replace("-", ""), now));
+    }
+
+    // 구간 안에서 처음 나온 실패거나 모을 자리가 없으면 true => 개별 F 거래로 남김
+    // 계좌번호, 금액은 요청에서 온 값이라 종류가 끝없이 늘 수 있음 => max-keys 를 넘으면 새 종류는 모으지 않고
+    // writer 스레드가 바로 저장하도록 구간을 앞당김 (동시에 들어온 요청 수만큼은 넘을 수 있음)
+    private boolean countFailure(FailureKey key, LocalDateTime now) {
+        if (failures.size() >= maxAggregateKeys && !failures.containsKey(key)) {
+            aggregateOverflow.increment();
+            nextAggregateFlush = System.nanoTime();
+            return true;
+        }
+        boolean[] first = {false};
+        failures.compute(key, (k, count) -> {
+            if (count == null) {
+                count = new FailureCount();
+                count.firstAttemptedAt = now;
+                first[0] = true;
+            }
+            count.attemptCount++;
+            count.lastAttemptedAt = now;
+            return count;
+        });
+        return first[0];
+    }
+
+    private void enqueue(FailedRecord record) {
+        if (queue.offer(record)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(record);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.increment();
+                }
+                break;
+            case SPILL:
+                spill(record);
+                break;
+            default:
+                dropped.increment();
+        }
+    }
+
+    private void run() {
+        List<FailedRecord> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                FailedRecord first = queue.poll(flushMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    writeOrOverflow(batch);
+                }
+                if (aggregate && System.nanoTime() - nextAggregateFlush >= 0) {
+                    nextAggregateFlush = System.nanoTime() + aggregateWindowNanos;
+                    flushFailures();
+                }
+                if (first == null) {
+                    replaySpill(); // 한가할 때 파일로 넘친 기록을 다시 저장
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("Failed to write failed transaction summaries or replay spilled records", e);
+            } finally {
+                batch.clear();
+            }
+        }
+        if (aggregate) {
+            try {
+                flushFailures(); // 종료할 때 남은 집계도 저장
+            } catch (Exception e) {
+                log.error("Failed to write failed transaction summaries", e);
+            }
+        }
+    }
+
+    // DB 장애 등으로 저장하지 못한 batch 는 큐가 넘칠 때처럼 처리 => SPILL 이면 파일로, 아니면 버린 수로 셈
+    // batch 일부가 이미 저장됐을 수 있지만 파일에서 다시 저장할 때 이미 저장된 transactionId 는 빠짐
+    void writeOrOverflow(List<FailedRecord> batch) {
+        try {
+            write(batch);
+        } catch (RuntimeException e) {
+            log.error("Failed to write failed transactions. size : {}, overflow : {}",
+                    batch.size(), overflowPolicy, e);
+            if (overflowPolicy == OverflowPolicy.SPILL) {
+                batch.forEach(this::spill);
+            } else {
+                dropped.increment(batch.size()); // 쓰는 스레드라서 BLOCK 으로 큐에 다시 넣으면 멈출 수 있음
+            }
+        }
+    }
+
+    void write(List<FailedRecord> records) {
+        write(records, false);
+    }
+
+    // skipWritten : 이미 저장된 transactionId 는 빼고 저장 (파일에서 다시 저장할 때 중복 방지)
+    private void write(List<FailedRecord> records, boolean skipWritten) {
+        Set<String> accountNumbers = new LinkedHashSet<>();
+        for (FailedRecord record : records) {
+            accountNumbers.add(record.getAccountNumber());
+        }
+        Map<String, long[]> accounts = findAccounts(accountNumbers); // 계좌번호 => {id, balance}
+        List<Object[]> rows = new ArrayList<>(records.size());
+        for (FailedRecord record : records) {
+            long[] account = accounts.get(record.getAccountNumber());
+            if (account == null) {
+                unknownAccount.increment(); // 없는 계좌로 온 요청은 남길 계좌가 없음
+                continue;
+            }
+            Timestamp transactedAt = Timestamp.valueOf(record.getTransactedAt());
+            rows.add(new Object[]{account[0], record.getTransactionType().name(), record.getAmount(),
+                    account[1], record.getTransactionId(), transactedAt, transactedAt, transactedAt});
+        }
+        if (skipWritten && !rows.isEmpty()) {
+            Set<String> existing = findWrittenTransactionIds(rows);
+            rows.removeIf(row -> existing.contains((String) row[4]));
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(insertSql, rows);
+            written.increment(rows.size());
+        }
+    }
+
+    private Set<String> findWrittenTransactionIds(List<Object[]> rows) {
+        List<Object> transactionIds = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            transactionIds.add(row[4]);
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "select transaction_id from transaction where transaction_id in ("
+                        + String.join(",", Collections.nCopies(transactionIds.size(), "?")) + ")",
+                String.class, transactionIds.toArray()));
+    }
+
+    // 집계한 실패를 한 줄씩 저장, 지우면서 꺼내므로 저장 중에 들어온 실패는 다음 구간으로 넘어감
+    // 저장하지 못한 집계는 다시 합쳐둠 => 다음 구간에 그 사이 들어온 실패와 한 줄로 저장됨
+    void flushFailures() {
+        Map<FailureKey, FailureCount> snapshot = new HashMap<>();
+        for (FailureKey key : failures.keySet()) {
+            failures.computeIfPresent(key, (k, count) -> {
+                snapshot.put(k, count);
+                return null;
+            });
+        }
+        if (snapshot.isEmpty()) {
+            return;
+        }
+
+        try {
+            Set<String> accountNumbers = new LinkedHashSet<>();
+            for (FailureKey key : snapshot.keySet()) {
+                accountNumbers.add(key.getAccountNumber());
+            }
+            Map<String, long[]> accounts = findAccounts(accountNumbers);
+            List<Object[]> rows = new ArrayList<>(Math.min(snapshot.size(), batchSize));
+            List<FailureKey> keys = new ArrayList<>(rows.size());
+            Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+            for (Map.Entry<FailureKey, FailureCount> entry : new ArrayList<>(snapshot.entrySet())) {
+                FailureKey key = entry.getKey();
+                FailureCount count = entry.getValue();
+                long[] account = accounts.get(key.getAccountNumber());
+                if (account == null) {
+                    unknownAccount.increment();
+                    snapshot.remove(key);
+                    continue;
+                }
+                rows.add(new Object[]{account[0], key.getTransactionType().name(), key.getAmount(),
+                        key.getErrorCode().name(), count.getAttemptCount(),
+                        Timestamp.valueOf(count.getFirstAttemptedAt()),
+                        Timestamp.valueOf(count.getLastAttemptedAt()), createdAt, createdAt});
+                keys.add(key);
+                if (rows.size() == batchSize) {
+                    insertSummaries(rows, keys, snapshot);
+                    rows = new ArrayList<>(batchSize);
+                    keys = new ArrayList<>(batchSize);
+                }
+            }
+            if (!rows.isEmpty()) {
+                insertSummaries(rows, keys, snapshot);
+            }
+        } catch (RuntimeException e) {
+            snapshot.forEach(this::restore); // 저장한 batch 는 snapshot 에서 빠져 있음
+            throw e;
+        }
+    }
+
+    private void insertSummaries(List<Object[]> rows, List<FailureKey> keys, Map<FailureKey, FailureCount> snapshot) {
+        jdbcTemplate.batchUpdate(insertSummarySql, rows);
+        keys.forEach(snapshot::remove);
+    }
+
+    // 저장하지 못한 집계를 그 사이 새로 모인 같은 실패와 합침 (max-keys 는 넘을 수 있음, 원래 있던 종류이므로)
+    private void restore(FailureKey key, FailureCount unsaved) {
+        failures.merge(key, unsaved, (count, old) -> {
+            count.attemptCount += old.attemptCount;
+            count.firstAttemptedAt = old.firstAttemptedAt;
+            return count;
+        });
+    }
+
+    private Map<String, long[]> findAccounts(Set<String> accountNumbers) {
+        String placeholders = String.join(",", Collections.nCopies(accountNumbers.size(), "?"));
+        int[] argTypes = new int[accountNumbers.size()];
+        Arrays.fill(argTypes, Types.VARCHAR);
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "select id, account_number, balance from account where account_number in ("
+                        + placeholders + ")", accountNumbers.toArray(), argTypes);
+
+        Map<String, long[]> accounts = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            accounts.put((String) row.get("account_number"), new long[]{
+                    ((Number) row.get("id")).longValue(),
+                    ((Number) row.get("balance")).longValue()});
+        }
+        return accounts;
+    }
+
+    /**
+     * 한 줄에 하나씩 : 거래종류,금액,거래id,거래시간,계좌번호(URL 인코딩),CRC32
+     * 계좌번호는 요청에서 온 값이라 쉼표, 줄바꿈이 들어있을 수 있으므로 인코딩해서 맨 뒤에 둠
+     * CRC 는 쓰다가 죽어서 잘린 마지막 줄을 걸러내기 위함
+     */
+    private synchronized void spill(FailedRecord record) {
+        try (BufferedWriter writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(toLine(record));
+            writer.newLine();
+            spilled.increment();
+        } catch (IOException e) {
+            log.error("Failed to spill failed transaction", e);
+            dropped.increment();
+        }
+    }
+
+    static String toLine(FailedRecord record) {
+        String payload = record.getTransactionType() + "," + record.getAmount() + ","
+                + record.getTransactionId() + "," + record.getTransactedAt() + ","
+                + URLEncoder.encode(record.getAccountNumber(), StandardCharsets.UTF_8);
+        return payload + "," + crc(payload);
+    }
+
+    // 형식이 맞지 않거나 CRC 가 다르면 null
+    static FailedRecord fromLine(String line) {
+        int crcAt = line.lastIndexOf(',');
+        if (crcAt < 0 || !line.substring(crcAt + 1).equals(crc(line.substring(0, crcAt)))) {
+            return null;
+        }
+        String[] fields = line.substring(0, crcAt).split(",", -1);
+        if (fields.length != 5) {
+            return null;
+        }
+        try {
+            return new FailedRecord(TransactionType.valueOf(fields[0]),
+                    URLDecoder.decode(fields[4], StandardCharsets.UTF_8), Long.parseLong(fields[1]),
+                    fields[2], LocalDateTime.parse(fields[3]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String crc(String payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * 넘친 기록을 다시 저장 : 파일을 .replaying 으로 옮긴 뒤 한 줄씩 읽으면서 batch 단위로 저장
+     * - 읽을 수 없는 줄은 .bad 파일로 옮기고 계속 진행 => 한 줄 때문에 파일 전체가 멈추지 않음
+     * - batch 를 저장할 때마다 처리한 줄 수를 .offset 에 남김 => 중간에 실패하면 다음에 그 뒤부터
+     * - offset 을 남기기 전에 죽은 batch 는 다시 읽히므로 이미 저장된 transactionId 는 빼고 저장
+     */
+    void replaySpill() throws IOException {
+        Path replaying = spillFile.resolveSibling(spillFile.getFileName() + ".replaying");
+        Path offsetFile = spillFile.resolveSibling(spillFile.getFileName() + ".offset");
+        Path badFile = spillFile.resolveSibling(spillFile.getFileName() + ".bad");
+        // 지난번에 다시 저장하다 실패한 파일이 남아있으면 그것부터 (덮어쓰면 기록이 사라짐)
+        if (!Files.exists(replaying)) {
+            synchronized (this) { // spill 중인 파일을 옮기지 않도록
+                if (!Files.exists(spillFile)) {
+                    return;
+                }
+                Files.deleteIfExists(offsetFile);
+                Files.move(spillFile, replaying);
+            }
+        }
+
+        long done = Files.exists(offsetFile)
+                ? Long.parseLong(new String(Files.readAllBytes(offsetFile), StandardCharsets.UTF_8).trim())
+                : 0;
+        long lineNumber = 0;
+        List<FailedRecord> batch = new ArrayList<>(batchSize);
+        try (BufferedReader reader = Files.newBufferedReader(replaying, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (++lineNumber <= done) {
+                    continue;
+                }
+                FailedRecord record = fromLine(line);
+                if (record == null) {
+                    moveToBad(badFile, line);
+                } else {
+                    batch.add(record);
+                }
+                if (batch.size() == batchSize) {
+                    write(batch, true);
+                    batch.clear();
+                    Files.write(offsetFile, String.valueOf(lineNumber).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch, true);
+        }
+        Files.delete(replaying);
+        Files.deleteIfExists(offsetFile);
+    }
+
+    private void moveToBad(Path badFile, String line) throws IOException {
+        log.warn("Unreadable spilled failed transaction moved to {}", badFile);
+        try (BufferedWriter writer = Files.newBufferedWriter(badFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(line);
+            writer.newLine();
+        }
+        spillBad.increment();
+    }
+
+    // 종료할 때 큐에 남아있는 기록까지 저장하고 끝냄
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+}
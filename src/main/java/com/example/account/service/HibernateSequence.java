@@ -0,0 +1,50 @@
+package com.example.account.service;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * JPA 엔티티가 같이 쓰는 hibernate_sequence 를 JDBC 로 직접 쓸 때 필요한 SQL
+ * DB 마다 문법이 달라서 Hibernate Dialect 에서 가져옴
+ * (H2 : next value for hibernate_sequence, PostgreSQL : nextval ('hibernate_sequence'))
+ */
+@Component
+public class HibernateSequence {
+    private static final String NAME = "hibernate_sequence";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nextValue;
+    private final String selectNextValue;
+
+    @Autowired
+    public HibernateSequence(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this(jdbcTemplate, entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect());
+    }
+
+    HibernateSequence(JdbcTemplate jdbcTemplate, Dialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nextValue = dialect.getSelectSequenceNextValString(NAME);
+        this.selectNextValue = dialect.getSequenceNextValString(NAME);
+    }
+
+    // insert ... values (...) 안에 쓰는 다음 값 표현식
+    public String nextValue() {
+        return nextValue;
+    }
+
+    public long next() {
+        Long value = jdbcTemplate.queryForObject(selectNextValue, Long.class);
+        return value == null ? 1 : value;
+    }
+
+    // 직접 id 를 넣은 뒤 JPA 가 만드는 id 와 겹치지 않도록 뒤로 밀어줌 (H2, PostgreSQL 모두 지원하는 문법)
+    public void restartWith(long value) {
+        jdbcTemplate.execute("alter sequence " + NAME + " restart with " + value);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.account.service;
+
+import com.example.account.dto.HotAccount;
+import com.example.account.type.HotAccountMetric;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 락 경합을 일으키는 계좌(hot account)를 찾기 위한 집계
+ * - 최근 windows * window-seconds 동안을 window-seconds 단위 구간으로 나눠서 돌려씀 (sliding window)
+ * - 구간마다 지표별로 Count-Min sketch(계좌별 추정치) + Space-Saving(상위 후보, 계좌 해시로 shard 를 나눔) 를 둠
+ * 계좌가 몇 개든 메모리는 구간 수 * 지표 수 * (sketch 크기 + shard 수 * 후보 수) 로 고정
+ */
+@Component
+public class HotAccountTracker {
+    private static final HotAccountMetric[] METRICS = HotAccountMetric.values();
+
+    private final long windowNanos;
+    private final Window[] windows;
+
+    public HotAccountTracker(
+            MeterRegistry meterRegistry,
+            @Value("${account.hot-account.window-seconds}") long windowSeconds,
+            @Value("${account.hot-account.windows}") int windowCount,
+            @Value("${account.hot-account.sketch-depth}") int sketchDepth,
+            @Value("${account.hot-account.sketch-width}") int sketchWidth,
+            @Value("${account.hot-account.top-k}") int topK
+    ) {
+        this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+        this.windows = new Window[windowCount];
+        for (int i = 0; i < windowCount; i++) {
+            windows[i] = new Window(sketchDepth, sketchWidth, topK);
+        }
+        // 계좌번호를 태그로 달면 계좌 수만큼 시계열이 생기므로 지표별 1위 값만 노출
+        for (HotAccountMetric metric : METRICS) {
+            meterRegistry.gauge("account.hot.top", Collections.singletonList(
+                    Tag.of("metric", metric.name())), this,
+                    tracker -> tracker.top(metric, 1).stream()
+                            .mapToLong(HotAccount::getCount).findFirst().orElse(0));
+        }
+    }
+
+    public void record(HotAccountMetric metric, String accountNumber, long amount) {
+        if (amount <= 0) {
+            return;
+        }
+        long epoch = currentEpoch();
+        Window window = windows[(int) Math.floorMod(epoch, (long) windows.length)];
+        window.rollTo(epoch);
+        window.sketches[metric.ordinal()].add(accountNumber, amount);
+        window.candidates[metric.ordinal()].add(accountNumber, amount);
+    }
+
+    // 최근 구간들 합계 추정치
+    public long estimate(HotAccountMetric metric, String accountNumber) {
+        long oldest = currentEpoch() - windows.length + 1;
+        long sum = 0;
+        for (Window window : windows) {
+            if (window.epoch >= oldest) {
+                sum += window.sketches[metric.ordinal()].estimate(accountNumber);
+            }
+        }
+        return sum;
+    }
+
+    public List<HotAccount> top(HotAccountMetric metric, int limit) {
+        long oldest = currentEpoch() - windows.length + 1;
+        Set<String> candidates = new HashSet<>();
+        for (Window window : windows) {
+            if (window.epoch >= oldest) {
+                candidates.addAll(window.candidates[metric.ordinal()].candidates());
+            }
+        }
+
+        long windowSeconds = TimeUnit.NANOSECONDS.toSeconds(windowNanos) * windows.length;
+        List<HotAccount> hotAccounts = new ArrayList<>(candidates.size());
+        for (String accountNumber : candidates) {
+            hotAccounts.add(new HotAccount(accountNumber, metric,
+                    estimate(metric, accountNumber), windowSeconds));
+        }
+        hotAccounts.sort(Comparator.comparing(HotAccount::getCount).reversed());
+        return hotAccounts.subList(0, Math.min(limit, hotAccounts.size()));
+    }
+
+    private long currentEpoch() {
+        return Math.floorDiv(System.nanoTime(), windowNanos);
+    }
+
+    private static class Window {
+        private final CountMinSketch[] sketches = new CountMinSketch[METRICS.length];
+        private final SpaceSaving[] candidates = new SpaceSaving[METRICS.length];
+        private volatile long epoch = Long.MIN_VALUE;
+
+        Window(int sketchDepth, int sketchWidth, int topK) {
+            for (int i = 0; i < METRICS.length; i++) {
+                sketches[i] = new CountMinSketch(sketchDepth, sketchWidth);
+                candidates[i] = new SpaceSaving(topK);
+            }
+        }
+
+        // 오래된 구간이면 비우고 새 구간으로 재사용 (비우는 순간 들어온 값 일부는 버려질 수 있음)
+        void rollTo(long epoch) {
+            if (this.epoch == epoch) {
+                return;
+            }
+            synchronized (this) {
+                if (this.epoch != epoch) {
+                    for (int i = 0; i < METRICS.length; i++) {
+                        sketches[i].clear();
+                        candidates[i].clear();
+                    }
+                    this.epoch = epoch;
+                }
+            }
+        }
+    }
+}
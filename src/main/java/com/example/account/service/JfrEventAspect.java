@@ -0,0 +1,61 @@
+package com.example.account.service;
+
+import com.example.account.dto.AccountDto;
+import com.example.account.exception.AccountException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+// useBalance, cancelBalance, createAccount 실행마다 AccountOperationEvent 를 남김 (JFR 기록 중일 때만 commit)
+@Aspect
+@Component
+public class JfrEventAspect {
+
+    @Around("execution(* com.example.account.service.TransactionService.useBalance(..))"
+            + " && args(userId, accountNumber, amount)")
+    public Object aroundUseBalance(ProceedingJoinPoint pjp, Long userId, String accountNumber,
+                                   Long amount) throws Throwable {
+        return record(pjp, "useBalance", accountNumber);
+    }
+
+    @Around("execution(* com.example.account.service.TransactionService.cancelBalance(..))"
+            + " && args(transactionId, accountNumber, amount)")
+    public Object aroundCancelBalance(ProceedingJoinPoint pjp, String transactionId,
+                                      String accountNumber, Long amount) throws Throwable {
+        return record(pjp, "cancelBalance", accountNumber);
+    }
+
+    @Around("execution(* com.example.account.service.AccountService.createAccount(..))")
+    public Object aroundCreateAccount(ProceedingJoinPoint pjp) throws Throwable {
+        return record(pjp, "createAccount", null); // 계좌번호는 만들어진 뒤에 알 수 있음
+    }
+
+    private Object record(ProceedingJoinPoint pjp, String operation, String accountNumber)
+            throws Throwable {
+        AccountOperationEvent event = new AccountOperationEvent();
+        event.begin();
+        String errorCode = "";
+        try {
+            Object result = pjp.proceed();
+            if (accountNumber == null && result instanceof AccountDto) {
+                accountNumber = ((AccountDto) result).getAccountNumber();
+            }
+            return result;
+        } catch (AccountException e) {
+            errorCode = e.getErrorCode().name();
+            throw e;
+        } catch (Throwable e) {
+            errorCode = e.getClass().getSimpleName(); // 예상하지 못한 예외는 예외 이름으로
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.accountNumber = accountNumber;
+                event.errorCode = errorCode;
+                event.commit();
+            }
+        }
+    }
+}
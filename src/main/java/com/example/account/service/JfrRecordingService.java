@@ -0,0 +1,101 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * 운영 중에 외부 프로파일러 없이 JFR 기록을 떠서 .jfr 파일로 돌려줌
+ * JDK 기본 "profile" 설정(GC, 할당, 락 경합 등) + AccountLockEvent, AccountOperationEvent
+ * 한 번에 하나만, 시간(최대 5분)과 크기(최대 64MB) 제한
+ * - start 는 바로 id 를 돌려줌, 시간이 지나면 JFR 이 알아서 멈추고 파일(destination)로 씀 => 요청 스레드가 기다리지 않음
+ * - 끝난 기록은 take 로 한 번만 받을 수 있고, 받는 쪽에서 파일을 스트리밍한 뒤 지움
+ */
+@Slf4j
+@Service
+public class JfrRecordingService {
+    private static final long MAX_SECONDS = 300;
+    private static final long MAX_SIZE_BYTES = 64L * 1024 * 1024;
+
+    private Session current; // synchronized 안에서만 접근
+
+    @AllArgsConstructor
+    private static class Session {
+        private final Recording recording;
+        private final Path file;
+    }
+
+    // 기록을 시작하고 id 를 돌려줌
+    public synchronized long start(long seconds) throws IOException, ParseException {
+        if (current != null) {
+            if (current.recording.getState() != RecordingState.STOPPED) {
+                throw AccountException.of(ErrorCode.JFR_RECORDING_IN_PROGRESS);
+            }
+            discard(current); // 받아가지 않은 지난 기록
+            current = null;
+        }
+        long duration = Math.max(1, Math.min(seconds, MAX_SECONDS));
+        Path file = Files.createTempFile("account-", ".jfr");
+        Recording jfr = new Recording(Configuration.getConfiguration("profile"));
+        try {
+            jfr.enable(AccountLockEvent.class);
+            jfr.enable(AccountOperationEvent.class);
+            jfr.setName("account-admin");
+            jfr.setMaxSize(MAX_SIZE_BYTES);
+            jfr.setToDisk(true);
+            jfr.setDuration(Duration.ofSeconds(duration)); // 시간이 지나면 멈추고 destination 에 씀
+            jfr.setDestination(file);
+            jfr.start();
+        } catch (IOException | RuntimeException e) {
+            jfr.close();
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        current = new Session(jfr, file);
+        log.info("JFR recording {} started. {}s", jfr.getId(), duration);
+        return jfr.getId();
+    }
+
+    // 끝난 기록 파일을 넘겨줌 (한 번만), 다 쓰고 나면 받은 쪽에서 지워야 함
+    public synchronized Path take(long id) {
+        if (current == null || current.recording.getId() != id) {
+            throw AccountException.of(ErrorCode.JFR_RECORDING_NOT_FOUND);
+        }
+        if (current.recording.getState() != RecordingState.STOPPED) {
+            throw AccountException.of(ErrorCode.JFR_RECORDING_IN_PROGRESS);
+        }
+        Session finished = current;
+        current = null;
+        finished.recording.close(); // destination 파일은 남음
+        return finished.file;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (current != null) {
+            discard(current);
+            current = null;
+        }
+    }
+
+    private static void discard(Session session) {
+        session.recording.close();
+        try {
+            Files.deleteIfExists(session.file);
+        } catch (IOException e) {
+            log.warn("Failed to delete JFR file {}", session.file, e);
+        }
+    }
+}
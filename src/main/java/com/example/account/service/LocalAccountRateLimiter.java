@@ -0,0 +1,171 @@
+package com.example.account.service;
+
+import com.example.account.config.RateLimitProperties;
+import com.example.account.config.RateLimitProperties.EndpointLimit;
+import com.example.account.config.RateLimitProperties.Limit;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 단일 노드용 메모리 토큰 버킷
+ * 엔드포인트, 사용자/계좌 키마다 버킷 하나 => 다른 키가 버킷을 같이 쓰지 않으므로 한 계좌가 몰려도 다른 계좌는 영향 없음
+ * 키 수는 max-keys 로 제한, 넘으면 가장 오래 안 쓴 키부터 지움
+ * (오래 안 쓴 버킷은 이미 가득 차 있을 가능성이 높음 => 지웠다가 새로 만들어도 결과가 같음)
+ */
+@Component
+@ConditionalOnProperty(prefix = "account.rate-limit", name = "type", havingValue = "local", matchIfMissing = true)
+public class LocalAccountRateLimiter implements AccountRateLimiter {
+    private final boolean enabled;
+    private final Map<String, EndpointBuckets> endpoints = new HashMap<>(); // 생성 후에는 읽기만 함
+
+    public LocalAccountRateLimiter(RateLimitProperties properties) {
+        properties.validate();
+        this.enabled = properties.isEnabled();
+        int maxKeys = Math.max(1, properties.getMaxKeys());
+        properties.getEndpoints().forEach((endpoint, limit) ->
+                endpoints.put(endpoint, new EndpointBuckets(limit, maxKeys)));
+    }
+
+    @Override
+    public long tryAcquire(String endpoint, Long userId, String accountNumber) {
+        if (!enabled) {
+            return 0;
+        }
+        EndpointBuckets buckets = endpoints.get(endpoint);
+        if (buckets == null) {
+            return 0; // 설정 안된 엔드포인트는 제한 안함
+        }
+        long now = System.nanoTime();
+        KeyedBuckets account = accountNumber == null ? null : buckets.account;
+        KeyedBuckets user = userId == null ? null : buckets.user;
+        if (account == null) {
+            return user == null ? 0 : user.tryAcquire(userId, now);
+        }
+        if (user == null) {
+            return account.tryAcquire(accountNumber, now);
+        }
+
+        // 둘 다 토큰이 있을 때만 둘 다 차감 => 사용자 제한으로 거절된 요청이 계좌 토큰을 쓰지 않음
+        // 항상 계좌 segment => 사용자 segment 순서로 잡음 (서로 다른 객체라 교착 없음)
+        Segment accountSegment = account.segment(accountNumber);
+        Segment userSegment = user.segment(userId);
+        synchronized (accountSegment) {
+            synchronized (userSegment) {
+                Bucket accountBucket = accountSegment.bucket(accountNumber, account.capacity);
+                Bucket userBucket = userSegment.bucket(userId, user.capacity);
+                long retryAfter = Math.max(account.refill(accountBucket, now), user.refill(userBucket, now));
+                if (retryAfter == 0) {
+                    accountBucket.take();
+                    userBucket.take();
+                }
+                return retryAfter;
+            }
+        }
+    }
+
+    private static class EndpointBuckets {
+        private final KeyedBuckets user;
+        private final KeyedBuckets account;
+
+        EndpointBuckets(EndpointLimit limit, int maxKeys) {
+            this.user = limit.getUser() == null ? null : new KeyedBuckets(limit.getUser(), maxKeys);
+            this.account = limit.getAccount() == null ? null : new KeyedBuckets(limit.getAccount(), maxKeys);
+        }
+    }
+
+    // 키를 해시로 segment 에 나누고 segment 마다 모니터 하나 => 서로 다른 키끼리 락 경합을 줄임
+    private static class KeyedBuckets {
+        private static final int SEGMENTS = 64;
+
+        private final double capacity;
+        private final double refillPerNano;
+        private final Segment[] segments = new Segment[SEGMENTS];
+
+        KeyedBuckets(Limit limit, int maxKeys) {
+            this.capacity = limit.getCapacity();
+            this.refillPerNano = limit.getRefillPerSecond() / 1_000_000_000d;
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = new Segment(Math.max(1, maxKeys / SEGMENTS));
+            }
+        }
+
+        long tryAcquire(Object key, long now) {
+            Segment segment = segment(key);
+            synchronized (segment) {
+                Bucket bucket = segment.bucket(key, capacity);
+                long retryAfter = refill(bucket, now);
+                if (retryAfter == 0) {
+                    bucket.take();
+                }
+                return retryAfter;
+            }
+        }
+
+        // segment 모니터 안에서 호출
+        long refill(Bucket bucket, long now) {
+            return bucket.refill(capacity, refillPerNano, now);
+        }
+
+        Segment segment(Object key) {
+            int hash = key.hashCode();
+            hash ^= (hash >>> 16);
+            return segments[hash & (SEGMENTS - 1)];
+        }
+    }
+
+    // 접근 순서 LinkedHashMap => 꽉 차면 가장 오래 안 쓴 키를 지움, segment 모니터 안에서만 사용
+    private static class Segment extends LinkedHashMap<Object, Bucket> {
+        private final int maxKeys;
+
+        Segment(int maxKeys) {
+            super(16, 0.75f, true);
+            this.maxKeys = maxKeys;
+        }
+
+        Bucket bucket(Object key, double capacity) {
+            Bucket bucket = get(key);
+            if (bucket == null) {
+                bucket = new Bucket(capacity);
+                put(key, bucket);
+            }
+            return bucket;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Bucket> eldest) {
+            return size() > maxKeys;
+        }
+    }
+
+    // segment 모니터 안에서만 사용
+    private static class Bucket {
+        private double tokens;
+        private long lastRefillNanos;
+        private boolean started;
+
+        Bucket(double capacity) {
+            this.tokens = capacity;
+        }
+
+        // 지금까지 채워진 만큼 더하고, 토큰 1개가 있으면 0 아니면 채워질 때까지 걸리는 시간(ms)
+        long refill(double capacity, double refillPerNano, long now) {
+            if (started) {
+                tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * refillPerNano);
+            }
+            started = true;
+            lastRefillNanos = now;
+            if (tokens >= 1) {
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / refillPerNano / 1_000_000d));
+        }
+
+        void take() {
+            tokens -= 1;
+        }
+    }
+}
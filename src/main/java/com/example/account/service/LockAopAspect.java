@@ -1,35 +1,117 @@
 package com.example.account.service;
 
+import com.example.account.aop.AccountLock;
 import com.example.account.aop.AccountLockIdInterface;
-import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.exception.RetryableAccountException;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.HotAccountMetric;
+import com.example.account.type.LockMode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.TimeUnit;
+
 @Aspect
 @Component
+// @Transactional 보다 먼저(바깥에서) 실행되어야 커밋이 끝난 뒤에 락이 풀림
+// 단 ExposeInvocationInterceptor(HIGHEST_PRECEDENCE + 1) 보다는 뒤 => 앞에 두면 args(request,..) 바인딩이 실패함
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
 @Slf4j
 @RequiredArgsConstructor
 public class LockAopAspect {
     private final LockService lockService;
+    private final AccountPartitionExecutor partitionExecutor;
+    private final AccountRateLimiter accountRateLimiter;
+    private final AccountAdmissionService admissionService;
+    private final HotAccountTracker hotAccountTracker;
 
     // 아래의 어노테이션이 달린 메소드가 실행될 때 전 후에 lock을 취득했다가 lock을 해제하는 방식
-    @Around("@annotation(com.example.account.aop.AccountLock) && args(request)")
-    // accountNumber 가져와야함 : && args(request) : @AccountLock 넣어준 파라미터 Request 를 가져다 쓸 수 있다
+    @Around("@annotation(accountLock) && args(request,..)")
+    // accountNumber 가져와야함 : && args(request,..) : @AccountLock 넣어준 메소드의 첫번째 파라미터 Request 를 가져다 쓸 수 있다
     public Object aroundMethod(
             ProceedingJoinPoint pjp, // 조인포인트
+            AccountLock accountLock, // 메소드별 락 정책 (대기 시간, 점유 시간, READ/WRITE)
             AccountLockIdInterface request // useBalance, cancelBalance 상관없이 우리가 의도한 타입으로 가져옴
     ) throws Throwable {
-        // lock 취득 시도
-        lockService.lock(request.getAccountNumber());
+        String accountNumber = request.getAccountNumber();
+        hotAccountTracker.record(HotAccountMetric.REQUESTS, accountNumber, 1);
+
+        // 락 대기 전에 처리율 제한부터 확인 => 과도한 요청이 락 대기로 스레드를 잡고 있지 못하게
+        long retryAfterMillis = accountRateLimiter.tryAcquire(pjp.getSignature().getName(),
+                request.getUserId(), accountNumber);
+        if (retryAfterMillis > 0) {
+            throw new RetryableAccountException(ErrorCode.TOO_MANY_REQUESTS, retryAfterMillis);
+        }
+
+        try {
+            return lockAndProceed(pjp, accountLock, accountNumber);
+        } catch (AccountException e) {
+            // 입장 거절, 락 획득 실패, 파티션 대기 초과 => 경합이 심한 계좌
+            if (e.getErrorCode() == ErrorCode.ACCOUNT_TRANSACTION_LOCK) {
+                hotAccountTracker.record(HotAccountMetric.LOCK_FAILURES, accountNumber, 1);
+            }
+            throw e;
+        }
+    }
+
+    private Object lockAndProceed(ProceedingJoinPoint pjp, AccountLock accountLock,
+                                  String accountNumber) throws Throwable {
+        // 락을 어차피 제때 못 잡을 요청은 대기하지 않고 바로 거절 (load shedding)
+        // READ 는 서로 기다리지 않으므로 대기자 수로 대기 시간을 예측할 수 없어서 잔액 변경(WRITE)만 대상
+        LockMode mode = accountLock.mode();
+        boolean admission = mode == LockMode.WRITE;
+        if (admission) {
+            admissionService.admit(accountNumber, accountLock.tryLockTime());
+        }
+        long[] holdNanos = {-1}; // 락을 못 잡고 끝나면 -1 그대로
+        long queuedAt = System.nanoTime();
+        try {
+            if (partitionExecutor.isEnabled()) {
+                // PARTITION 모드 : 계좌별 단일 스레드에서 실행되므로 락 없이 결과만 기다림 (조회도 같은 스레드에서 실행)
+                return partitionExecutor.execute(accountNumber,
+                        () -> proceedMeasured(pjp, accountNumber, queuedAt, holdNanos));
+            }
+
+            // lock 취득 시도
+            lockService.lock(accountNumber, mode, accountLock.tryLockTime(), accountLock.leaseTime());
+            try {
+                return proceedMeasured(pjp, accountNumber, queuedAt, holdNanos); // 로직 동작시킴
+            } finally {
+                // 동작이 정상적으로 진행되든 안되든 lock을 해제
+                lockService.unlock(accountNumber, mode);
+            }
+        } catch (AccountException e) {
+            // 락 대기 시간 초과, 파티션 대기 초과는 onLockAcquired 까지 오지 못함
+            // 과부하의 가장 강한 신호이므로 target 이상의 대기 시간으로 CoDel 에 알려줌
+            if (holdNanos[0] < 0 && e.getErrorCode() == ErrorCode.ACCOUNT_TRANSACTION_LOCK) {
+                admissionService.onLockTimeout(accountNumber, System.nanoTime() - queuedAt);
+            }
+            throw e;
+        } finally {
+            if (admission) {
+                admissionService.release(accountNumber, holdNanos[0]);
+            }
+        }
+    }
+
+    // 락 대기 시간과 락 점유 시간을 admission control, hot account 집계에 알려줌
+    private Object proceedMeasured(ProceedingJoinPoint pjp, String accountNumber,
+                                   long queuedAt, long[] holdNanos) throws Throwable {
+        long acquiredAt = System.nanoTime();
+        admissionService.onLockAcquired(accountNumber, acquiredAt - queuedAt);
+        hotAccountTracker.record(HotAccountMetric.LOCK_WAIT_MILLIS, accountNumber,
+                TimeUnit.NANOSECONDS.toMillis(acquiredAt - queuedAt));
         try {
-            return pjp.proceed(); // 로직 동작시킴
+            return pjp.proceed();
         } finally {
-            // 동작이 정상적으로 진행되든 안되든 lock을 해제
-            lockService.unlock(request.getAccountNumber());
+            holdNanos[0] = System.nanoTime() - acquiredAt;
         }
     }
 }
@@ -2,9 +2,12 @@ package com.example.account.service;
 
 import com.example.account.exception.AccountException;
 import com.example.account.type.ErrorCode;
+import com.example.account.type.LockMode;
+import com.example.account.type.TimingPhase;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RLock;
+import org.redisson.api.RReadWriteLock;
 import org.redisson.api.RedissonClient;
 import org.springframework.stereotype.Service;
 
@@ -15,30 +18,72 @@ import java.util.concurrent.TimeUnit;
 @Service
 @RequiredArgsConstructor // final에 포함된 생성자를 만들어줌
 public class LockService {
+    private static final long DEFAULT_WAIT_MILLIS = 1000L;
+    private static final long DEFAULT_LEASE_MILLIS = 15000L;
+
     private final RedissonClient redissonClient;
 
     // accountNumber를 락의 키로 삼겠음
     public void lock(String accountNumber) {
-        RLock lock = redissonClient.getLock(getLockKey(accountNumber));
-        log.debug("Trying lock for accountNumber : {}", accountNumber);
+        lock(accountNumber, LockMode.WRITE, DEFAULT_WAIT_MILLIS, DEFAULT_LEASE_MILLIS);
+    }
+
+    // leaseMillis 가 -1 이면 redisson watchdog 이 락을 잡고 있는 동안 계속 연장해줌
+    public void lock(String accountNumber, LockMode mode, long waitMillis, long leaseMillis) {
+        RLock lock = getLock(accountNumber, mode);
+        log.debug("Trying {} lock for accountNumber : {}", mode, accountNumber);
 
-        try { // 최대 1초동안 기다리면서 이 lock을 시도하고 -> 15초동안 아무 작업 안하면 lock이 풀림
-            boolean isLock = lock.tryLock(1, 15, TimeUnit.SECONDS);
+        long startedAt = RequestTiming.start();
+        AccountLockEvent event = new AccountLockEvent(); // JFR 기록 중이 아니면 commit 하지 않음
+        event.begin();
+        String outcome = "ERROR";
+        try { // 최대 waitMillis 동안 기다리면서 이 lock을 시도하고 -> leaseMillis 동안 아무 작업 안하면 lock이 풀림
+            boolean isLock = lock.tryLock(waitMillis, leaseMillis, TimeUnit.MILLISECONDS);
+            RequestTiming.stop(TimingPhase.LOCK, startedAt); // Server-Timing 의 lock 구간
+            outcome = isLock ? "ACQUIRED" : "TIMEOUT";
             if (!isLock) { //false인 경우, 해당 경우 실패한 것임
-                log.error("=============Lock aquisition failed==============");
-                throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+                // 응답은 GlobalExceptionHandler 가 샘플링해서 로그를 남기고 LOCK_FAILURES 로 세므로 여기서는 debug 만
+                log.debug("Lock acquisition failed for accountNumber : {}", accountNumber);
+                throw AccountException.of(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
             }
             // 락을 못가져와서 생기는 에러가 아닌 다른 에러라면 다른 에러 찍히도록 => 추가
         } catch (AccountException e) {
             throw e;
         } catch (Exception e) {
             log.error("Redis lock failed", e);
+        } finally {
+            commitEvent(event, accountNumber, "ACQUIRE", mode, outcome);
         }
     }
 
     public void unlock(String accountNumber) {
-        log.debug("Unlock for accountNumber : {}", accountNumber);
-        redissonClient.getLock(getLockKey(accountNumber)).unlock();// 락을 가져온 후 unlock 시킴
+        unlock(accountNumber, LockMode.WRITE);
+    }
+
+    public void unlock(String accountNumber, LockMode mode) {
+        log.debug("Unlock {} for accountNumber : {}", mode, accountNumber);
+        AccountLockEvent event = new AccountLockEvent();
+        event.begin();
+        getLock(accountNumber, mode).unlock();// 락을 가져온 후 unlock 시킴
+        commitEvent(event, accountNumber, "RELEASE", mode, "RELEASED");
+    }
+
+    private static void commitEvent(AccountLockEvent event, String accountNumber, String action,
+                                    LockMode mode, String outcome) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.accountNumber = accountNumber;
+            event.action = action;
+            event.mode = mode.name();
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    // 같은 키에 RLock 과 RReadWriteLock 을 섞어 쓰면 redis 자료형이 달라서 충돌하므로 항상 RReadWriteLock 으로 가져옴
+    private RLock getLock(String accountNumber, LockMode mode) {
+        RReadWriteLock readWriteLock = redissonClient.getReadWriteLock(getLockKey(accountNumber));
+        return mode == LockMode.READ ? readWriteLock.readLock() : readWriteLock.writeLock();
     }
 
     private String getLockKey(String accountNumber) {
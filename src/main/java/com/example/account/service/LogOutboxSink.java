@@ -0,0 +1,26 @@
+package com.example.account.service;
+
+import com.example.account.domain.OutboxEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// 로컬용 : 임베디드 redis(2.8)는 stream 을 지원하지 않으므로 로그로만 남김
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "account.outbox", name = "sink", havingValue = "log", matchIfMissing = true)
+public class LogOutboxSink implements OutboxSink {
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        if (log.isDebugEnabled()) {
+            for (OutboxEvent event : events) {
+                log.debug("Outbox event. id : {}, account : {}, type : {}, transactionId : {}",
+                        event.getId(), event.getAccountNumber(), event.getTransactionType(),
+                        event.getTransactionId());
+            }
+        }
+    }
+}
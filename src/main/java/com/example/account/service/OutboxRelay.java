@@ -0,0 +1,188 @@
+package com.example.account.service;
+
+import com.example.account.domain.OutboxEvent;
+import com.example.account.type.TransactionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * outbox_event 에 쌓인 이벤트를 batch-size 만큼씩 id 순으로 꺼내서 OutboxSink 로 발행
+ * - redis 락(OUTBOX:relay)을 잡은 노드 하나만 발행 => 계좌별 순서가 섞이지 않음
+ * - 발행에 성공한 뒤에 published_at 을 채움, 그 사이 죽으면 다시 발행됨 (at-least-once)
+ * - 한 계좌의 거래는 계좌 락 안에서 커밋까지 끝나므로 계좌별로는 id 순서 = 커밋 순서
+ * - 조회는 published_at is null order by id limit ? => (published_at, id) 인덱스 범위 스캔만 함
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+    private static final String LEADER_LOCK = "OUTBOX:relay";
+    private static final String CLAIM_SQL = "select id, account_number, transaction_type,"
+            + " transaction_id, amount, balance_snapshot, transacted_at from outbox_event"
+            + " where published_at is null order by id limit ?";
+    private static final String CLEANUP_SQL = "delete from outbox_event where published_at < ?";
+    private static final long CLEANUP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RedissonClient redissonClient;
+    private final OutboxSink outboxSink;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pollMillis;
+    private final long retentionHours;
+
+    private final Counter published;
+    private final Counter failures;
+
+    private volatile boolean running;
+    private Thread worker;
+    private long nextCleanup;
+
+    public OutboxRelay(
+            JdbcTemplate jdbcTemplate,
+            RedissonClient redissonClient,
+            OutboxSink outboxSink,
+            MeterRegistry meterRegistry,
+            @Value("${account.outbox.relay-enabled}") boolean enabled,
+            @Value("${account.outbox.batch-size}") int batchSize,
+            @Value("${account.outbox.poll-millis}") long pollMillis,
+            @Value("${account.outbox.retention-hours}") long retentionHours
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.redissonClient = redissonClient;
+        this.outboxSink = outboxSink;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pollMillis = pollMillis;
+        this.retentionHours = retentionHours;
+
+        this.published = meterRegistry.counter("account.outbox.published");
+        this.failures = meterRegistry.counter("account.outbox.publish_failures");
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, "outbox-relay");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void run() {
+        RLock leader = redissonClient.getLock(LEADER_LOCK);
+        while (running) {
+            try {
+                // leaseTime 없이 잡아서 watchdog 이 연장 => 노드가 죽으면 30초 안에 다른 노드가 이어받음
+                if (!leader.isHeldByCurrentThread() && !leader.tryLock(0, TimeUnit.MILLISECONDS)) {
+                    Thread.sleep(pollMillis * 5); // 다른 노드가 발행중
+                    continue;
+                }
+                if (relayOnce() < batchSize) {
+                    cleanup();
+                    Thread.sleep(pollMillis); // 밀린 게 없으면 쉬었다가
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                failures.increment();
+                log.error("Failed to relay outbox events", e);
+                sleepQuietly(pollMillis * 5);
+            }
+        }
+        Thread.interrupted(); // shutdown 에서 깨운 interrupt 때문에 unlock 이 실패하지 않도록
+        try {
+            if (leader.isHeldByCurrentThread()) {
+                leader.unlock();
+            }
+        } catch (Exception e) {
+            log.warn("Failed to release outbox relay lock", e);
+        }
+    }
+
+    // 한 배치 발행, 발행한 개수를 리턴
+    int relayOnce() {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(CLAIM_SQL,
+                new Object[]{batchSize}, new int[]{Types.INTEGER});
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        List<OutboxEvent> events = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            OutboxEvent event = OutboxEvent.builder()
+                    .accountNumber((String) row.get("account_number"))
+                    .transactionType(TransactionType.valueOf((String) row.get("transaction_type")))
+                    .transactionId((String) row.get("transaction_id"))
+                    .amount(((Number) row.get("amount")).longValue())
+                    .balanceSnapshot(((Number) row.get("balance_snapshot")).longValue())
+                    .transactedAt(((Timestamp) row.get("transacted_at")).toLocalDateTime())
+                    .build();
+            event.setId(((Number) row.get("id")).longValue());
+            events.add(event);
+        }
+
+        outboxSink.publish(events);
+        markPublished(events);
+        published.increment(events.size());
+        return events.size();
+    }
+
+    private void markPublished(List<OutboxEvent> events) {
+        Object[] args = new Object[events.size() + 1];
+        int[] argTypes = new int[events.size() + 1];
+        args[0] = Timestamp.valueOf(LocalDateTime.now());
+        argTypes[0] = Types.TIMESTAMP;
+        for (int i = 0; i < events.size(); i++) {
+            args[i + 1] = events.get(i).getId();
+            argTypes[i + 1] = Types.BIGINT;
+        }
+        jdbcTemplate.update("update outbox_event set published_at = ? where id in ("
+                + String.join(",", Collections.nCopies(events.size(), "?")) + ")", args, argTypes);
+    }
+
+    // 발행하고 retention-hours 지난 건 지움 (published_at 인덱스 사용)
+    private void cleanup() {
+        long now = System.currentTimeMillis();
+        if (now < nextCleanup) {
+            return;
+        }
+        nextCleanup = now + CLEANUP_INTERVAL_MILLIS;
+        jdbcTemplate.update(CLEANUP_SQL, new Object[]{
+                Timestamp.valueOf(LocalDateTime.now().minusHours(retentionHours))
+        }, new int[]{Types.TIMESTAMP});
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+}
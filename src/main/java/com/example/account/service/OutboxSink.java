@@ -0,0 +1,16 @@
+package com.example.account.service;
+
+import com.example.account.domain.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * OutboxRelay 가 모은 이벤트를 실제로 내보내는 곳 (account.outbox.sink 로 선택)
+ */
+public interface OutboxSink {
+    /**
+     * events 는 id 순서(계좌별로는 거래 순서)대로 들어옴
+     * 하나라도 실패하면 예외를 던짐 => 배치 전체를 다시 보냄 (at-least-once, 받는 쪽은 eventId 로 중복 제거)
+     */
+    void publish(List<OutboxEvent> events);
+}
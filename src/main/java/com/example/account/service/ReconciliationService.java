@@ -0,0 +1,433 @@
+package com.example.account.service;
+
+import com.example.account.domain.ReconciliationMismatch;
+import com.example.account.domain.ReconciliationRun;
+import com.example.account.dto.ReconciliationReport;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.ReconciliationMismatchRepository;
+import com.example.account.repository.ReconciliationRunRepository;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.LockMode;
+import com.example.account.type.MismatchType;
+import com.example.account.type.ReconciliationStatus;
+import com.example.account.type.TransactionType;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 잔액 대사 : 계좌마다
+ * 1. 성공 거래를 순서대로 따라가며 balanceSnapshot 이 직전 잔액 -/+ 거래금액인지 (CHAIN)
+ * 2. 시작 잔액 + 취소 합계 - 사용 합계 가 현재 잔액인지 (LEDGER, initialBalance 가 있는 계좌만)
+ * 3. 마지막 거래의 balanceSnapshot 이 현재 잔액인지 (BALANCE)
+ * - 계좌 id 범위를 fork-join 으로 나눠서 동시에 확인, 범위마다 거래를 계좌, 시간 순으로 한 번 훑음 (한 계좌씩 메모리에 올리지 않음)
+ *   달 테이블(TransactionPeriodService)은 오래된 달부터, 원장은 마지막에 => 계좌마다 시간 순서가 그대로 이어짐
+ * - 마지막으로 끝난 실행 이후 거래가 있었던 계좌만 다시 확인 (full 이면 전체)
+ * - 확인하는 사이 거래가 커밋되면 어긋나 보일 수 있으므로 어긋난 계좌는 잔액 변경을 막고 한 번 더 확인한 뒤 기록
+ *   (LOCK 모드는 읽기 락, PARTITION 모드는 그 계좌의 파티션 스레드에서 확인)
+ * - 주기 실행은 redis 락(RECONCILIATION:leader)을 잡은 노드 하나만 함 => 노드 수만큼 같은 대사가 겹쳐 돌지 않음
+ */
+@Slf4j
+@Service
+public class ReconciliationService {
+    private static final int MAX_IN_LIST = 500;
+    // 실행 시작 직전에 시간이 찍히고 늦게 커밋된 거래도 다음 실행에서 보도록
+    private static final long CHECKPOINT_OVERLAP_MINUTES = 1;
+    private static final String LEADER_LOCK = "RECONCILIATION:leader";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RedissonClient redissonClient;
+    private final TransactionPeriodService transactionPeriodService;
+    private final LockService lockService;
+    private final AccountPartitionExecutor partitionExecutor;
+    private final ReconciliationRunRepository runRepository;
+    private final ReconciliationMismatchRepository mismatchRepository;
+    private final int threads;
+    private final int partitionSize;
+    private final long intervalMinutes;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private ExecutorService runner;
+    private ScheduledExecutorService scheduler;
+
+    public ReconciliationService(
+            JdbcTemplate jdbcTemplate,
+            RedissonClient redissonClient,
+            TransactionPeriodService transactionPeriodService,
+            LockService lockService,
+            AccountPartitionExecutor partitionExecutor,
+            ReconciliationRunRepository runRepository,
+            ReconciliationMismatchRepository mismatchRepository,
+            @Value("${account.reconciliation.threads}") int threads,
+            @Value("${account.reconciliation.partition-size}") int partitionSize,
+            @Value("${account.reconciliation.interval-minutes}") long intervalMinutes
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.redissonClient = redissonClient;
+        this.transactionPeriodService = transactionPeriodService;
+        this.lockService = lockService;
+        this.partitionExecutor = partitionExecutor;
+        this.runRepository = runRepository;
+        this.mismatchRepository = mismatchRepository;
+        this.threads = threads;
+        this.partitionSize = partitionSize;
+        this.intervalMinutes = intervalMinutes;
+    }
+
+    @PostConstruct
+    public void init() {
+        runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reconciliation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (intervalMinutes > 0) { // 주기적으로 바뀐 계좌만
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "reconciliation-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::scheduledRun, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    // scheduler 스레드에서만 호출 => 락은 이 스레드가 계속 들고 있음
+    void scheduledRun() {
+        try {
+            // leaseTime 없이 잡아서 watchdog 이 연장 => 노드가 죽으면 30초 안에 다른 노드가 이어받음
+            RLock leader = redissonClient.getLock(LEADER_LOCK);
+            if (!leader.isHeldByCurrentThread() && !leader.tryLock(0, TimeUnit.MILLISECONDS)) {
+                return; // 다른 노드가 주기 실행을 맡고 있음
+            }
+            start(false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (AccountException e) {
+            log.info("Reconciliation is still running, skip this round");
+        } catch (RuntimeException e) {
+            log.error("Failed to start reconciliation", e);
+        }
+    }
+
+    // 락을 잡은 scheduler 스레드에서 풀어야 함
+    private void releaseLeader() {
+        try {
+            RLock leader = redissonClient.getLock(LEADER_LOCK);
+            if (leader.isHeldByCurrentThread()) {
+                leader.unlock();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to release reconciliation leader lock", e);
+        }
+    }
+
+    // 백그라운드로 실행하고 실행 id 를 바로 리턴 => GET /admin/reconciliation 으로 결과 확인
+    public Long start(boolean full) {
+        if (!running.compareAndSet(false, true)) {
+            throw AccountException.of(ErrorCode.RECONCILIATION_IN_PROGRESS);
+        }
+        try {
+            LocalDateTime since = full ? null : runRepository
+                    .findFirstByStatusOrderByIdDesc(ReconciliationStatus.COMPLETED)
+                    .map(run -> run.getStartedAt().minusMinutes(CHECKPOINT_OVERLAP_MINUTES))
+                    .orElse(null); // 처음이면 전체
+            ReconciliationRun run = runRepository.save(ReconciliationRun.builder()
+                    .fullScan(since == null)
+                    .since(since)
+                    .status(ReconciliationStatus.RUNNING)
+                    .startedAt(LocalDateTime.now())
+                    .build());
+            runner.execute(() -> execute(run));
+            return run.getId();
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    public ReconciliationReport report(Long runId) {
+        ReconciliationRun run = (runId == null ? runRepository.findFirstByOrderByIdDesc()
+                : runRepository.findById(runId))
+                .orElseThrow(() -> AccountException.of(ErrorCode.RECONCILIATION_NOT_FOUND));
+        return ReconciliationReport.from(run, mismatchRepository.findFirst1000ByRunIdOrderByIdAsc(run.getId()));
+    }
+
+    void execute(ReconciliationRun run) {
+        Stats stats = new Stats();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            if (run.isFullScan()) {
+                pool.invoke(new RangeTask(run.getId(), 0, maxAccountId(), stats));
+            } else {
+                long[] accountIds = touchedAccounts(run.getSince());
+                pool.invoke(new ListTask(run.getId(), accountIds, 0, accountIds.length, stats));
+            }
+            run.setStatus(ReconciliationStatus.COMPLETED);
+        } catch (RuntimeException e) {
+            log.error("Reconciliation failed. run : {}", run.getId(), e);
+            run.setStatus(ReconciliationStatus.FAILED); // checkpoint 로 쓰지 않음 => 다음 실행이 같은 범위를 다시 봄
+        } finally {
+            pool.shutdown();
+            run.setFinishedAt(LocalDateTime.now());
+            run.setCheckedAccounts(stats.accounts.sum());
+            run.setCheckedTransactions(stats.transactions.sum());
+            run.setMismatchCount(stats.mismatches.sum());
+            runRepository.save(run);
+            running.set(false);
+            log.info("Reconciliation finished. run : {}, status : {}, accounts : {}, transactions : {}, mismatches : {}",
+                    run.getId(), run.getStatus(), run.getCheckedAccounts(), run.getCheckedTransactions(),
+                    run.getMismatchCount());
+        }
+    }
+
+    private long[] touchedAccounts(LocalDateTime since) {
+        Timestamp from = Timestamp.valueOf(since);
+        // 거래는 since 이후와 겹치는 테이블마다 (transacted_at) 인덱스, 새로 만든 계좌는 updated_at 으로
+        StringBuilder sql = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+        for (String table : transactionPeriodService.tables(since, null)) {
+            sql.append("select account_id from ").append(table).append(" where transacted_at >= ? union ");
+            args.add(from);
+        }
+        sql.append("select id from account where updated_at >= ?");
+        args.add(from);
+        List<Long> ids = jdbcTemplate.queryForList(sql.toString(), Long.class, args.toArray());
+        return ids.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private class RangeTask extends RecursiveAction {
+        private final long runId;
+        private final long fromId;
+        private final long toId;
+        private final Stats stats;
+
+        RangeTask(long runId, long fromId, long toId, Stats stats) {
+            this.runId = runId;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.stats = stats;
+        }
+
+        @Override
+        protected void compute() {
+            if (toId - fromId < partitionSize) {
+                verifyPartition(runId, "between ? and ?", new Object[]{fromId, toId}, stats);
+                return;
+            }
+            long mid = fromId + (toId - fromId) / 2;
+            invokeAll(new RangeTask(runId, fromId, mid, stats), new RangeTask(runId, mid + 1, toId, stats));
+        }
+    }
+
+    private class ListTask extends RecursiveAction {
+        private final long runId;
+        private final long[] accountIds;
+        private final int from;
+        private final int to;
+        private final Stats stats;
+
+        ListTask(long runId, long[] accountIds, int from, int to, Stats stats) {
+            this.runId = runId;
+            this.accountIds = accountIds;
+            this.from = from;
+            this.to = to;
+            this.stats = stats;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MAX_IN_LIST) {
+                if (to > from) {
+                    Object[] args = new Object[to - from];
+                    for (int i = from; i < to; i++) {
+                        args[i - from] = accountIds[i];
+                    }
+                    verifyPartition(runId, "in (" + String.join(",", Collections.nCopies(args.length, "?")) + ")",
+                            args, stats);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ListTask(runId, accountIds, from, mid, stats),
+                    new ListTask(runId, accountIds, mid, to, stats));
+        }
+    }
+
+    private void verifyPartition(long runId, String idCondition, Object[] args, Stats stats) {
+        Map<String, List<ReconciliationMismatch>> suspects = new LinkedHashMap<>();
+        for (ReconciliationMismatch mismatch : check(runId, idCondition, args, stats)) {
+            suspects.computeIfAbsent(mismatch.getAccountNumber(), k -> new ArrayList<>()).add(mismatch);
+        }
+
+        List<ReconciliationMismatch> confirmed = new ArrayList<>();
+        suspects.forEach((accountNumber, mismatches) -> confirmed.addAll(recheck(runId, accountNumber, mismatches)));
+        if (!confirmed.isEmpty()) {
+            mismatchRepository.saveAll(confirmed);
+            stats.mismatches.add(confirmed.size());
+        }
+    }
+
+    // 읽기 락 안에서는 잔액 변경이 커밋될 수 없으므로 그래도 어긋나면 진짜 불일치
+    // PARTITION 모드의 잔액 변경은 락을 잡지 않으므로 그 계좌의 파티션 스레드에서 확인 (변경과 같은 스레드 => 겹치지 않음)
+    List<ReconciliationMismatch> recheck(long runId, String accountNumber,
+                                         List<ReconciliationMismatch> mismatches) {
+        Object[] args = {accountNumber};
+        if (partitionExecutor.isEnabled()) {
+            try {
+                return partitionExecutor.execute(accountNumber,
+                        () -> check(runId, "= (select id from account where account_number = ?)", args, null));
+            } catch (AccountException e) {
+                return mismatches; // 파티션 큐가 가득 참 => 확인하지 못한 채로 기록
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t); // check 는 checked 예외를 던지지 않음
+            }
+        }
+
+        try {
+            lockService.lock(accountNumber, LockMode.READ, 1000L, 15000L);
+        } catch (AccountException e) {
+            return mismatches; // 거래가 몰리는 계좌 => 확인하지 못한 채로 기록
+        }
+        try {
+            return check(runId, "= (select id from account where account_number = ?)", args, null);
+        } finally {
+            lockService.unlock(accountNumber, LockMode.READ);
+        }
+    }
+
+    // idCondition : 계좌 id 조건 (account.id / transaction.account_id 에 같이 씀), stats 가 null 이면 세지 않음
+    List<ReconciliationMismatch> check(long runId, String idCondition, Object[] args, Stats stats) {
+        Map<Long, AccountCheck> accounts = new HashMap<>();
+        jdbcTemplate.query("select id, account_number, balance, initial_balance from account where id " + idCondition,
+                (RowCallbackHandler) rs -> {
+                    long initialBalance = rs.getLong("initial_balance");
+                    accounts.put(rs.getLong("id"), new AccountCheck(runId, rs.getString("account_number"),
+                            rs.getLong("balance"), rs.wasNull() ? null : initialBalance));
+                }, args);
+
+        // 테이블마다 (account_id, transacted_at) 인덱스 순서 그대로 읽음, 오래된 달 테이블부터
+        // 계좌를 읽은 뒤에 보관된 달이 있으면 CHAIN 이 어긋나 보임 => recheck 에서 다시 읽음
+        long[] transactions = {0};
+        for (String table : transactionPeriodService.tables(null, null)) {
+            jdbcTemplate.query("select account_id, transaction_type, amount, balance_snapshot, transaction_id"
+                            + " from " + table + " where account_id " + idCondition
+                            + " and transaction_result_type = 'S' order by account_id, transacted_at, id",
+                    (RowCallbackHandler) rs -> {
+                        AccountCheck account = accounts.get(rs.getLong("account_id"));
+                        if (account != null) {
+                            account.apply(TransactionType.valueOf(rs.getString("transaction_type")),
+                                    rs.getLong("amount"), rs.getLong("balance_snapshot"),
+                                    rs.getString("transaction_id"));
+                            transactions[0]++;
+                        }
+                    }, args);
+        }
+
+        List<ReconciliationMismatch> mismatches = new ArrayList<>();
+        for (AccountCheck account : accounts.values()) {
+            account.finish();
+            mismatches.addAll(account.mismatches);
+        }
+        if (stats != null) {
+            stats.accounts.add(accounts.size());
+            stats.transactions.add(transactions[0]);
+        }
+        return mismatches;
+    }
+
+    // 계좌 하나의 거래를 순서대로 따라가며 확인
+    static class AccountCheck {
+        private final long runId;
+        private final String accountNumber;
+        private final long balance;
+        private final Long initialBalance;
+        private Long current; // 직전 거래 후 잔액, 처음엔 시작 잔액
+        private long ledger; // 취소 합계 - 사용 합계
+        private final List<ReconciliationMismatch> mismatches = new ArrayList<>();
+
+        AccountCheck(long runId, String accountNumber, long balance, Long initialBalance) {
+            this.runId = runId;
+            this.accountNumber = accountNumber;
+            this.balance = balance;
+            this.initialBalance = initialBalance;
+            this.current = initialBalance;
+        }
+
+        void apply(TransactionType type, long amount, long balanceSnapshot, String transactionId) {
+            long delta = type == TransactionType.USE ? -amount : amount;
+            if (current != null && current + delta != balanceSnapshot) {
+                mismatches.add(mismatch(MismatchType.CHAIN, transactionId, current + delta, balanceSnapshot));
+            }
+            current = balanceSnapshot; // 어긋난 곳부터 다시 이어서 확인 (한 번 어긋난 게 계속 이어지지 않도록)
+            ledger += delta;
+        }
+
+        void finish() {
+            if (current != null && current != balance) {
+                mismatches.add(mismatch(MismatchType.BALANCE, null, current, balance));
+            }
+            if (initialBalance != null && initialBalance + ledger != balance) {
+                mismatches.add(mismatch(MismatchType.LEDGER, null, initialBalance + ledger, balance));
+            }
+        }
+
+        List<ReconciliationMismatch> getMismatches() {
+            return mismatches;
+        }
+
+        private ReconciliationMismatch mismatch(MismatchType type, String transactionId, long expected, long actual) {
+            return ReconciliationMismatch.builder()
+                    .runId(runId)
+                    .accountNumber(accountNumber)
+                    .mismatchType(type)
+                    .transactionId(transactionId)
+                    .expected(expected)
+                    .actual(actual)
+                    .build();
+        }
+    }
+
+    static class Stats {
+        private final LongAdder accounts = new LongAdder();
+        private final LongAdder transactions = new LongAdder();
+        private final LongAdder mismatches = new LongAdder();
+    }
+
+    private long maxAccountId() {
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from account", Long.class);
+        return maxId == null ? 0 : maxId;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            // 주기 작업은 shutdown 에서 취소되고 이미 넣은 작업(락 해제)은 실행됨 => 다른 노드가 바로 이어받음
+            scheduler.execute(this::releaseLeader);
+            scheduler.shutdown();
+            try {
+                if (!scheduler.awaitTermination(1, TimeUnit.SECONDS)) {
+                    scheduler.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                scheduler.shutdownNow();
+            }
+        }
+        runner.shutdownNow();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.account.service;
+
+import com.example.account.config.RateLimitProperties;
+import com.example.account.config.RateLimitProperties.EndpointLimit;
+import com.example.account.config.RateLimitProperties.Limit;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 여러 노드가 같은 버킷을 쓰도록 redis 에 토큰 버킷을 두는 처리율 제한
+ * 계좌 버킷과 사용자 버킷을 lua 스크립트 한번(왕복 1회)으로 확인함
+ * 임베디드 redis(2.8)는 스크립트 안에서 TIME 후 쓰기를 못하므로 현재 시간은 노드 시간을 넘겨줌
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "account.rate-limit", name = "type", havingValue = "redis")
+public class RedisAccountRateLimiter implements AccountRateLimiter {
+    // KEYS[i] 마다 ARGV[2i-1] = capacity, ARGV[2i] = 밀리초당 충전량, 마지막 ARGV = 현재 시간(ms)
+    // 하나라도 토큰이 없으면 아무것도 차감하지 않고 가장 긴 대기 시간을 리턴
+    private static final String SCRIPT =
+            "local now = tonumber(ARGV[#ARGV]) "
+                    + "local retry = 0 "
+                    + "local states = {} "
+                    + "for i, key in ipairs(KEYS) do "
+                    + "  local capacity = tonumber(ARGV[2 * i - 1]) "
+                    + "  local rate = tonumber(ARGV[2 * i]) "
+                    + "  local data = redis.call('HMGET', key, 'tokens', 'ts') "
+                    + "  local tokens = tonumber(data[1]) "
+                    + "  local ts = tonumber(data[2]) "
+                    + "  if tokens == nil then tokens = capacity; ts = now; end "
+                    + "  tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate) "
+                    + "  if tokens < 1 then retry = math.max(retry, math.ceil((1 - tokens) / rate)) end "
+                    + "  states[i] = tokens "
+                    + "end "
+                    + "for i, key in ipairs(KEYS) do "
+                    + "  local tokens = states[i] "
+                    + "  if retry == 0 then tokens = tokens - 1 end "
+                    + "  local rate = tonumber(ARGV[2 * i]) "
+                    + "  redis.call('HMSET', key, 'tokens', tostring(tokens), 'ts', tostring(now)) "
+                    + "  redis.call('PEXPIRE', key, math.ceil(tonumber(ARGV[2 * i - 1]) / rate) + 1000) "
+                    + "end "
+                    + "return retry";
+
+    private final RedissonClient redissonClient;
+    private final RateLimitProperties properties;
+    private volatile String scriptSha;
+
+    public RedisAccountRateLimiter(RedissonClient redissonClient, RateLimitProperties properties) {
+        properties.validate(); // 스크립트가 rate 로 나눔
+        this.redissonClient = redissonClient;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void loadScript() {
+        scriptSha = script().scriptLoad(SCRIPT);
+    }
+
+    @Override
+    public long tryAcquire(String endpoint, Long userId, String accountNumber) {
+        if (!properties.isEnabled()) {
+            return 0;
+        }
+        EndpointLimit limit = properties.getEndpoints().get(endpoint);
+        if (limit == null) {
+            return 0;
+        }
+        List<Object> keys = new ArrayList<>(2);
+        List<Object> args = new ArrayList<>(5);
+        if (limit.getAccount() != null && accountNumber != null) {
+            addBucket(keys, args, "RTLM:" + endpoint + ":account:" + accountNumber, limit.getAccount());
+        }
+        if (limit.getUser() != null && userId != null) {
+            addBucket(keys, args, "RTLM:" + endpoint + ":user:" + userId, limit.getUser());
+        }
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        args.add(String.valueOf(System.currentTimeMillis()));
+
+        try {
+            return evaluate(keys, args.toArray());
+        } catch (Exception e) {
+            // 처리율 제한 때문에 거래가 막히면 안되므로 redis 장애시에는 통과시킴
+            log.error("Redis rate limit failed", e);
+            return 0;
+        }
+    }
+
+    private long evaluate(List<Object> keys, Object[] args) {
+        try {
+            Long retry = script().evalSha(RScript.Mode.READ_WRITE, scriptSha,
+                    RScript.ReturnType.INTEGER, keys, args);
+            return retry == null ? 0 : retry;
+        } catch (RedisException e) {
+            if (e.getMessage() == null || !e.getMessage().contains("NOSCRIPT")) {
+                throw e;
+            }
+            loadScript(); // redis 가 재시작되어 스크립트 캐시가 비었으면 다시 올림
+            Long retry = script().evalSha(RScript.Mode.READ_WRITE, scriptSha,
+                    RScript.ReturnType.INTEGER, keys, args);
+            return retry == null ? 0 : retry;
+        }
+    }
+
+    private void addBucket(List<Object> keys, List<Object> args, String key, Limit limit) {
+        keys.add(key);
+        args.add(String.valueOf(limit.getCapacity()));
+        args.add(String.valueOf(limit.getRefillPerSecond() / 1000d)); // 밀리초당 충전량
+    }
+
+    private RScript script() {
+        return redissonClient.getScript(StringCodec.INSTANCE);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.account.service;
+
+import com.example.account.type.TimingPhase;
+
+/**
+ * 요청 하나의 구간별 소요 시간 (요청 스레드 전용)
+ * 스레드마다 하나를 만들어두고 요청마다 재사용 => 요청당 할당 없음
+ * ServerTimingFilter 가 begin 하지 않은 스레드(비활성)에서는 start 가 0 을 돌려주고 stop 은 아무것도 안함
+ */
+public final class RequestTiming {
+    private static final TimingPhase[] PHASES = TimingPhase.values();
+    private static final ThreadLocal<RequestTiming> CURRENT = ThreadLocal.withInitial(RequestTiming::new);
+
+    private final long[] nanos = new long[PHASES.length];
+    private final int[] counts = new int[PHASES.length];
+    private boolean active;
+    private long beganAt;
+
+    private RequestTiming() {
+    }
+
+    public static RequestTiming begin() {
+        RequestTiming timing = CURRENT.get();
+        for (int i = 0; i < PHASES.length; i++) {
+            timing.nanos[i] = 0;
+            timing.counts[i] = 0;
+        }
+        timing.active = true;
+        timing.beganAt = System.nanoTime();
+        return timing;
+    }
+
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    // 측정 시작, 비활성이면 0
+    public static long start() {
+        return CURRENT.get().active ? System.nanoTime() : 0;
+    }
+
+    public static void stop(TimingPhase phase, long startedAt) {
+        if (startedAt != 0) {
+            CURRENT.get().add(phase, System.nanoTime() - startedAt);
+        }
+    }
+
+    public void add(TimingPhase phase, long elapsedNanos) {
+        if (active) {
+            nanos[phase.ordinal()] += elapsedNanos;
+            counts[phase.ordinal()]++;
+        }
+    }
+
+    public void end() {
+        active = false;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public long totalNanos() {
+        return System.nanoTime() - beganAt;
+    }
+
+    // ex) lock;dur=12.3, account;dur=1.1;desc="2 calls", total;dur=20.5
+    public String toHeader() {
+        StringBuilder header = new StringBuilder(128);
+        for (TimingPhase phase : PHASES) {
+            int count = counts[phase.ordinal()];
+            if (count == 0) {
+                continue;
+            }
+            appendMetric(header, phase.getMetricName(), nanos[phase.ordinal()]);
+            if (count > 1) {
+                header.append(";desc=\"").append(count).append(" calls\"");
+            }
+            header.append(", ");
+        }
+        appendMetric(header, "total", totalNanos());
+        return header.toString();
+    }
+
+    private static void appendMetric(StringBuilder header, String name, long nanos) {
+        long micros = nanos / 1000;
+        header.append(name).append(";dur=").append(micros / 1000).append('.').append(micros / 100 % 10);
+    }
+}
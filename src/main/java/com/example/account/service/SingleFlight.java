@@ -0,0 +1,110 @@
+package com.example.account.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 같은 키의 조회가 동시에 들어오면 DB 조회는 하나만 하고 결과를 같이 씀 (request collapsing)
+ * - 먼저 온 요청(leader)이 자기 스레드에서 조회, 그동안 온 요청은 leader 의 결과를 기다림
+ * - 조회가 끝나면 바로 지움 => 결과를 캐시하지 않음, 끝난 뒤에 온 요청은 새로 조회
+ * - leader 의 예외(AccountException 등)는 기다리던 요청에도 그대로 던져짐
+ * - 기다리던 요청이 인터럽트되면 그 요청만 빠지고 조회는 계속됨
+ * - wait-millis 안에 leader 가 끝나지 않으면 기다리던 요청은 직접 조회 => leader 가 멈춰도 같이 멈추지 않음
+ * - 데이터가 바뀐 트랜잭션이 커밋되면 forget 으로 진행중인 조회를 떼어냄 => 커밋 뒤에 온 요청이 커밋 전 결과를 받지 않음
+ * 결과 객체를 여러 요청이 같이 쓰므로 받은 쪽에서 바꾸면 안 됨
+ * /actuator/metrics/account.single_flight.calls 의 result=shared 비율이 합쳐진 조회 비율
+ * result=timeout 은 leader 를 기다리다 직접 조회한 수
+ */
+@Component
+public class SingleFlight {
+    private final boolean enabled;
+    private final long waitMillis;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<List<Object>, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter[]> counters = new ConcurrentHashMap<>();
+
+    public SingleFlight(
+            MeterRegistry meterRegistry,
+            @Value("${account.single-flight.enabled}") boolean enabled,
+            @Value("${account.single-flight.wait-millis}") long waitMillis
+    ) {
+        this.enabled = enabled;
+        this.waitMillis = waitMillis;
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("account.single_flight.in_flight", flights, ConcurrentHashMap::size);
+    }
+
+    // name : 조회 종류 (메트릭 태그), key : 같은 조회인지 구분하는 값
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String name, Object key, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        List<Object> flightKey = Arrays.asList(name, key);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = flights.putIfAbsent(flightKey, flight);
+        Counter[] counter = counters.computeIfAbsent(name, this::newCounters);
+        if (existing != null) {
+            counter[1].increment();
+            try {
+                return (T) await(existing);
+            } catch (TimeoutException e) {
+                counter[2].increment();
+                return loader.get();
+            }
+        }
+
+        counter[0].increment();
+        try {
+            T result = loader.get();
+            flights.remove(flightKey, flight);
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flights.remove(flightKey, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // 진행중인 조회를 떼어냄, 이미 기다리는 요청은 그 결과를 받고 이후 요청은 새로 조회
+    public void forget(String name, Object key) {
+        if (enabled) {
+            flights.remove(Arrays.asList(name, key));
+        }
+    }
+
+    private Object await(CompletableFuture<Object> flight) throws TimeoutException {
+        try {
+            return flight.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for in-flight read", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (RuntimeException) cause; // leader 가 던진 예외 그대로 (loader 는 RuntimeException 만 던짐)
+        }
+    }
+
+    private Counter[] newCounters(String name) {
+        return new Counter[]{
+                meterRegistry.counter("account.single_flight.calls", "name", name, "result", "executed"),
+                meterRegistry.counter("account.single_flight.calls", "name", name, "result", "shared"),
+                meterRegistry.counter("account.single_flight.calls", "name", name, "result", "timeout")
+        };
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.account.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Space-Saving : capacity 개의 후보만 들고 있으면서 많이 나온 키를 놓치지 않도록 유지
+// 자리가 없으면 가장 작은 후보를 밀어내고 그 값을 이어받음 => 자주 나오는 키는 결국 남게 됨
+// 락이 걸린 모든 요청에서 불리므로
+// 1. 키의 해시로 shard 를 나눔 => 같은 키는 항상 같은 shard, shard 끼리는 서로 기다리지 않음
+//    shard 마다 capacity 개를 유지하므로 각 shard 안의 상위 후보는 하나로 둘 때와 똑같이 보장됨
+// 2. shard 안은 count 기준 최소 힙 => 가장 작은 후보 찾기 O(1), 더하기/밀어내기 O(log capacity)
+class SpaceSaving {
+    private static final int SHARDS = 16; // 2의 거듭제곱
+
+    private final Shard[] shards = new Shard[SHARDS];
+
+    SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard(capacity);
+        }
+    }
+
+    void add(String key, long amount) {
+        shards[shard(key)].add(key, amount);
+    }
+
+    List<String> candidates() {
+        List<String> candidates = new ArrayList<>();
+        for (Shard shard : shards) {
+            shard.collect(candidates);
+        }
+        return candidates;
+    }
+
+    void clear() {
+        for (Shard shard : shards) {
+            shard.clear();
+        }
+    }
+
+    private static int shard(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (SHARDS - 1);
+    }
+
+    // keys/counts 는 count 기준 최소 힙, positions 로 키의 힙 위치를 바로 찾음
+    private static class Shard {
+        private final String[] keys;
+        private final long[] counts;
+        private final Map<String, Integer> positions;
+        private int size;
+
+        Shard(int capacity) {
+            this.keys = new String[capacity];
+            this.counts = new long[capacity];
+            this.positions = new HashMap<>(capacity * 2);
+        }
+
+        synchronized void add(String key, long amount) {
+            Integer position = positions.get(key);
+            if (position != null) {
+                counts[position] += amount;
+                siftDown(position); // 커지기만 하므로 아래로만 내려감
+                return;
+            }
+            if (size < keys.length) {
+                keys[size] = key;
+                counts[size] = amount;
+                positions.put(key, size);
+                siftUp(size++);
+                return;
+            }
+            // 가장 작은 후보(루트)를 밀어내고 그 값을 이어받음
+            positions.remove(keys[0]);
+            keys[0] = key;
+            counts[0] += amount;
+            positions.put(key, 0);
+            siftDown(0);
+        }
+
+        synchronized void collect(List<String> candidates) {
+            candidates.addAll(Arrays.asList(keys).subList(0, size));
+        }
+
+        synchronized void clear() {
+            Arrays.fill(keys, 0, size, null);
+            positions.clear();
+            size = 0;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (counts[parent] <= counts[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && counts[left] < counts[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && counts[right] < counts[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            String key = keys[a];
+            long count = counts[a];
+            keys[a] = keys[b];
+            counts[a] = counts[b];
+            keys[b] = key;
+            counts[b] = count;
+            positions.put(keys[a], a);
+            positions.put(keys[b], b);
+        }
+    }
+}
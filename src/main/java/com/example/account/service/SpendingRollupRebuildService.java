@@ -0,0 +1,237 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * spending_rollup 을 원장(transaction)에서 다시 계산
+ * 1. 끝난 구간(오늘 이전의 날, 이번 달 이전의 달) : 계좌 id 범위로 나눠서 여러 스레드가 동시에
+ *    원장과 기간이 겹치는 달 테이블(TransactionPeriodService)을 테이블마다 따로 읽음
+ *    (성공 거래는 봉인한 달에 새로 생기지 않으므로 하루의 거래가 두 테이블에 나뉘지 않음)
+ *    봉인, 보관 작업과 겹쳐 돌면 그 사이 옮겨진 달을 놓치거나 실패할 수 있음 => 끝난 뒤 다시 실행
+ *    => 새 거래는 오늘/이번 달 행만 건드리므로 락 없이 지움
+ *    (오늘은 1분 전 기준, 자정 전에 시작해서 1분 넘게 커밋되지 않은 거래가 있으면 그 날 행은 다시 실행해야 맞음)
+ * 2. 진행중인 구간(오늘, 이번 달) : 이번 달 거래가 있는 계좌마다 거래를 저장하는 쪽과 같은 방식으로 막고 다시 계산
+ *    - LOCK 모드 : 계좌 락을 잡음
+ *    - PARTITION 모드 : 거래는 락 없이 계좌의 파티션 스레드에서만 저장되므로 그 파티션 스레드에서 실행
+ *    => 거래를 저장하며 더하는 것(SpendingRollupService.apply)과 겹치지 않음
+ * 보관소로 옮긴 달(TransactionArchiveService.archivedBefore 이전)은 DB 에 거래가 없으므로 건드리지 않음
+ * 달의 첫날은 DB 함수 대신 자바에서 계산해서 달마다 넘김 => H2 전용 날짜 함수 없이 어느 DB 에서나 같은 SQL
+ */
+@Slf4j
+@Service
+public class SpendingRollupRebuildService {
+    private static final int CHUNK_SIZE = 10_000;
+    private static final int LOCK_RETRIES = 3;
+
+    private static final String SUMS = "sum(case when t.transaction_type = 'USE' then t.amount else 0 end),"
+            + " sum(case when t.transaction_type = 'USE' then 1 else 0 end),"
+            + " sum(case when t.transaction_type = 'CANCEL' then t.amount else 0 end),"
+            + " sum(case when t.transaction_type = 'CANCEL' then 1 else 0 end)";
+    private static final String DAY_START = "cast(t.transacted_at as date)";
+    private static final String INSERT = "insert into spending_rollup(account_id, period_type, period_start,"
+            + " account_user_id, used_amount, used_count, cancelled_amount, cancelled_count, updated_at) ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LockService lockService;
+    private final AccountPartitionExecutor partitionExecutor;
+    private final TransactionPeriodService transactionPeriodService;
+    private final TransactionArchiveService transactionArchiveService;
+    private final int threads;
+
+    public SpendingRollupRebuildService(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            LockService lockService,
+            AccountPartitionExecutor partitionExecutor,
+            TransactionPeriodService transactionPeriodService,
+            TransactionArchiveService transactionArchiveService,
+            @Value("${account.spending-rollup.rebuild-threads}") int threads
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.lockService = lockService;
+        this.partitionExecutor = partitionExecutor;
+        this.transactionPeriodService = transactionPeriodService;
+        this.transactionArchiveService = transactionArchiveService;
+        this.threads = threads;
+    }
+
+    // 다시 넣은 행 수
+    public int rebuild() throws Exception {
+        // 오늘 0시 직후라면 어제 거래가 아직 커밋 중일 수 있으므로 1분 전 기준으로 오늘을 정함
+        LocalDate today = LocalDateTime.now().minusMinutes(1).toLocalDate();
+        LocalDate thisMonth = today.withDayOfMonth(1);
+        LocalDate archivedBefore = transactionArchiveService.archivedBefore(); // 항상 달의 첫날
+        LocalDate floor = archivedBefore == null ? LocalDate.EPOCH : archivedBefore;
+        List<String> tables = transactionPeriodService.tables(floor.atStartOfDay(), today.atStartOfDay());
+        long maxAccountId = maxAccountId();
+        AtomicInteger rows = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long from = 0; from <= maxAccountId; from += CHUNK_SIZE) {
+                long fromId = from;
+                futures.add(executor.submit(() ->
+                        rows.addAndGet(rebuildClosed(tables, fromId, fromId + CHUNK_SIZE - 1, floor, today, thisMonth))));
+            }
+            awaitAll(futures); // 실패한 범위가 있으면 예외 => 다시 실행하면 됨 (범위마다 지우고 다시 넣음)
+
+            List<Map<String, Object>> openAccounts = jdbcTemplate.queryForList(
+                    "select distinct a.id, a.account_number from transaction t join account a on a.id = t.account_id"
+                            + " where t.transacted_at >= ?", Timestamp.valueOf(thisMonth.atStartOfDay()));
+            AtomicInteger busy = new AtomicInteger();
+            futures.clear();
+            for (Map<String, Object> account : openAccounts) {
+                futures.add(executor.submit(() -> {
+                    int inserted = rebuildOpen(((Number) account.get("id")).longValue(),
+                            (String) account.get("account_number"), today, thisMonth);
+                    if (inserted < 0) {
+                        busy.incrementAndGet();
+                    } else {
+                        rows.addAndGet(inserted);
+                    }
+                }));
+            }
+            awaitAll(futures);
+
+            if (busy.get() > 0) {
+                log.error("Spending rollup rebuild skipped {} busy accounts, run again", busy.get());
+            }
+            log.info("Spending rollup rebuild finished. rows : {}, open accounts : {}",
+                    rows.get(), openAccounts.size());
+            return rows.get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> futures) throws Exception {
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private int rebuildClosed(List<String> tables, long fromId, long toId, LocalDate floor, LocalDate today,
+                              LocalDate thisMonth) {
+        Integer inserted = transactionTemplate.execute(status -> {
+            jdbcTemplate.update("delete from spending_rollup where account_id between ? and ? and period_start >= ?"
+                            + " and ((period_type = 'DAY' and period_start < ?) or (period_type = 'MONTH' and period_start < ?))",
+                    fromId, toId, Date.valueOf(floor), Date.valueOf(today), Date.valueOf(thisMonth));
+            // 테이블마다 (account_id, transacted_at) 인덱스 범위로 읽음
+            int days = 0;
+            for (String table : tables) {
+                days += jdbcTemplate.update(INSERT + "select t.account_id, 'DAY', " + DAY_START + ","
+                                + " a.account_user_id, " + SUMS + ", current_timestamp"
+                                + " from " + table + " t join account a on a.id = t.account_id"
+                                + " where t.account_id between ? and ? and t.transaction_result_type = 'S'"
+                                + " and t.transacted_at >= ? and t.transacted_at < ?"
+                                + " group by t.account_id, " + DAY_START + ", a.account_user_id",
+                        fromId, toId, Timestamp.valueOf(floor.atStartOfDay()),
+                        Timestamp.valueOf(today.atStartOfDay()));
+            }
+            // 끝난 달은 방금 만든 일 합계를 더해서, 일 합계가 있는 첫 달부터 한 달씩
+            Date first = jdbcTemplate.queryForObject("select min(period_start) from spending_rollup"
+                            + " where account_id between ? and ? and period_type = 'DAY'"
+                            + " and period_start >= ? and period_start < ?",
+                    Date.class, fromId, toId, Date.valueOf(floor), Date.valueOf(thisMonth));
+            int months = 0;
+            for (LocalDate month = first == null ? thisMonth : first.toLocalDate().withDayOfMonth(1);
+                 month.isBefore(thisMonth); month = month.plusMonths(1)) {
+                months += jdbcTemplate.update(INSERT + "select account_id, 'MONTH', ?, account_user_id,"
+                                + " sum(used_amount), sum(used_count), sum(cancelled_amount), sum(cancelled_count),"
+                                + " current_timestamp from spending_rollup"
+                                + " where account_id between ? and ? and period_type = 'DAY'"
+                                + " and period_start >= ? and period_start < ?"
+                                + " group by account_id, account_user_id",
+                        Date.valueOf(month), fromId, toId, Date.valueOf(month), Date.valueOf(month.plusMonths(1)));
+            }
+            return days + months;
+        });
+        return inserted == null ? 0 : inserted;
+    }
+
+    // 락을 못 잡으면 (PARTITION 모드에서는 파티션 큐가 가득 차거나 대기 시간이 지나면) -1
+    int rebuildOpen(long accountId, String accountNumber, LocalDate today, LocalDate thisMonth) {
+        for (int attempt = 0; attempt < LOCK_RETRIES; attempt++) {
+            if (partitionExecutor.isEnabled()) {
+                try {
+                    return partitionExecutor.execute(accountNumber, () -> replaceOpen(accountId, today, thisMonth));
+                } catch (AccountException e) {
+                    if (e.getErrorCode() == ErrorCode.ACCOUNT_TRANSACTION_LOCK) {
+                        continue; // 거래가 몰리는 파티션 => 다시 시도
+                    }
+                    throw e;
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t); // replaceOpen 은 checked 예외를 던지지 않음
+                }
+            }
+
+            try {
+                lockService.lock(accountNumber);
+            } catch (RuntimeException e) {
+                continue; // 거래가 몰리는 계좌 => 다시 시도
+            }
+            try {
+                return replaceOpen(accountId, today, thisMonth);
+            } finally {
+                lockService.unlock(accountNumber);
+            }
+        }
+        return -1;
+    }
+
+    private int replaceOpen(long accountId, LocalDate today, LocalDate thisMonth) {
+        Integer inserted = transactionTemplate.execute(status -> {
+            jdbcTemplate.update("delete from spending_rollup where account_id = ?"
+                            + " and ((period_type = 'DAY' and period_start >= ?) or (period_type = 'MONTH' and period_start >= ?))",
+                    accountId, Date.valueOf(today), Date.valueOf(thisMonth));
+            // today 이후 거래를 날짜별로 (작업 중 날짜가 바뀌었으면 새 날짜 행도 같이 만들어짐)
+            int rows = jdbcTemplate.update(INSERT + "select t.account_id, 'DAY', " + DAY_START + ","
+                            + " a.account_user_id, " + SUMS + ", current_timestamp"
+                            + " from transaction t join account a on a.id = t.account_id"
+                            + " where t.account_id = ? and t.transaction_result_type = 'S' and t.transacted_at >= ?"
+                            + " group by t.account_id, " + DAY_START + ", a.account_user_id",
+                    accountId, Timestamp.valueOf(today.atStartOfDay()));
+            // 이번 달부터 지금 달까지 (작업 중 달이 바뀌었으면 두 달)
+            LocalDate now = LocalDate.now();
+            for (LocalDate month = thisMonth; !month.isAfter(now); month = month.plusMonths(1)) {
+                rows += jdbcTemplate.update(INSERT + "select t.account_id, 'MONTH', ?, a.account_user_id, "
+                                + SUMS + ", current_timestamp from transaction t join account a on a.id = t.account_id"
+                                + " where t.account_id = ? and t.transaction_result_type = 'S'"
+                                + " and t.transacted_at >= ? and t.transacted_at < ?"
+                                + " group by t.account_id, a.account_user_id",
+                        Date.valueOf(month), accountId, Timestamp.valueOf(month.atStartOfDay()),
+                        Timestamp.valueOf(month.plusMonths(1).atStartOfDay()));
+            }
+            return rows;
+        });
+        return inserted == null ? 0 : inserted;
+    }
+
+    private long maxAccountId() {
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from account", Long.class);
+        return maxId == null ? 0 : maxId;
+    }
+}
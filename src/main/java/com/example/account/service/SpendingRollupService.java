@@ -0,0 +1,117 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.SpendingSummary;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.RollupPeriod;
+import com.example.account.type.TransactionType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 계좌별 일/월 사용, 취소 합계 (spending_rollup)
+ * - 성공 거래를 저장할 때 같은 트랜잭션에서 그 날, 그 달 행에 더해줌 => 조회할 때 원장을 SUM 하지 않음
+ * - 한 계좌의 거래는 계좌 락 안에서만 (PARTITION 모드에서는 계좌의 파티션 스레드에서만) 저장되므로
+ *   같은 행을 동시에 insert 하는 경우가 없음, 다시 계산(SpendingRollupRebuildService)도 같은 방식으로 막음
+ */
+@Service
+@RequiredArgsConstructor
+public class SpendingRollupService {
+    private static final int MAX_DAYS = 366;
+    private static final int MAX_MONTHS = 120;
+
+    private static final String INCREASE_SQL = "update spending_rollup set used_amount = used_amount + ?,"
+            + " used_count = used_count + ?, cancelled_amount = cancelled_amount + ?,"
+            + " cancelled_count = cancelled_count + ?, updated_at = ?"
+            + " where account_id = ? and period_type = ? and period_start = ?";
+    private static final String INSERT_SQL = "insert into spending_rollup(account_id, period_type,"
+            + " period_start, account_user_id, used_amount, used_count, cancelled_amount, cancelled_count,"
+            + " updated_at) values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String COLUMNS = "period_start, used_amount, used_count, cancelled_amount,"
+            + " cancelled_count";
+    private static final String SUM_COLUMNS = "period_start, sum(used_amount) used_amount,"
+            + " sum(used_count) used_count, sum(cancelled_amount) cancelled_amount,"
+            + " sum(cancelled_count) cancelled_count";
+
+    private static final RowMapper<SpendingSummary> ROW_MAPPER = (rs, rowNum) -> SpendingSummary.builder()
+            .periodStart(rs.getDate("period_start").toLocalDate())
+            .usedAmount(rs.getLong("used_amount"))
+            .usedCount(rs.getLong("used_count"))
+            .cancelledAmount(rs.getLong("cancelled_amount"))
+            .cancelledCount(rs.getLong("cancelled_count"))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AccountRepository accountRepository;
+    private final AccountUserRepository accountUserRepository;
+
+    // AccountBalanceService 의 트랜잭션 안에서 호출됨 (롤백되면 같이 롤백)
+    public void apply(Transaction transaction) {
+        Account account = transaction.getAccount();
+        boolean use = transaction.getTransactionType() == TransactionType.USE;
+        long usedAmount = use ? transaction.getAmount() : 0;
+        long cancelledAmount = use ? 0 : transaction.getAmount();
+        LocalDate date = transaction.getTransactedAt().toLocalDate();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        for (RollupPeriod period : RollupPeriod.values()) {
+            Date periodStart = Date.valueOf(period.startOf(date));
+            int updated = jdbcTemplate.update(INCREASE_SQL, usedAmount, use ? 1 : 0, cancelledAmount,
+                    use ? 0 : 1, now, account.getId(), period.name(), periodStart);
+            if (updated == 0) { // 그 구간의 첫 거래
+                jdbcTemplate.update(INSERT_SQL, account.getId(), period.name(), periodStart,
+                        account.getAccountUser().getId(), usedAmount, use ? 1 : 0, cancelledAmount,
+                        use ? 0 : 1, now);
+            }
+        }
+    }
+
+    /**
+     * accountNumber 가 없으면 사용자의 모든 계좌 합계, 있으면 그 계좌만 (사용자 계좌인지 확인)
+     * 구간은 DAY 최대 366일, MONTH 최대 120개월
+     */
+    public List<SpendingSummary> summary(Long userId, String accountNumber, RollupPeriod period,
+                                         LocalDate from, LocalDate to) {
+        LocalDate start = period.startOf(from);
+        LocalDate end = period.startOf(to);
+        if (start.isAfter(end)
+                || (period == RollupPeriod.DAY && ChronoUnit.DAYS.between(start, end) >= MAX_DAYS)
+                || (period == RollupPeriod.MONTH && ChronoUnit.MONTHS.between(start, end) >= MAX_MONTHS)) {
+            throw AccountException.of(ErrorCode.INVALID_REQUEST);
+        }
+
+        if (accountNumber == null) {
+            if (!accountUserRepository.existsById(userId)) {
+                throw AccountException.of(ErrorCode.USER_NOT_FOUND);
+            }
+            return jdbcTemplate.query("select " + SUM_COLUMNS + " from spending_rollup"
+                            + " where account_user_id = ? and period_type = ? and period_start between ? and ?"
+                            + " group by period_start order by period_start",
+                    ROW_MAPPER, userId, period.name(), Date.valueOf(start), Date.valueOf(end));
+        }
+
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> AccountException.of(ErrorCode.ACCOUNT_NOT_FOUND));
+        if (!Objects.equals(userId, account.getAccountUser().getId())) {
+            throw AccountException.of(ErrorCode.USER_ACCOUNT_UN_MATCH);
+        }
+        return jdbcTemplate.query("select " + COLUMNS + " from spending_rollup"
+                        + " where account_id = ? and period_type = ? and period_start between ? and ?"
+                        + " order by period_start",
+                ROW_MAPPER, account.getId(), period.name(), Date.valueOf(start), Date.valueOf(end));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.account.service;
+
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.repository.OutboxEventRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.TimingPhase;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// 리포지토리 호출 시간과 커밋 시간을 RequestTiming 에 기록 (ServerTimingFilter 가 켠 요청에서만)
+@Aspect
+@Component
+public class TimingAopAspect {
+    private static final Object COMMIT_TIMER = new Object(); // 트랜잭션마다 커밋 측정을 한 번만 등록하기 위한 키
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object aroundRepository(ProceedingJoinPoint pjp) throws Throwable {
+        long startedAt = RequestTiming.start();
+        TimingPhase phase = phaseOf(pjp.getTarget());
+        if (startedAt == 0 || phase == null) {
+            return pjp.proceed(); // 측정하지 않는 요청
+        }
+        registerCommitTimer();
+        try {
+            return pjp.proceed();
+        } finally {
+            RequestTiming.stop(phase, startedAt);
+        }
+    }
+
+    private static TimingPhase phaseOf(Object repository) {
+        if (repository instanceof AccountUserRepository) {
+            return TimingPhase.USER;
+        }
+        if (repository instanceof AccountRepository) {
+            return TimingPhase.ACCOUNT;
+        }
+        if (repository instanceof TransactionRepository
+                || repository instanceof OutboxEventRepository) { // outbox 는 거래 저장의 일부
+            return TimingPhase.TRANSACTION;
+        }
+        return null;
+    }
+
+    // beforeCommit ~ afterCommit = flush + commit, afterCommit ~ afterCompletion = 커밋 뒤 리스너
+    // afterCommit 은 getOrder 순으로 불림 => 가장 먼저 불려서 리스너 시간이 커밋에 섞이지 않게
+    private static void registerCommitTimer() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(COMMIT_TIMER)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(COMMIT_TIMER, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long commitStartedAt;
+            private long listenersStartedAt;
+
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitStartedAt = RequestTiming.start();
+            }
+
+            @Override
+            public void afterCommit() {
+                RequestTiming.stop(TimingPhase.COMMIT, commitStartedAt);
+                commitStartedAt = 0;
+                listenersStartedAt = RequestTiming.start();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(COMMIT_TIMER);
+                if (listenersStartedAt != 0) {
+                    RequestTiming.stop(TimingPhase.AFTER_COMMIT, listenersStartedAt);
+                } else {
+                    RequestTiming.stop(TimingPhase.COMMIT, commitStartedAt); // 커밋 실패 => 롤백까지
+                }
+            }
+        });
+    }
+}
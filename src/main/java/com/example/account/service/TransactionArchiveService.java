@@ -0,0 +1,352 @@
+package com.example.account.service;
+
+import com.example.account.dto.ArchivedTransaction;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * horizon-days 보다 오래된 달 테이블(TransactionPeriodService)의 거래를 압축 세그먼트(ArchiveSegment)로 옮김
+ * - 1년 지난 거래는 취소할 수 없으므로(TOO_OLD_ORDER_TO_CANCEL) 그 뒤로는 바뀌지 않음 => 옮겨도 안전
+ * - 먼저 봉인해서 기준일(달의 첫날) 이전 거래를 모두 달 테이블로 보낸 뒤 달 단위로 옮김
+ *   => 한 달의 거래는 모두 DB 에 있거나 모두 보관소에 있음 (월 합계 재계산이 깨지지 않게)
+ * - 달 테이블을 계좌 id 범위로 나눠 세그먼트 하나씩 : 파일을 다 쓰고 fsync 한 뒤에 목록에 올림
+ * - 그 달의 세그먼트가 모두 목록에 오르면 한 트랜잭션에서 initial_balance 를 바꾸고 달을 목록에서 뺀 뒤 테이블을 drop
+ *   => 행을 하나씩 지우지 않음, 중간에 죽으면 달 테이블과 보관소에 같은 거래가 있을 수 있지만 없어지지는 않음
+ *      (다시 실행하면 그 달을 처음부터 다시 옮김, 조회할 때 id 로 중복 제거)
+ * - 옮긴 계좌의 initial_balance 는 옮긴 마지막 성공 거래 후 잔액으로 바꿈 => DB 에 남은 거래만으로 대사 가능
+ * - 원장은 모든 노드가 같이 쓰므로 세그먼트도 모든 노드가 봐야 함
+ *   => account.archive.directory 는 모든 노드가 같이 마운트한 공유 디렉토리여야 함
+ *   => 세그먼트 목록(transaction_archive_segment)은 세그먼트마다 커밋하고
+ *      조회할 때 목록 건수가 바뀌었으면 다른 노드가 쓴 세그먼트를 열어서 씀
+ *   => 목록에 있는 세그먼트가 디렉토리에 없으면 공유 디렉토리가 아님 => 시작하지 않음
+ * - 세그먼트는 계좌 id 범위로 인덱싱 => 계좌 거래 검색은 그 계좌가 들어있고 기간이 겹치는 세그먼트만 열어봄
+ *   transactionId 조회는 세그먼트마다 전체 bloom filter 한 번으로 거름
+ * 거래 조회, 시점 잔액, 계좌 거래 검색은 원장, 달 테이블에 없으면 여기서 찾음
+ */
+@Slf4j
+@Service
+public class TransactionArchiveService {
+    private static final int MIN_HORIZON_DAYS = 366;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    // 다른 노드가 쓰고 있는 .tmp 는 지우지 않도록 이보다 오래 안 바뀐 것만 지움
+    private static final long STALE_TMP_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final String CATALOG_COUNT_SQL = "select count(*) from transaction_archive_segment";
+    private static final String CATALOG_SELECT_SQL = "select file_name from transaction_archive_segment";
+    private static final String CATALOG_INSERT_SQL = "insert into transaction_archive_segment(file_name, cutoff,"
+            + " min_account_id, max_account_id, transaction_count, created_at) values (?, ?, ?, ?, ?, ?)";
+    private static final int[] CATALOG_INSERT_TYPES = {Types.VARCHAR, Types.DATE, Types.BIGINT, Types.BIGINT,
+            Types.BIGINT, Types.TIMESTAMP};
+    private static final String SELECT_SQL = "select t.id, t.account_id, a.account_number, t.transaction_type,"
+            + " t.transaction_result_type, t.amount, t.balance_snapshot, t.transaction_id, t.transacted_at"
+            + " from %s t join account a on a.id = t.account_id"
+            + " where t.account_id between ? and ?"
+            + " order by t.account_id, t.transacted_at, t.id";
+    // 달 테이블에 성공 거래가 있는 계좌만, 그 달의 마지막 성공 거래 후 잔액으로
+    private static final String INITIAL_BALANCE_SQL = "update account a set initial_balance ="
+            + " (select p.balance_snapshot from %1$s p where p.account_id = a.id and p.transaction_result_type = 'S'"
+            + " order by p.transacted_at desc, p.id desc limit 1)"
+            + " where exists (select 1 from %1$s p where p.account_id = a.id and p.transaction_result_type = 'S')";
+    private static final Comparator<ArchiveSegment> ORDER = Comparator.comparing(ArchiveSegment::getCutoff)
+            .thenComparing(segment -> segment.getPath().getFileName().toString());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionPeriodService transactionPeriodService;
+    private final Path directory;
+    private final int horizonDays;
+    private final int blockRows;
+    private final int chunkAccounts;
+
+    private final AtomicBoolean archiving = new AtomicBoolean();
+    private volatile Index index = new Index(Collections.emptyList());
+
+    public TransactionArchiveService(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            TransactionPeriodService transactionPeriodService,
+            @Value("${account.archive.directory}") String directory,
+            @Value("${account.archive.horizon-days}") int horizonDays,
+            @Value("${account.archive.block-rows}") int blockRows,
+            @Value("${account.archive.chunk-accounts}") int chunkAccounts
+    ) {
+        if (horizonDays < MIN_HORIZON_DAYS) {
+            throw new IllegalArgumentException("account.archive.horizon-days must be longer than the cancel window");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.transactionPeriodService = transactionPeriodService;
+        this.directory = Paths.get(directory);
+        this.horizonDays = horizonDays;
+        this.blockRows = blockRows;
+        this.chunkAccounts = chunkAccounts;
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        Files.createDirectories(directory);
+        long staleBefore = System.currentTimeMillis() - STALE_TMP_MILLIS;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.collect(Collectors.toList())) {
+                if (path.getFileName().toString().endsWith(SEGMENT_SUFFIX + ".tmp")
+                        && Files.getLastModifiedTime(path).toMillis() < staleBefore) {
+                    Files.deleteIfExists(path); // 다 쓰지 못한 세그먼트 => 목록에 없음, 거래는 달 테이블에 그대로
+                }
+            }
+        }
+        Index loaded = refresh();
+        log.info("Loaded {} archive segments from {}", loaded.size(), directory.toAbsolutePath());
+    }
+
+    // 목록 건수만 비교 => 다른 노드가 세그먼트를 추가했을 때만 새로 엶 (세그먼트는 지우지 않으므로 건수는 늘기만 함)
+    private Index current() {
+        Index current = index;
+        Integer count = jdbcTemplate.queryForObject(CATALOG_COUNT_SQL, Integer.class);
+        return count == null || count == current.size() ? current : refresh();
+    }
+
+    private synchronized Index refresh() {
+        Index current = index;
+        List<ArchiveSegment> next = new ArrayList<>(current.ordered);
+        for (String fileName : jdbcTemplate.queryForList(CATALOG_SELECT_SQL, String.class)) {
+            if (!current.fileNames.contains(fileName)) {
+                next.add(open(fileName));
+            }
+        }
+        index = new Index(next);
+        return index;
+    }
+
+    private ArchiveSegment open(String fileName) {
+        Path path = directory.resolve(fileName);
+        if (!Files.exists(path)) {
+            throw new IllegalStateException("Archive segment " + fileName + " is not in "
+                    + directory.toAbsolutePath() + ", account.archive.directory must be shared by every node");
+        }
+        try {
+            return ArchiveSegment.open(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 옮긴 거래 수
+    public int archive() throws IOException {
+        if (!archiving.compareAndSet(false, true)) {
+            throw AccountException.of(ErrorCode.ARCHIVE_IN_PROGRESS);
+        }
+        try {
+            LocalDate cutoff = LocalDate.now().minusDays(horizonDays).withDayOfMonth(1);
+            transactionPeriodService.seal(); // 기준일 이전 거래가 원장에 남지 않도록
+            long maxAccountId = maxAccountId();
+            int archived = 0;
+            for (TransactionPeriodService.Period period : transactionPeriodService.periods()) {
+                if (period.getEnd().isAfter(cutoff)) {
+                    break; // 오래된 달부터 => 이후 달은 모두 기준일 이후
+                }
+                archived += archivePeriod(period, maxAccountId);
+            }
+            log.info("Archived {} transactions before {}, segments : {}", archived, cutoff, index.size());
+            return archived;
+        } finally {
+            archiving.set(false);
+        }
+    }
+
+    private int archivePeriod(TransactionPeriodService.Period period, long maxAccountId) throws IOException {
+        int archived = 0;
+        for (long from = 0; from <= maxAccountId; from += chunkAccounts) {
+            archived += archiveChunk(period, from, from + chunkAccounts - 1);
+        }
+        // 세그먼트가 모두 목록에 오른 뒤 => 커밋되면 이 달은 보관소에서만 찾음, 테이블은 통째로 지움
+        transactionTemplate.execute(status -> {
+            jdbcTemplate.update(String.format(INITIAL_BALANCE_SQL, period.getTable()));
+            transactionPeriodService.detach(period);
+            return null;
+        });
+        transactionPeriodService.drop(period);
+        return archived;
+    }
+
+    private int archiveChunk(TransactionPeriodService.Period period, long fromId, long toId) throws IOException {
+        LocalDate cutoff = period.getEnd();
+        Path path = directory.resolve(String.format("segment-%s-%012d-%d%s",
+                cutoff, fromId, System.currentTimeMillis(), SEGMENT_SUFFIX));
+        long[] count = {0};
+
+        ArchiveSegment segment;
+        try (ArchiveSegment.Writer writer = ArchiveSegment.writer(path, cutoff, blockRows)) {
+            // (account_id, transacted_at) 인덱스 순서 그대로 읽으면서 바로 씀
+            jdbcTemplate.query(String.format(SELECT_SQL, period.getTable()), (RowCallbackHandler) rs -> {
+                ArchivedTransaction transaction = ArchivedTransaction.builder()
+                        .id(rs.getLong("id"))
+                        .accountId(rs.getLong("account_id"))
+                        .accountNumber(rs.getString("account_number"))
+                        .transactionType(TransactionType.valueOf(rs.getString("transaction_type")))
+                        .transactionResultType(
+                                TransactionResultType.valueOf(rs.getString("transaction_result_type")))
+                        .amount(rs.getLong("amount"))
+                        .balanceSnapshot(rs.getLong("balance_snapshot"))
+                        .transactionId(rs.getString("transaction_id"))
+                        .transactedAt(rs.getTimestamp("transacted_at").toLocalDateTime())
+                        .build();
+                try {
+                    writer.add(transaction);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            }, fromId, toId);
+            if (count[0] == 0) {
+                return 0; // 옮길 거래가 없는 범위 => 세그먼트를 만들지 않음
+            }
+            segment = writer.finish();
+        }
+
+        // 파일이 디스크에 남은 뒤에 목록에 올림 => 커밋되면 모든 노드에서 보임
+        try {
+            jdbcTemplate.update(CATALOG_INSERT_SQL, new Object[]{path.getFileName().toString(),
+                    java.sql.Date.valueOf(cutoff), segment.getMinAccountId(), segment.getMaxAccountId(),
+                    count[0], Timestamp.valueOf(LocalDateTime.now())}, CATALOG_INSERT_TYPES);
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(path); // 목록에 없는 세그먼트 => 거래는 달 테이블에 그대로 있음
+            throw e;
+        }
+        addSegment(segment);
+        return (int) count[0];
+    }
+
+    private synchronized void addSegment(ArchiveSegment segment) {
+        List<ArchiveSegment> next = new ArrayList<>(index.ordered);
+        next.add(segment);
+        index = new Index(next);
+    }
+
+    // 보관소로 옮긴 거래는 모두 이 날짜 이전, 보관소가 비어있으면 null
+    public LocalDate archivedBefore() {
+        List<ArchiveSegment> current = current().ordered;
+        return current.isEmpty() ? null : current.get(current.size() - 1).getCutoff();
+    }
+
+    public Optional<ArchivedTransaction> findByTransactionId(String transactionId) {
+        List<ArchiveSegment> current = current().ordered;
+        try {
+            for (int i = current.size() - 1; i >= 0; i--) {
+                Optional<ArchivedTransaction> found = current.get(i).find(transactionId);
+                if (found.isPresent()) {
+                    return found;
+                }
+            }
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 여러 거래를 한 번에 찾음 => transactionId 별 결과, 없는 거래는 map 에 없음
+     * 최신 세그먼트부터 아직 못 찾은 id 만 찾음, 같은 블록에 있는 id 들은 블록을 한 번만 풀어서 꺼냄
+     */
+    public Map<String, ArchivedTransaction> findByTransactionIds(Collection<String> transactionIds) {
+        List<ArchiveSegment> current = current().ordered;
+        Map<String, ArchivedTransaction> found = new HashMap<>();
+        try {
+            for (int i = current.size() - 1; i >= 0 && found.size() < transactionIds.size(); i--) {
+                current.get(i).findAll(transactionIds, found);
+            }
+            return found;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 계좌의 보관된 거래 중 [from, to) 에 있고 filter 를 통과하는 것을 limit 건까지 (from, to 가 null 이면 제한 없음)
+     * descending 이면 최신순, 아니면 오래된순
+     */
+    public List<ArchivedTransaction> history(Long accountId, LocalDateTime from, LocalDateTime to,
+                                             boolean descending, Predicate<ArchivedTransaction> filter,
+                                             int limit) {
+        List<ArchiveSegment> current = current().forAccount(accountId, from, to);
+        List<ArchivedTransaction> found = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        Predicate<ArchivedTransaction> unique = filter.and(transaction -> seen.add(transaction.getId()));
+        try {
+            for (int i = 0; i < current.size() && found.size() < limit; i++) {
+                current.get(descending ? current.size() - 1 - i : i)
+                        .scan(accountId, from, to, descending, unique, found, limit);
+            }
+            return found;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long maxAccountId() {
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from account", Long.class);
+        return maxId == null ? 0 : maxId;
+    }
+
+    // 바뀌지 않는 세그먼트 목록, 세그먼트가 늘면 새로 만들어서 바꿔 끼움
+    private static class Index {
+        private final List<ArchiveSegment> ordered; // ORDER 순 => 뒤에 있을수록 최근 거래
+        private final Set<String> fileNames = new HashSet<>();
+        // 세그먼트의 가장 작은 계좌 id => 세그먼트들, 계좌 id 범위는 chunk-accounts 만큼이라 겹치는 범위가 좁음
+        private final NavigableMap<Long, List<ArchiveSegment>> byMinAccountId = new TreeMap<>();
+        private long maxAccountSpan;
+
+        Index(Collection<ArchiveSegment> segments) {
+            List<ArchiveSegment> sorted = new ArrayList<>(segments);
+            sorted.sort(ORDER);
+            this.ordered = Collections.unmodifiableList(sorted);
+            for (ArchiveSegment segment : sorted) {
+                fileNames.add(segment.getPath().getFileName().toString());
+                byMinAccountId.computeIfAbsent(segment.getMinAccountId(), k -> new ArrayList<>()).add(segment);
+                maxAccountSpan = Math.max(maxAccountSpan, segment.getMaxAccountId() - segment.getMinAccountId());
+            }
+        }
+
+        int size() {
+            return ordered.size();
+        }
+
+        // 계좌가 들어있고 [from, to) 와 겹치는 세그먼트만 ORDER 순으로
+        List<ArchiveSegment> forAccount(long accountId, LocalDateTime from, LocalDateTime to) {
+            List<ArchiveSegment> found = new ArrayList<>();
+            for (List<ArchiveSegment> segments : byMinAccountId
+                    .subMap(accountId - maxAccountSpan, true, accountId, true).values()) {
+                for (ArchiveSegment segment : segments) {
+                    if (segment.overlaps(accountId, from, to)) {
+                        found.add(segment);
+                    }
+                }
+            }
+            found.sort(ORDER);
+            return found;
+        }
+    }
+}
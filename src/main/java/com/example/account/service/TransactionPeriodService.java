@@ -0,0 +1,333 @@
+package com.example.account.service;
+
+import com.example.account.dto.ArchivedTransaction;
+import com.example.account.dto.TransactionSearch;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 거래 원장을 달마다 나눠서 저장
+ * - 새 거래는 항상 원장(transaction)에 저장 => insert 가 유지하는 인덱스는 최근 open-months 달 크기로만 커짐
+ * - 봉인(seal) : open-months 보다 오래된 달의 거래를 달 테이블(transaction_pYYYYMM)로 옮김
+ *   달 테이블은 원장과 같은 컬럼, 같은 인덱스 (+ id 유니크) => 같은 조건의 조회가 같은 인덱스를 탐
+ *   테이블을 만드는 DDL 은 H2 에서 열린 트랜잭션을 커밋해버리므로 먼저 따로 실행하고
+ *   거래 복사, 원장에서 삭제, 목록(transaction_period) 저장은 한 트랜잭션 => 커밋되면 모든 노드에서 한 번에 보임
+ *   이미 봉인한 달에 늦게 들어온 거래(밀린 실패 거래 저장 등)는 다음 봉인 때 같은 테이블로 이어서 옮김
+ * - 조회 : 목록에서 기간 [from, to) 와 겹치는 달 테이블만 골라서 테이블마다 같은 조건으로 조회 (나머지 달은 읽지 않음)
+ *   원장(최근 달) => 달 테이블 => 보관소(TransactionArchiveService) 순으로 시간이 겹치지 않게 나뉘어 있음
+ *   목록은 달마다 한 줄이라 조회마다 읽음 => 다른 노드가 봉인하거나 지운 달도 바로 보임
+ * - 지우기 : 보관소로 옮긴 달은 목록에서 빼고 테이블을 drop => 행을 하나씩 지우지 않음
+ * 성공 거래는 저장하는 순간의 시간으로 원장에 들어가므로 봉인한 달에는 새 성공 거래가 생기지 않음
+ */
+@Slf4j
+@Service
+public class TransactionPeriodService {
+    static final String LEDGER = "transaction";
+    // 보관소 기준일(horizon-days, 1년 이상 전)보다 최근 달은 모두 봉인될 수 있도록
+    private static final int MAX_OPEN_MONTHS = 12;
+    private static final int MAX_IN_LIST = 500;
+    private static final DateTimeFormatter TABLE_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    // 원장(Transaction 의 @Table)과 같은 인덱스
+    private static final List<String> INDEX_COLUMNS = Arrays.asList(
+            "account_id, transacted_at",
+            "account_id, transaction_type, transaction_result_type, transacted_at",
+            "transaction_result_type, transacted_at",
+            "transacted_at",
+            "transaction_id");
+    private static final String SELECT = "select t.id, t.account_id, a.account_number, t.transaction_type,"
+            + " t.transaction_result_type, t.amount, t.balance_snapshot, t.transaction_id, t.transacted_at"
+            + " from %s t join account a on a.id = t.account_id where ";
+    private static final RowMapper<ArchivedTransaction> ROW_MAPPER = (rs, rowNum) -> ArchivedTransaction.builder()
+            .id(rs.getLong("id"))
+            .accountId(rs.getLong("account_id"))
+            .accountNumber(rs.getString("account_number"))
+            .transactionType(TransactionType.valueOf(rs.getString("transaction_type")))
+            .transactionResultType(TransactionResultType.valueOf(rs.getString("transaction_result_type")))
+            .amount(rs.getLong("amount"))
+            .balanceSnapshot(rs.getLong("balance_snapshot"))
+            .transactionId(rs.getString("transaction_id"))
+            .transactedAt(rs.getTimestamp("transacted_at").toLocalDateTime())
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int openMonths;
+
+    private final AtomicBoolean sealing = new AtomicBoolean();
+
+    public TransactionPeriodService(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${account.period.open-months}") int openMonths
+    ) {
+        if (openMonths < 1 || openMonths > MAX_OPEN_MONTHS) {
+            throw new IllegalArgumentException("account.period.open-months must be between 1 and " + MAX_OPEN_MONTHS);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.openMonths = openMonths;
+    }
+
+    // 봉인된 달, 오래된 달부터
+    public List<Period> periods() {
+        return jdbcTemplate.query("select period_start, table_name from transaction_period order by period_start",
+                (rs, rowNum) -> new Period(rs.getDate("period_start").toLocalDate(), rs.getString("table_name")));
+    }
+
+    // [from, to) 와 겹치는 봉인된 달만, 오래된 달부터 (from, to 가 null 이면 제한 없음)
+    public List<Period> periods(LocalDateTime from, LocalDateTime to) {
+        return periods().stream()
+                .filter(period -> period.overlaps(from, to))
+                .collect(Collectors.toList());
+    }
+
+    // [from, to) 와 겹치는 달 테이블 + 원장, 오래된 것부터 (원장이 마지막)
+    public List<String> tables(LocalDateTime from, LocalDateTime to) {
+        List<String> tables = periods(from, to).stream()
+                .map(Period::getTable)
+                .collect(Collectors.toList());
+        tables.add(LEDGER);
+        return tables;
+    }
+
+    // 옮긴 거래 수
+    public int seal() {
+        if (!sealing.compareAndSet(false, true)) {
+            throw AccountException.of(ErrorCode.SEAL_IN_PROGRESS);
+        }
+        try {
+            LocalDate sealBefore = LocalDate.now().withDayOfMonth(1).minusMonths(openMonths - 1);
+            int sealed = 0;
+            int months = 0;
+            // 거래가 있는 가장 오래된 달부터 => 옮기고 나면 그 달은 원장에 없으므로 다음 달이 나옴
+            for (LocalDate month = oldestMonth(sealBefore); month != null; month = oldestMonth(sealBefore)) {
+                sealed += sealMonth(month);
+                months++;
+            }
+            log.info("Sealed {} transactions in {} months before {}", sealed, months, sealBefore);
+            return sealed;
+        } finally {
+            sealing.set(false);
+        }
+    }
+
+    private LocalDate oldestMonth(LocalDate before) {
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "select min(transacted_at) from transaction where transacted_at < ?",
+                Timestamp.class, Timestamp.valueOf(before.atStartOfDay()));
+        return oldest == null ? null : oldest.toLocalDateTime().toLocalDate().withDayOfMonth(1);
+    }
+
+    private int sealMonth(LocalDate month) {
+        String table = tableName(month);
+        Timestamp from = Timestamp.valueOf(month.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atStartOfDay());
+
+        // 원장과 같은 컬럼 순서 => insert ... select * 로 옮김, 이미 있으면 그대로 (다시 실행해도 됨)
+        jdbcTemplate.execute("create table if not exists " + table + " as select * from transaction where 1 = 0");
+        jdbcTemplate.execute("create unique index if not exists " + table + "_id on " + table + "(id)");
+        for (int i = 0; i < INDEX_COLUMNS.size(); i++) {
+            jdbcTemplate.execute("create index if not exists " + table + "_" + i
+                    + " on " + table + "(" + INDEX_COLUMNS.get(i) + ")");
+        }
+
+        Integer moved = transactionTemplate.execute(status -> {
+            int rows = jdbcTemplate.update("insert into " + table
+                    + " select * from transaction where transacted_at >= ? and transacted_at < ?", from, to);
+            // 복사한 거래만 지움 => 복사한 뒤에 커밋된 거래는 원장에 남아서 다음 봉인 때 옮겨짐
+            jdbcTemplate.update("delete from transaction t where t.transacted_at >= ? and t.transacted_at < ?"
+                    + " and exists (select 1 from " + table + " p where p.id = t.id)", from, to);
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            if (jdbcTemplate.update("update transaction_period set sealed_at = ? where period_start = ?",
+                    now, Date.valueOf(month)) == 0) {
+                jdbcTemplate.update("insert into transaction_period(period_start, table_name, sealed_at)"
+                        + " values (?, ?, ?)", Date.valueOf(month), table, now);
+            }
+            return rows;
+        });
+        return moved == null ? 0 : moved;
+    }
+
+    // 목록에서만 뺌 => 호출한 트랜잭션이 커밋되면 어느 노드도 이 달 테이블을 읽지 않음
+    public void detach(Period period) {
+        jdbcTemplate.update("delete from transaction_period where period_start = ?", Date.valueOf(period.getStart()));
+    }
+
+    // detach 가 커밋된 뒤에 호출 => 행을 지우지 않고 테이블을 통째로 지움
+    public void drop(Period period) {
+        jdbcTemplate.execute("drop table if exists " + period.getTable());
+        log.info("Dropped transaction period table {}", period.getTable());
+    }
+
+    public Optional<ArchivedTransaction> findByTransactionId(String transactionId) {
+        List<Period> periods = periods();
+        for (int i = periods.size() - 1; i >= 0; i--) {
+            List<ArchivedTransaction> found = query(periods.get(i), "t.transaction_id = ?", transactionId);
+            if (!found.isEmpty()) {
+                return Optional.of(found.get(0));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 여러 거래를 한 번에 찾음 => transactionId 별 결과, 없는 거래는 map 에 없음
+     * 최신 달부터 아직 못 찾은 id 만 500개씩 IN 조회
+     */
+    public Map<String, ArchivedTransaction> findByTransactionIds(Collection<String> transactionIds) {
+        List<Period> periods = periods();
+        Map<String, ArchivedTransaction> found = new HashMap<>();
+        for (int i = periods.size() - 1; i >= 0 && found.size() < transactionIds.size(); i--) {
+            List<String> missing = transactionIds.stream()
+                    .filter(transactionId -> !found.containsKey(transactionId))
+                    .collect(Collectors.toList());
+            for (int j = 0; j < missing.size(); j += MAX_IN_LIST) {
+                List<String> batch = missing.subList(j, Math.min(j + MAX_IN_LIST, missing.size()));
+                query(periods.get(i), "t.transaction_id in ("
+                        + String.join(",", Collections.nCopies(batch.size(), "?")) + ")", batch.toArray())
+                        .forEach(transaction -> found.put(transaction.getTransactionId(), transaction));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 계좌의 봉인된 거래 중 [from, to) 에 있는 resultType 거래를 limit 건까지 (from, to 가 null 이면 제한 없음)
+     * descending 이면 최신순, 아니면 오래된순
+     */
+    public List<ArchivedTransaction> history(Long accountId, LocalDateTime from, LocalDateTime to,
+                                             boolean descending, TransactionResultType resultType, int limit) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        conditions.add("t.account_id = ?");
+        args.add(accountId);
+        conditions.add("t.transaction_result_type = ?");
+        args.add(resultType.name());
+        return scan(conditions, args, from, to, descending, limit);
+    }
+
+    /**
+     * 거래 검색(TransactionSearchService)과 같은 조건으로 봉인된 거래를 최신순으로 limit 건까지
+     * accountId 가 null 이면 모든 계좌, olderThan 이 있으면 (olderThan, olderThanId) 보다 오래된 것만
+     */
+    public List<ArchivedTransaction> search(Long accountId, TransactionSearch.Condition condition,
+                                            LocalDateTime olderThan, Long olderThanId, int limit) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (accountId != null) {
+            conditions.add("t.account_id = ?");
+            args.add(accountId);
+        }
+        if (condition.getTransactionType() != null) {
+            conditions.add("t.transaction_type = ?");
+            args.add(condition.getTransactionType().name());
+        }
+        if (condition.getTransactionResultType() != null) {
+            conditions.add("t.transaction_result_type = ?");
+            args.add(condition.getTransactionResultType().name());
+        }
+        if (condition.getMinAmount() != null) {
+            conditions.add("t.amount >= ?");
+            args.add(condition.getMinAmount());
+        }
+        if (condition.getMaxAmount() != null) {
+            conditions.add("t.amount <= ?");
+            args.add(condition.getMaxAmount());
+        }
+        LocalDateTime to = condition.getTo();
+        if (olderThan != null) {
+            conditions.add("(t.transacted_at < ? or (t.transacted_at = ? and t.id < ?))");
+            args.add(Timestamp.valueOf(olderThan));
+            args.add(Timestamp.valueOf(olderThan));
+            args.add(olderThanId);
+            if (to == null || olderThan.isBefore(to)) {
+                to = olderThan.plusNanos(1); // 커서보다 최근 달은 읽지 않음
+            }
+        }
+        return scan(conditions, args, condition.getFrom(), to, true, limit);
+    }
+
+    // [from, to) 와 겹치는 달 테이블만 순서대로 읽다가 limit 건이 차면 멈춤
+    private List<ArchivedTransaction> scan(List<String> conditions, List<Object> args,
+                                           LocalDateTime from, LocalDateTime to, boolean descending, int limit) {
+        if (from != null) {
+            conditions.add("t.transacted_at >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            conditions.add("t.transacted_at < ?");
+            args.add(Timestamp.valueOf(to));
+        }
+        String where = (conditions.isEmpty() ? "1 = 1" : String.join(" and ", conditions))
+                + (descending ? " order by t.transacted_at desc, t.id desc" : " order by t.transacted_at, t.id")
+                + " limit ?";
+
+        List<Period> periods = periods(from, to);
+        List<ArchivedTransaction> found = new ArrayList<>();
+        for (int i = 0; i < periods.size() && found.size() < limit; i++) {
+            Object[] periodArgs = args.toArray(new Object[args.size() + 1]);
+            periodArgs[args.size()] = limit - found.size();
+            found.addAll(query(periods.get(descending ? periods.size() - 1 - i : i), where, periodArgs));
+        }
+        return found;
+    }
+
+    private List<ArchivedTransaction> query(Period period, String where, Object... args) {
+        try {
+            return jdbcTemplate.query(String.format(SELECT, period.getTable()) + where, ROW_MAPPER, args);
+        } catch (BadSqlGrammarException e) {
+            // 목록을 읽은 뒤에 보관소로 옮기고 지운 달 => 거래는 보관소에 있음
+            Integer listed = jdbcTemplate.queryForObject(
+                    "select count(*) from transaction_period where period_start = ?",
+                    Integer.class, Date.valueOf(period.getStart()));
+            if (listed != null && listed > 0) {
+                throw e;
+            }
+            return Collections.emptyList();
+        }
+    }
+
+    static String tableName(LocalDate month) {
+        return LEDGER + "_p" + month.format(TABLE_SUFFIX);
+    }
+
+    // 봉인된 달 하나 : [start, start + 1달) 의 거래가 table 에 있음
+    @Getter
+    public static class Period {
+        private final LocalDate start;
+        private final String table;
+
+        Period(LocalDate start, String table) {
+            this.start = start;
+            this.table = table;
+        }
+
+        public LocalDate getEnd() {
+            return start.plusMonths(1);
+        }
+
+        boolean overlaps(LocalDateTime from, LocalDateTime to) {
+            return (from == null || from.isBefore(getEnd().atStartOfDay()))
+                    && (to == null || to.isAfter(start.atStartOfDay()));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.ArchivedTransaction;
+import com.example.account.dto.QueryTransactionResponse;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionSearch;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static com.example.account.repository.TransactionSpecifications.*;
+
+/**
+ * 운영(CS)용 거래 검색 : 계좌, 거래종류, 결과, 금액 범위, 기간
+ * - 최신 거래부터 keyset 페이지네이션 (offset 을 쓰지 않으므로 뒤 페이지도 앞 페이지만큼 빠름)
+ * - 한 번에 최대 MAX_SIZE 건
+ * - 원장에서 페이지를 다 못 채우면 달 테이블(TransactionPeriodService)에서 기간이 겹치는 달만 이어서 봄
+ * - 계좌 조건이 있으면 보관소(TransactionArchiveService)로 옮긴 거래까지 이어서 보여줌
+ */
+@Service
+@RequiredArgsConstructor
+public class TransactionSearchService {
+    static final int DEFAULT_SIZE = 20;
+    static final int MAX_SIZE = 100;
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionPeriodService transactionPeriodService;
+    private final TransactionArchiveService transactionArchiveService;
+
+    @Transactional
+    public TransactionSearch.Response search(TransactionSearch.Condition condition) {
+        validate(condition);
+        int size = condition.getSize() == null ? DEFAULT_SIZE : Math.min(condition.getSize(), MAX_SIZE);
+
+        // 계좌번호는 id 로 바꿔서 account_id 로 시작하는 인덱스를 타게 함
+        Account account = null;
+        if (condition.getAccountNumber() != null) {
+            account = accountRepository.findByAccountNumber(condition.getAccountNumber())
+                    .orElseThrow(() -> AccountException.of(ErrorCode.ACCOUNT_NOT_FOUND));
+        }
+
+        Specification<Transaction> specification = Specification.where(accountIs(account))
+                .and(typeIs(condition.getTransactionType()))
+                .and(resultIs(condition.getTransactionResultType()))
+                .and(amountFrom(condition.getMinAmount()))
+                .and(amountTo(condition.getMaxAmount()))
+                .and(transactedFrom(condition.getFrom()))
+                .and(transactedBefore(condition.getTo()));
+        Cursor cursor = condition.getCursor() == null ? null : Cursor.decode(condition.getCursor());
+        if (cursor != null) {
+            specification = specification.and(olderThan(cursor.transactedAt, cursor.id));
+        }
+
+        // 한 건 더 읽어서 다음 페이지가 있는지 확인
+        List<Transaction> transactions = transactionRepository.search(specification, size + 1);
+        String nextCursor = null;
+        if (transactions.size() > size) {
+            transactions = transactions.subList(0, size);
+            Transaction last = transactions.get(size - 1);
+            nextCursor = new Cursor(last.getTransactedAt(), last.getId()).encode();
+        }
+        List<TransactionDto> page = transactions.stream()
+                .map(TransactionDto::fromEntity)
+                .collect(Collectors.toList());
+        Cursor after = transactions.isEmpty() ? cursor : new Cursor(
+                transactions.get(transactions.size() - 1).getTransactedAt(),
+                transactions.get(transactions.size() - 1).getId());
+        int remaining = size - transactions.size();
+
+        // 원장에서 페이지를 다 못 채웠으면 달 테이블에서 이어서 (달 테이블 거래는 원장에 남은 거래보다 모두 오래됨)
+        if (nextCursor == null) {
+            List<ArchivedTransaction> sealed = transactionPeriodService.search(
+                    account == null ? null : account.getId(), condition,
+                    after == null ? null : after.transactedAt, after == null ? null : after.id, remaining + 1);
+            if (sealed.size() > remaining) {
+                sealed = sealed.subList(0, remaining);
+                nextCursor = sealed.isEmpty() ? after.encode() : new Cursor(
+                        sealed.get(remaining - 1).getTransactedAt(), sealed.get(remaining - 1).getId()).encode();
+            }
+            sealed.forEach(transaction -> page.add(transaction.toDto()));
+            if (!sealed.isEmpty()) {
+                ArchivedTransaction last = sealed.get(sealed.size() - 1);
+                after = new Cursor(last.getTransactedAt(), last.getId());
+                remaining -= sealed.size();
+            }
+        }
+
+        // 그래도 다 못 채웠으면 보관소에서 이어서 (보관된 거래는 달 테이블 거래보다 모두 오래됨)
+        // 보관소는 계좌 id 로만 찾을 수 있으므로 계좌 조건이 있을 때만
+        if (nextCursor == null && account != null) {
+            List<ArchivedTransaction> archived = transactionArchiveService.history(account.getId(),
+                    condition.getFrom(), condition.getTo(), true, archiveFilter(condition, after), remaining + 1);
+            if (archived.size() > remaining) {
+                archived = archived.subList(0, remaining);
+                nextCursor = archived.isEmpty() ? after.encode() : new Cursor(
+                        archived.get(remaining - 1).getTransactedAt(), archived.get(remaining - 1).getId()).encode();
+            }
+            archived.forEach(transaction -> page.add(transaction.toDto()));
+        }
+
+        return TransactionSearch.Response.builder()
+                .transactions(page.stream()
+                        .map(QueryTransactionResponse::from)
+                        .collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    // 원장 검색(TransactionSpecifications)과 같은 조건을 보관된 거래에 (계좌, 기간은 history 에서 거름)
+    private static Predicate<ArchivedTransaction> archiveFilter(TransactionSearch.Condition condition, Cursor after) {
+        return transaction -> (condition.getTransactionType() == null
+                || condition.getTransactionType() == transaction.getTransactionType())
+                && (condition.getTransactionResultType() == null
+                || condition.getTransactionResultType() == transaction.getTransactionResultType())
+                && (condition.getMinAmount() == null || transaction.getAmount() >= condition.getMinAmount())
+                && (condition.getMaxAmount() == null || transaction.getAmount() <= condition.getMaxAmount())
+                && (after == null || transaction.getTransactedAt().isBefore(after.transactedAt)
+                || (transaction.getTransactedAt().isEqual(after.transactedAt) && transaction.getId() < after.id));
+    }
+
+    private void validate(TransactionSearch.Condition condition) {
+        if (condition.getSize() != null && condition.getSize() < 1) {
+            throw AccountException.of(ErrorCode.INVALID_REQUEST);
+        }
+        if (condition.getMinAmount() != null && condition.getMaxAmount() != null
+                && condition.getMinAmount() > condition.getMaxAmount()) {
+            throw AccountException.of(ErrorCode.INVALID_REQUEST);
+        }
+        if (condition.getFrom() != null && condition.getTo() != null
+                && !condition.getFrom().isBefore(condition.getTo())) {
+            throw AccountException.of(ErrorCode.INVALID_REQUEST);
+        }
+    }
+
+    // 마지막으로 준 거래의 (transactedAt, id), 클라이언트에게는 그냥 문자열
+    static class Cursor {
+        private final LocalDateTime transactedAt;
+        private final Long id;
+
+        Cursor(LocalDateTime transactedAt, Long id) {
+            this.transactedAt = transactedAt;
+            this.id = id;
+        }
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((transactedAt + "_" + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String value) {
+            try {
+                String[] fields = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8)
+                        .split("_");
+                return new Cursor(LocalDateTime.parse(fields[0]), Long.parseLong(fields[1]));
+            } catch (RuntimeException e) {
+                throw AccountException.of(ErrorCode.INVALID_REQUEST); // 잘못된 커서
+            }
+        }
+    }
+}
@@ -3,26 +3,22 @@ package com.example.account.service;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.domain.Transaction;
+import com.example.account.dto.ArchivedTransaction;
+import com.example.account.dto.CancelBalance;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
-import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountUserRepository;
 import com.example.account.repository.TransactionRepository;
-import com.example.account.type.AccountStatus;
 import com.example.account.type.ErrorCode;
-import com.example.account.type.TransactionResultType;
-import com.example.account.type.TransactionType;
+import com.example.account.type.HotAccountMetric;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import javax.transaction.Transactional;
-import java.time.LocalDateTime;
-import java.util.Objects;
-import java.util.UUID;
+import java.util.*;
+import java.util.stream.Collectors;
 
-import static com.example.account.type.TransactionResultType.F;
-import static com.example.account.type.TransactionResultType.S;
 import static com.example.account.type.TransactionType.CANCEL;
 import static com.example.account.type.TransactionType.USE;
 
@@ -30,136 +26,128 @@ import static com.example.account.type.TransactionType.USE;
 @Service // 빈으로 등록
 @RequiredArgsConstructor
 public class TransactionService {
+    private static final int MAX_IN_LIST = 500;
+    private static final String QUERY_FLIGHT = "query_transaction";
+    // 락 획득 실패, 요청 제한, 입장 거절은 거래를 시도하기 전에 돌려보낸 요청 => 실패 거래로 남기지 않음
+    // (원래 컨트롤러의 @AccountLock 에서 실패해서 기록되지 않던 것과 같음, 거절을 싸게 유지)
+    private static final Set<ErrorCode> NOT_RECORDED =
+            EnumSet.of(ErrorCode.ACCOUNT_TRANSACTION_LOCK, ErrorCode.TOO_MANY_REQUESTS);
+
     private final TransactionRepository transactionRepository;
     private final AccountUserRepository accountUserRepository;
-    private final AccountRepository accountRepository;
+    private final AccountBalanceService accountBalanceService;
+    private final FailedTransactionWriter failedTransactionWriter;
+    private final HotAccountTracker hotAccountTracker;
+    private final TransactionPeriodService transactionPeriodService;
+    private final TransactionArchiveService transactionArchiveService;
+    private final SingleFlight singleFlight;
 
     // 요청 파라미터 받아서 TransactionDto로 리턴함
-    @Transactional // update와 insert가 동시에 일어나거나 동시에 일어나지 않거나 한다
+    // 락과 DB 트랜잭션은 AccountBalanceService 에서만 잡음 => 여기서는 락 밖에서 할 수 있는 일만 함
     public TransactionDto useBalance(Long userId, String accountNumber, Long amount) {
-        // 1. userId로 유저 정보 가져오기 => user는 클래스가 AccountUser이므로 4개의 정보를 다 담고 있음
+        // 1. userId로 유저 정보 가져오기 => 계좌 잔액과 상관없으므로 락 잡기 전에 확인
         AccountUser user = accountUserRepository.findById(userId)
-                .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
-
-        validateUseBalanace(user, account, amount); // 정책, 메소드 만들어주는건 alt + enter
+                .orElseThrow(() -> AccountException.of(ErrorCode.USER_NOT_FOUND));
 
-        // balance(잔액) - amount => Account 클래스의 useBalance 메서드 실행!!
-        // update
-        account.useBalance(amount);
+        // 2. 계좌 조회, 검증, 잔액 변경, 성공 거래 저장은 락 안에서
+        Transaction transaction = accountBalanceService.useBalance(
+                new UseBalance.Request(user.getId(), accountNumber, amount));
 
-        // useBalance 메서드를 실행시 실패할 때 저장되는 곳이 없다
-        // validateUseBalanace exception이 발생했을 때 저장해주는 부분이 없으므로 컨트롤러에서 try ~ catch
-
-        // transactionRepository 에 저장해주세요
-        // insert
-        // saveAndGetTransaction도 아래의 메소드와 거의 동일 f -> s 차이
-        return TransactionDto.fromEntity(saveAndGetTransaction(USE, S, account, amount));
+        // 3. 응답 변환은 락이 풀린 뒤에
+        return TransactionDto.fromEntity(transaction);
     }
 
-    /** 정책(실패 응답이 나오는 예외 케이스)
-     * 사용자 없는 경우, 계좌 없는 경우, 사용자 아이디와 계좌 소유주 다른 경우,
-     * 계좌가 이미 해지된 경우, 거래금액이 잔액보다 큰 경우,
-     * 거래금액이 너무 적거나 큰 경우
-     */
-    private void validateUseBalanace(AccountUser user, Account account, Long amount) {
-        // 사용자 없는 경우, 계좌 없는 경우는 이미 위에서 에러 처리함
-        // 거래금액이 너무 적거나 큰 경우는 컨트롤러 requestbody 에서 @Valid로 요청 값 min, max 처리함
-        // 사용자 아이디와 계좌 소유주 다른 경우
-        if (!Objects.equals(user.getId(), account.getAccountUser().getId())) {
-            throw new AccountException(ErrorCode.USER_ACCOUNT_UN_MATCH);
-        }
-        if (account.getAccountStatus() != AccountStatus.IN_USE) {
-            throw new AccountException(ErrorCode.ACCOUNT_ALREADY_UNREGISTERED);
-        }
-        if (account.getBalance() < amount) {
-            throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+    // 실패 거래 기록은 FailedTransactionWriter 가 모아서 저장 => 요청은 검증에 실패한 즉시 응답
+    public void saveFailedUseTransaction(String accountNumber, Long amount, ErrorCode errorCode) {
+        if (NOT_RECORDED.contains(errorCode)) {
+            return;
         }
+        hotAccountTracker.record(HotAccountMetric.FAILED_TRANSACTIONS, accountNumber, 1);
+        failedTransactionWriter.record(USE, accountNumber, amount, errorCode);
     }
 
-    // 계좌번호가 없는 경우
-    @Transactional
-    public void saveFailedUseTransaction(String accountNumber, Long amount) {
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
-
-        // 아래의 return절 반복되므로 메서드로 빼기 => 가독성, ctrl + alt + m
-        saveAndGetTransaction(USE, F, account, amount);
-    }
-
-    private Transaction saveAndGetTransaction(
-            TransactionType transactionType,
-            TransactionResultType transactionResultType,
-            Account account,
-            Long amount) {
-        return transactionRepository.save( // Transaction(entity) 에 build 해주세요
-                Transaction.builder() // Transaction 보면서 프로퍼티 하나씩 넣으면 된다
-                        .transactionType(transactionType)
-                        .transactionResultType(transactionResultType) // 실패
-                        .account(account)
-                        .amount(amount)
-                        .balanceSnapshot(account.getBalance())
-                        // 고유한 값 만들어야 함 => UUID(UNIVERSIAL UNIQUE IDENTIFIER)를 사용한다
-                        // UUID를 랜덤으로 받고 문자열로 바꿔주고 -를 제거해준다
-                        .transactionId(UUID.randomUUID().toString().replace("-", ""))
-                        .transactedAt(LocalDateTime.now())
-                        .build()
-        );
-    }
-
-    @Transactional
     public TransactionDto cancelBalance(String transactionId,
                                         String accountNumber, Long amount
     ) {
+        // 원거래는 한번 저장되면 바뀌지 않으므로 락 밖에서 조회
         Transaction transaction = transactionRepository.findByTransactionId(transactionId)
-                .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
-
-        // 예외 처리, 정책에 대한 로직
-        validateCancelBalance(transaction, account, amount); // 자동 메소드 생성은 alt + enter
-
-        // Transaction 테이블이 아닌 Account 테이블에 balance 컬럼 있으므로
-        // Account entity 테이블에 금액 사용 취소 로직 추가해줌
-        account.cancelBalance(amount);
+                .orElseGet(() -> transactionPeriodService.findByTransactionId(transactionId)
+                        .map(TransactionService::sealedOriginal)
+                        .orElseThrow(() -> transactionArchiveService.findByTransactionId(transactionId).isPresent()
+                                ? AccountException.of(ErrorCode.TOO_OLD_ORDER_TO_CANCEL) // 보관소로 옮긴 거래는 1년이 지난 거래
+                                : AccountException.of(ErrorCode.TRANSACTION_NOT_FOUND)));
+
+        return TransactionDto.fromEntity(accountBalanceService.cancelBalance(
+                new CancelBalance.Request(transactionId, accountNumber, amount), transaction));
+    }
 
-        // 트랜잭션에 저장하는 메소드인 saveAndGetTransaction 의 내용을 가져와 쓰자
-        // transactionType 을 파라미터에 넣어주어 transactionType 값이 달라도 쓸 수 있도록 한다
-        // 사용 취소를 저장
-        return TransactionDto.fromEntity(saveAndGetTransaction(CANCEL, S, account, amount));
+    // 달 테이블로 옮긴 원거래 => 취소 검증(계좌, 금액, 거래 시간)에 쓰는 값만 담음, 저장하지 않음
+    private static Transaction sealedOriginal(ArchivedTransaction sealed) {
+        Account account = new Account();
+        account.setId(sealed.getAccountId());
+        return Transaction.builder()
+                .transactionType(sealed.getTransactionType())
+                .transactionResultType(sealed.getTransactionResultType())
+                .account(account)
+                .amount(sealed.getAmount())
+                .balanceSnapshot(sealed.getBalanceSnapshot())
+                .transactionId(sealed.getTransactionId())
+                .transactedAt(sealed.getTransactedAt())
+                .build();
     }
 
-    private void validateCancelBalance(Transaction transaction, Account account, Long amount) {
-        // 거래에서 쓸 계좌 id 와 계좌 id가 다를 때
-        if(!Objects.equals(transaction.getAccount().getId(), account.getId())){
-            throw new AccountException(ErrorCode.TRANSACTION_ACCOUNT_UN_MATCH);
-        }
-        // 거래 금액이 거래 취소 금액과 다를 때
-        if (!Objects.equals(transaction.getAmount(), amount)) {
-            throw new AccountException(ErrorCode.CANCEL_MUST_FULLY);
-        }
-        // 1년이 넘은 거래는 사용 취소 불가능
-        // isBefore, minusYears 제공해줌
-        if (transaction.getTransactedAt().isBefore(LocalDateTime.now().minusYears(1))) {
-            throw new AccountException(ErrorCode.TOO_OLD_ORDER_TO_CANCEL);
+    public void saveFailedCancelTransaction(String accountNumber, Long amount, ErrorCode errorCode) {
+        if (NOT_RECORDED.contains(errorCode)) {
+            return;
         }
+        hotAccountTracker.record(HotAccountMetric.FAILED_TRANSACTIONS, accountNumber, 1);
+        failedTransactionWriter.record(CANCEL, accountNumber, amount, errorCode);
     }
 
-    @Transactional
-    public void saveFailedCancelTransaction(String accountNumber, Long amount) {
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+    // 같은 거래의 동시 조회는 하나만 DB(보관소)를 읽음 (SingleFlight), 없는 거래의 예외도 같이 받음
+    public TransactionDto queryTransaction(String transactionId) {
+        return singleFlight.execute(QUERY_FLIGHT, transactionId, () -> loadTransaction(transactionId));
+    }
 
-        // 아래의 return절 반복되므로 메서드로 빼기 => 가독성, ctrl + alt + m
-        saveAndGetTransaction(CANCEL, F, account, amount);
+    private TransactionDto loadTransaction(String transactionId) {
+        // 거래가 있었는지, 원장 => 달 테이블 => 보관소 순으로
+        // 옮기는 쪽은 다음 곳에 커밋한 뒤에 지우므로 이 순서로 찾으면 옮기는 중에도 놓치지 않음
+        return transactionRepository.findByTransactionId(transactionId)
+                .map(TransactionDto::fromEntity)
+                .orElseGet(() -> transactionPeriodService.findByTransactionId(transactionId)
+                        .or(() -> transactionArchiveService.findByTransactionId(transactionId))
+                        .map(ArchivedTransaction::toDto)
+                        .orElseThrow(() -> AccountException.of(ErrorCode.TRANSACTION_NOT_FOUND)));
     }
 
-    public TransactionDto queryTransaction(String transactionId) {
-        // 거래가 있었는지
-        Transaction transaction = transactionRepository.findByTransactionId(transactionId)
-                .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
+    /**
+     * 여러 거래를 한 번에 조회 => transactionId 별 결과, 없는 거래는 map 에 없음
+     * 같은 id 는 한 번만 찾고, 원장은 500개씩 IN 조회, 원장에 없는 것만 달 테이블, 보관소 순으로 한 번에 찾음
+     */
+    public Map<String, TransactionDto> queryTransactions(List<String> transactionIds) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(transactionIds));
+        Map<String, TransactionDto> found = new HashMap<>();
+        for (int i = 0; i < distinct.size(); i += MAX_IN_LIST) {
+            transactionRepository.findByTransactionIdIn(distinct.subList(i, Math.min(i + MAX_IN_LIST, distinct.size())))
+                    .forEach(transaction -> found.put(transaction.getTransactionId(),
+                            TransactionDto.fromEntity(transaction)));
+        }
+        List<String> missing = missing(distinct, found);
+        if (!missing.isEmpty()) {
+            transactionPeriodService.findByTransactionIds(missing)
+                    .forEach((transactionId, sealed) -> found.put(transactionId, sealed.toDto()));
+            missing = missing(missing, found);
+        }
+        if (!missing.isEmpty()) {
+            transactionArchiveService.findByTransactionIds(missing)
+                    .forEach((transactionId, archived) -> found.put(transactionId, archived.toDto()));
+        }
+        return found;
+    }
 
-        return TransactionDto.fromEntity(transaction);
+    private static List<String> missing(List<String> transactionIds, Map<String, TransactionDto> found) {
+        return transactionIds.stream()
+                .filter(transactionId -> !found.containsKey(transactionId))
+                .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,39 @@
+package com.example.account.service;
+
+import java.util.Random;
+
+// 순위(rank) 0 ~ n-1 을 Zipf 분포로 뽑아줌 => 소수의 계좌에 거래가 몰리는(hot account) 상황을 흉내내기 위해 사용
+// 누적분포(CDF)를 한번 계산해두고 이분 탐색으로 뽑기 때문에 샘플 하나당 O(log n)
+class ZipfSampler {
+    private final double[] cdf;
+
+    ZipfSampler(int n, double exponent) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / Math.pow(i + 1, exponent); // rank 가 낮을수록 (인기 많을수록) 큰 가중치
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum; // 0 ~ 1 사이로 정규화
+        }
+    }
+
+    int sample(Random random) {
+        double u = random.nextDouble();
+        int low = 0;
+        int high = cdf.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cdf[mid] < u) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -19,7 +19,14 @@ public enum ErrorCode {
     TOO_OLD_ORDER_TO_CANCEL("1년이 지난 거래는 취소가 불가능합니다.") ,
     ACCOUNT_ALREADY_UNREGISTERED("계좌가 이미 해지되었습니다.") ,
     BALANCE_NOT_EMPTY("잔액이 있는 계좌는 해지할 수 없습니다.") ,
-    MAX_ACCOUNT_PER_USER_10("사용자 최대 계좌는 10개 입니다.");
+    MAX_ACCOUNT_PER_USER_10("사용자 최대 계좌는 10개 입니다."),
+    TOO_MANY_REQUESTS("요청이 너무 많습니다. 잠시 후 다시 시도해 주세요."),
+    JFR_RECORDING_IN_PROGRESS("이미 진행중인 JFR 기록이 있습니다."),
+    RECONCILIATION_IN_PROGRESS("이미 진행중인 대사 작업이 있습니다."),
+    RECONCILIATION_NOT_FOUND("대사 실행 기록이 없습니다."),
+    ARCHIVE_IN_PROGRESS("이미 진행중인 거래 보관 작업이 있습니다."),
+    SEAL_IN_PROGRESS("이미 진행중인 거래 테이블 봉인 작업이 있습니다."),
+    JFR_RECORDING_NOT_FOUND("JFR 기록이 없거나 이미 받아갔습니다.");
 
     private final String description;
 }
@@ -0,0 +1,6 @@
+package com.example.account.type;
+
+public enum ExecutionMode {
+    LOCK, // redis 분산락으로 계좌별 동시성 제어 (기본값)
+    PARTITION // 단일 노드에서 계좌번호 해시로 나눈 단일 스레드 executor 에서만 실행, 락을 잡지 않음
+}
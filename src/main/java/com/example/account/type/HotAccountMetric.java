@@ -0,0 +1,9 @@
+package com.example.account.type;
+
+// HotAccountTracker 가 계좌별로 세는 값
+public enum HotAccountMetric {
+    REQUESTS, // @AccountLock 메소드 호출 수
+    LOCK_WAIT_MILLIS, // 락(또는 파티션) 대기 시간 합
+    LOCK_FAILURES, // 입장 거절, 락 획득 실패 수
+    FAILED_TRANSACTIONS // 검증 실패로 F 거래가 남은 수
+}
@@ -0,0 +1,6 @@
+package com.example.account.type;
+
+// READ : 읽기끼리는 같이 잡을 수 있고 WRITE 와는 배타적, WRITE : 항상 배타적
+public enum LockMode {
+    READ, WRITE
+}
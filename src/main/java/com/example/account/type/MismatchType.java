@@ -0,0 +1,8 @@
+package com.example.account.type;
+
+// 대사에서 찾은 불일치 종류
+public enum MismatchType {
+    CHAIN, // 거래의 balanceSnapshot 이 직전 잔액 -/+ 거래금액과 다름
+    LEDGER, // 시작 잔액 + 취소 합계 - 사용 합계 가 현재 잔액과 다름
+    BALANCE // 마지막 거래의 balanceSnapshot 이 현재 잔액과 다름
+}
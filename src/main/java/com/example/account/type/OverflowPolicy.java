@@ -0,0 +1,7 @@
+package com.example.account.type;
+
+// 실패 거래 기록 큐가 가득 찼을 때
+// BLOCK : 자리가 날 때까지 요청 스레드가 기다림, DROP : 버리고 개수만 셈, SPILL : 로컬 파일에 적어두고 나중에 다시 저장
+public enum OverflowPolicy {
+    BLOCK, DROP, SPILL
+}
@@ -0,0 +1,14 @@
+package com.example.account.type;
+
+import java.time.LocalDate;
+
+// 사용/취소 금액 합계를 모으는 단위
+public enum RollupPeriod {
+    DAY,
+    MONTH;
+
+    // date 가 속한 구간의 시작일
+    public LocalDate startOf(LocalDate date) {
+        return this == DAY ? date : date.withDayOfMonth(1);
+    }
+}
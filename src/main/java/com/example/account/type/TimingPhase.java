@@ -0,0 +1,18 @@
+package com.example.account.type;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Server-Timing 헤더에 나가는 구간 이름
+@Getter
+@AllArgsConstructor
+public enum TimingPhase {
+    LOCK("lock"), // 계좌 락 대기
+    USER("user"), // AccountUserRepository 호출
+    ACCOUNT("account"), // AccountRepository 호출
+    TRANSACTION("transaction"), // TransactionRepository 호출
+    COMMIT("commit"), // flush + 커밋
+    AFTER_COMMIT("after-commit"); // 커밋 뒤 리스너 (버전 올림, 잔액 알림 발행), 락은 아직 잡고 있음
+
+    private final String metricName;
+}
@@ -7,7 +7,11 @@ import com.example.account.dto.CreateAccount;
 import com.example.account.dto.DeleteAccount;
 import com.example.account.exception.AccountException;
 import com.example.account.type.AccountStatus;
+import com.example.account.service.AccountBalanceService;
 import com.example.account.service.AccountService;
+import com.example.account.service.AccountVersionService;
+import com.example.account.service.BalanceStreamService;
+import com.example.account.service.SpendingRollupService;
 import com.example.account.type.ErrorCode;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -17,15 +21,21 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 // 진짜 AccountController 와 가짜 AccountService, 가짜 RedisTestService 가 주입됨 => spring Container로 이동
@@ -39,7 +49,19 @@ class AccountControllerTest {
     @MockBean // mock + bean => AccountController에 주입됨
     private AccountService accountService;
 
+    @MockBean
+    private AccountBalanceService accountBalanceService;
+
+    @MockBean
+    private BalanceStreamService balanceStreamService;
+
     // @WebMvcTest가 MockMvc를 자동으로 생성해줌
+    @MockBean
+    private SpendingRollupService spendingRollupService;
+
+    @MockBean
+    private AccountVersionService accountVersionService;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -100,6 +122,38 @@ class AccountControllerTest {
                 .andExpect(jsonPath("$[2].balance"). value(3000));
     }
 
+    @Test
+    void notModifiedGetAccountByUserId() throws Exception {
+        //given
+        given(accountVersionService.userETag(1L))
+                .willReturn("\"7\"");
+        //when
+        //then
+        mockMvc.perform(get("/account?user_id=1")
+                        .header("If-None-Match", "\"7\""))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"7\""));
+        verify(accountService, never()).getAccountsByUserId(anyLong()); // 계좌를 읽지 않음
+    }
+
+    @Test
+    void failGetAccountByUserId_errorHasNoETag() throws Exception {
+        //given
+        given(accountVersionService.userETag(1L))
+                .willReturn("\"7\"");
+        given(accountService.getAccountsByUserId(anyLong()))
+                .willThrow(AccountException.of(ErrorCode.USER_NOT_FOUND));
+        //when
+        //then
+        // 에러 응답에 ETag 가 붙으면 다시 물어볼 때 304 로 에러가 캐시된 채 남음
+        mockMvc.perform(get("/account?user_id=1"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errorCode").value("USER_NOT_FOUND"))
+                .andExpect(header().doesNotExist("ETag"));
+    }
+
 
     @Test
     void successDeleteAccount() throws Exception {
@@ -165,5 +219,110 @@ class AccountControllerTest {
                 .andExpect(jsonPath("$.errorMessage").value("계좌가 없습니다."))
                 .andExpect(status().isOk());
     }
-}
 
+    @Test
+    void successGetBalance() throws Exception {
+        //given
+        given(accountBalanceService.getBalance(any()))
+                .willReturn(AccountDto.builder()
+                        .accountNumber("1234567890")
+                        .balance(1000L)
+                        .build());
+
+        //when
+        //then
+        mockMvc.perform(get("/account/1234567890/balance"))
+                .andDo(print())
+                .andExpect(jsonPath("$.accountNumber").value("1234567890"))
+                .andExpect(jsonPath("$.balance").value(1000))
+                .andExpect(header().exists("Server-Timing"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void successGetBalance_eTagAfterLoad() throws Exception {
+        //given
+        given(accountVersionService.accountETag("1234567890"))
+                .willReturn("\"8\"");
+        given(accountBalanceService.getBalance(any()))
+                .willReturn(AccountDto.builder()
+                        .accountNumber("1234567890")
+                        .balance(1000L)
+                        .build());
+
+        //when
+        //then
+        mockMvc.perform(get("/account/1234567890/balance")
+                        .header("If-None-Match", "\"7\""))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(1000))
+                .andExpect(header().string("ETag", "\"8\""));
+    }
+
+    @Test
+    void notModifiedGetBalance() throws Exception {
+        //given
+        given(accountVersionService.accountETag("1234567890"))
+                .willReturn("\"8\"");
+
+        //when
+        //then
+        mockMvc.perform(get("/account/1234567890/balance")
+                        .header("If-None-Match", "W/\"7\", \"8\""))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"8\""));
+        verify(accountBalanceService, never()).getBalance(any()); // 잔액을 읽지 않음
+    }
+
+    @Test
+    void failGetBalance_lockFailureHasNoETag() throws Exception {
+        //given
+        given(accountVersionService.accountETag("1234567890"))
+                .willReturn("\"8\"");
+        given(accountBalanceService.getBalance(any()))
+                .willThrow(AccountException.of(ErrorCode.ACCOUNT_TRANSACTION_LOCK));
+
+        //when
+        //then
+        mockMvc.perform(get("/account/1234567890/balance"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errorCode").value("ACCOUNT_TRANSACTION_LOCK"))
+                .andExpect(header().doesNotExist("ETag"));
+    }
+
+    @Test
+    void successStreamBalances() throws Exception {
+        //given
+        given(balanceStreamService.subscribe(anyLong()))
+                .willReturn(new SseEmitter());
+        //when
+        //then
+        // 응답은 비동기로 열려있는 상태로 남음
+        mockMvc.perform(get("/account/stream?user_id=1")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    void successGetBalanceAt() throws Exception {
+        //given
+        given(accountBalanceService.getBalanceAt(anyString(), any()))
+                .willReturn(AccountDto.builder()
+                        .accountNumber("1234567890")
+                        .balance(700L)
+                        .build());
+
+        //when
+        //then
+        // 지난 시점의 잔액은 바뀌지 않으므로 캐시 가능
+        mockMvc.perform(get("/account/1234567890/balance?at=2022-10-01T00:00:00"))
+                .andDo(print())
+                .andExpect(jsonPath("$.balance").value(700))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, private"))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.account.controller;
+
+import com.example.account.dto.AccountCountMismatch;
+import com.example.account.dto.HotAccount;
+import com.example.account.dto.ReconciliationReport;
+import com.example.account.dto.TransactionSearch;
+import com.example.account.exception.AccountException;
+import com.example.account.service.AccountCountBackfillService;
+import com.example.account.service.HotAccountTracker;
+import com.example.account.service.JfrRecordingService;
+import com.example.account.service.ReconciliationService;
+import com.example.account.service.SpendingRollupRebuildService;
+import com.example.account.service.TransactionArchiveService;
+import com.example.account.service.TransactionPeriodService;
+import com.example.account.service.TransactionSearchService;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.HotAccountMetric;
+import com.example.account.type.MismatchType;
+import com.example.account.type.ReconciliationStatus;
+import com.example.account.type.TransactionResultType;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(AdminController.class)
+class AdminControllerTest {
+    @MockBean
+    private AccountCountBackfillService accountCountBackfillService;
+
+    @MockBean
+    private HotAccountTracker hotAccountTracker;
+
+    @MockBean
+    private JfrRecordingService jfrRecordingService;
+
+    @MockBean
+    private TransactionSearchService transactionSearchService;
+
+    @MockBean
+    private SpendingRollupRebuildService spendingRollupRebuildService;
+
+    @MockBean
+    private ReconciliationService reconciliationService;
+
+    @MockBean
+    private TransactionArchiveService transactionArchiveService;
+
+    @MockBean
+    private TransactionPeriodService transactionPeriodService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void successBackfillAccountCount() throws Exception {
+        //given
+        given(accountCountBackfillService.backfill())
+                .willReturn(3);
+
+        //when
+        //then
+        mockMvc.perform(post("/admin/account-count/backfill"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().string("3"));
+    }
+
+    @Test
+    void successVerifyAccountCount() throws Exception {
+        //given
+        given(accountCountBackfillService.verify())
+                .willReturn(Arrays.asList(AccountCountMismatch.builder()
+                        .userId(1L)
+                        .storedCount(2)
+                        .actualCount(1)
+                        .build()));
+
+        //when
+        //then
+        mockMvc.perform(get("/admin/account-count/verify"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].userId").value(1))
+                .andExpect(jsonPath("$[0].storedCount").value(2))
+                .andExpect(jsonPath("$[0].actualCount").value(1));
+    }
+
+    @Test
+    void successGetHotAccounts() throws Exception {
+        //given
+        given(hotAccountTracker.top(HotAccountMetric.LOCK_FAILURES, 5))
+                .willReturn(Arrays.asList(HotAccount.builder()
+                        .accountNumber("1000000000")
+                        .metric(HotAccountMetric.LOCK_FAILURES)
+                        .count(120L)
+                        .windowSeconds(60L)
+                        .build()));
+
+        //when
+        //then
+        mockMvc.perform(get("/admin/hot-accounts?metric=LOCK_FAILURES&limit=5"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].accountNumber").value("1000000000"))
+                .andExpect(jsonPath("$[0].count").value(120));
+    }
+
+    @Test
+    void successStartJfr() throws Exception {
+        //given
+        given(jfrRecordingService.start(10L))
+                .willReturn(7L);
+
+        //when
+        //then
+        mockMvc.perform(post("/admin/jfr?seconds=10"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().string("7"));
+    }
+
+    @Test
+    void failStartJfr_alreadyRecording() throws Exception {
+        //given
+        given(jfrRecordingService.start(30L))
+                .willThrow(AccountException.of(ErrorCode.JFR_RECORDING_IN_PROGRESS));
+
+        //when
+        //then
+        mockMvc.perform(post("/admin/jfr"))
+                .andDo(print())
+                .andExpect(jsonPath("$.errorCode").value("JFR_RECORDING_IN_PROGRESS"));
+    }
+
+    @Test
+    void successDownloadJfr() throws Exception {
+        //given
+        Path file = Files.createTempFile("account-", ".jfr");
+        Files.write(file, new byte[]{1, 2, 3});
+        given(jfrRecordingService.take(7L))
+                .willReturn(file);
+
+        //when
+        MvcResult result = mockMvc.perform(get("/admin/jfr/7"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(result))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"account.jfr\""))
+                .andExpect(content().bytes(new byte[]{1, 2, 3}));
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void failDownloadJfr_notFound() throws Exception {
+        //given
+        given(jfrRecordingService.take(7L))
+                .willThrow(AccountException.of(ErrorCode.JFR_RECORDING_NOT_FOUND));
+
+        //when
+        //then
+        mockMvc.perform(get("/admin/jfr/7"))
+                .andDo(print())
+                .andExpect(jsonPath("$.errorCode").value("JFR_RECORDING_NOT_FOUND"));
+    }
+
+    @Test
+    void successSearchTransactions() throws Exception {
+        //given
+        given(transactionSearchService.search(any()))
+                .willReturn(TransactionSearch.Response.builder()
+                        .transactions(Collections.emptyList())
+                        .nextCursor("next")
+                        .build());
+        ArgumentCaptor<TransactionSearch.Condition> captor =
+                ArgumentCaptor.forClass(TransactionSearch.Condition.class);
+
+        //when
+        //then
+        mockMvc.perform(get("/admin/transactions?account_number=1000000000"
+                        + "&transaction_result=F&min_amount=100&from=2022-10-01T00:00:00"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+        verify(transactionSearchService).search(captor.capture());
+        assertEquals("1000000000", captor.getValue().getAccountNumber());
+        assertEquals(TransactionResultType.F, captor.getValue().getTransactionResultType());
+        assertEquals(100L, captor.getValue().getMinAmount());
+        assertNull(captor.getValue().getMaxAmount());
+    }
+
+    @Test
+    void failStartReconciliation_alreadyRunning() throws Exception {
+        //given
+        given(reconciliationService.start(true))
+                .willThrow(AccountException.of(ErrorCode.RECONCILIATION_IN_PROGRESS));
+
+        //when
+        //then
+        mockMvc.perform(post("/admin/reconciliation?full=true"))
+                .andDo(print())
+                .andExpect(jsonPath("$.errorCode").value("RECONCILIATION_IN_PROGRESS"));
+    }
+
+    @Test
+    void successGetReconciliation() throws Exception {
+        //given
+        given(reconciliationService.report(7L))
+                .willReturn(ReconciliationReport.builder()
+                        .runId(7L)
+                        .status(ReconciliationStatus.COMPLETED)
+                        .mismatchCount(1L)
+                        .mismatches(Collections.singletonList(ReconciliationReport.Mismatch.builder()
+                                .accountNumber("1000000000")
+                                .mismatchType(MismatchType.BALANCE)
+                                .expected(1000L)
+                                .actual(900L)
+                                .build()))
+                        .build());
+
+        //when
+        //then
+        mockMvc.perform(get("/admin/reconciliation?run_id=7"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.mismatches[0].accountNumber").value("1000000000"))
+                .andExpect(jsonPath("$.mismatches[0].mismatchType").value("BALANCE"));
+    }
+}
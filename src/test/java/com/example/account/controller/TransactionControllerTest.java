@@ -2,9 +2,12 @@ package com.example.account.controller;
 
 import com.example.account.dto.AccountDto;
 import com.example.account.dto.CancelBalance;
+import com.example.account.dto.QueryTransactionBatch;
 import com.example.account.dto.TransactionDto;
 import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
 import com.example.account.service.TransactionService;
+import com.example.account.type.ErrorCode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,16 +17,21 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static com.example.account.type.TransactionResultType.S;
 import static com.example.account.type.TransactionType.USE;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -118,6 +126,7 @@ class TransactionControllerTest {
         //위에 given에서 anyString()이므로 transactionId 아무값이나 12345 와도 됌
         mockMvc.perform(get("/transaction/12345"))
                 .andDo(print())
+                .andExpect(header().string("ETag", "\"12345\""))
                 .andExpect(status().isOk())
                 // "$.accountNumber : 최상위 구조에 accountNumber가 들어가 있을 것이다
                 // UseBalance.response 에 대해 확인해 보자, transactedAt은 생략하자
@@ -127,4 +136,63 @@ class TransactionControllerTest {
                 .andExpect(jsonPath("$.transactionId").value("transactionIdForCancel"))
                 .andExpect(jsonPath("$.amount").value(54321));
     }
-}
\ No newline at end of file
+
+    @Test
+    void notModifiedQueryTransaction() throws Exception {
+        //given
+        //when
+        //then
+        // ETag 는 찾은 거래에만 주므로 같으면 거래를 읽지 않고 304
+        mockMvc.perform(get("/transaction/12345")
+                        .header("If-None-Match", "\"12345\""))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"12345\""))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, private"));
+        verify(transactionService, never()).queryTransaction(anyString());
+    }
+
+    @Test
+    void failQueryTransaction_notFoundHasNoETag() throws Exception {
+        //given
+        given(transactionService.queryTransaction("12345"))
+                .willThrow(AccountException.of(ErrorCode.TRANSACTION_NOT_FOUND));
+        //when
+        //then
+        // 없는 거래의 에러 응답에는 ETag 를 붙이지 않음 => 클라이언트가 이 id 로 304 를 받을 일이 없음
+        mockMvc.perform(get("/transaction/12345"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errorCode").value("TRANSACTION_NOT_FOUND"))
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(header().doesNotExist("Cache-Control"));
+    }
+
+    @Test
+    void successQueryTransactions() throws Exception {
+        //given
+        given(transactionService.queryTransactions(anyList()))
+                .willReturn(Collections.singletonMap("found", TransactionDto.builder()
+                        .accountNumber("1000000000")
+                        .transactionType(USE)
+                        .transactedAt(LocalDateTime.now())
+                        .amount(54321L)
+                        .transactionId("found")
+                        .transactionResultType(S)
+                        .build()));
+        //when
+        //then
+        mockMvc.perform(post("/transaction/query/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new QueryTransactionBatch.Request(Arrays.asList("missing", "found")))
+                        ))
+                .andDo(print())
+                .andExpect(status().isOk())
+                // 요청 순서대로, 없는 거래는 errorCode 로
+                .andExpect(jsonPath("$[0].transactionId").value("missing"))
+                .andExpect(jsonPath("$[0].errorCode").value("TRANSACTION_NOT_FOUND"))
+                .andExpect(jsonPath("$[1].transactionId").value("found"))
+                .andExpect(jsonPath("$[1].transaction.amount").value(54321));
+    }
+}
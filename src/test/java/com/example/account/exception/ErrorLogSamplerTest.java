@@ -0,0 +1,58 @@
+package com.example.account.exception;
+
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorLogSamplerTest {
+
+    @Test
+    void logOncePerInterval() {
+        //given
+        ErrorLogSampler sampler = new ErrorLogSampler(1, TimeUnit.HOURS);
+
+        //when
+        long first = sampler.sample(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        long second = sampler.sample(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        long third = sampler.sample(ErrorCode.AMOUNT_EXCEED_BALANCE);
+
+        //then
+        assertEquals(0, first);
+        assertEquals(-1, second);
+        assertEquals(-1, third);
+        // 다른 ErrorCode 는 따로 셈
+        assertEquals(0, sampler.sample(ErrorCode.USER_ACCOUNT_UN_MATCH));
+    }
+
+    @Test
+    void reportSuppressedCountOnNextLog() throws InterruptedException {
+        //given
+        ErrorLogSampler sampler = new ErrorLogSampler(50, TimeUnit.MILLISECONDS);
+        sampler.sample(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        sampler.sample(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        sampler.sample(ErrorCode.AMOUNT_EXCEED_BALANCE);
+
+        //when
+        Thread.sleep(60);
+        long suppressed = sampler.sample(ErrorCode.AMOUNT_EXCEED_BALANCE);
+
+        //then
+        // 그 사이 생략된 2건을 알려줌
+        assertEquals(2, suppressed);
+    }
+
+    @Test
+    void preallocatedExceptionIsStackless() {
+        //given
+        AccountException exception = AccountException.of(ErrorCode.AMOUNT_EXCEED_BALANCE);
+
+        //when
+        //then
+        assertSame(exception, AccountException.of(ErrorCode.AMOUNT_EXCEED_BALANCE));
+        assertEquals(0, exception.getStackTrace().length);
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE.getDescription(), exception.getErrorMessage());
+    }
+}
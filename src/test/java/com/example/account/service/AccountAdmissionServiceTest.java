@@ -0,0 +1,122 @@
+package com.example.account.service;
+
+import com.example.account.exception.RetryableAccountException;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountAdmissionServiceTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void rejectOverMaxInFlight() {
+        //given
+        AccountAdmissionService admissionService = admissionService(2, 1000);
+        admissionService.admit("1000000000");
+        admissionService.admit("1000000001");
+
+        //when
+        RetryableAccountException exception = assertThrows(RetryableAccountException.class,
+                () -> admissionService.admit("1000000002"));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        assertEquals(1.0, rejected("in_flight"));
+
+        // 하나 끝나면 다시 들어올 수 있음
+        admissionService.release("1000000000", -1);
+        admissionService.admit("1000000002");
+    }
+
+    @Test
+    void rejectWhenExpectedWaitExceedsBudget() {
+        //given
+        AccountAdmissionService admissionService = admissionService(100, 1000);
+        // 락 점유 시간이 400ms 인 계좌
+        admissionService.admit("1000000000");
+        admissionService.onLockAcquired("1000000000", 0);
+        admissionService.release("1000000000", TimeUnit.MILLISECONDS.toNanos(400));
+
+        admissionService.admit("1000000000");
+        admissionService.admit("1000000000");
+        admissionService.admit("1000000000"); // 앞에 2명 => 예상 대기 800ms
+
+        //when
+        // 앞에 3명 => 예상 대기 1200ms > 1000ms
+        RetryableAccountException exception = assertThrows(RetryableAccountException.class,
+                () -> admissionService.admit("1000000000"));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        assertEquals(1200L, exception.getRetryAfterMillis());
+        assertEquals(1.0, rejected("expected_wait"));
+        // 다른 계좌는 영향 없음
+        admissionService.admit("1000000001");
+    }
+
+    @Test
+    void rejectWhileQueueDelayStaysOverTarget() {
+        //given
+        AccountAdmissionService admissionService = admissionService(100, 1000);
+        admissionService.admit("1000000000");
+        admissionService.admit("1000000000");
+        // interval(0ms) 동안 계속 target(50ms) 을 넘는 대기 => dropping 상태
+        admissionService.onLockAcquired("1000000000", TimeUnit.MILLISECONDS.toNanos(200));
+        admissionService.onLockAcquired("1000000000", TimeUnit.MILLISECONDS.toNanos(200));
+
+        //when
+        assertThrows(RetryableAccountException.class,
+                () -> admissionService.admit("1000000000"));
+        // 대기열이 비고 대기 시간이 target 아래로 내려가면 다시 받음
+        admissionService.release("1000000000", -1);
+        admissionService.onLockAcquired("1000000000", TimeUnit.MILLISECONDS.toNanos(10));
+
+        //then
+        assertEquals(1.0, rejected("codel"));
+        admissionService.admit("1000000000");
+    }
+
+    @Test
+    void countLockTimeoutAsOverTargetDelay() {
+        //given
+        AccountAdmissionService admissionService = admissionService(100, 1000);
+        admissionService.admit("1000000000");
+        admissionService.admit("1000000000");
+        // 락 대기 시간(10ms)이 target(50ms) 보다 짧아도 시간 초과는 target 을 넘은 대기로 봄
+        admissionService.onLockTimeout("1000000000", TimeUnit.MILLISECONDS.toNanos(10));
+        admissionService.onLockTimeout("1000000000", TimeUnit.MILLISECONDS.toNanos(10));
+
+        //when
+        //then
+        assertThrows(RetryableAccountException.class,
+                () -> admissionService.admit("1000000000"));
+        assertEquals(1.0, rejected("codel"));
+    }
+
+    @Test
+    void disabled() {
+        //given
+        AccountAdmissionService admissionService = new AccountAdmissionService(
+                meterRegistry, false, 1, 1000, 50, 0);
+
+        //when
+        //then
+        for (int i = 0; i < 10; i++) {
+            admissionService.admit("1000000000");
+        }
+    }
+
+    private AccountAdmissionService admissionService(int maxInFlight, long waitBudgetMillis) {
+        return new AccountAdmissionService(meterRegistry, true, maxInFlight,
+                waitBudgetMillis, 50, 0);
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.counter("account.admission.rejected", "reason", reason).count();
+    }
+}
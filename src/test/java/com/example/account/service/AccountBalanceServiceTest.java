@@ -0,0 +1,472 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.OutboxEvent;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.AccountBalance;
+import com.example.account.dto.AccountDto;
+import com.example.account.dto.CancelBalance;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.OutboxEventRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static com.example.account.type.AccountStatus.IN_USE;
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+// 락 안에서 실행되는 잔액 변경 로직 테스트 (TransactionServiceTest 에서 옮겨옴)
+@ExtendWith(MockitoExtension.class)
+class AccountBalanceServiceTest {
+    public static final long USE_AMOUNT = 200L;
+    public static final long CANCEL_AMOUNT = 200L;
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private SpendingRollupService spendingRollupService;
+    @Mock
+    private TransactionPeriodService transactionPeriodService;
+
+    @Mock
+    private TransactionArchiveService transactionArchiveService;
+
+    @InjectMocks
+    private AccountBalanceService accountBalanceService;
+
+    @Test
+    void successUseBalance() {
+        //given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012").build();
+
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+
+        given(transactionRepository.save(any()))
+                .willReturn(Transaction.builder()
+                        .account(account)
+                        .transactionType(USE)
+                        .transactionResultType(S)
+                        .transactionId("transactionId")
+                        .transactedAt(LocalDateTime.now())
+                        .amount(1000L)
+                        .balanceSnapshot(9000L)
+                        .build());
+
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+
+        //when
+        Transaction transaction = accountBalanceService.useBalance(
+                new UseBalance.Request(12L, "1000000000", USE_AMOUNT));
+
+        //then
+        verify(transactionRepository, times(1)).save(captor.capture());
+        assertEquals(USE_AMOUNT, captor.getValue().getAmount());
+        // given 에 넣어준 최초 잔액이 10000원임
+        assertEquals(9800L, captor.getValue().getBalanceSnapshot());
+        assertEquals(S, transaction.getTransactionResultType());
+        assertEquals(USE, transaction.getTransactionType());
+        assertEquals(9000L, transaction.getBalanceSnapshot());
+        assertEquals(1000L, transaction.getAmount());
+        // 저장된 거래가 같은 트랜잭션에서 outbox 에도 들어감
+        ArgumentCaptor<OutboxEvent> outboxCaptor = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventRepository, times(1)).save(outboxCaptor.capture());
+        assertEquals("transactionId", outboxCaptor.getValue().getTransactionId());
+        assertEquals("1000000012", outboxCaptor.getValue().getAccountNumber());
+        assertNull(outboxCaptor.getValue().getPublishedAt());
+    }
+
+    @Test
+    @DisplayName("해당 계좌 없음 - 잔액 사용 실패")
+    void useBalance_AccountNotFound() {
+        //given
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.empty());
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountBalanceService.useBalance(
+                        new UseBalance.Request(1L, "1000000000", 1000L)));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("계좌 소유주 다름 - 잔액 사용 실패")
+    void useBalance_userUnMatch() {
+        //given
+        AccountUser harry = AccountUser.builder()
+                .name("Harry").build();
+        harry.setId(13L);
+        // 계좌번호의 user는 harry 이고 요청한 userId는 12(pobi) 이다
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(Account.builder()
+                        .accountUser(harry)
+                        .balance(0L)
+                        .accountNumber("1000000012").build()));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountBalanceService.useBalance(
+                        new UseBalance.Request(12L, "1234567890", 1000L)));
+
+        //then
+        assertEquals(ErrorCode.USER_ACCOUNT_UN_MATCH, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("해지 계좌는 사용할 수 없다")
+    void useBalance_alreadyUnregistered() {
+        //given
+        AccountUser pobi = AccountUser.builder()
+                .name("Pobi").build();
+        pobi.setId(12L);
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(Account.builder()
+                        .accountUser(pobi)
+                        .accountStatus(AccountStatus.UNREGISTERED) // 이미 해지된 상태!!!!
+                        .balance(0L)
+                        .accountNumber("1000000012").build()));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountBalanceService.useBalance(
+                        new UseBalance.Request(12L, "1234567890", 1000L)));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_ALREADY_UNREGISTERED, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("거래 금액이 잔액보다 큰 경우")
+    void exceedAmount_UseBalance() {
+        //given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(100L) // 처음 있는 잔액
+                .accountNumber("1000000012").build();
+
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+
+        //when
+        //then
+        // amount(사용할금액) 이 1000원일 때
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountBalanceService.useBalance(
+                        new UseBalance.Request(12L, "1234567890", 1000L)));
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+    }
+
+    @Test
+    void successCancelBalance() {
+        //given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012").build();
+
+        Transaction transaction = Transaction.builder() // 원래 거래
+                .account(account)
+                .transactionType(USE)
+                .transactionResultType(S)
+                .transactionId("transactionId")
+                .transactedAt(LocalDateTime.now())
+                .amount(CANCEL_AMOUNT)
+                .balanceSnapshot(9000L)
+                .build();
+
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+
+        given(transactionRepository.save(any()))
+                .willReturn(Transaction.builder()
+                        .account(account)
+                        .transactionType(CANCEL)
+                        .transactionResultType(S)
+                        .transactionId("transactionIdForCancel")
+                        .transactedAt(LocalDateTime.now())
+                        .amount(CANCEL_AMOUNT)
+                        .balanceSnapshot(10000L)
+                        .build());
+
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+
+        //when
+        Transaction cancelTransaction = accountBalanceService.cancelBalance(
+                new CancelBalance.Request("transactionId", "1000000000", CANCEL_AMOUNT),
+                transaction);
+
+        //then
+        verify(transactionRepository, times(1)).save(captor.capture());
+        assertEquals(CANCEL_AMOUNT, captor.getValue().getAmount());
+        // given 에 넣어준 최초 잔액(account)이 10000원임
+        assertEquals(10000L + CANCEL_AMOUNT, captor.getValue().getBalanceSnapshot());
+        assertEquals(S, cancelTransaction.getTransactionResultType());
+        assertEquals(CANCEL, cancelTransaction.getTransactionType());
+        assertEquals(10000L, cancelTransaction.getBalanceSnapshot());
+        assertEquals(CANCEL_AMOUNT, cancelTransaction.getAmount());
+    }
+
+    @Test
+    @DisplayName("해당 계좌 없음 - 잔액 사용 취소 실패")
+    void cancelTransaction_AccountNotFound() {
+        //given
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.empty());
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountBalanceService.cancelBalance(
+                        new CancelBalance.Request("transactionId", "1000000000", 1000L),
+                        Transaction.builder().build()));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("거래와 계좌가 매칭실패 - 잔액 사용 취소 실패")
+    void cancelTransaction_TransactionAccountUnMatch() {
+        //given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012").build();
+        account.setId(1L);
+
+        Account accountNotUse = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000013").build();
+        accountNotUse.setId(2L);
+
+        Transaction transaction = Transaction.builder()
+                .account(account) // account
+                .transactionType(USE)
+                .transactionResultType(S)
+                .transactionId("transactionId")
+                .transactedAt(LocalDateTime.now())
+                .amount(CANCEL_AMOUNT)
+                .balanceSnapshot(9000L)
+                .build();
+
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(accountNotUse)); // accountNotUse!!!!!!
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountBalanceService.cancelBalance(
+                        new CancelBalance.Request("transactionId", "1000000013", CANCEL_AMOUNT),
+                        transaction));
+
+        //then
+        assertEquals(ErrorCode.TRANSACTION_ACCOUNT_UN_MATCH, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("거래금액과 취소금액이 다름 - 잔액 사용 취소 실패")
+    void cancelTransaction_CancelMustFully() {
+        //given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012").build();
+
+        Transaction transaction = Transaction.builder()
+                .account(account)
+                .transactionType(USE)
+                .transactionResultType(S)
+                .transactionId("transactionId")
+                .transactedAt(LocalDateTime.now())
+                .amount(CANCEL_AMOUNT + 1000L)
+                .balanceSnapshot(9000L)
+                .build();
+
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+
+        //when
+        // 금액이 다름 !! transaction 은 CANCEL_AMOUNT + 1000 임
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountBalanceService.cancelBalance(
+                        new CancelBalance.Request("transactionId", "1000000000", CANCEL_AMOUNT),
+                        transaction));
+
+        //then
+        assertEquals(ErrorCode.CANCEL_MUST_FULLY, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("취소는 1년까지만 가능 - 잔액 사용 취소 실패")
+    void cancelTransaction_TooOldOrder() {
+        //given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012").build();
+
+        Transaction transaction = Transaction.builder()
+                .account(account)
+                .transactionType(USE)
+                .transactionResultType(S)
+                .transactionId("transactionId")
+                .transactedAt(LocalDateTime.now().minusYears(1)) // 1년 딱 돼도 실패임
+                .amount(CANCEL_AMOUNT)
+                .balanceSnapshot(9000L)
+                .build();
+
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountBalanceService.cancelBalance(
+                        new CancelBalance.Request("transactionId", "1000000000", CANCEL_AMOUNT),
+                        transaction));
+
+        //then
+        assertEquals(ErrorCode.TOO_OLD_ORDER_TO_CANCEL, exception.getErrorCode());
+    }
+
+    @Test
+    void getBalance_AccountNotFound() {
+        //given
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.empty());
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountBalanceService.getBalance(new AccountBalance.Request("1000000000")));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND, exception.getErrorCode());
+    }
+
+    @Test
+    void getBalanceAt_LastTransactionSnapshot() {
+        //given
+        Account account = registeredAccount();
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(transactionRepository
+                .findFirstByAccountAndTransactionResultTypeAndTransactedAtLessThanEqualOrderByTransactedAtDescIdDesc(
+                        any(), any(), any()))
+                .willReturn(Optional.of(Transaction.builder()
+                        .transactionType(USE)
+                        .amount(1000L)
+                        .balanceSnapshot(7000L)
+                        .build()));
+
+        //when
+        AccountDto accountDto = accountBalanceService.getBalanceAt(
+                "1000000012", LocalDateTime.now().minusDays(1));
+
+        //then
+        // 현재 잔액(10000)이 아니라 그 시점 마지막 거래 후 잔액
+        assertEquals(7000L, accountDto.getBalance());
+    }
+
+    @Test
+    void getBalanceAt_BeforeFirstTransaction() {
+        //given
+        Account account = registeredAccount();
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(transactionRepository
+                .findFirstByAccountAndTransactionResultTypeAndTransactedAtLessThanEqualOrderByTransactedAtDescIdDesc(
+                        any(), any(), any()))
+                .willReturn(Optional.empty());
+        given(transactionRepository
+                .findFirstByAccountAndTransactionResultTypeAndTransactedAtAfterOrderByTransactedAtAscIdAsc(
+                        any(), any(), any()))
+                .willReturn(Optional.of(Transaction.builder()
+                        .transactionType(USE)
+                        .amount(1000L)
+                        .balanceSnapshot(7000L)
+                        .build()));
+
+        //when
+        AccountDto accountDto = accountBalanceService.getBalanceAt(
+                "1000000012", LocalDateTime.now().minusDays(1));
+
+        //then
+        // 다음 거래(1000원 사용) 전의 잔액
+        assertEquals(8000L, accountDto.getBalance());
+    }
+
+    private static Account registeredAccount() {
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+        return Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012")
+                .registeredAt(LocalDateTime.now().minusYears(1))
+                .build();
+    }
+}
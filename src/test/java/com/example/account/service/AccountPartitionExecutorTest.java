@@ -0,0 +1,96 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.ExecutionMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountPartitionExecutorTest {
+    private AccountPartitionExecutor partitionExecutor;
+
+    @AfterEach
+    void tearDown() {
+        if (partitionExecutor != null) {
+            partitionExecutor.shutdown();
+        }
+    }
+
+    @Test
+    void sameAccountRunsOnSameThread() throws Throwable {
+        //given
+        partitionExecutor = new AccountPartitionExecutor(
+                ExecutionMode.PARTITION, 4, 10, 1000L);
+
+        //when
+        String first = partitionExecutor.execute("1000000000",
+                () -> Thread.currentThread().getName());
+        String second = partitionExecutor.execute("1000000000",
+                () -> Thread.currentThread().getName());
+
+        //then
+        assertTrue(partitionExecutor.isEnabled());
+        assertEquals(first, second);
+        assertTrue(first.startsWith("account-partition-"));
+    }
+
+    @Test
+    void exceptionIsRethrownAsIs() {
+        //given
+        partitionExecutor = new AccountPartitionExecutor(
+                ExecutionMode.PARTITION, 4, 10, 1000L);
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> partitionExecutor.execute("1000000000", () -> {
+                    throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+                }));
+
+        //then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+    }
+
+    @Test
+    void failFastWhenPartitionQueueIsFull() throws Exception {
+        //given
+        // 파티션 1개, 큐 1개 => 실행중 1건 + 대기 1건까지만 받음
+        partitionExecutor = new AccountPartitionExecutor(
+                ExecutionMode.PARTITION, 1, 1, 5000L);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        submit(clients, () -> {
+            running.countDown();
+            release.await();
+            return null;
+        });
+        running.await(1, TimeUnit.SECONDS);
+        submit(clients, () -> null);
+        Thread.sleep(100L); // 두번째 요청이 큐에 들어갈 때까지
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> partitionExecutor.execute("1000000000", () -> null));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        release.countDown();
+        clients.shutdown();
+    }
+
+    private void submit(ExecutorService clients, AccountPartitionExecutor.PartitionTask<Object> task) {
+        clients.submit(() -> {
+            try {
+                partitionExecutor.execute("1000000000", task);
+            } catch (Throwable ignored) {
+            }
+        });
+    }
+}
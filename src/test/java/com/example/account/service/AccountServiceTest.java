@@ -8,13 +8,16 @@ import com.example.account.repository.AccountUserRepository;
 import com.example.account.type.AccountStatus;
 import com.example.account.repository.AccountRepository;
 import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.Arrays;
 import java.util.Optional;
@@ -39,6 +42,12 @@ class AccountServiceTest {
     @Mock
     private AccountUserRepository accountUserRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy // 실제 SingleFlight 로 조회가 그대로 실행됨
+    private SingleFlight singleFlight = new SingleFlight(new SimpleMeterRegistry(), true, 1000L);
+
     @InjectMocks // 가짜로 만든 accountRepository와 accountUserRepository를
                  // accountService에 inject 시킴
     private AccountService accountService;
@@ -54,6 +63,9 @@ class AccountServiceTest {
         given(accountUserRepository.findById(anyLong()))
                 //optional타입의 accountUser가 생성되어야 한다. build를 통해 생성해보겠다
                 .willReturn(Optional.of(user));
+        // 사용중 계좌 수 조건부 증가 성공
+        given(accountUserRepository.increaseActiveAccountCount(anyLong(), anyInt()))
+                .willReturn(1);
         // findFirstByOrderByIdDesc
         given(accountRepository.findFirstByOrderByIdDesc())
                 .willReturn(Optional.of(Account.builder()
@@ -93,6 +105,8 @@ class AccountServiceTest {
         given(accountUserRepository.findById(anyLong()))
                 //optional타입의 accountUser가 생성되어야 한다. build를 통해 생성해보겠다
                 .willReturn(Optional.of(user));
+        given(accountUserRepository.increaseActiveAccountCount(anyLong(), anyInt()))
+                .willReturn(1);
         // findFirstByOrderByIdDesc
         given(accountRepository.findFirstByOrderByIdDesc())
                 .willReturn(Optional.empty()); // 아무 계좌도 없는 상황일 때
@@ -161,8 +175,9 @@ class AccountServiceTest {
         user.setId(15L);
         given(accountUserRepository.findById(anyLong()))
                 .willReturn(Optional.of(user));
-        given(accountRepository.countByAccountUser(any())) // 아무값을 넣어도
-                .willReturn(10); // 10을 리턴할 것이다!
+        // 이미 10개라서 조건부 증가가 안됨 => 업데이트된 row 가 0
+        given(accountUserRepository.increaseActiveAccountCount(anyLong(), anyInt()))
+                .willReturn(0);
 
         //when
         AccountException exception = assertThrows(AccountException.class,
@@ -170,6 +185,7 @@ class AccountServiceTest {
 
         //then
         assertEquals(ErrorCode.MAX_ACCOUNT_PER_USER_10, exception.getErrorCode());
+        verify(accountRepository, times(0)).save(any()); // 계좌는 저장되지 않아야 함
     }
 
 
@@ -204,6 +220,8 @@ class AccountServiceTest {
         assertEquals(12L, accountDto.getUserid()); // captor 사용 x -> 임의로 user 생성한거여서..?
         assertEquals("1000000012", captor.getValue().getAccountNumber());
         assertEquals(AccountStatus.UNREGISTERED, captor.getValue().getAccountStatus());
+        // 해지하면 사용중 계좌 수도 1 줄여줌
+        verify(accountUserRepository, times(1)).decreaseActiveAccountCount(12L);
     }
 
     // delete에 대해 실패 케이스
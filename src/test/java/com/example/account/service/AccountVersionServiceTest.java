@@ -0,0 +1,151 @@
+package com.example.account.service;
+
+import com.example.account.dto.AccountChange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.BatchResult;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RAtomicLongAsync;
+import org.redisson.api.RBatch;
+import org.redisson.api.RKeys;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.misc.CompletableFutureWrapper;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccountVersionServiceTest {
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RAtomicLong counter;
+
+    @Mock
+    private RBatch batch;
+
+    @Mock
+    private RAtomicLongAsync userCounter;
+
+    @Mock
+    private RAtomicLongAsync accountCounter;
+
+    @Mock
+    private RKeys keys;
+
+    @InjectMocks
+    private AccountVersionService accountVersionService;
+
+    @Test
+    void seedMissingVersionWithCurrentTime() {
+        //given
+        long before = System.currentTimeMillis() * 1000;
+        given(redissonClient.getAtomicLong("ACVER:user:1"))
+                .willReturn(counter);
+        given(counter.get())
+                .willReturn(0L, 1_666_000_000_000_000L);
+        ArgumentCaptor<Long> seed = ArgumentCaptor.forClass(Long.class);
+
+        //when
+        String eTag = accountVersionService.userETag(1L);
+
+        //then
+        // redis 가 비워졌어도 예전 버전과 겹치지 않도록 현재 시간(ms) * 1000 부터
+        verify(counter, times(1)).compareAndSet(eq(0L), seed.capture());
+        assertTrue(seed.getValue() >= before);
+        assertTrue(seed.getValue() <= System.currentTimeMillis() * 1000);
+        assertEquals("\"1666000000000000\"", eTag);
+    }
+
+    @Test
+    void keepExistingVersion() {
+        //given
+        given(redissonClient.getAtomicLong("ACVER:account:1000000000"))
+                .willReturn(counter);
+        given(counter.get())
+                .willReturn(42L);
+
+        //when
+        String eTag = accountVersionService.accountETag("1000000000");
+
+        //then
+        assertEquals("\"42\"", eTag);
+        verify(counter, never()).compareAndSet(anyLong(), anyLong());
+    }
+
+    @Test
+    void noETagWhenRedisFails() {
+        //given
+        given(redissonClient.getAtomicLong("ACVER:user:1"))
+                .willReturn(counter);
+        given(counter.get())
+                .willThrow(new RedisException("connection refused"));
+
+        //when
+        String eTag = accountVersionService.userETag(1L);
+
+        //then
+        // ETag 가 없으면 304 를 주지 않음
+        assertNull(eTag);
+    }
+
+    @Test
+    void bumpUserAndAccountVersionInOneBatchWithoutWaiting() {
+        //given
+        CompletableFuture<BatchResult<?>> result = new CompletableFuture<>();
+        given(redissonClient.createBatch())
+                .willReturn(batch);
+        doReturn(userCounter).when(batch).getAtomicLong("ACVER:user:1");
+        doReturn(accountCounter).when(batch).getAtomicLong("ACVER:account:1000000000");
+        doReturn(new CompletableFutureWrapper<>(result)).when(batch).executeAsync();
+
+        //when
+        // 아직 Redis 응답이 오지 않았어도 돌아옴 => 커밋 뒤 리스너가 계좌 락을 잡고 있는 시간을 늘리지 않음
+        accountVersionService.onAccountChange(new AccountChange(1L, "1000000000"));
+
+        //then
+        // 없으면 시간으로 시작하고 올림, 왕복 한 번
+        verify(userCounter, times(1)).compareAndSetAsync(eq(0L), anyLong());
+        verify(userCounter, times(1)).incrementAndGetAsync();
+        verify(accountCounter, times(1)).compareAndSetAsync(eq(0L), anyLong());
+        verify(accountCounter, times(1)).incrementAndGetAsync();
+        verify(batch, times(1)).executeAsync();
+        verify(batch, never()).execute();
+        result.complete(null);
+        verify(redissonClient, never()).getKeys();
+    }
+
+    @Test
+    void resetVersionWhenBumpFails() {
+        //given
+        CompletableFuture<BatchResult<?>> result = new CompletableFuture<>();
+        given(redissonClient.createBatch())
+                .willReturn(batch);
+        doReturn(userCounter).when(batch).getAtomicLong(anyString());
+        doReturn(new CompletableFutureWrapper<>(result)).when(batch).executeAsync();
+        given(redissonClient.getKeys())
+                .willReturn(keys);
+        given(keys.deleteAsync("ACVER:user:1", "ACVER:account:1000000000"))
+                .willReturn(new CompletableFutureWrapper<>(2L));
+        accountVersionService.onAccountChange(new AccountChange(1L, "1000000000"));
+
+        //when
+        result.completeExceptionally(new RedisException("timeout"));
+
+        //then
+        // 예전 ETag 로 304 가 나가지 않도록 지워서 다음 조회에서 새로 시작
+        verify(keys, times(1)).deleteAsync("ACVER:user:1", "ACVER:account:1000000000");
+    }
+}
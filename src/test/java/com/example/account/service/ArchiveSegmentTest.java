@@ -0,0 +1,166 @@
+package com.example.account.service;
+
+import com.example.account.dto.ArchivedTransaction;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveSegmentTest {
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findWrittenTransactionAfterReopen() throws Exception {
+        //given
+        Path path = directory.resolve("segment.seg");
+        try (ArchiveSegment.Writer writer = ArchiveSegment.writer(path, LocalDate.of(2021, 1, 1), 16)) {
+            for (long accountId = 1; accountId <= 10; accountId++) {
+                for (int i = 0; i < 10; i++) {
+                    writer.add(transaction(accountId, i));
+                }
+            }
+            writer.finish();
+        }
+
+        //when
+        ArchiveSegment segment = ArchiveSegment.open(path);
+
+        //then
+        assertEquals(LocalDate.of(2021, 1, 1), segment.getCutoff());
+        ArchivedTransaction found = segment.find("tx-7-3").orElseThrow(AssertionError::new);
+        assertEquals(7L, found.getAccountId());
+        assertEquals(START.plusHours(3).plusNanos(123_000), found.getTransactedAt());
+        assertFalse(segment.find("tx-11-0").isPresent());
+        assertFalse(Files.exists(directory.resolve("segment.seg.tmp")));
+    }
+
+    @Test
+    void findManyTransactionsAcrossBlocks() throws Exception {
+        //given
+        Path path = directory.resolve("segment.seg");
+        ArchiveSegment segment;
+        try (ArchiveSegment.Writer writer = ArchiveSegment.writer(path, LocalDate.of(2021, 1, 1), 4)) {
+            for (long accountId = 1; accountId <= 3; accountId++) {
+                for (int i = 0; i < 10; i++) {
+                    writer.add(transaction(accountId, i));
+                }
+            }
+            segment = writer.finish();
+        }
+        Map<String, ArchivedTransaction> found = new HashMap<>();
+        ArchivedTransaction newer = transaction(9L, 0);
+        found.put("tx-3-9", newer); // 더 최신 세그먼트에서 이미 찾은 거래
+
+        //when
+        segment.findAll(Arrays.asList("tx-1-0", "tx-1-1", "tx-2-5", "tx-3-9", "tx-4-0"), found);
+
+        //then
+        // 같은 블록의 tx-1-0, tx-1-1 도, 다른 블록의 tx-2-5 도 찾고 이미 찾은 것은 그대로
+        assertEquals(4, found.size());
+        assertEquals(1L, found.get("tx-1-1").getAccountId());
+        assertEquals(2L, found.get("tx-2-5").getAccountId());
+        assertSame(newer, found.get("tx-3-9"));
+        assertFalse(found.containsKey("tx-4-0"));
+    }
+
+    @Test
+    void scanAccountInBothDirections() throws Exception {
+        //given
+        Path path = directory.resolve("segment.seg");
+        ArchiveSegment segment;
+        try (ArchiveSegment.Writer writer = ArchiveSegment.writer(path, LocalDate.of(2021, 1, 1), 4)) {
+            for (long accountId = 1; accountId <= 3; accountId++) {
+                for (int i = 0; i < 10; i++) {
+                    writer.add(transaction(accountId, i));
+                }
+            }
+            segment = writer.finish();
+        }
+
+        //when
+        List<ArchivedTransaction> latest = new ArrayList<>();
+        segment.scan(2L, null, START.plusHours(5), true, transaction -> true, latest, 2);
+        List<ArchivedTransaction> oldest = new ArrayList<>();
+        segment.scan(2L, START.plusHours(8), null, false, transaction -> true, oldest, 5);
+
+        //then
+        assertEquals(2, latest.size());
+        assertEquals("tx-2-4", latest.get(0).getTransactionId());
+        assertEquals("tx-2-3", latest.get(1).getTransactionId());
+        assertEquals(2, oldest.size());
+        assertEquals("tx-2-8", oldest.get(0).getTransactionId());
+    }
+
+    @Test
+    void skipSegmentByAccountRangeAndSegmentBloom() throws Exception {
+        //given
+        Path path = directory.resolve("segment.seg");
+        try (ArchiveSegment.Writer writer = ArchiveSegment.writer(path, LocalDate.of(2021, 1, 1), 4)) {
+            for (long accountId = 3; accountId <= 5; accountId++) {
+                for (int i = 0; i < 10; i++) {
+                    writer.add(transaction(accountId, i));
+                }
+            }
+            writer.finish();
+        }
+
+        //when
+        ArchiveSegment segment = ArchiveSegment.open(path);
+
+        //then
+        // 블록을 보기 전에 세그먼트 단위로 거름
+        assertEquals(3L, segment.getMinAccountId());
+        assertEquals(5L, segment.getMaxAccountId());
+        assertTrue(segment.overlaps(4L, START.plusHours(9), null));
+        assertFalse(segment.overlaps(6L, null, null));
+        assertFalse(segment.overlaps(4L, START.plusHours(10), null));
+        assertTrue(segment.mightContain("tx-5-9"));
+        assertFalse(segment.mightContain("tx-1-0"));
+    }
+
+    @Test
+    void unfinishedSegmentLeavesNoFile() throws Exception {
+        //given
+        Path path = directory.resolve("segment.seg");
+
+        //when
+        try (ArchiveSegment.Writer writer = ArchiveSegment.writer(path, LocalDate.of(2021, 1, 1), 16)) {
+            writer.add(transaction(1L, 0));
+        }
+
+        //then
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private static ArchivedTransaction transaction(long accountId, int index) {
+        return ArchivedTransaction.builder()
+                .id(accountId * 100 + index)
+                .accountId(accountId)
+                .accountNumber(String.valueOf(1_000_000_000L + accountId))
+                .transactionType(TransactionType.USE)
+                .transactionResultType(TransactionResultType.S)
+                .amount(100L)
+                .balanceSnapshot(10_000L - 100L * (index + 1))
+                .transactionId("tx-" + accountId + "-" + index)
+                .transactedAt(START.plusHours(index).plusNanos(123_000))
+                .build();
+    }
+}
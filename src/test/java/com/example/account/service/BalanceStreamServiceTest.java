@@ -0,0 +1,184 @@
+package com.example.account.service;
+
+import com.example.account.dto.AccountDto;
+import com.example.account.dto.BalanceChange;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceStreamServiceTest {
+    private static final String ACCOUNT_NUMBER = "1000000000";
+
+    @Mock
+    private AccountService accountService;
+
+    @Mock
+    private AccountBalanceService accountBalanceService;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RTopic topic;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private BalanceStreamService service;
+
+    @BeforeEach
+    void setUp() {
+        given(redissonClient.getTopic(anyString(), any(Codec.class)))
+                .willReturn(topic);
+        service = spy(new BalanceStreamService(accountService, accountBalanceService, redissonClient,
+                objectMapper, meterRegistry, 100, 2, 60000L, 3600L, 1));
+        service.start();
+        given(accountService.getAccountsByUserId(anyLong()))
+                .willReturn(Collections.singletonList(account(0L)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void fanOutToEverySubscriberOfAccount() throws Exception {
+        //given
+        SseEmitter first = mock(SseEmitter.class);
+        SseEmitter second = mock(SseEmitter.class);
+        doReturn(first, second).when(service).newEmitter();
+        given(accountBalanceService.getBalances(any()))
+                .willReturn(Collections.singletonMap(ACCOUNT_NUMBER, account(1000L)));
+        service.subscribe(1L);
+        service.subscribe(2L);
+
+        //when
+        service.dispatch(message(700L));
+
+        //then
+        // 현재 잔액 1000 다음에 변경된 잔액 700
+        for (SseEmitter emitter : new SseEmitter[]{first, second}) {
+            ArgumentCaptor<SseEmitter.SseEventBuilder> captor =
+                    ArgumentCaptor.forClass(SseEmitter.SseEventBuilder.class);
+            verify(emitter, timeout(1000).times(2)).send(captor.capture());
+            assertTrue(dataOf(captor.getAllValues().get(0)).contains("\"balance\":1000"));
+            assertTrue(dataOf(captor.getAllValues().get(1)).contains("\"balance\":700"));
+        }
+        assertEquals(2.0, subscribers());
+    }
+
+    @Test
+    void disconnectWhenBufferOverflowsBeforeSnapshotIsSent() throws Exception {
+        //given
+        SseEmitter emitter = mock(SseEmitter.class);
+        doReturn(emitter).when(service).newEmitter();
+        // 현재 잔액을 읽는 사이 버퍼(2개)보다 많은 이벤트가 들어옴
+        given(accountBalanceService.getBalances(any()))
+                .willAnswer(invocation -> {
+                    service.dispatch(message(1L));
+                    service.dispatch(message(2L));
+                    service.dispatch(message(3L));
+                    return Collections.singletonMap(ACCOUNT_NUMBER, account(1000L));
+                });
+        doThrow(new IllegalStateException("completed")).when(emitter).send(any(SseEmitter.SseEventBuilder.class));
+
+        //when
+        service.subscribe(1L);
+        service.dispatch(message(4L));
+
+        //then
+        // 끊긴 구독자는 등록에서도 빠짐 => 더 보내지 않고 구독자 수도 0
+        verify(emitter, times(1)).complete();
+        verify(emitter, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+        assertEquals(0.0, subscribers());
+        assertEquals(1.0, meterRegistry.counter("account.balance_stream.overflow").count());
+    }
+
+    @Test
+    void sendHeartbeatToIdleSubscriber() throws Exception {
+        //given
+        SseEmitter emitter = mock(SseEmitter.class);
+        doReturn(emitter).when(service).newEmitter();
+        given(accountBalanceService.getBalances(any()))
+                .willReturn(Collections.emptyMap());
+        service.subscribe(1L);
+
+        //when
+        service.sendHeartbeats();
+
+        //then
+        ArgumentCaptor<SseEmitter.SseEventBuilder> captor = ArgumentCaptor.forClass(SseEmitter.SseEventBuilder.class);
+        verify(emitter, timeout(1000).times(1)).send(captor.capture());
+        assertTrue(dataOf(captor.getValue()).contains(":heartbeat"));
+    }
+
+    @Test
+    void stopSendingAfterUnsubscribe() throws Exception {
+        //given
+        SseEmitter emitter = mock(SseEmitter.class);
+        doReturn(emitter).when(service).newEmitter();
+        given(accountBalanceService.getBalances(any()))
+                .willReturn(Collections.emptyMap());
+        ArgumentCaptor<Runnable> onCompletion = ArgumentCaptor.forClass(Runnable.class);
+        service.subscribe(1L);
+        verify(emitter).onCompletion(onCompletion.capture());
+
+        //when
+        onCompletion.getValue().run();
+        onCompletion.getValue().run(); // 여러 번 불려도 한 번만 빠짐
+        service.dispatch(message(700L));
+        service.sendHeartbeats();
+
+        //then
+        verify(emitter, after(200).never()).send(any(SseEmitter.SseEventBuilder.class));
+        assertEquals(0.0, subscribers());
+    }
+
+    private static AccountDto account(Long balance) {
+        return AccountDto.builder()
+                .accountNumber(ACCOUNT_NUMBER)
+                .balance(balance)
+                .build();
+    }
+
+    private String message(Long balance) throws Exception {
+        return objectMapper.writeValueAsString(new BalanceChange(ACCOUNT_NUMBER, balance, null, null));
+    }
+
+    private double subscribers() {
+        return meterRegistry.get("account.balance_stream.subscribers").gauge().value();
+    }
+
+    private static String dataOf(SseEmitter.SseEventBuilder event) {
+        List<String> parts = event.build().stream()
+                .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                .map(String::valueOf)
+                .collect(Collectors.toList());
+        return String.join("", parts);
+    }
+}
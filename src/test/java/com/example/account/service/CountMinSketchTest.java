@@ -0,0 +1,39 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountMinSketchTest {
+
+    @Test
+    void keysWithSameHashCodeDoNotShareAllRows() {
+        //given
+        // "Aa" 와 "BB" 는 String.hashCode() 가 같음
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        CountMinSketch sketch = new CountMinSketch(4, 1024);
+
+        //when
+        sketch.add("Aa", 100);
+
+        //then
+        assertEquals(100, sketch.estimate("Aa"));
+        assertEquals(0, sketch.estimate("BB"));
+    }
+
+    @Test
+    void estimateNeverUnderCounts() {
+        //given
+        CountMinSketch sketch = new CountMinSketch(4, 64); // 키보다 칸이 적어서 겹침
+
+        //when
+        for (int i = 0; i < 1000; i++) {
+            sketch.add(String.valueOf(1_000_000_000L + i), i % 7 + 1);
+        }
+
+        //then
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(sketch.estimate(String.valueOf(1_000_000_000L + i)) >= i % 7 + 1);
+        }
+    }
+}
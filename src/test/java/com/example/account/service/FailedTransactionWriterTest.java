@@ -0,0 +1,291 @@
+package com.example.account.service;
+
+import com.example.account.type.ErrorCode;
+import com.example.account.type.OverflowPolicy;
+import com.example.account.type.TransactionType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.dialect.H2Dialect;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class FailedTransactionWriterTest {
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void writeBatchWithBulkAccountLookup() {
+        //given
+        FailedTransactionWriter writer = writer(10, OverflowPolicy.DROP);
+        Map<String, Object> account = new HashMap<>();
+        account.put("id", 7L);
+        account.put("account_number", "1000000000");
+        account.put("balance", 10000L);
+        given(jdbcTemplate.queryForList(anyString(), any(Object[].class), any(int[].class)))
+                .willReturn(Collections.singletonList(account));
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+
+        //when
+        writer.write(Arrays.asList(
+                record(USE, "1000000000"),
+                record(CANCEL, "1000000000"),
+                record(USE, "9999999999"))); // 없는 계좌
+
+        //then
+        // 계좌 조회 한 번, insert 는 batch 한 번
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), any(Object[].class), any(int[].class));
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), captor.capture());
+        assertEquals(2, captor.getValue().size());
+        Object[] row = captor.getValue().get(0);
+        assertEquals(7L, row[0]);
+        assertEquals("USE", row[1]);
+        assertEquals(10000L, row[3]); // 실패 거래이므로 잔액 그대로
+        assertEquals(1.0, meterRegistry.counter("account.failed_writer.unknown_account").count());
+    }
+
+    @Test
+    void dropWhenQueueIsFull() {
+        //given
+        FailedTransactionWriter writer = writer(1, OverflowPolicy.DROP);
+
+        //when
+        writer.record(USE, "1000000000", 1000L, ErrorCode.AMOUNT_EXCEED_BALANCE);
+        writer.record(USE, "1000000000", 1000L, ErrorCode.AMOUNT_EXCEED_BALANCE);
+
+        //then
+        assertEquals(1.0, meterRegistry.counter("account.failed_writer.dropped").count());
+    }
+
+    @Test
+    void spillWhenQueueIsFullAndReplay() throws Exception {
+        //given
+        FailedTransactionWriter writer = writer(1, OverflowPolicy.SPILL);
+        writer.record(USE, "1000000000", 1000L, ErrorCode.AMOUNT_EXCEED_BALANCE);
+        writer.record(CANCEL, "1000000001", 2000L, ErrorCode.CANCEL_MUST_FULLY);
+        Path spillFile = tempDir.resolve("failed.spill");
+        given(jdbcTemplate.queryForList(anyString(), any(Object[].class), any(int[].class)))
+                .willReturn(Collections.emptyList());
+
+        //when
+        List<String> lines = Files.readAllLines(spillFile);
+        writer.replaySpill();
+
+        //then
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).startsWith("CANCEL,2000,"));
+        assertEquals(1.0, meterRegistry.counter("account.failed_writer.spilled").count());
+        // 다시 저장하고 나면 파일은 지워짐
+        assertFalse(Files.exists(spillFile));
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), any(Object[].class), any(int[].class));
+    }
+
+    @Test
+    void spillBatchWhenWriteFails() throws Exception {
+        //given
+        FailedTransactionWriter writer = writer(10, OverflowPolicy.SPILL);
+        given(jdbcTemplate.queryForList(anyString(), any(Object[].class), any(int[].class)))
+                .willThrow(new CannotGetJdbcConnectionException("db down"));
+
+        //when
+        writer.writeOrOverflow(Arrays.asList(record(USE, "1000000000"), record(CANCEL, "1000000001")));
+
+        //then
+        // DB 가 죽어도 기록은 파일에 남아서 나중에 다시 저장됨
+        assertEquals(2, Files.readAllLines(tempDir.resolve("failed.spill")).size());
+        assertEquals(2.0, meterRegistry.counter("account.failed_writer.spilled").count());
+        assertEquals(0.0, meterRegistry.counter("account.failed_writer.dropped").count());
+    }
+
+    @Test
+    void countDroppedBatchWhenWriteFails() {
+        //given
+        FailedTransactionWriter writer = writer(10, OverflowPolicy.DROP);
+        given(jdbcTemplate.queryForList(anyString(), any(Object[].class), any(int[].class)))
+                .willThrow(new CannotGetJdbcConnectionException("db down"));
+
+        //when
+        writer.writeOrOverflow(Arrays.asList(record(USE, "1000000000"), record(CANCEL, "1000000001")));
+
+        //then
+        // 조용히 사라지지 않고 버린 수로 보임
+        assertEquals(2.0, meterRegistry.counter("account.failed_writer.dropped").count());
+        assertFalse(Files.exists(tempDir.resolve("failed.spill")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replaySkipsMalformedAndTornLines() throws Exception {
+        //given
+        FailedTransactionWriter writer = writer(1, OverflowPolicy.SPILL);
+        Path spillFile = tempDir.resolve("failed.spill");
+        FailedTransactionWriter.FailedRecord commaAccount = new FailedTransactionWriter.FailedRecord(
+                USE, "10000,0000", 1000L, "transactionId1", LocalDateTime.now());
+        String torn = FailedTransactionWriter.toLine(record(CANCEL, "1000000000"));
+        Files.write(spillFile, (FailedTransactionWriter.toLine(record(USE, "1000000000")) + "\n"
+                + "USE,1000000000,not-a-number\n"
+                + FailedTransactionWriter.toLine(commaAccount) + "\n"
+                + torn.substring(0, torn.length() - 3)).getBytes()); // 쓰다가 잘린 마지막 줄
+        Map<String, Object> account = new HashMap<>();
+        account.put("id", 7L);
+        account.put("account_number", "1000000000");
+        account.put("balance", 10000L);
+        given(jdbcTemplate.queryForList(anyString(), any(Object[].class), any(int[].class)))
+                .willReturn(Collections.singletonList(account));
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+
+        //when
+        writer.replaySpill();
+
+        //then
+        // 읽을 수 없는 두 줄은 .bad 로, 나머지는 저장하고 파일은 지워짐
+        verify(jdbcTemplate, times(1)).batchUpdate(startsWith("insert into transaction"), captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals(2, Files.readAllLines(tempDir.resolve("failed.spill.bad")).size());
+        assertEquals(2.0, meterRegistry.counter("account.failed_writer.spill_bad").count());
+        assertFalse(Files.exists(tempDir.resolve("failed.spill.replaying")));
+        // 쉼표가 들어간 계좌번호도 그대로 읽힘 (없는 계좌라서 저장되지 않음)
+        assertEquals("10000,0000", FailedTransactionWriter.fromLine(
+                FailedTransactionWriter.toLine(commaAccount)).getAccountNumber());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void aggregateRepeatedFailures() {
+        //given
+        // 샘플링 0 => 구간의 첫 실패만 개별 F 거래로 남김
+        FailedTransactionWriter writer = new FailedTransactionWriter(jdbcTemplate, sequence(), meterRegistry,
+                100, 100, 100L, OverflowPolicy.DROP, tempDir.resolve("failed.spill").toString(),
+                true, 60_000L, 0.0, 100);
+        Map<String, Object> account = new HashMap<>();
+        account.put("id", 7L);
+        account.put("account_number", "1000000000");
+        account.put("balance", 10000L);
+        given(jdbcTemplate.queryForList(anyString(), any(Object[].class), any(int[].class)))
+                .willReturn(Collections.singletonList(account));
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+
+        //when
+        for (int i = 0; i < 1000; i++) {
+            writer.record(USE, "1000000000", 1000L, ErrorCode.AMOUNT_EXCEED_BALANCE);
+        }
+        writer.record(USE, "1000000000", 1000L, ErrorCode.USER_ACCOUNT_UN_MATCH);
+        writer.flushFailures();
+
+        //then
+        // 개별 F 거래는 에러별 첫 실패 2건만, 나머지 999건은 집계에만 포함
+        assertEquals(999.0, meterRegistry.counter("account.failed_writer.sampled_out").count());
+        verify(jdbcTemplate, times(1)).batchUpdate(startsWith("insert into failed_transaction_summary"),
+                captor.capture());
+        assertEquals(2, captor.getValue().size());
+        long attempts = 0;
+        for (Object[] row : captor.getValue()) {
+            attempts += (Long) row[4];
+        }
+        assertEquals(1001L, attempts);
+
+        // 한 번 저장한 집계는 비워짐
+        writer.flushFailures();
+        verify(jdbcTemplate, times(1)).batchUpdate(startsWith("insert into failed_transaction_summary"),
+                anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void keepAggregatesWhenSummaryWriteFails() {
+        //given
+        FailedTransactionWriter writer = new FailedTransactionWriter(jdbcTemplate, sequence(), meterRegistry,
+                100, 100, 100L, OverflowPolicy.DROP, tempDir.resolve("failed.spill").toString(),
+                true, 60_000L, 0.0, 100);
+        Map<String, Object> account = new HashMap<>();
+        account.put("id", 7L);
+        account.put("account_number", "1000000000");
+        account.put("balance", 10000L);
+        given(jdbcTemplate.queryForList(anyString(), any(Object[].class), any(int[].class)))
+                .willReturn(Collections.singletonList(account));
+        given(jdbcTemplate.batchUpdate(startsWith("insert into failed_transaction_summary"), anyList()))
+                .willThrow(new CannotGetJdbcConnectionException("db down"))
+                .willReturn(new int[]{1});
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        for (int i = 0; i < 3; i++) {
+            writer.record(USE, "1000000000", 1000L, ErrorCode.AMOUNT_EXCEED_BALANCE);
+        }
+
+        //when
+        assertThrows(CannotGetJdbcConnectionException.class, writer::flushFailures);
+        writer.record(USE, "1000000000", 1000L, ErrorCode.AMOUNT_EXCEED_BALANCE); // 그 사이 들어온 실패
+        writer.flushFailures();
+
+        //then
+        // 실패한 구간의 3번과 새로 들어온 1번이 한 줄로 저장됨
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("insert into failed_transaction_summary"),
+                captor.capture());
+        List<Object[]> saved = captor.getAllValues().get(1);
+        assertEquals(1, saved.size());
+        assertEquals(4L, saved.get(0)[4]);
+        assertEquals(0.0, meterRegistry.get("account.failed_writer.aggregated_keys").gauge().value());
+    }
+
+    @Test
+    void recordIndividuallyWhenAggregateKeysAreFull() {
+        //given
+        // 집계는 2종류까지, 샘플링 0
+        FailedTransactionWriter writer = new FailedTransactionWriter(jdbcTemplate, sequence(), meterRegistry,
+                100, 100, 100L, OverflowPolicy.DROP, tempDir.resolve("failed.spill").toString(),
+                true, 60_000L, 0.0, 2);
+
+        //when
+        for (long amount = 1; amount <= 5; amount++) {
+            writer.record(USE, "1000000000", amount, ErrorCode.AMOUNT_EXCEED_BALANCE);
+            writer.record(USE, "1000000000", amount, ErrorCode.AMOUNT_EXCEED_BALANCE);
+        }
+
+        //then
+        // 모은 2종류는 첫 실패만 개별로, 자리가 없는 3종류는 모두 개별 F 거래로 (큐에 8건)
+        assertEquals(6.0, meterRegistry.counter("account.failed_writer.aggregate_overflow").count());
+        assertEquals(2.0, meterRegistry.counter("account.failed_writer.sampled_out").count());
+        assertEquals(8.0, meterRegistry.get("account.failed_writer.queue").gauge().value());
+        assertEquals(2.0, meterRegistry.get("account.failed_writer.aggregated_keys").gauge().value());
+    }
+
+    private FailedTransactionWriter writer(int queueCapacity, OverflowPolicy overflowPolicy) {
+        // start() 를 부르지 않아서 백그라운드 스레드 없이 큐와 write 만 테스트
+        return new FailedTransactionWriter(jdbcTemplate, sequence(), meterRegistry, queueCapacity, 100, 100L,
+                overflowPolicy, tempDir.resolve("failed.spill").toString(), false, 60_000L, 1.0, 100);
+    }
+
+    private HibernateSequence sequence() {
+        return new HibernateSequence(jdbcTemplate, new H2Dialect());
+    }
+
+    private FailedTransactionWriter.FailedRecord record(
+            TransactionType type, String accountNumber) {
+        return new FailedTransactionWriter.FailedRecord(type, accountNumber, 1000L,
+                "transactionId", LocalDateTime.now());
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.account.service;
+
+import com.example.account.dto.HotAccount;
+import com.example.account.type.HotAccountMetric;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotAccountTrackerTest {
+
+    private final HotAccountTracker tracker = new HotAccountTracker(
+            new SimpleMeterRegistry(), 60, 2, 4, 1024, 64);
+
+    @Test
+    void findHotAccountsAmongManyColdOnes() {
+        //given
+        // 계좌 10만개에 한 번씩 + hot 계좌 2개에 몰림, 후보는 64개만 유지
+        for (int i = 0; i < 100_000; i++) {
+            tracker.record(HotAccountMetric.REQUESTS, String.valueOf(1_000_000_000L + i), 1);
+            if (i % 10 == 0) {
+                tracker.record(HotAccountMetric.REQUESTS, "2000000000", 1);
+            }
+            if (i % 20 == 0) {
+                tracker.record(HotAccountMetric.REQUESTS, "2000000001", 1);
+            }
+        }
+
+        //when
+        List<HotAccount> top = tracker.top(HotAccountMetric.REQUESTS, 2);
+
+        //then
+        assertEquals(2, top.size());
+        assertEquals("2000000000", top.get(0).getAccountNumber());
+        assertEquals("2000000001", top.get(1).getAccountNumber());
+        // Count-Min 은 실제보다 작게 추정하지 않음
+        assertTrue(top.get(0).getCount() >= 10_000);
+        assertTrue(top.get(1).getCount() >= 5_000);
+        assertEquals(120L, top.get(0).getWindowSeconds());
+    }
+
+    @Test
+    void metricsAreSeparated() {
+        //given
+        tracker.record(HotAccountMetric.LOCK_WAIT_MILLIS, "1000000000", 300);
+        tracker.record(HotAccountMetric.LOCK_WAIT_MILLIS, "1000000000", 200);
+        tracker.record(HotAccountMetric.LOCK_FAILURES, "1000000001", 1);
+
+        //when
+        //then
+        assertEquals(500, tracker.estimate(HotAccountMetric.LOCK_WAIT_MILLIS, "1000000000"));
+        assertEquals(0, tracker.estimate(HotAccountMetric.LOCK_FAILURES, "1000000000"));
+        assertEquals("1000000001",
+                tracker.top(HotAccountMetric.LOCK_FAILURES, 10).get(0).getAccountNumber());
+        assertTrue(tracker.top(HotAccountMetric.REQUESTS, 10).isEmpty());
+    }
+}
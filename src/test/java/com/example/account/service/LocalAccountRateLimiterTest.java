@@ -0,0 +1,143 @@
+package com.example.account.service;
+
+import com.example.account.config.RateLimitProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalAccountRateLimiterTest {
+
+    @Test
+    void rejectWhenAccountBucketIsEmpty() {
+        //given
+        LocalAccountRateLimiter rateLimiter = new LocalAccountRateLimiter(
+                properties(2, 1.0, 100, 100.0));
+
+        //when
+        long first = rateLimiter.tryAcquire("useBalance", 1L, "1000000000");
+        long second = rateLimiter.tryAcquire("useBalance", 1L, "1000000000");
+        long third = rateLimiter.tryAcquire("useBalance", 1L, "1000000000");
+
+        //then
+        assertEquals(0, first);
+        assertEquals(0, second);
+        // 초당 1개씩 채워지므로 1초 가까이 기다려야 함
+        assertTrue(third > 0 && third <= 1000);
+        // 다른 계좌는 영향 없음
+        assertEquals(0, rateLimiter.tryAcquire("useBalance", 1L, "1000000001"));
+    }
+
+    @Test
+    void rejectWhenUserBucketIsEmpty() {
+        //given
+        LocalAccountRateLimiter rateLimiter = new LocalAccountRateLimiter(
+                properties(100, 100.0, 1, 1.0));
+
+        //when
+        long first = rateLimiter.tryAcquire("useBalance", 1L, "1000000000");
+        long second = rateLimiter.tryAcquire("useBalance", 1L, "1000000001");
+
+        //then
+        // 계좌는 달라도 같은 사용자면 같이 제한됨
+        assertEquals(0, first);
+        assertTrue(second > 0);
+    }
+
+    @Test
+    void userRejectionDoesNotSpendAccountToken() {
+        //given
+        // 계좌 2개, 사용자 1개 (거의 채워지지 않음)
+        LocalAccountRateLimiter rateLimiter = new LocalAccountRateLimiter(
+                properties(2, 0.001, 1, 0.001));
+        assertEquals(0, rateLimiter.tryAcquire("useBalance", 1L, "1000000000"));
+
+        //when
+        long rejected = rateLimiter.tryAcquire("useBalance", 1L, "1000000000");
+        long otherUser = rateLimiter.tryAcquire("useBalance", 2L, "1000000000");
+
+        //then
+        // 사용자 제한에 걸린 요청은 계좌 토큰을 쓰지 않으므로 다른 사용자가 남은 계좌 토큰을 씀
+        assertTrue(rejected > 0);
+        assertEquals(0, otherUser);
+        assertTrue(rateLimiter.tryAcquire("useBalance", 3L, "1000000000") > 0);
+    }
+
+    @Test
+    void notLimitedEndpoint() {
+        //given
+        LocalAccountRateLimiter rateLimiter = new LocalAccountRateLimiter(
+                properties(1, 1.0, 1, 1.0));
+
+        //when
+        //then
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("cancelBalance", null, "1000000000"));
+        }
+    }
+
+    @Test
+    void hotAccountDoesNotThrottleOtherAccounts() {
+        //given
+        LocalAccountRateLimiter rateLimiter = new LocalAccountRateLimiter(
+                properties(1, 1.0, 100_000, 100.0));
+        rateLimiter.tryAcquire("useBalance", 1L, "1000000000");
+        assertTrue(rateLimiter.tryAcquire("useBalance", 1L, "1000000000") > 0);
+
+        //when
+        //then
+        // 계좌마다 버킷이 따로 있으므로 해시가 겹쳐도 다른 계좌는 제한되지 않음
+        for (int i = 1; i <= 10_000; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("useBalance", 1L, String.valueOf(1_000_000_000L + i)));
+        }
+    }
+
+    @Test
+    void evictLeastRecentlyUsedKeysOverMaxKeys() {
+        //given
+        RateLimitProperties properties = properties(1, 0.001, 100_000, 100.0);
+        properties.setMaxKeys(64); // segment 마다 1개
+        LocalAccountRateLimiter rateLimiter = new LocalAccountRateLimiter(properties);
+        rateLimiter.tryAcquire("useBalance", 1L, "1000000000");
+        assertTrue(rateLimiter.tryAcquire("useBalance", 1L, "1000000000") > 0);
+
+        //when
+        for (int i = 1; i <= 1000; i++) {
+            rateLimiter.tryAcquire("useBalance", 1L, String.valueOf(1_000_000_000L + i));
+        }
+
+        //then
+        // 오래 안 쓴 버킷은 지워지고 다시 오면 가득 찬 새 버킷
+        assertEquals(0, rateLimiter.tryAcquire("useBalance", 1L, "1000000000"));
+    }
+
+    @Test
+    void failToStartWithZeroRefill() {
+        //given
+        RateLimitProperties properties = properties(10, 0.0, 10, 1.0);
+
+        //when
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> new LocalAccountRateLimiter(properties));
+
+        //then
+        // 다시 채워지지 않는 버킷은 설정 실수 => 요청을 계속 거절하지 않고 시작할 때 실패
+        assertTrue(exception.getMessage().contains("useBalance.account"));
+    }
+
+    private RateLimitProperties properties(int accountCapacity, double accountRefill,
+                                           int userCapacity, double userRefill) {
+        RateLimitProperties.Limit account = new RateLimitProperties.Limit();
+        account.setCapacity(accountCapacity);
+        account.setRefillPerSecond(accountRefill);
+        RateLimitProperties.Limit user = new RateLimitProperties.Limit();
+        user.setCapacity(userCapacity);
+        user.setRefillPerSecond(userRefill);
+        RateLimitProperties.EndpointLimit endpointLimit = new RateLimitProperties.EndpointLimit();
+        endpointLimit.setAccount(account);
+        endpointLimit.setUser(user);
+
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getEndpoints().put("useBalance", endpointLimit);
+        return properties;
+    }
+}
@@ -1,18 +1,32 @@
 package com.example.account.service;
 
+import com.example.account.aop.AccountLock;
+import com.example.account.dto.AccountBalance;
 import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
+import com.example.account.exception.RetryableAccountException;
 import com.example.account.type.ErrorCode;
+import com.example.account.type.HotAccountMetric;
+import com.example.account.type.LockMode;
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -22,9 +36,24 @@ class LockAopAspectTest {
     @Mock
     private LockService lockService; // LockAopAspect 가 의존하고 있음
 
+    @Mock
+    private AccountPartitionExecutor partitionExecutor; // 모킹하면 isEnabled() 가 false => LOCK 모드
+
+    @Mock
+    private AccountRateLimiter accountRateLimiter; // 모킹하면 tryAcquire 가 0 => 항상 허용
+
+    @Mock
+    private AccountAdmissionService admissionService; // 모킹하면 admit 이 아무것도 안함 => 항상 통과
+
+    @Mock
+    private HotAccountTracker hotAccountTracker;
+
     @Mock
     private ProceedingJoinPoint proceedingJoinPoint; // LockAopAspect 에서 쓰고 있음
 
+    @Mock
+    private Signature signature; // 처리율 제한에서 메소드 이름을 엔드포인트로 사용
+
     @InjectMocks
     private LockAopAspect lockAopAspect;
 
@@ -38,17 +67,18 @@ class LockAopAspectTest {
                 ArgumentCaptor.forClass(String.class);
         UseBalance.Request request = // request 에 아래를 생성해서 담음
                 new UseBalance.Request(123L, "1234", 1000L);
+        given(proceedingJoinPoint.getSignature()).willReturn(signature);
 
         //when
-        lockAopAspect.aroundMethod(proceedingJoinPoint, request);
+        lockAopAspect.aroundMethod(proceedingJoinPoint, useBalanceLock(), request);
 
         //then
         // lock 이 잘 호출되는지 확인
         verify(lockService, times(1))
-                .lock(lockArgumentCaptor.capture());
+                .lock(lockArgumentCaptor.capture(), eq(LockMode.WRITE), eq(1000L), eq(15000L));
         // unlock 이 잘 호출되는지 확인
         verify(lockService, times(1))
-                .unlock(unLockArgumentCaptor.capture());
+                .unlock(unLockArgumentCaptor.capture(), eq(LockMode.WRITE));
         assertEquals("1234", lockArgumentCaptor.getValue());
         assertEquals("1234", unLockArgumentCaptor.getValue());
     }
@@ -64,6 +94,7 @@ class LockAopAspectTest {
                 ArgumentCaptor.forClass(String.class);
         UseBalance.Request request = // request 에 아래를 생성해서 담음
                 new UseBalance.Request(123L, "54321", 1000L);
+        given(proceedingJoinPoint.getSignature()).willReturn(signature);
 
         // AccountException 으로 ACCOUNT_NOT_FOUND 던질 때 그럴때도 unlock이 잘 되는지
         given(proceedingJoinPoint.proceed())
@@ -71,16 +102,154 @@ class LockAopAspectTest {
 
         //when => ** exception이 발생하더라도 잘 되는걸 확인할 수 있다
         assertThrows(AccountException.class, () ->
-        lockAopAspect.aroundMethod(proceedingJoinPoint, request));
+        lockAopAspect.aroundMethod(proceedingJoinPoint, useBalanceLock(), request));
 
         //then
         // lock 이 잘 호출되는지 확인
         verify(lockService, times(1))
-                .lock(lockArgumentCaptor.capture());
+                .lock(lockArgumentCaptor.capture(), eq(LockMode.WRITE), eq(1000L), eq(15000L));
         // unlock 이 잘 호출되는지 확인
         verify(lockService, times(1))
-                .unlock(unLockArgumentCaptor.capture());
+                .unlock(unLockArgumentCaptor.capture(), eq(LockMode.WRITE));
         assertEquals("54321", lockArgumentCaptor.getValue());
         assertEquals("54321", unLockArgumentCaptor.getValue());
     }
-}
\ No newline at end of file
+
+    @Test
+    void rateLimitedBeforeLock() throws Throwable {
+        //given
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "1234", 1000L);
+        given(proceedingJoinPoint.getSignature()).willReturn(signature);
+        given(signature.getName()).willReturn("useBalance");
+        given(accountRateLimiter.tryAcquire("useBalance", 123L, "1234"))
+                .willReturn(500L); // 0.5초 뒤에 다시 시도
+
+        //when
+        RetryableAccountException exception = assertThrows(RetryableAccountException.class,
+                () -> lockAopAspect.aroundMethod(proceedingJoinPoint, useBalanceLock(), request));
+
+        //then
+        // 처리율 제한에 걸리면 락을 잡지도 않아야 함
+        assertEquals(ErrorCode.TOO_MANY_REQUESTS, exception.getErrorCode());
+        assertEquals(500L, exception.getRetryAfterMillis());
+        verify(lockService, times(0)).lock(anyString(), any(), anyLong(), anyLong());
+        verify(proceedingJoinPoint, times(0)).proceed();
+    }
+
+    @Test
+    void rejectedByAdmissionBeforeLock() throws Throwable {
+        //given
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "1234", 1000L);
+        given(proceedingJoinPoint.getSignature()).willReturn(signature);
+        willThrow(new RetryableAccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK, 300L))
+                .given(admissionService).admit("1234", 1000L);
+
+        //when
+        RetryableAccountException exception = assertThrows(RetryableAccountException.class,
+                () -> lockAopAspect.aroundMethod(proceedingJoinPoint, useBalanceLock(), request));
+
+        //then
+        // 입장 거절이면 락 대기도, release 도 하지 않음
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        verify(lockService, times(0)).lock(anyString(), any(), anyLong(), anyLong());
+        verify(admissionService, times(0)).release(anyString(), anyLong());
+    }
+
+    @Test
+    void releaseAdmissionWithHoldTime() throws Throwable {
+        //given
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "1234", 1000L);
+        given(proceedingJoinPoint.getSignature()).willReturn(signature);
+        ArgumentCaptor<Long> holdCaptor = ArgumentCaptor.forClass(Long.class);
+
+        //when
+        lockAopAspect.aroundMethod(proceedingJoinPoint, useBalanceLock(), request);
+
+        //then
+        verify(admissionService, times(1)).admit("1234", 1000L);
+        verify(admissionService, times(1)).onLockAcquired(eq("1234"), anyLong());
+        verify(admissionService, times(1)).release(eq("1234"), holdCaptor.capture());
+        assertTrue(holdCaptor.getValue() >= 0);
+    }
+
+    @Test
+    void readLockSkipsAdmission() throws Throwable {
+        //given
+        AccountLock accountLock = AccountBalanceService.class
+                .getMethod("getBalance", AccountBalance.Request.class)
+                .getAnnotation(AccountLock.class);
+        AccountBalance.Request request = new AccountBalance.Request("1234");
+        given(proceedingJoinPoint.getSignature()).willReturn(signature);
+
+        //when
+        lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock, request);
+
+        //then
+        // 조회는 읽기 락을 짧게 기다리고, 입장 제어는 하지 않음
+        verify(lockService, times(1)).lock("1234", LockMode.READ, 300L, 15000L);
+        verify(lockService, times(1)).unlock("1234", LockMode.READ);
+        verify(admissionService, times(0)).admit(anyString(), anyLong());
+        verify(admissionService, times(0)).release(anyString(), anyLong());
+    }
+
+    @Test
+    void recordLockFailureAsHotAccount() throws Throwable {
+        //given
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "1234", 1000L);
+        given(proceedingJoinPoint.getSignature()).willReturn(signature);
+        willThrow(AccountException.of(ErrorCode.ACCOUNT_TRANSACTION_LOCK))
+                .given(lockService).lock("1234", LockMode.WRITE, 1000L, 15000L);
+
+        //when
+        assertThrows(AccountException.class,
+                () -> lockAopAspect.aroundMethod(proceedingJoinPoint, useBalanceLock(), request));
+
+        //then
+        verify(hotAccountTracker, times(1)).record(HotAccountMetric.REQUESTS, "1234", 1);
+        verify(hotAccountTracker, times(1)).record(HotAccountMetric.LOCK_FAILURES, "1234", 1);
+        verify(proceedingJoinPoint, times(0)).proceed();
+    }
+
+    @Test
+    void reportLockTimeoutToAdmission() throws Throwable {
+        //given
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "1234", 1000L);
+        given(proceedingJoinPoint.getSignature()).willReturn(signature);
+        willThrow(AccountException.of(ErrorCode.ACCOUNT_TRANSACTION_LOCK))
+                .given(lockService).lock("1234", LockMode.WRITE, 1000L, 15000L);
+
+        //when
+        assertThrows(AccountException.class,
+                () -> lockAopAspect.aroundMethod(proceedingJoinPoint, useBalanceLock(), request));
+
+        //then
+        // 락을 못 잡은 요청도 CoDel 의 대기 시간에 들어감
+        verify(admissionService, times(1)).onLockTimeout(eq("1234"), anyLong());
+        verify(admissionService, times(0)).onLockAcquired(anyString(), anyLong());
+        verify(admissionService, times(1)).release("1234", -1L);
+    }
+
+    @Test
+    void runAfterExposeInvocationInterceptor() {
+        //given
+        //when
+        int order = LockAopAspect.class.getAnnotation(Order.class).value();
+
+        //then
+        // ExposeInvocationInterceptor 보다 앞이면 args(request,..) 바인딩이 실패하고, @Transactional 보다는 앞이어야 함
+        assertTrue(order > ExposeInvocationInterceptor.INSTANCE.getOrder());
+        assertTrue(order < Ordered.LOWEST_PRECEDENCE);
+    }
+
+    // 실제 AccountBalanceService.useBalance 에 붙어있는 락 정책 사용
+    private AccountLock useBalanceLock() throws NoSuchMethodException {
+        return AccountBalanceService.class
+                .getMethod("useBalance", UseBalance.Request.class)
+                .getAnnotation(AccountLock.class);
+    }
+}
@@ -2,17 +2,23 @@ package com.example.account.service;
 
 import com.example.account.exception.AccountException;
 import com.example.account.type.ErrorCode;
+import com.example.account.type.LockMode;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.redisson.api.RLock;
+import org.redisson.api.RReadWriteLock;
 import org.redisson.api.RedissonClient;
 
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class LockServiceTest {
@@ -21,6 +27,9 @@ class LockServiceTest {
 
     // LockService 에 보면 RLock 을 어떻게 해주냐에 따라 로직이 변화하기 때문에
     // RLock 을 모킹해가지고 RLock 을 우리가 원하는대로 바꿔주도록 하겠음
+    @Mock
+    private RReadWriteLock readWriteLock; // 계좌별로 읽기/쓰기 락을 꺼내줌
+
     @Mock
     private RLock rLock; // LockService 에서는 lock 에 해당
 
@@ -30,7 +39,9 @@ class LockServiceTest {
     @Test
     void successGetLock() throws InterruptedException {
         //given
-        given(redissonClient.getLock(anyString()))
+        given(redissonClient.getReadWriteLock(anyString()))
+                .willReturn(readWriteLock);
+        given(readWriteLock.writeLock())
                 .willReturn(rLock);
         given(rLock.tryLock(anyLong(), anyLong(), any()))
                 .willReturn(true);
@@ -44,7 +55,9 @@ class LockServiceTest {
     @Test
     void failGetLock() throws InterruptedException {
         //given
-        given(redissonClient.getLock(anyString()))
+        given(redissonClient.getReadWriteLock(anyString()))
+                .willReturn(readWriteLock);
+        given(readWriteLock.writeLock())
                 .willReturn(rLock);
         given(rLock.tryLock(anyLong(), anyLong(), any()))
                 .willReturn(false);
@@ -56,4 +69,24 @@ class LockServiceTest {
         //then
         assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    void readLockWithWatchdog() throws InterruptedException {
+        //given
+        given(redissonClient.getReadWriteLock("ACLK:123"))
+                .willReturn(readWriteLock);
+        given(readWriteLock.readLock())
+                .willReturn(rLock);
+        given(rLock.tryLock(300L, -1L, TimeUnit.MILLISECONDS))
+                .willReturn(true);
+
+        //when
+        lockService.lock("123", LockMode.READ, 300L, -1L);
+        lockService.unlock("123", LockMode.READ);
+
+        //then
+        // 읽기 락을 잡고 풀어야 하고, 쓰기 락은 건드리지 않음
+        verify(rLock, times(1)).unlock();
+        verify(readWriteLock, times(0)).writeLock();
+    }
+}
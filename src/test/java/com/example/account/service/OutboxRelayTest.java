@@ -0,0 +1,87 @@
+package com.example.account.service;
+
+import com.example.account.domain.OutboxEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RedissonClient;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private RedissonClient redissonClient;
+    @Mock
+    private OutboxSink outboxSink;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishInIdOrderThenMarkPublished() {
+        //given
+        OutboxRelay relay = relay();
+        given(jdbcTemplate.queryForList(anyString(), any(Object[].class), any(int[].class)))
+                .willReturn(Arrays.asList(row(3L, "USE"), row(5L, "CANCEL")));
+        ArgumentCaptor<List<OutboxEvent>> events = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+
+        //when
+        int published = relay.relayOnce();
+
+        //then
+        assertEquals(2, published);
+        verify(outboxSink, times(1)).publish(events.capture());
+        assertEquals(3L, events.getValue().get(0).getId());
+        assertEquals(5L, events.getValue().get(1).getId());
+        // 발행한 것만 published_at 을 채움
+        verify(jdbcTemplate, times(1)).update(anyString(), args.capture(), any(int[].class));
+        assertEquals(3L, args.getValue()[1]);
+        assertEquals(5L, args.getValue()[2]);
+    }
+
+    @Test
+    void keepUnpublishedWhenSinkFails() {
+        //given
+        OutboxRelay relay = relay();
+        given(jdbcTemplate.queryForList(anyString(), any(Object[].class), any(int[].class)))
+                .willReturn(Collections.singletonList(row(3L, "USE")));
+        doThrow(new IllegalStateException("redis down")).when(outboxSink).publish(anyList());
+
+        //when
+        assertThrows(IllegalStateException.class, relay::relayOnce);
+
+        //then
+        // published_at 이 그대로 null 이라 다음 조회에서 다시 발행됨
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class), any(int[].class));
+    }
+
+    private OutboxRelay relay() {
+        return new OutboxRelay(jdbcTemplate, redissonClient, outboxSink, new SimpleMeterRegistry(),
+                false, 500, 200, 24);
+    }
+
+    private static Map<String, Object> row(long id, String type) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("account_number", "1000000000");
+        row.put("transaction_type", type);
+        row.put("transaction_id", "tx" + id);
+        row.put("amount", 1000L);
+        row.put("balance_snapshot", 9000L);
+        row.put("transacted_at", Timestamp.valueOf(LocalDateTime.now()));
+        return row;
+    }
+}
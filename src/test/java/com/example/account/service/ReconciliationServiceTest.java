@@ -0,0 +1,164 @@
+package com.example.account.service;
+
+import com.example.account.domain.ReconciliationMismatch;
+import com.example.account.repository.ReconciliationMismatchRepository;
+import com.example.account.repository.ReconciliationRunRepository;
+import com.example.account.type.ExecutionMode;
+import com.example.account.type.MismatchType;
+import com.example.account.type.ReconciliationStatus;
+import com.example.account.type.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+class ReconciliationServiceTest {
+
+    @Test
+    void consistentAccountHasNoMismatch() {
+        //given
+        ReconciliationService.AccountCheck check =
+                new ReconciliationService.AccountCheck(1L, "1000000000", 800L, 1000L);
+
+        //when
+        check.apply(TransactionType.USE, 300L, 700L, "t1");
+        check.apply(TransactionType.CANCEL, 100L, 800L, "t2");
+        check.finish();
+
+        //then
+        assertTrue(check.getMismatches().isEmpty());
+    }
+
+    @Test
+    void brokenChainIsReportedOnceAndFollowedBySnapshot() {
+        //given
+        ReconciliationService.AccountCheck check =
+                new ReconciliationService.AccountCheck(1L, "1000000000", 600L, 1000L);
+
+        //when
+        check.apply(TransactionType.USE, 300L, 650L, "t1"); // 700 이어야 함
+        check.apply(TransactionType.USE, 50L, 600L, "t2"); // 650 에서 이어서는 맞음
+        check.finish();
+
+        //then
+        List<ReconciliationMismatch> mismatches = check.getMismatches();
+        assertEquals(2, mismatches.size());
+        assertEquals(MismatchType.CHAIN, mismatches.get(0).getMismatchType());
+        assertEquals("t1", mismatches.get(0).getTransactionId());
+        assertEquals(700L, mismatches.get(0).getExpected());
+        assertEquals(650L, mismatches.get(0).getActual());
+        // 시작 잔액 1000 - 350 = 650 인데 잔액은 600
+        assertEquals(MismatchType.LEDGER, mismatches.get(1).getMismatchType());
+        assertEquals(650L, mismatches.get(1).getExpected());
+    }
+
+    @Test
+    void legacyAccountWithoutInitialBalanceChecksOnlyLastSnapshot() {
+        //given
+        ReconciliationService.AccountCheck check =
+                new ReconciliationService.AccountCheck(1L, "1000000000", 500L, null);
+
+        //when
+        check.apply(TransactionType.USE, 100L, 400L, "t1");
+        check.finish();
+
+        //then
+        assertEquals(1, check.getMismatches().size());
+        assertEquals(MismatchType.BALANCE, check.getMismatches().get(0).getMismatchType());
+    }
+
+    @Test
+    void recheckOnPartitionThreadInPartitionMode() {
+        //given
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        LockService lockService = mock(LockService.class);
+        AccountPartitionExecutor partitionExecutor =
+                new AccountPartitionExecutor(ExecutionMode.PARTITION, 4, 10, 1000L);
+        TransactionPeriodService transactionPeriodService = mock(TransactionPeriodService.class);
+        ReconciliationService service = new ReconciliationService(jdbcTemplate, null, transactionPeriodService,
+                lockService, partitionExecutor, null, null, 1, 1000, 10L);
+        given(transactionPeriodService.tables(null, null))
+                .willReturn(new ArrayList<>(Arrays.asList("transaction_p202001", "transaction")));
+        List<String> threads = new ArrayList<>();
+        doAnswer(invocation -> threads.add(Thread.currentThread().getName()))
+                .when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), eq("1000000000"));
+        ReconciliationMismatch suspect = ReconciliationMismatch.builder()
+                .accountNumber("1000000000")
+                .build();
+
+        //when
+        List<ReconciliationMismatch> confirmed;
+        try {
+            confirmed = service.recheck(1L, "1000000000", Collections.singletonList(suspect));
+        } finally {
+            partitionExecutor.shutdown();
+        }
+
+        //then
+        // PARTITION 모드의 잔액 변경은 읽기 락을 잡지 않으므로 그 계좌의 파티션 스레드에서 다시 확인
+        // 계좌, 달 테이블, 원장 순으로 읽음
+        assertTrue(confirmed.isEmpty());
+        assertEquals(3, threads.size());
+        assertTrue(threads.get(0).startsWith("account-partition-"));
+        verifyNoInteractions(lockService);
+    }
+
+    @Test
+    void scheduledRunOnlyOnLeaderNode() throws InterruptedException {
+        //given
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        RLock leader = mock(RLock.class);
+        ReconciliationRunRepository runRepository = mock(ReconciliationRunRepository.class);
+        ReconciliationService service = new ReconciliationService(mock(JdbcTemplate.class), redissonClient,
+                mock(TransactionPeriodService.class), mock(LockService.class), mock(AccountPartitionExecutor.class),
+                runRepository, null, 1, 1000, 0L);
+        given(redissonClient.getLock("RECONCILIATION:leader")).willReturn(leader);
+        given(leader.tryLock(0, TimeUnit.MILLISECONDS)).willReturn(false);
+
+        //when
+        service.scheduledRun();
+
+        //then
+        // 다른 노드가 락을 잡고 있으면 이 노드는 대사를 시작하지 않음
+        verifyNoInteractions(runRepository);
+    }
+
+    @Test
+    void leaderNodeStartsScheduledRun() throws InterruptedException {
+        //given
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        RLock leader = mock(RLock.class);
+        ReconciliationRunRepository runRepository = mock(ReconciliationRunRepository.class);
+        ReconciliationService service = new ReconciliationService(mock(JdbcTemplate.class), redissonClient,
+                mock(TransactionPeriodService.class), mock(LockService.class), mock(AccountPartitionExecutor.class),
+                runRepository, mock(ReconciliationMismatchRepository.class), 1, 1000, 0L);
+        given(redissonClient.getLock("RECONCILIATION:leader")).willReturn(leader);
+        given(leader.tryLock(0, TimeUnit.MILLISECONDS)).willReturn(true);
+        given(runRepository.save(any())).willAnswer(invocation -> invocation.getArgument(0));
+        service.init();
+
+        //when
+        try {
+            service.scheduledRun();
+        } finally {
+            service.shutdown();
+        }
+
+        //then
+        verify(runRepository, times(1)).findFirstByStatusOrderByIdDesc(ReconciliationStatus.COMPLETED);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.account.service;
+
+import com.example.account.type.TimingPhase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTimingTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestTiming.current().end();
+    }
+
+    @Test
+    void inactiveWithoutBegin() {
+        //given
+        //when
+        long startedAt = RequestTiming.start();
+        RequestTiming.stop(TimingPhase.LOCK, startedAt);
+
+        //then
+        // 필터가 켜지 않은 스레드에서는 측정하지 않음
+        assertEquals(0, startedAt);
+        assertFalse(RequestTiming.current().isActive());
+    }
+
+    @Test
+    void headerWithPhases() {
+        //given
+        RequestTiming timing = RequestTiming.begin();
+        timing.add(TimingPhase.LOCK, 12_345_000L);
+        timing.add(TimingPhase.ACCOUNT, 1_000_000L);
+        timing.add(TimingPhase.ACCOUNT, 500_000L);
+
+        //when
+        String header = timing.toHeader();
+
+        //then
+        assertTrue(header.startsWith("lock;dur=12.3, account;dur=1.5;desc=\"2 calls\", total;dur="));
+        assertFalse(header.contains("commit")); // 호출되지 않은 구간은 빠짐
+    }
+
+    @Test
+    void reusedAndResetPerRequest() {
+        //given
+        RequestTiming first = RequestTiming.begin();
+        first.add(TimingPhase.LOCK, 1_000_000L);
+        first.end();
+
+        //when
+        RequestTiming second = RequestTiming.begin();
+
+        //then
+        // 같은 스레드에서는 같은 객체를 재사용하고 값은 비워짐
+        assertSame(first, second);
+        assertTrue(second.toHeader().startsWith("total;dur="));
+    }
+}
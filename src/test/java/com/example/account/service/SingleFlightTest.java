@@ -0,0 +1,150 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight singleFlight = new SingleFlight(meterRegistry, true, 1000L);
+
+    @Test
+    void concurrentCallsShareOneLoad() throws Exception {
+        //given
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        //when
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> singleFlight.execute("test", 1L, () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return "result";
+        })));
+        loading.await();
+        for (int i = 0; i < 3; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("test", 1L, () -> {
+                loads.incrementAndGet();
+                return "other";
+            })));
+        }
+        while (shared() < 3) {
+            Thread.sleep(1); // 세 요청이 모두 기다리기 시작할 때까지
+        }
+        release.countDown();
+
+        //then
+        for (Future<String> result : results) {
+            assertEquals("result", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        // 끝난 조회는 남지 않음 => 다음 요청은 새로 조회
+        assertEquals("next", singleFlight.execute("test", 1L, () -> "next"));
+        executor.shutdownNow();
+    }
+
+    @Test
+    void waitersReceiveLeaderException() throws Exception {
+        //given
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<String> leader = executor.submit(() -> singleFlight.execute("test", 1L, () -> {
+            loading.countDown();
+            await(release);
+            throw AccountException.of(ErrorCode.TRANSACTION_NOT_FOUND);
+        }));
+        loading.await();
+
+        //when
+        Future<String> waiter = executor.submit(() -> singleFlight.execute("test", 1L, () -> "other"));
+        while (shared() < 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        //then
+        ExecutionException leaderFailure = assertThrows(ExecutionException.class,
+                () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException waiterFailure = assertThrows(ExecutionException.class,
+                () -> waiter.get(5, TimeUnit.SECONDS));
+        assertSame(AccountException.of(ErrorCode.TRANSACTION_NOT_FOUND), leaderFailure.getCause());
+        assertSame(AccountException.of(ErrorCode.TRANSACTION_NOT_FOUND), waiterFailure.getCause());
+        executor.shutdownNow();
+    }
+
+    @Test
+    void waiterLoadsDirectlyWhenLeaderIsSlow() throws Exception {
+        //given
+        SingleFlight shortWait = new SingleFlight(meterRegistry, true, 50L);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<String> leader = executor.submit(() -> shortWait.execute("test", 1L, () -> {
+            loading.countDown();
+            await(release);
+            return "leader";
+        }));
+        loading.await();
+
+        //when
+        String waiter = shortWait.execute("test", 1L, () -> "direct");
+        release.countDown();
+
+        //then
+        // leader 가 멈춰 있어도 기다리던 요청은 wait-millis 뒤에 직접 조회한 결과를 받음
+        assertEquals("direct", waiter);
+        assertEquals("leader", leader.get(5, TimeUnit.SECONDS));
+        assertEquals(1.0, meterRegistry.counter("account.single_flight.calls",
+                "name", "test", "result", "timeout").count());
+        executor.shutdownNow();
+    }
+
+    @Test
+    void forgetStartsNewLoadForLaterCalls() throws Exception {
+        //given
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<String> leader = executor.submit(() -> singleFlight.execute("test", 1L, () -> {
+            loading.countDown();
+            await(release);
+            return "before";
+        }));
+        loading.await();
+
+        //when
+        singleFlight.forget("test", 1L);
+        String after = singleFlight.execute("test", 1L, () -> "after");
+        release.countDown();
+
+        //then
+        assertEquals("after", after);
+        assertEquals("before", leader.get(5, TimeUnit.SECONDS));
+        executor.shutdownNow();
+    }
+
+    private double shared() {
+        return meterRegistry.counter("account.single_flight.calls", "name", "test", "result", "shared").count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTest {
+
+    @Test
+    void keepHeavyKeysAmongManyLightKeys() {
+        //given
+        SpaceSaving spaceSaving = new SpaceSaving(4);
+
+        //when
+        // 한 번씩만 나오는 키가 계속 밀려 들어와도 자주 나오는 키는 남음
+        for (int i = 0; i < 10_000; i++) {
+            spaceSaving.add("light-" + i, 1);
+            if (i % 10 == 0) {
+                spaceSaving.add("heavy-1", 5);
+                spaceSaving.add("heavy-2", 3);
+            }
+        }
+
+        //then
+        List<String> candidates = spaceSaving.candidates();
+        assertTrue(candidates.contains("heavy-1"));
+        assertTrue(candidates.contains("heavy-2"));
+    }
+
+    @Test
+    void boundedMemoryAndClear() {
+        //given
+        SpaceSaving spaceSaving = new SpaceSaving(4);
+        for (int i = 0; i < 10_000; i++) {
+            spaceSaving.add(String.valueOf(1_000_000_000L + i), i % 7 + 1);
+        }
+
+        //when
+        int before = spaceSaving.candidates().size();
+        spaceSaving.clear();
+
+        //then
+        // shard 마다 capacity 개까지만
+        assertTrue(before <= 4 * 16);
+        assertTrue(spaceSaving.candidates().isEmpty());
+    }
+}
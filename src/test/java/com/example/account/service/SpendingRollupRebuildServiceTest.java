@@ -0,0 +1,105 @@
+package com.example.account.service;
+
+import com.example.account.type.ExecutionMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SpendingRollupRebuildServiceTest {
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private LockService lockService;
+
+    @Mock
+    private TransactionPeriodService transactionPeriodService;
+
+    @Mock
+    private TransactionArchiveService transactionArchiveService;
+
+    private AccountPartitionExecutor partitionExecutor;
+
+    @AfterEach
+    void tearDown() {
+        partitionExecutor.shutdown();
+    }
+
+    @Test
+    void rebuildOpenOnPartitionThreadInPartitionMode() {
+        //given
+        partitionExecutor = new AccountPartitionExecutor(ExecutionMode.PARTITION, 4, 10, 1000L);
+        List<String> threads = givenTransaction();
+
+        //when
+        int inserted = service().rebuildOpen(7L, "1000000000", TODAY, TODAY.withDayOfMonth(1));
+
+        //then
+        // PARTITION 모드의 거래는 락을 잡지 않으므로 락 대신 거래를 저장하는 파티션 스레드에서 다시 계산
+        assertEquals(2, inserted);
+        assertTrue(threads.get(0).startsWith("account-partition-"));
+        verifyNoInteractions(lockService);
+    }
+
+    @Test
+    void rebuildOpenUnderAccountLockInLockMode() {
+        //given
+        partitionExecutor = new AccountPartitionExecutor(ExecutionMode.LOCK, 4, 10, 1000L);
+        List<String> threads = givenTransaction();
+
+        //when
+        int inserted = service().rebuildOpen(7L, "1000000000", TODAY, TODAY.withDayOfMonth(1));
+
+        //then
+        assertEquals(2, inserted);
+        assertEquals(Thread.currentThread().getName(), threads.get(0));
+        verify(lockService, times(1)).lock("1000000000");
+        verify(lockService, times(1)).unlock("1000000000");
+    }
+
+    private SpendingRollupRebuildService service() {
+        return new SpendingRollupRebuildService(jdbcTemplate, transactionTemplate, lockService,
+                partitionExecutor, transactionPeriodService, transactionArchiveService, 1);
+    }
+
+    // 다시 계산한 스레드 이름을 남김, insert 는 날짜, 달마다 1행
+    @SuppressWarnings("unchecked")
+    private List<String> givenTransaction() {
+        List<String> threads = new ArrayList<>();
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> {
+                    threads.add(Thread.currentThread().getName());
+                    return ((TransactionCallback<Integer>) invocation.getArgument(0)).doInTransaction(null);
+                });
+        given(jdbcTemplate.update(anyString(), any(), any(), any())) // 지우기
+                .willReturn(2);
+        // 인자 두 개는 update(String, Object[], int[]) 로 골라지므로 Object 로 맞춤
+        given(jdbcTemplate.update(anyString(), any(Object.class), any(Object.class))) // 날짜별
+                .willReturn(1);
+        given(jdbcTemplate.update(anyString(), any(), any(), any(), any())) // 이번 달
+                .willReturn(1);
+        return threads;
+    }
+}
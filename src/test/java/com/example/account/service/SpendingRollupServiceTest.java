@@ -0,0 +1,107 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.Transaction;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.RollupPeriod;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class SpendingRollupServiceTest {
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private AccountUserRepository accountUserRepository;
+
+    @InjectMocks
+    private SpendingRollupService spendingRollupService;
+
+    @Test
+    void applyInsertsFirstRowOfPeriod() {
+        //given
+        // 일 합계 행은 없고(0건 update) 월 합계 행은 이미 있음
+        given(jdbcTemplate.update(startsWith("update"),
+                any(), any(), any(), any(), any(), any(), any(), any()))
+                .willReturn(0, 1);
+
+        //when
+        spendingRollupService.apply(Transaction.builder()
+                .account(account())
+                .transactionType(USE)
+                .transactionResultType(S)
+                .amount(1000L)
+                .transactedAt(LocalDateTime.now())
+                .build());
+
+        //then
+        verify(jdbcTemplate, times(2)).update(startsWith("update"),
+                any(), any(), any(), any(), any(), any(), any(), any());
+        verify(jdbcTemplate, times(1)).update(startsWith("insert"),
+                any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void summaryRangeTooLong() {
+        //given
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> spendingRollupService.summary(12L, null, RollupPeriod.DAY,
+                        LocalDate.of(2021, 1, 1), LocalDate.of(2022, 6, 1)));
+
+        //then
+        assertEquals(ErrorCode.INVALID_REQUEST, exception.getErrorCode());
+    }
+
+    @Test
+    void summaryUserAccountUnMatch() {
+        //given
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account()));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> spendingRollupService.summary(13L, "1000000012", RollupPeriod.MONTH,
+                        LocalDate.of(2022, 1, 1), LocalDate.of(2022, 12, 31)));
+
+        //then
+        assertEquals(ErrorCode.USER_ACCOUNT_UN_MATCH, exception.getErrorCode());
+    }
+
+    private static Account account() {
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountNumber("1000000012")
+                .balance(10000L)
+                .build();
+        account.setId(3L);
+        return account;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.account.service;
+
+import com.example.account.repository.AccountRepository;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class TimingAopAspectTest {
+    @Mock
+    private ProceedingJoinPoint proceedingJoinPoint;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    private final TimingAopAspect timingAopAspect = new TimingAopAspect();
+
+    @AfterEach
+    void tearDown() {
+        RequestTiming.current().end();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void afterCommitListenersAreNotCountedAsCommit() throws Throwable {
+        //given
+        RequestTiming timing = RequestTiming.begin();
+        TransactionSynchronizationManager.initSynchronization();
+        given(proceedingJoinPoint.getTarget()).willReturn(accountRepository);
+        timingAopAspect.aroundRepository(proceedingJoinPoint);
+        // 커밋 뒤 리스너(@TransactionalEventListener AFTER_COMMIT 와 같은 기본 순서)가 50ms 걸림
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                sleep(50);
+            }
+        });
+
+        //when
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations,
+                TransactionSynchronization.STATUS_COMMITTED);
+
+        //then
+        String header = timing.toHeader();
+        assertTrue(millis(header, "commit") < 50, header);
+        assertTrue(millis(header, "after-commit") >= 50, header);
+    }
+
+    private static long millis(String header, String name) {
+        Matcher matcher = Pattern.compile("(?:^|, )" + name + ";dur=(\\d+)").matcher(header);
+        assertTrue(matcher.find(), header);
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.account.service;
+
+import com.example.account.dto.ArchivedTransaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionArchiveServiceTest {
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private TransactionPeriodService transactionPeriodService;
+
+    @TempDir
+    Path directory;
+
+    private TransactionArchiveService service;
+
+    // transaction_archive_segment 의 file_name => 모든 노드가 같이 보는 목록
+    private final List<String> catalog = new ArrayList<>();
+
+    // 봉인된 2020년 1월 => 기준일(400일 전)보다 오래됨
+    private final TransactionPeriodService.Period january =
+            new TransactionPeriodService.Period(START.toLocalDate(), "transaction_p202001");
+
+    // january 의 id, account_id, result, balance_snapshot (계좌 1 : 거래 3건, 계좌 3 : 1건, 계좌 5 : 없음)
+    private final List<Object[]> rows = Arrays.asList(
+            new Object[]{1L, 1L, "S", 900L},
+            new Object[]{2L, 1L, "S", 800L},
+            new Object[]{3L, 1L, "F", 800L},
+            new Object[]{4L, 3L, "S", 500L});
+
+    @BeforeEach
+    void setUp() throws Exception {
+        service = new TransactionArchiveService(jdbcTemplate, transactionTemplate, transactionPeriodService,
+                directory.toString(), 400, 2, 2);
+        lenient().when(transactionPeriodService.periods()).thenReturn(Collections.singletonList(january));
+        lenient().when(jdbcTemplate.queryForObject("select coalesce(max(id), 0) from account", Long.class))
+                .thenReturn(5L);
+        lenient().when(jdbcTemplate.queryForObject("select count(*) from transaction_archive_segment", Integer.class))
+                .thenAnswer(invocation -> catalog.size());
+        lenient().when(jdbcTemplate.queryForList("select file_name from transaction_archive_segment", String.class))
+                .thenAnswer(invocation -> new ArrayList<>(catalog));
+        lenient().doAnswer(invocation -> {
+            catalog.add((String) invocation.getArgument(1, Object[].class)[0]);
+            return 1;
+        })
+                .when(jdbcTemplate).update(startsWith("insert into transaction_archive_segment"),
+                        any(Object[].class), any(int[].class));
+        lenient().doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            assertTrue(invocation.getArgument(0, String.class).contains(" from transaction_p202001 t "));
+            long fromId = invocation.getArgument(2);
+            long toId = invocation.getArgument(3);
+            for (Object[] row : rows) {
+                long accountId = (Long) row[1];
+                if (accountId >= fromId && accountId <= toId) {
+                    handler.processRow(resultSet(row));
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(), any());
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+    }
+
+    @Test
+    void archiveEveryAccountChunkIntoItsOwnSegment() throws Exception {
+        //given
+        //when
+        int archived = service.archive();
+
+        //then
+        // 계좌 id 0~1, 2~3 은 세그먼트 하나씩, 거래가 없는 4~5 는 만들지 않음
+        assertEquals(4, archived);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.filter(path -> path.toString().endsWith(".seg")).count());
+        }
+        // 먼저 봉인해서 기준일 이전 거래를 달 테이블로 보냄, 행을 하나씩 지우지 않음
+        verify(transactionPeriodService, times(1)).seal();
+        verify(jdbcTemplate, never()).update(startsWith("delete"), any(Object[].class));
+        assertEquals(LocalDate.of(2020, 2, 1), service.archivedBefore());
+    }
+
+    @Test
+    void dropPeriodTableAfterEverySegmentIsCataloged() throws Exception {
+        //given
+        InOrder inOrder = inOrder(jdbcTemplate, transactionPeriodService);
+
+        //when
+        service.archive();
+
+        //then
+        // 세그먼트가 모두 목록에 오른 뒤에 한 트랜잭션에서 시작 잔액을 바꾸고 목록에서 뺌, 커밋된 뒤 테이블을 drop
+        inOrder.verify(jdbcTemplate, times(2)).update(startsWith("insert into transaction_archive_segment"),
+                any(Object[].class), any(int[].class));
+        inOrder.verify(jdbcTemplate, times(1)).update(
+                startsWith("update account a set initial_balance = (select p.balance_snapshot from transaction_p202001 p"));
+        inOrder.verify(transactionPeriodService, times(1)).detach(january);
+        inOrder.verify(transactionPeriodService, times(1)).drop(january);
+    }
+
+    @Test
+    void keepPeriodsNewerThanCutoff() throws Exception {
+        //given
+        // 지난 달은 기준일(400일 전)보다 최근
+        TransactionPeriodService.Period lastMonth = new TransactionPeriodService.Period(
+                LocalDate.now().withDayOfMonth(1).minusMonths(1), "transaction_p_last_month");
+        given(transactionPeriodService.periods()).willReturn(Arrays.asList(january, lastMonth));
+
+        //when
+        service.archive();
+
+        //then
+        verify(transactionPeriodService, times(1)).drop(january);
+        verify(transactionPeriodService, never()).detach(lastMonth);
+        verify(transactionPeriodService, never()).drop(lastMonth);
+    }
+
+    @Test
+    void historyInBothDirectionsWithoutDuplicates() throws Exception {
+        //given
+        // 달 테이블을 목록에서 빼기 전에 죽었다가 다시 옮긴 경우 => 같은 거래가 세그먼트 두 곳에 있음
+        service.archive();
+        service.archive();
+
+        //when
+        List<ArchivedTransaction> newest = service.history(1L, null, null, true, t -> true, 10);
+        List<ArchivedTransaction> oldest = service.history(1L, null, null, false, t -> true, 2);
+
+        //then
+        assertEquals(Arrays.asList(3L, 2L, 1L), ids(newest));
+        assertEquals(Arrays.asList(1L, 2L), ids(oldest));
+    }
+
+    @Test
+    void otherNodeSeesSegmentsThroughSharedCatalog() throws Exception {
+        //given
+        // 같은 공유 디렉토리, 같은 DB 를 쓰는 두 번째 노드 (먼저 떠 있어서 시작할 때는 세그먼트가 없었음)
+        TransactionArchiveService otherNode = new TransactionArchiveService(jdbcTemplate, transactionTemplate,
+                transactionPeriodService, directory.toString(), 400, 2, 2);
+        otherNode.load();
+
+        //when
+        service.archive();
+
+        //then
+        // 옮긴 거래를 다른 노드에서도 찾음
+        assertEquals(2, catalog.size());
+        assertEquals(3L, otherNode.findByTransactionId("tx-4").orElseThrow(AssertionError::new).getAccountId());
+        assertEquals(Arrays.asList(3L, 2L, 1L), ids(otherNode.history(1L, null, null, true, t -> true, 10)));
+    }
+
+    @Test
+    void failToStartWhenCatalogedSegmentIsNotInDirectory() {
+        //given
+        // 다른 노드의 로컬 디스크에만 있는 세그먼트 => 공유 디렉토리가 아님
+        catalog.add("segment-2020-01-01-000000000000-1.seg");
+
+        //when
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> service.load());
+
+        //then
+        assertTrue(exception.getMessage().contains("must be shared by every node"));
+    }
+
+    @Test
+    void removeSegmentWhenCatalogInsertFails() throws Exception {
+        //given
+        doThrow(new CannotGetJdbcConnectionException("connection refused"))
+                .when(jdbcTemplate).update(startsWith("insert into transaction_archive_segment"),
+                        any(Object[].class), any(int[].class));
+
+        //when
+        assertThrows(CannotGetJdbcConnectionException.class, () -> service.archive());
+
+        //then
+        // 목록에 오르지 않은 세그먼트는 남기지 않음 => 거래는 달 테이블에 그대로 있음
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+        assertTrue(catalog.isEmpty());
+        verify(transactionPeriodService, never()).detach(any());
+        verify(transactionPeriodService, never()).drop(any());
+    }
+
+    private static List<Long> ids(List<ArchivedTransaction> transactions) {
+        return transactions.stream().map(ArchivedTransaction::getId).collect(Collectors.toList());
+    }
+
+    private static ResultSet resultSet(Object[] row) throws Exception {
+        long id = (Long) row[0];
+        ResultSet rs = mock(ResultSet.class);
+        given(rs.getLong("id")).willReturn(id);
+        given(rs.getLong("account_id")).willReturn((Long) row[1]);
+        given(rs.getString("account_number")).willReturn("100000000" + row[1]);
+        given(rs.getString("transaction_type")).willReturn("USE");
+        given(rs.getString("transaction_result_type")).willReturn((String) row[2]);
+        given(rs.getLong("amount")).willReturn(100L);
+        given(rs.getLong("balance_snapshot")).willReturn((Long) row[3]);
+        given(rs.getString("transaction_id")).willReturn("tx-" + id);
+        given(rs.getTimestamp("transacted_at")).willReturn(Timestamp.valueOf(START.plusHours(id)));
+        return rs;
+    }
+}
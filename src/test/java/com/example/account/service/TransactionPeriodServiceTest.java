@@ -0,0 +1,158 @@
+package com.example.account.service;
+
+import com.example.account.dto.ArchivedTransaction;
+import com.example.account.dto.TransactionSearch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionPeriodServiceTest {
+    private static final LocalDate JANUARY = LocalDate.of(2020, 1, 1);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private TransactionPeriodService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TransactionPeriodService(jdbcTemplate, transactionTemplate, 2);
+    }
+
+    @Test
+    void sealMovesEachOldMonthIntoItsOwnTable() {
+        //given
+        // 원장에 남은 가장 오래된 거래 => 1월, 옮긴 뒤에는 없음
+        given(jdbcTemplate.queryForObject(startsWith("select min(transacted_at) from transaction"),
+                eq(Timestamp.class), any()))
+                .willReturn(Timestamp.valueOf(JANUARY.atTime(10, 0)), (Timestamp) null);
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        // 같은 트랜잭션의 삭제, 목록 저장도 update 로 불리므로 lenient
+        // 인자 두 개는 update(String, Object[], int[]) 로 골라지므로 Object 로 맞춤
+        lenient().when(jdbcTemplate.update(startsWith("insert into transaction_p202001"),
+                any(Object.class), any(Object.class)))
+                .thenReturn(3);
+        InOrder inOrder = inOrder(jdbcTemplate, transactionTemplate);
+
+        //when
+        int sealed = service.seal();
+
+        //then
+        // 원장과 같은 인덱스를 만든 뒤 한 트랜잭션에서 복사, 복사한 거래만 삭제, 목록에 저장
+        assertEquals(3, sealed);
+        inOrder.verify(jdbcTemplate).execute(
+                "create table if not exists transaction_p202001 as select * from transaction where 1 = 0");
+        inOrder.verify(jdbcTemplate).execute("create unique index if not exists transaction_p202001_id"
+                + " on transaction_p202001(id)");
+        inOrder.verify(jdbcTemplate).execute("create index if not exists transaction_p202001_0"
+                + " on transaction_p202001(account_id, transacted_at)");
+        inOrder.verify(transactionTemplate).execute(any());
+        inOrder.verify(jdbcTemplate).update(startsWith("insert into transaction_p202001 select * from transaction"),
+                any(Object.class), any(Object.class));
+        inOrder.verify(jdbcTemplate).update(contains("exists (select 1 from transaction_p202001 p where p.id = t.id)"),
+                any(Object.class), any(Object.class));
+        inOrder.verify(jdbcTemplate).update(startsWith("insert into transaction_period"),
+                eq(Date.valueOf(JANUARY)), eq("transaction_p202001"), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void searchOnlyPeriodsOverlappingRange() {
+        //given
+        givenPeriods(JANUARY, JANUARY.plusMonths(1), JANUARY.plusMonths(2));
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        // 계좌, 기간 from, to, limit
+        given(jdbcTemplate.query(sql.capture(), any(RowMapper.class), any(), any(), any(), any()))
+                .willReturn(Arrays.asList(ArchivedTransaction.builder().id(1L).build()));
+
+        //when
+        // 2월 중순 ~ 3월 1일 => 2월 테이블만
+        List<ArchivedTransaction> found = service.search(7L, TransactionSearch.Condition.builder()
+                .from(LocalDateTime.of(2020, 2, 15, 0, 0))
+                .to(LocalDateTime.of(2020, 3, 1, 0, 0))
+                .build(), null, null, 10);
+
+        //then
+        assertEquals(1, found.size());
+        assertEquals(1, sql.getAllValues().size());
+        assertTrue(sql.getValue().contains(" from transaction_p202002 t "));
+        assertTrue(sql.getValue().contains("t.account_id = ?"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void skipPeriodDroppedAfterListing() {
+        //given
+        // 목록을 읽은 뒤에 보관소로 옮기고 지운 달 => 목록에도 없음
+        givenPeriods(JANUARY);
+        given(jdbcTemplate.query(anyString(), any(RowMapper.class), any()))
+                .willThrow(new BadSqlGrammarException("query", "select ...",
+                        new SQLException("Table \"TRANSACTION_P202001\" not found", "42S02", 42102)));
+        given(jdbcTemplate.queryForObject(startsWith("select count(*) from transaction_period"),
+                eq(Integer.class), any()))
+                .willReturn(0);
+
+        //when
+        //then
+        assertFalse(service.findByTransactionId("transactionId").isPresent());
+    }
+
+    @Test
+    void tablesEndWithLedger() {
+        //given
+        givenPeriods(JANUARY, JANUARY.plusMonths(1));
+
+        //when
+        List<String> tables = service.tables(LocalDateTime.of(2020, 2, 1, 0, 0), null);
+
+        //then
+        // 1월은 겹치지 않음, 원장은 항상 마지막
+        assertEquals(Arrays.asList("transaction_p202002", "transaction"), tables);
+    }
+
+    @Test
+    void openMonthsMustKeepArchiveCutoffSealed() {
+        //given
+        //when
+        //then
+        assertThrows(IllegalArgumentException.class,
+                () -> new TransactionPeriodService(jdbcTemplate, transactionTemplate, 13));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenPeriods(LocalDate... months) {
+        given(jdbcTemplate.query(startsWith("select period_start, table_name from transaction_period"),
+                any(RowMapper.class)))
+                .willAnswer(invocation -> Arrays.stream(months)
+                        .map(month -> new TransactionPeriodService.Period(month,
+                                TransactionPeriodService.tableName(month)))
+                        .collect(java.util.stream.Collectors.toList()));
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.ArchivedTransaction;
+import com.example.account.dto.TransactionSearch;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionSearchServiceTest {
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private TransactionPeriodService transactionPeriodService;
+    @Mock
+    private TransactionArchiveService transactionArchiveService;
+
+    @InjectMocks
+    private TransactionSearchService transactionSearchService;
+
+    @Test
+    void searchReturnsNextCursorWhenMoreRemain() {
+        //given
+        Account account = account();
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        // size 2 요청 => 3건(size + 1)을 읽어서 다음 페이지가 있는지 확인
+        List<Transaction> transactions = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 3; i++) {
+            transactions.add(transaction(account, 30L - i, now.minusMinutes(i)));
+        }
+        given(transactionRepository.search(any(), eq(3)))
+                .willReturn(transactions);
+
+        //when
+        TransactionSearch.Response response = transactionSearchService.search(
+                TransactionSearch.Condition.builder()
+                        .accountNumber("1000000012")
+                        .size(2)
+                        .build());
+
+        //then
+        assertEquals(2, response.getTransactions().size());
+        // 커서는 마지막으로 준 거래(두 번째)를 가리킴
+        assertEquals(new TransactionSearchService.Cursor(now.minusMinutes(1), 29L).encode(),
+                response.getNextCursor());
+    }
+
+    @Test
+    void continueIntoSealedPeriodsAfterLedger() {
+        //given
+        // 원장에는 1건뿐 => 나머지는 달 테이블에서 원장 마지막 거래보다 오래된 것부터
+        LocalDateTime now = LocalDateTime.now();
+        Transaction recent = transaction(account(), 90L, now);
+        given(transactionRepository.search(any(), eq(4)))
+                .willReturn(Collections.singletonList(recent));
+        LocalDateTime lastMonth = now.minusMonths(2);
+        given(transactionPeriodService.search(eq(null), any(), eq(now), eq(90L), eq(3)))
+                .willReturn(Arrays.asList(sealed(50L, lastMonth), sealed(49L, lastMonth.minusMinutes(1)),
+                        sealed(48L, lastMonth.minusMinutes(2))));
+
+        //when
+        TransactionSearch.Response response = transactionSearchService.search(
+                TransactionSearch.Condition.builder()
+                        .size(3)
+                        .build());
+
+        //then
+        assertEquals(3, response.getTransactions().size());
+        assertEquals("tx-49", response.getTransactions().get(2).getTransactionId());
+        assertEquals(new TransactionSearchService.Cursor(lastMonth.minusMinutes(1), 49L).encode(),
+                response.getNextCursor());
+        // 계좌 조건이 없으면 보관소는 보지 않음
+        verifyNoInteractions(transactionArchiveService);
+    }
+
+    @Test
+    void sizeIsCapped() {
+        //given
+        given(transactionRepository.search(any(), eq(TransactionSearchService.MAX_SIZE + 1)))
+                .willReturn(new ArrayList<>());
+
+        //when
+        TransactionSearch.Response response = transactionSearchService.search(
+                TransactionSearch.Condition.builder()
+                        .size(10_000)
+                        .build());
+
+        //then
+        verify(transactionRepository).search(any(), eq(TransactionSearchService.MAX_SIZE + 1));
+        assertNull(response.getNextCursor());
+    }
+
+    @Test
+    void invalidCursor() {
+        //given
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionSearchService.search(TransactionSearch.Condition.builder()
+                        .cursor("not-a-cursor")
+                        .build()));
+
+        //then
+        assertEquals(ErrorCode.INVALID_REQUEST, exception.getErrorCode());
+    }
+
+    private static ArchivedTransaction sealed(long id, LocalDateTime transactedAt) {
+        return ArchivedTransaction.builder()
+                .id(id)
+                .accountId(12L)
+                .accountNumber("1000000012")
+                .transactionType(USE)
+                .transactionResultType(S)
+                .amount(1000L)
+                .balanceSnapshot(9000L)
+                .transactionId("tx-" + id)
+                .transactedAt(transactedAt)
+                .build();
+    }
+
+    private static Account account() {
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountNumber("1000000012")
+                .balance(10000L)
+                .build();
+        account.setId(3L);
+        return account;
+    }
+
+    private static Transaction transaction(Account account, long id, LocalDateTime transactedAt) {
+        Transaction transaction = Transaction.builder()
+                .account(account)
+                .transactionType(USE)
+                .transactionResultType(S)
+                .amount(100L)
+                .balanceSnapshot(9900L)
+                .transactionId("tx" + id)
+                .transactedAt(transactedAt)
+                .build();
+        transaction.setId(id);
+        return transaction;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipfSamplerTest {
+
+    @Test
+    void sampleIsSkewedToLowRanks() {
+        //given
+        ZipfSampler sampler = new ZipfSampler(1000, 1.1);
+        Random random = new Random(42);
+        int[] counts = new int[1000];
+
+        //when
+        for (int i = 0; i < 100_000; i++) {
+            counts[sampler.sample(random)]++;
+        }
+
+        //then
+        // 1등 계좌가 꼴찌 계좌보다 훨씬 많이 뽑혀야 함
+        assertTrue(counts[0] > counts[999] * 100);
+        assertTrue(counts[0] > counts[1]);
+    }
+
+    @Test
+    void sampleStaysInRange() {
+        //given
+        ZipfSampler sampler = new ZipfSampler(3, 1.0);
+        Random random = new Random(1);
+
+        //when
+        //then
+        for (int i = 0; i < 10_000; i++) {
+            int rank = sampler.sample(random);
+            assertTrue(rank >= 0 && rank < 3);
+        }
+    }
+}